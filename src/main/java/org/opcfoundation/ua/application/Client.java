@@ -242,7 +242,7 @@ public class Client {
 		req.setRequestedSessionTimeout(requestedSessionTimeout/* 1 hour */);
 
 		RequestHeader requestHeader = new RequestHeader();
-		requestHeader.setTimestamp(DateTime.currentTime());
+		requestHeader.setTimestamp(DateTime.currentTimeCached());
 		req.setRequestHeader(requestHeader);
 		
 		CreateSessionResponse res = (CreateSessionResponse) channel.serviceRequest(req);
@@ -829,7 +829,7 @@ public class Client {
 			GetEndpointsRequest req = new GetEndpointsRequest(null, discoveryEndpointUri, new String[0], new String[0]);
 			req.setRequestHeader( new RequestHeader() );
 			req.getRequestHeader().setTimeoutHint( UnsignedInteger.valueOf( getTimeout() ) );
-			req.getRequestHeader().setTimestamp(new DateTime());
+			req.getRequestHeader().setTimestamp(DateTime.currentTimeCached());
 			GetEndpointsResponse res = chan.GetEndpoints(req);
 			
 			EndpointDescription[] result = res.getEndpoints();
@@ -939,7 +939,7 @@ public class Client {
 					startingRecordId, maxRecordsToReturn, serverCapabilities);
 			req.setRequestHeader( new RequestHeader() );
 			req.getRequestHeader().setTimeoutHint( UnsignedInteger.valueOf( getTimeout() ) );
-			req.getRequestHeader().setTimestamp(new DateTime());
+			req.getRequestHeader().setTimestamp(DateTime.currentTimeCached());
 			FindServersOnNetworkResponse res = chan.FindServersOnNetwork(req);
 			return res;
 		} finally {
@@ -143,7 +143,7 @@ public class EndpointDiscoveryService {
 		}
 		logger.trace("onGetEndpoints: list={}", list);
 		res.setEndpoints(list.toArray(new EndpointDescription[0]));
-		ResponseHeader h = new ResponseHeader(DateTime.currentTime(), messageExchange
+		ResponseHeader h = new ResponseHeader(DateTime.currentTimeCached(), messageExchange
 				.getRequest().getRequestHeader().getRequestHandle(), null,
 				null, null, null);
 		res.setResponseHeader(h);
@@ -397,7 +397,7 @@ public class SessionChannel extends ChannelService implements RequestChannel {
 			req.setRequestHeader( rh = new RequestHeader() );
 		
 		rh.setAuthenticationToken(session.getAuthenticationToken());
-		rh.setTimestamp( new DateTime() );
+		rh.setTimestamp( DateTime.currentTimeCached() );
 		if (LOGGER.isTraceEnabled())
 			LOGGER.trace("serviceRequest: Request={} SecureChannelId={}", serviceRequest.getClass().getSimpleName(), channel.getSecureChannelId());
 		return channel.serviceRequest(req);
@@ -418,7 +418,7 @@ public class SessionChannel extends ChannelService implements RequestChannel {
 			request.setRequestHeader( rh = new RequestHeader() );
 		
 		rh.setAuthenticationToken(session.getAuthenticationToken());
-		rh.setTimestamp( new DateTime() );
+		rh.setTimestamp( DateTime.currentTimeCached() );
 		return channel.serviceRequestAsync(request);
 	}
 
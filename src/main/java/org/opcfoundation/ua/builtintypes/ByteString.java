@@ -12,9 +12,12 @@
 
 package org.opcfoundation.ua.builtintypes;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.opcfoundation.ua.utils.CryptoUtil;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryWriteable;
 
 /**
  * This primitive DataType specifies a ByteString, similar as String but for bytes.
@@ -22,6 +25,10 @@ import org.opcfoundation.ua.utils.CryptoUtil;
  * 
  * Also the constructor is private to avoid situations where the given value would be null,
  * now the static factory methods returns null if given ByteString Null equivalent byte[].
+ * 
+ * A ByteString may also be a slice of a larger array, such as the buffer of a received 
+ * message, see {@link #slice(byte[], int, int)}. Use {@link #detach()} to get a ByteString 
+ * that does not keep the larger array in memory.
  */
 public final class ByteString implements Comparable<ByteString>{
 
@@ -52,12 +59,53 @@ public final class ByteString implements Comparable<ByteString>{
     return new ByteString(byteArray);
   }
   
+  /**
+   * Creates a ByteString that takes the given array as its value, without copying it.
+   * The array must not be modified afterwards.
+   * 
+   * @param byteArray the byte array
+   * @return new ByteString or null if given null array
+   */
+  public static ByteString wrap(byte[] byteArray){
+    if(byteArray == null){
+      return null;
+    }
+    if(byteArray.length == 0){
+      return EMPTY;
+    }
+    return new ByteString(byteArray, 0, byteArray.length, false);
+  }
+  
+  /**
+   * Creates a ByteString that refers to a range of an array, without copying it.
+   * The range must not be modified while the ByteString is in use, and the whole array
+   * is kept in memory for as long as the ByteString is. 
+   * 
+   * @param array the array
+   * @param offset offset of the first byte
+   * @param length number of bytes
+   * @return new ByteString
+   */
+  public static ByteString slice(byte[] array, int offset, int length){
+    if(offset < 0 || length < 0 || offset + length > array.length){
+      throw new IndexOutOfBoundsException();
+    }
+    if(length == 0){
+      return EMPTY;
+    }
+    return new ByteString(array, offset, length, true);
+  }
+  
   /**
    * ByteString instance that models empty ByteString.
    */
   public static final ByteString EMPTY = new ByteString(new byte[0]);
   
   private final byte[] value;
+  private final int offset;
+  private final int length;
+  /** Whether value is shared with the array that this ByteString was sliced from */
+  private final boolean slice;
   
   /**
    * Create new ByteString from an array of bytes. 
@@ -66,7 +114,14 @@ public final class ByteString implements Comparable<ByteString>{
    * @param value value, shall not be null
    */
   private ByteString(byte[] value) {
-    this.value = Arrays.copyOf(value, value.length);
+    this(Arrays.copyOf(value, value.length), 0, value.length, false);
+  }
+  
+  private ByteString(byte[] value, int offset, int length, boolean slice) {
+    this.value = value;
+    this.offset = offset;
+    this.length = length;
+    this.slice = slice;
   }
   
   @Override
@@ -78,8 +133,11 @@ public final class ByteString implements Comparable<ByteString>{
     if (getClass() != obj.getClass())
       return false;
     ByteString other = (ByteString) obj;
-    if (!Arrays.equals(value, other.value))
+    if (length != other.length)
       return false;
+    for (int i = 0; i < length; i++)
+      if (value[offset + i] != other.value[other.offset + i])
+        return false;
     return true;
   }
 
@@ -89,7 +147,7 @@ public final class ByteString implements Comparable<ByteString>{
    * @return copy of the value as byte array. Not null.
    */
   public byte[] getValue(){
-    return Arrays.copyOf(value, value.length);
+    return Arrays.copyOfRange(value, offset, offset + length);
   }
   
   /**
@@ -98,20 +156,61 @@ public final class ByteString implements Comparable<ByteString>{
    * @return
    */
   public int getLength(){
-    return value.length;
+    return length;
+  }
+
+  /**
+   * Whether this ByteString refers to a range of a larger array, 
+   * see {@link #slice(byte[], int, int)}.
+   * 
+   * @return true if this is a slice
+   */
+  public boolean isSlice(){
+    return slice;
+  }
+
+  /**
+   * Get a ByteString with the same value that does not refer to the array this 
+   * ByteString was sliced from. Use it for values that are kept for long, so that
+   * they do not keep the buffer of the whole message in memory.
+   * 
+   * @return a copy if this is a slice, otherwise this
+   */
+  public ByteString detach(){
+    return slice ? new ByteString(getValue(), 0, length, false) : this;
+  }
+
+  /**
+   * Get a read-only view of the value, without copying it.
+   * 
+   * @return read-only buffer positioned at the first byte of the value
+   */
+  public ByteBuffer asByteBuffer(){
+    return ByteBuffer.wrap(value, offset, length).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Write the value to an output, without copying it.
+   * 
+   * @param out the output
+   * @throws IOException if the output fails
+   */
+  public void writeTo(IBinaryWriteable out) throws IOException {
+    out.put(value, offset, length);
   }
 
   @Override
   public int hashCode() {
-    final int prime = 31;
+    // Same as Arrays.hashCode of the value
     int result = 1;
-    result = prime * result + Arrays.hashCode(value);
-    return result;
+    for (int i = 0; i < length; i++)
+      result = 31 * result + value[offset + i];
+    return 31 + result;
   }
 
   @Override
   public String toString() {
-    return CryptoUtil.toHex(value, 0);
+    return CryptoUtil.toHex(offset == 0 && length == value.length ? value : getValue(), 0);
   }
 
 @Override
@@ -19,19 +19,32 @@ import org.opcfoundation.ua.utils.ObjectUtils;
 
 /**
  * <p>DataValue class.</p>
- *
+ * <p>
+ * The status code, the timestamps and the picoseconds are stored as primitives,
+ * the StatusCode, DateTime and UnsignedShort objects are created when the getters 
+ * are called. Use {@link #getStatusCodeBits()}, {@link #getSourceTimestampTicks()} 
+ * etc. to read the values without allocating.
  */
 public class DataValue implements Cloneable {
 
 	/** Constant <code>ID</code> */
 	public static final NodeId ID = Identifiers.DataValue;
 	
+	private static final int NULL_STATUS_CODE = 1;
+	private static final int HAS_SOURCE_TIMESTAMP = 2;
+	private static final int HAS_SERVER_TIMESTAMP = 4;
+	private static final int NULL_SOURCE_PICOSECONDS = 8;
+	private static final int NULL_SERVER_PICOSECONDS = 16;
+
 	Variant value;
-    StatusCode statusCode;
-    DateTime sourceTimestamp;
-    UnsignedShort sourcePicoseconds;
-    DateTime serverTimestamp;
-    UnsignedShort serverPicoseconds;
+	/** Status code bits, see {@link StatusCode#getValueAsIntBits()} */
+	int statusCode;
+	/** Timestamps in 100 ns ticks, 0 if not set */
+	long sourceTimestamp, serverTimestamp;
+	/** Picoseconds, 0 if not set */
+	int sourcePicoseconds, serverPicoseconds;
+	/** Which of the values are set or null, see the constants */
+	int flags;
 
 	/**
 	 * <p>Constructor for DataValue.</p>
@@ -51,14 +64,37 @@ public class DataValue implements Cloneable {
      * @param serverPicoseconds a {@link org.opcfoundation.ua.builtintypes.UnsignedShort} object.
      */
     public DataValue(Variant value, StatusCode statusCode, DateTime sourceTimestamp, UnsignedShort sourcePicoseconds, DateTime serverTimestamp, UnsignedShort serverPicoseconds) {
+        super();
+        setStatusCode(statusCode);
+        setSourceTimestamp(sourceTimestamp);
+        setServerTimestamp(serverTimestamp);
+		setSourcePicoseconds(sourcePicoseconds == null ? UnsignedShort.ZERO
+				: sourcePicoseconds);
+		setServerPicoseconds(serverPicoseconds == null ? UnsignedShort.ZERO
+				: serverPicoseconds);
+        setValue(value);
+    }
+
+    /**
+     * Create a DataValue from primitive values, without creating the
+     * StatusCode, DateTime and UnsignedShort objects.
+     *
+     * @param value a {@link org.opcfoundation.ua.builtintypes.Variant} object.
+     * @param statusCode status code bits
+     * @param sourceTimestamp source timestamp in 100 ns ticks, 0 for none
+     * @param sourcePicoseconds source picoseconds
+     * @param serverTimestamp server timestamp in 100 ns ticks, 0 for none
+     * @param serverPicoseconds server picoseconds
+     */
+    public DataValue(Variant value, int statusCode, long sourceTimestamp, int sourcePicoseconds, long serverTimestamp, int serverPicoseconds) {
         super();
         this.statusCode = statusCode;
         this.sourceTimestamp = sourceTimestamp;
         this.serverTimestamp = serverTimestamp;
-		this.sourcePicoseconds = sourcePicoseconds == null ? UnsignedShort.ZERO
-				: sourcePicoseconds;
-		this.serverPicoseconds = serverPicoseconds == null ? UnsignedShort.ZERO
-				: serverPicoseconds;
+        this.sourcePicoseconds = sourcePicoseconds;
+        this.serverPicoseconds = serverPicoseconds;
+        if (sourceTimestamp != 0) flags |= HAS_SOURCE_TIMESTAMP;
+        if (serverTimestamp != 0) flags |= HAS_SERVER_TIMESTAMP;
         setValue(value);
     }
 
@@ -108,6 +144,15 @@ public class DataValue implements Cloneable {
 	 * @return a {@link org.opcfoundation.ua.builtintypes.DateTime} object.
 	 */
 	public DateTime getServerTimestamp() {
+        return (flags & HAS_SERVER_TIMESTAMP) == 0 ? null : toDateTime(serverTimestamp);
+    }
+
+    /**
+     * Get the server timestamp without creating a DateTime.
+     *
+     * @return the timestamp in 100 ns ticks, 0 if there is none
+     */
+    public long getServerTimestampTicks() {
         return serverTimestamp;
     }
 
@@ -117,7 +162,13 @@ public class DataValue implements Cloneable {
      * @param serverTimestamp a {@link org.opcfoundation.ua.builtintypes.DateTime} object.
      */
     public void setServerTimestamp(DateTime serverTimestamp) {
-        this.serverTimestamp = serverTimestamp;
+        if (serverTimestamp == null) {
+            this.serverTimestamp = 0;
+            flags &= ~HAS_SERVER_TIMESTAMP;
+        } else {
+            this.serverTimestamp = serverTimestamp.getValue();
+            flags |= HAS_SERVER_TIMESTAMP;
+        }
     }
 
     /**
@@ -126,6 +177,15 @@ public class DataValue implements Cloneable {
      * @return a {@link org.opcfoundation.ua.builtintypes.DateTime} object.
      */
     public DateTime getSourceTimestamp() {
+        return (flags & HAS_SOURCE_TIMESTAMP) == 0 ? null : toDateTime(sourceTimestamp);
+    }
+
+    /**
+     * Get the source timestamp without creating a DateTime.
+     *
+     * @return the timestamp in 100 ns ticks, 0 if there is none
+     */
+    public long getSourceTimestampTicks() {
         return sourceTimestamp;
     }
 
@@ -135,7 +195,17 @@ public class DataValue implements Cloneable {
      * @param sourceTimestamp a {@link org.opcfoundation.ua.builtintypes.DateTime} object.
      */
     public void setSourceTimestamp(DateTime sourceTimestamp) {
-        this.sourceTimestamp = sourceTimestamp;
+        if (sourceTimestamp == null) {
+            this.sourceTimestamp = 0;
+            flags &= ~HAS_SOURCE_TIMESTAMP;
+        } else {
+            this.sourceTimestamp = sourceTimestamp.getValue();
+            flags |= HAS_SOURCE_TIMESTAMP;
+        }
+    }
+
+    private static DateTime toDateTime(long ticks) {
+        return ticks == 0 ? DateTime.MIN_VALUE : new DateTime(ticks);
     }
 
     /**
@@ -144,6 +214,17 @@ public class DataValue implements Cloneable {
      * @return a {@link org.opcfoundation.ua.builtintypes.StatusCode} object.
      */
     public StatusCode getStatusCode() {
+        if ((flags & NULL_STATUS_CODE) != 0)
+            return null;
+        return statusCode == 0 ? StatusCode.GOOD : StatusCode.getFromBits(statusCode);
+    }
+
+    /**
+     * Get the status code without creating a StatusCode.
+     *
+     * @return the status code bits, 0 (Good) if the status code is null
+     */
+    public int getStatusCodeBits() {
         return statusCode;
     }
 
@@ -153,7 +234,13 @@ public class DataValue implements Cloneable {
      * @param statusCode a {@link org.opcfoundation.ua.builtintypes.StatusCode} object.
      */
     public void setStatusCode(StatusCode statusCode) {
-        this.statusCode = statusCode;
+        if (statusCode == null) {
+            this.statusCode = 0;
+            flags |= NULL_STATUS_CODE;
+        } else {
+            this.statusCode = statusCode.getValueAsIntBits();
+            flags &= ~NULL_STATUS_CODE;
+        }
     }
 
 	/**
@@ -162,7 +249,7 @@ public class DataValue implements Cloneable {
 	 * @param value a {@link org.opcfoundation.ua.builtintypes.UnsignedInteger} object.
 	 */
 	public void setStatusCode(UnsignedInteger value) {
-		setStatusCode(new StatusCode(value));
+		setStatusCode(StatusCode.getFromBits(value.intValue()));
 	}
 
 	/**
@@ -199,12 +286,13 @@ public class DataValue implements Cloneable {
     @Override
     public int hashCode() {
     	return 
-		ObjectUtils.hashCode(value) |
-		ObjectUtils.hashCode(statusCode) |
-		ObjectUtils.hashCode(sourceTimestamp) |
-		ObjectUtils.hashCode(sourcePicoseconds) |
-		ObjectUtils.hashCode(serverTimestamp) |
-		ObjectUtils.hashCode(serverPicoseconds);
+		ObjectUtils.hashCode(value) ^
+		statusCode ^
+		(int) (sourceTimestamp ^ (sourceTimestamp >>> 32)) ^
+		(sourcePicoseconds << 16) ^
+		(int) (serverTimestamp ^ (serverTimestamp >>> 32)) ^
+		serverPicoseconds ^
+		flags;
     }
     
     /** {@inheritDoc} */
@@ -214,11 +302,12 @@ public class DataValue implements Cloneable {
     	DataValue o = (DataValue) obj;
     	return 
 			ObjectUtils.objectEquals(o.value, value) &&
-			ObjectUtils.objectEquals(o.statusCode, statusCode) &&
-			ObjectUtils.objectEquals(o.sourceTimestamp, sourceTimestamp) &&
-			ObjectUtils.objectEquals(o.serverTimestamp, serverTimestamp) &&
-			ObjectUtils.objectEquals(o.sourcePicoseconds, sourcePicoseconds) &&
-			ObjectUtils.objectEquals(o.serverPicoseconds, serverPicoseconds);		
+			o.statusCode == statusCode &&
+			o.sourceTimestamp == sourceTimestamp &&
+			o.serverTimestamp == serverTimestamp &&
+			o.sourcePicoseconds == sourcePicoseconds &&
+			o.serverPicoseconds == serverPicoseconds &&
+			o.flags == flags;		
     }
     
     /**
@@ -227,6 +316,15 @@ public class DataValue implements Cloneable {
      * @return a {@link org.opcfoundation.ua.builtintypes.UnsignedShort} object.
      */
     public UnsignedShort getSourcePicoseconds() {
+		return (flags & NULL_SOURCE_PICOSECONDS) != 0 ? null : UnsignedShort.valueOf(sourcePicoseconds);
+	}
+
+	/**
+	 * Get the source picoseconds without creating an UnsignedShort.
+	 *
+	 * @return the picoseconds, 0 if null
+	 */
+	public int getSourcePicos() {
 		return sourcePicoseconds;
 	}
 
@@ -236,7 +334,13 @@ public class DataValue implements Cloneable {
 	 * @param sourcePicoseconds a {@link org.opcfoundation.ua.builtintypes.UnsignedShort} object.
 	 */
 	public void setSourcePicoseconds(UnsignedShort sourcePicoseconds) {
-		this.sourcePicoseconds = sourcePicoseconds;
+		if (sourcePicoseconds == null) {
+			this.sourcePicoseconds = 0;
+			flags |= NULL_SOURCE_PICOSECONDS;
+		} else {
+			this.sourcePicoseconds = sourcePicoseconds.intValue();
+			flags &= ~NULL_SOURCE_PICOSECONDS;
+		}
 	}
 
 	/**
@@ -245,6 +349,15 @@ public class DataValue implements Cloneable {
 	 * @return a {@link org.opcfoundation.ua.builtintypes.UnsignedShort} object.
 	 */
 	public UnsignedShort getServerPicoseconds() {
+		return (flags & NULL_SERVER_PICOSECONDS) != 0 ? null : UnsignedShort.valueOf(serverPicoseconds);
+	}
+
+	/**
+	 * Get the server picoseconds without creating an UnsignedShort.
+	 *
+	 * @return the picoseconds, 0 if null
+	 */
+	public int getServerPicos() {
 		return serverPicoseconds;
 	}
 
@@ -254,7 +367,13 @@ public class DataValue implements Cloneable {
 	 * @param serverPicoseconds a {@link org.opcfoundation.ua.builtintypes.UnsignedShort} object.
 	 */
 	public void setServerPicoseconds(UnsignedShort serverPicoseconds) {
-		this.serverPicoseconds = serverPicoseconds;
+		if (serverPicoseconds == null) {
+			this.serverPicoseconds = 0;
+			flags |= NULL_SERVER_PICOSECONDS;
+		} else {
+			this.serverPicoseconds = serverPicoseconds.intValue();
+			flags &= ~NULL_SERVER_PICOSECONDS;
+		}
 	}
 	
 	/** {@inheritDoc} */
@@ -263,11 +382,11 @@ public class DataValue implements Cloneable {
 		StringBuilder sb = new StringBuilder();
 		sb.append("DataValue(");
 		sb.append("value="+value);
-		sb.append(", statusCode="+statusCode);
-		sb.append(", sourceTimestamp="+sourceTimestamp);
-		sb.append(", sourcePicoseconds="+sourcePicoseconds);
-		sb.append(", serverTimestamp="+serverTimestamp);
-		sb.append(", serverPicoseconds="+serverPicoseconds);
+		sb.append(", statusCode="+getStatusCode());
+		sb.append(", sourceTimestamp="+getSourceTimestamp());
+		sb.append(", sourcePicoseconds="+getSourcePicoseconds());
+		sb.append(", serverTimestamp="+getServerTimestamp());
+		sb.append(", serverPicoseconds="+getServerPicoseconds());
 		sb.append(")");
 		return sb.toString();
 	}
@@ -277,10 +396,11 @@ public class DataValue implements Cloneable {
     //Git issue 245
     //Suggestion provided by CWE link (http://cwe.mitre.org/data/definitions/491.html)
 	public final Object clone() {
-		return new DataValue(getValue(),
-				getStatusCode(), getSourceTimestamp(),
-				getServerPicoseconds(),
-				getServerTimestamp(),
-				getServerPicoseconds());	}
+		DataValue result = new DataValue(value, statusCode, 
+				sourceTimestamp, sourcePicoseconds, 
+				serverTimestamp, serverPicoseconds);
+		result.flags = flags;
+		return result;
+	}
 	   
 }
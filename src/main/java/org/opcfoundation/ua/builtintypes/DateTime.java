@@ -63,13 +63,17 @@ public class DateTime implements Serializable, Comparable<DateTime> {
 	public static final DateTime MIN_VALUE = new DateTime(0);
 	/** Constant <code>MAX_VALUE</code> */
 	public static final DateTime MAX_VALUE = new DateTime(9999, Calendar.JANUARY, 1, 23, 59, 59, 0);
+	/** Latest instance returned by {@link #currentTimeCached()} */
+	private static volatile DateTime cachedTime = MIN_VALUE;
 	private final long value;
+	/** Result of the latest toString, together with the format it was made with */
+	private transient volatile Formatted string;
 	
 	/**
 	 * Constructs a new DateTime value, initializing it with the current UTC time.
 	 */
 	public DateTime() {
-	    this(System.currentTimeMillis() * 10000 + OffsetToGregorianCalendarZero);
+	    this(currentTicks());
 	}
 
 	/**
@@ -187,9 +191,17 @@ public class DateTime implements Serializable, Comparable<DateTime> {
 	 * @return a {@link java.lang.String} object.
 	 */
 	public String toString() {
-		final GregorianCalendar c = useLocalTimeInToString ? getLocalCalendar() : getUtcCalendar();
+		// Formatting is expensive, so the result is cached for as long as the format is not changed 
+		final String format = strFormat;
+		final boolean local = useLocalTimeInToString;
+		final Formatted cached = string;
+		if (cached != null && format == cached.format && local == cached.local)
+			return cached.text;
+		final GregorianCalendar c = local ? getLocalCalendar() : getUtcCalendar();
 		long nanos = value % 10000000; 
-		return String.format(strFormat, c, c, nanos, c); // yyyy/mm/dd HH:MM:SS.LLL
+		String result = String.format(format, c, c, nanos, c); // yyyy/mm/dd HH:MM:SS.LLL
+		string = new Formatted(format, local, result);
+		return result;
 	}
 	
     /**
@@ -262,6 +274,34 @@ public class DateTime implements Serializable, Comparable<DateTime> {
 		return new DateTime();
 	}
 
+	/**
+	 * Get the current time in 100 nanosecond intervals since January 1, 1601,
+	 * without creating a DateTime instance.
+	 *
+	 * @return the current UTC time in ticks
+	 */
+	public static long currentTicks() {
+		return System.currentTimeMillis() * 10000 + OffsetToGregorianCalendarZero;
+	}
+
+	/**
+	 * Get the current time as a shared instance. The instance is replaced
+	 * only when the system clock has advanced, so callers that stamp many
+	 * messages within the same millisecond, such as request and response
+	 * headers, do not create a new DateTime for each of them.
+	 *
+	 * @return an instance of DateTime with the current time.
+	 */
+	public static DateTime currentTimeCached() {
+		final long ticks = currentTicks();
+		DateTime result = cachedTime;
+		if (result.value != ticks) {
+			result = new DateTime(ticks);
+			cachedTime = result;
+		}
+		return result;
+	}
+
 	/**
 	 * Parse a DateTime value from a string. The valid string formats is the
 	 * xs:dateTime format, as defined in [Part 6., 5.3.1.6]:
@@ -271,7 +311,8 @@ public class DateTime implements Serializable, Comparable<DateTime> {
 	 * <p>
 	 * Correct:<br>
 	 * 2002-10-10T00:00:00+05:00<br>
-	 * 2002-10-09T19:00:00Z
+	 * 2002-10-09T19:00:00Z<br>
+	 * 2002-10-09T19:00:00.1234567Z
 	 * <p>
 	 * Incorrect:<br>
 	 * 2002-10-09T19:00:00 </blockquote>
@@ -292,15 +333,28 @@ public class DateTime implements Serializable, Comparable<DateTime> {
 		int hour = (l < 13) ? 0 : Integer.parseInt(s.substring(11,13));
 		int min = (l < 16) ? 0 : Integer.parseInt(s.substring(14,16));
 		int sec = (l < 19) ? 0 : Integer.parseInt(s.substring(17,19));
+		// Parse the fraction of a second, in 100 nanosecond precision
+		int pos = 19;
+		int ticks = 0;
+		if (l > pos && s.charAt(pos) == '.') {
+			int digits = 0;
+			for (pos++; pos < l && Character.isDigit(s.charAt(pos)); pos++)
+				if (digits < 7) {
+					ticks = ticks * 10 + (s.charAt(pos) - '0');
+					digits++;
+				}
+			for (; digits < 7; digits++)
+				ticks *= 10;
+		}
 		// Parse the timezone
 		TimeZone timeZone = UTC;
-		if (l > 19) {
-			String tz = s.substring(19);
+		if (l > pos) {
+			String tz = s.substring(pos);
 			if (tz.charAt(0) == '+' || tz.charAt(0) == '-')
 				tz = "GMT" + tz;
 			timeZone = TimeZone.getTimeZone(tz);
 		}
-		return new DateTime(year, month-1, day, hour, min, sec, 0, timeZone);
+		return new DateTime(year, month-1, day, hour, min, sec, ticks * 100, timeZone);
 	}
 
 	/**
@@ -349,4 +403,20 @@ public class DateTime implements Serializable, Comparable<DateTime> {
 		DateTime.useLocalTimeInToString = useLocalTimeInToString;
 	}
 	
+	/**
+	 * The text made by toString and the format it was made with. Published 
+	 * as a whole, so that the text always matches the format.
+	 */
+	private static final class Formatted {
+		final String format;
+		final boolean local;
+		final String text;
+		
+		Formatted(String format, boolean local, String text) {
+			this.format = format;
+			this.local = local;
+			this.text = text;
+		}
+	}
+	
 }
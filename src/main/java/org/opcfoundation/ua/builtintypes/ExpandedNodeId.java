@@ -129,6 +129,9 @@ public final class ExpandedNodeId implements Comparable<ExpandedNodeId>{
 
 	final Object value;
 
+	/** Cached hash code, 0 = not computed */
+	private int hash;
+
 	/**
 	 * Convenience constructor that creates ExpandedNodeId from
 	 * NamespaceIndex and Identifier of an nodeId. Server Index is null.
@@ -342,13 +345,16 @@ public final class ExpandedNodeId implements Comparable<ExpandedNodeId>{
 	/** {@inheritDoc} */
 	@Override
 	public int hashCode() {
-		int hashCode = 0;
-		if (value!=null)
-			hashCode += 3*value.hashCode();
+		int hashCode = hash;
+		if (hashCode == 0) {
+			if (value!=null)
+				hashCode += 3*value.hashCode();
 
 			// Does not calc using nsIdx/nsUri (one or both can be defined and cannot do idx->uri mapping here)
 			if (serverIndex!=null) hashCode += serverIndex.hashCode()*17;
-			return hashCode;
+			hash = hashCode;
+		}
+		return hashCode;
 	}
 
 	/*
@@ -12,6 +12,10 @@
 
 package org.opcfoundation.ua.builtintypes;
 
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.opcfoundation.ua.common.NamespaceTable;
 import org.opcfoundation.ua.core.StatusCodes;
 import org.opcfoundation.ua.encoding.DecodingException;
@@ -23,6 +27,7 @@ import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
 import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
 import org.opcfoundation.ua.encoding.binary.IEncodeableSerializer;
 import org.opcfoundation.ua.encoding.xml.XmlDecoder;
+import org.opcfoundation.ua.encoding.xml.XmlEncoder;
 import org.opcfoundation.ua.utils.LimitedByteArrayOutputStream;
 import org.opcfoundation.ua.utils.ObjectUtils;
 import org.opcfoundation.ua.utils.StackUtils;
@@ -61,8 +66,16 @@ public class ExtensionObject {
 		if (encodingType.equals(QualifiedName.DEFAULT_BINARY_ENCODING))
 				return ExtensionObject.binaryEncode(encodeable, serializer, ctx);
 
-		if (encodingType.equals(QualifiedName.DEFAULT_XML_ENCODING))
-			return ExtensionObject.xmlEncode(encodeable, serializer);
+		if (encodingType.equals(QualifiedName.DEFAULT_XML_ENCODING)) {
+			final EncoderContext context;
+			if (serializer == null) {
+				context = ctx;
+			} else {
+				context = ctx.shallowCopy();
+				context.setEncodeableSerializer(serializer);
+			}
+			return ExtensionObject.xmlEncode(encodeable, context);
+		}
 		throw new EncodingException(StatusCodes.Bad_DataEncodingUnsupported);
 	}
 	
@@ -146,31 +159,76 @@ public class ExtensionObject {
 	 *
 	 * @param encodeable encodeable
 	 * @return xml encoded encodeable
-	 * @throws org.opcfoundation.ua.encoding.EncodingException on encoding problem. Currently always, since the encoding is not supported.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException on encoding problem
 	 */
 	public static ExtensionObject xmlEncode(Structure encodeable)
 	throws EncodingException
 	{
-		throw new EncodingException(StatusCodes.Bad_DataEncodingUnsupported);
+		return xmlEncode(encodeable, EncoderContext.getDefaultInstance());
 	}	
 	
+	/**
+	 * Create extension object by encoding an encodeable to xml format
+	 * using the serializer that is set to the given context.
+	 *
+	 * @param encodeable encodeable
+	 * @param ctx a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 * @return xml encoded encodeable
+	 * @throws org.opcfoundation.ua.encoding.EncodingException on encoding problem
+	 */
+	public static ExtensionObject xmlEncode(Structure encodeable, EncoderContext ctx)
+	throws EncodingException
+	{
+		StringWriter buf = new StringWriter();
+		XmlEncoder enc = new XmlEncoder(buf, ctx);
+		enc.putEncodeable(encodeable.getClass().getSimpleName(), encodeable);
+		enc.close();
+		return new ExtensionObject(encodeable.getXmlEncodeId(), new XmlElement(buf.toString()));
+	}
+	
 	/**
 	 * Create extension object by encoding an encodeable to xml format
 	 *
 	 * @param encodeable encodeable
 	 * @param serializer serializer
 	 * @return xml encoded encodeable
-	 * @throws org.opcfoundation.ua.encoding.EncodingException on encoding problem. Currently always, since the encoding is not supported.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException on encoding problem
 	 */
 	public static ExtensionObject xmlEncode(Structure encodeable, IEncodeableSerializer serializer)
 	throws EncodingException
 	{
-		throw new EncodingException(StatusCodes.Bad_DataEncodingUnsupported);
+		EncoderContext ctx = EncoderContext.getDefaultInstance().shallowCopy();
+		ctx.setEncodeableSerializer(serializer);
+		return xmlEncode(encodeable, ctx);
 	}		
 	
 	final Object object;
 	final ExpandedNodeId typeId; // NodeId of a DataType
 	final EncodeType encodeType;
+	/** The object decoded from the encoded object, or null */
+	private transient volatile Decoded decoded;
+
+	/**
+	 * A decoded object and what it was decoded with. Immutable, so that it 
+	 * can be published to other threads through the volatile field.
+	 */
+	private static final class Decoded {
+		final IEncodeableSerializer serializer;
+		final EncoderContext ctx;
+		final NamespaceTable namespaceTable;
+		final IEncodeable value;
+
+		Decoded(IEncodeableSerializer serializer, EncoderContext ctx, NamespaceTable namespaceTable, IEncodeable value) {
+			this.serializer = serializer;
+			this.ctx = ctx;
+			this.namespaceTable = namespaceTable;
+			this.value = value;
+		}
+
+		boolean matches(IEncodeableSerializer serializer, EncoderContext ctx, NamespaceTable namespaceTable) {
+			return this.serializer == serializer && this.ctx == ctx && this.namespaceTable == namespaceTable;
+		}
+	}
 
 	/**
 	 * <p>Constructor for ExtensionObject.</p>
@@ -280,7 +338,14 @@ public class ExtensionObject {
 	}
 	
 	/**
-	 * Decode the extension object
+	 * Decode the extension object.
+	 * <p>
+	 * Each call returns a new instance, unless lazy decoding is enabled in
+	 * the context, see {@link EncoderContext#setLazyExtensionObjectDecoding(boolean)}.
+	 * Then the decoded object is cached, and later calls with the same serializer, 
+	 * context and namespace table return the same instance without decoding 
+	 * again. The instance is shared, so callers should not modify it. The
+	 * cache is safe to use from several threads. 
 	 *
 	 * @param <T> type
 	 * @param serializer serializer to use
@@ -313,6 +378,19 @@ public class ExtensionObject {
 		  return r;
 		}
 		
+		if (!ctx.isLazyExtensionObjectDecoding())
+			return (T) decodeObject(serializer, ctx, namespaceTable);
+		Decoded d = decoded;
+		if (d != null && d.matches(serializer, ctx, namespaceTable))
+			return (T) d.value;
+		IEncodeable result = decodeObject(serializer, ctx, namespaceTable);
+		decoded = new Decoded(serializer, ctx, namespaceTable, result);
+		return (T) result;
+	}
+
+	private IEncodeable decodeObject(IEncodeableSerializer serializer, EncoderContext ctx,
+			NamespaceTable namespaceTable)
+	throws DecodingException {
 		if (object instanceof XmlElement) {
 			Class<? extends IEncodeable> clazz = serializer.getClass(typeId);
 			logger.debug("decode: typeId={} class={}", typeId, clazz);
@@ -320,13 +398,13 @@ public class ExtensionObject {
 				throw new DecodingException("No serializer defined for class " + typeId);
 			ctx.setEncodeableSerializer(serializer);
 			XmlDecoder dec = new XmlDecoder((XmlElement) object, ctx);
-			T result;
+			IEncodeable result;
 			try {
 				dec.setNamespaceTable(namespaceTable);
 				boolean inElement = dec.peek(clazz.getSimpleName());
 				if (inElement)
 					dec.getStartElement();
-				result = (T) serializer.getEncodeable(clazz, dec);
+				result = serializer.getEncodeable(clazz, dec);
 				if (inElement)
 					dec.getEndElement();
 			} finally {
@@ -338,9 +416,12 @@ public class ExtensionObject {
 		if (object instanceof ByteString) {
 			Class<? extends IEncodeable> clazz = serializer.getClass(typeId);
 			ctx.setEncodeableSerializer(serializer);
-			BinaryDecoder dec = new BinaryDecoder(((ByteString)object).getValue());
+			// Read the body in place, without copying it
+			ByteBuffer buf = ((ByteString)object).asByteBuffer();
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			BinaryDecoder dec = new BinaryDecoder(buf);
 			dec.setEncoderContext(ctx);
-			return (T) serializer.getEncodeable(clazz, dec);
+			return serializer.getEncodeable(clazz, dec);
 		}
 
 		throw new Error("unexpected");
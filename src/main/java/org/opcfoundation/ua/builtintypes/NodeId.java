@@ -51,6 +51,8 @@ public final class NodeId implements Comparable<NodeId> {
 	final IdType type;
 	final int namespaceIndex;
 	final Object value;
+	/** Cached hash code, 0 = not computed */
+	private int hash;
 
 	public static NodeId get(IdType type, int namespaceIndex, Object value)
 	{
@@ -208,9 +210,13 @@ public final class NodeId implements Comparable<NodeId> {
 	
 	@Override
 	public int hashCode() {
-		int hashCode = 13*namespaceIndex;
-		if (value != null)
-			hashCode += 3 * value.hashCode();
+		int hashCode = hash;
+		if (hashCode == 0) {
+			hashCode = 13*namespaceIndex;
+			if (value != null)
+				hashCode += 3 * value.hashCode();
+			hash = hashCode;
+		}
 		return hashCode;
 	}
 	
@@ -12,6 +12,11 @@
 
 package org.opcfoundation.ua.builtintypes;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.TreeMap;
+
 import org.opcfoundation.ua.common.StatusCodeDescriptions;
 import org.opcfoundation.ua.core.Identifiers;
 import org.opcfoundation.ua.core.StatusCodes;
@@ -175,15 +180,45 @@ public final class StatusCode {
 	
 	private final int value;
 	
+	/** Shared instances of the codes defined in {@link StatusCodes}, sorted by value */
+	private static class KnownCodes {
+		static final int[] VALUES;
+		static final StatusCode[] CODES;
+		static {
+			TreeMap<Integer, StatusCode> codes = new TreeMap<Integer, StatusCode>();
+			for (int severity : new int[] {SEVERITY_GOOD, SEVERITY_UNCERTAIN, SEVERITY_BAD})
+				codes.put(severity, new StatusCode(severity));
+			for (Field f : StatusCodes.class.getFields()) {
+				if (!Modifier.isStatic(f.getModifiers()) || f.getType() != UnsignedInteger.class)
+					continue;
+				try {
+					int value = ((UnsignedInteger) f.get(null)).intValue();
+					if (!codes.containsKey(value))
+						codes.put(value, new StatusCode(value));
+				} catch (IllegalAccessException e) {
+				}
+			}
+			VALUES = new int[codes.size()];
+			CODES = new StatusCode[codes.size()];
+			int i = 0;
+			for (StatusCode code : codes.values()) {
+				VALUES[i] = code.value;
+				CODES[i++] = code;
+			}
+		}
+	}
+
 	/**
-	 * <p>getFromBits.</p>
+	 * Get a StatusCode for the given bits. The codes defined in {@link StatusCodes} 
+	 * are returned as shared instances, others are created.
 	 *
 	 * @param value a int.
 	 * @return a {@link org.opcfoundation.ua.builtintypes.StatusCode} object.
 	 */
 	public static StatusCode getFromBits(int value)
 	{
-		return new StatusCode(value);
+		int index = Arrays.binarySearch(KnownCodes.VALUES, value);
+		return index >= 0 ? KnownCodes.CODES[index] : new StatusCode(value);
 	}
 
 	/**
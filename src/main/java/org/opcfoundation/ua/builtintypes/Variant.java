@@ -36,6 +36,23 @@ import org.slf4j.LoggerFactory;
  *  e.g. new Variant( new NotificationData() );
  *
  * Encoders write a structure as an {@link ExtensionObject}.
+ * <p>
+ * Arrays of primitive numbers (short[], int[], long[], float[] and double[]),
+ * e.g. new Variant( new double[100000] ), the Variants created with the valueOf
+ * methods, and the numeric variants created by the binary decoder, are backed by
+ * a primitive value or a primitive array. The composite class is the corresponding
+ * wrapper class and the value is encoded and decoded without boxing. Accessors
+ * such as {@link #doubleValue()} and {@link #getPrimitiveArray()} read the
+ * primitive without allocating.
+ * <p>
+ * Multi-dimension arrays of primitive numbers are stored as one flat array in
+ * row-major order and the array dimensions, e.g. an image created with
+ * {@link #valueOf(Object, int[])} or new Variant( new float[480][640] ).
+ * <p>
+ * {@link #getValue()} always returns the boxed value of a primitive-backed 
+ * Variant, boxed when it is first called, e.g. a Double[] for a double[] and a
+ * Float[][] for a float[][] or a flat float[] with two dimensions. Variants 
+ * backed by the same primitive values are equal however they were created.
  */
 public class Variant {
 	
@@ -117,8 +134,31 @@ public class Variant {
 	  return MultiDimensionArrayUtils.demuxArray(tmp.toArray(), ad, ByteString.class);
 	}
 	
-	final Object value;
+	/** Primitive array classes that can be used as the value and their composite classes */
+	private static final Map<Class<?>, Class<?>> PRIMITIVE_ARRAYS = new HashMap<Class<?>, Class<?>>();
+	static {
+		PRIMITIVE_ARRAYS.put(short[].class, Short.class);
+		PRIMITIVE_ARRAYS.put(int[].class, Integer.class);
+		PRIMITIVE_ARRAYS.put(long[].class, Long.class);
+		PRIMITIVE_ARRAYS.put(float[].class, Float.class);
+		PRIMITIVE_ARRAYS.put(double[].class, Double.class);
+	}
+
+	/** The value, boxed on first use if the variant is backed by a primitive */
+	private volatile Object value;
+	/** The primitive array the variant is backed by, or null */
+	final Object primitiveArray;
+	/** True if the variant is backed by a primitive scalar, stored in bits */
+	final boolean primitiveScalar;
+	/** Boolean, integer or the IEEE 754 bits of a primitive scalar */
+	final long bits;
 	final Class<?> compositeClass;
+	/** Builtin type id of the composite class, 0 if the value is null */
+	final int builtinTypeId;
+	/** Number of array dimensions, 0 if scalar */
+	final int dimension;
+	/** Array dimensions, null if scalar */
+	final int[] arrayDimensions;
 
 	/**
 	 * Create variant.
@@ -127,41 +167,344 @@ public class Variant {
 	 *            scalar, array or multi-dimension array
 	 */
 	public Variant(final Object value) {
+	  this.primitiveScalar = false;
+	  this.bits = 0;
 	  if(value == null){
 	    this.value = null;
+	    this.primitiveArray = null;
 	    this.compositeClass = null;
+	    this.builtinTypeId = 0;
+	    this.dimension = 0;
+	    this.arrayDimensions = null;
 	    return;
 	  }
 	  
 	  // Find the non-array composite class of the value
 	  final Class<?> composite = MultiDimensionArrayUtils.getComponentType(value.getClass());
+	  final Class<?> primitiveArrayComposite = composite.isPrimitive() ? PRIMITIVE_ARRAYS.get(value.getClass()) : null;
 	  
 	  // GH#82, if the composite is an Enumeration, convert it to equivalent
 	  // Integer array (Note! must be Integer and not int)
 	  if(Enumeration.class.isAssignableFrom(composite)){
 	    this.value = enumsToInts(value);
+	    this.primitiveArray = null;
 	    
 	    //Enumerations are as UA Int32 which is Java Integer
 	    this.compositeClass = Integer.class;
-	    return;
 	  }
 	  
 	  // GH#81, convert byte[] and arrays of them to ByteStrings
 	  // for backwards compatibility
-	  if(byte.class.isAssignableFrom(composite)){
+	  else if(byte.class.isAssignableFrom(composite)){
 	    //this should mean value is byte[] or some dim.array of them,
 	    //as the Object in the constructor autoboxes byte -> Byte
 	    
 	    this.value = byteArraysToByteStrings(value);
+	    this.primitiveArray = null;
 	    this.compositeClass = ByteString.class;
-	    return;
+	  }
+	  
+	  // 1-dim primitive arrays are kept as such, so that they can be encoded without boxing
+	  else if(primitiveArrayComposite != null){
+	    this.value = null;
+	    this.primitiveArray = value;
+	    this.compositeClass = primitiveArrayComposite;
+	  }
+	  
+	  // multi-dim primitive arrays are also kept flattened
+	  else if(composite.isPrimitive() && PRIMITIVE_ARRAYS.containsKey(Array.newInstance(composite, 0).getClass())){
+	    int[] dims = calculateArrayDimensions(value, false);
+	    assertRectangular(value, dims, 0);
+	    this.value = null;
+	    this.primitiveArray = MultiDimensionArrayUtils.muxArray(value, dims, composite);
+	    this.compositeClass = PRIMITIVE_ARRAYS.get(primitiveArray.getClass());
 	  }
 	  
 	  //now the value should be as such that it can be used directly
 	  // OR it is of incompatible type
-	  assertValidClass(composite);
-	  this.value = value;
-	  this.compositeClass = composite;
+	  else {
+	    assertValidClass(composite);
+	    this.value = value;
+	    this.primitiveArray = null;
+	    this.compositeClass = composite;
+	  }
+	  
+	  // Resolve the type and the shape once, encoders use them for every write
+	  this.builtinTypeId = builtinTypeIdOf(compositeClass);
+	  // Primitive arrays are boxed by getValue(), the shape is that of the given array
+	  Object shape = primitiveArray != null ? value : this.value;
+	  this.dimension = MultiDimensionArrayUtils.getDimension(shape);
+	  this.arrayDimensions = dimension == 0 ? null : calculateArrayDimensions(shape, false);
+	}
+
+	/**
+	 * Create variant backed by a primitive scalar.
+	 *
+	 * @param builtinTypeId Boolean (1), Int32 (6), Int64 (8), Float (10) or Double (11)
+	 * @param bits the value, floats as {@link Float#floatToIntBits(float)} and 
+	 *        doubles as {@link Double#doubleToLongBits(double)}
+	 */
+	private Variant(int builtinTypeId, long bits, Class<?> compositeClass) {
+		this.value = null;
+		this.primitiveArray = null;
+		this.primitiveScalar = true;
+		this.bits = bits;
+		this.compositeClass = compositeClass;
+		this.builtinTypeId = builtinTypeId;
+		this.dimension = 0;
+		this.arrayDimensions = null;
+	}
+
+	/**
+	 * Create variant backed by a primitive array, whose elements are boxed
+	 * by {@link #getValue()}.
+	 *
+	 * @param array short[], int[], long[], float[] or double[]
+	 * @param length length of the array
+	 */
+	private Variant(Object array, int length) {
+		this.value = null;
+		this.primitiveArray = array;
+		this.primitiveScalar = false;
+		this.bits = 0;
+		this.compositeClass = PRIMITIVE_ARRAYS.get(array.getClass());
+		this.builtinTypeId = builtinTypeIdOf(compositeClass);
+		this.dimension = 1;
+		this.arrayDimensions = new int[] { length };
+	}
+
+	/**
+	 * Create variant backed by a flat primitive array in row-major order.
+	 *
+	 * @param array short[], int[], long[], float[] or double[]
+	 * @param dimensions array dimensions, the product of which is the length of the array
+	 */
+	private Variant(Object array, int[] dimensions) {
+		this.value = null;
+		this.primitiveArray = array;
+		this.primitiveScalar = false;
+		this.bits = 0;
+		this.compositeClass = PRIMITIVE_ARRAYS.get(array.getClass());
+		this.builtinTypeId = builtinTypeIdOf(compositeClass);
+		this.dimension = dimensions.length;
+		this.arrayDimensions = dimensions;
+	}
+
+	/**
+	 * Create a Boolean variant without boxing.
+	 *
+	 * @param value the value
+	 * @return the variant
+	 */
+	public static Variant valueOf(boolean value) {
+		return new Variant(1, value ? 1 : 0, Boolean.class);
+	}
+
+	/**
+	 * Create an Int32 variant without boxing.
+	 *
+	 * @param value the value
+	 * @return the variant
+	 */
+	public static Variant valueOf(int value) {
+		return new Variant(6, value, Integer.class);
+	}
+
+	/**
+	 * Create an Int64 variant without boxing.
+	 *
+	 * @param value the value
+	 * @return the variant
+	 */
+	public static Variant valueOf(long value) {
+		return new Variant(8, value, Long.class);
+	}
+
+	/**
+	 * Create a Float variant without boxing.
+	 *
+	 * @param value the value
+	 * @return the variant
+	 */
+	public static Variant valueOf(float value) {
+		return new Variant(10, Float.floatToIntBits(value), Float.class);
+	}
+
+	/**
+	 * Create a Double variant without boxing.
+	 *
+	 * @param value the value
+	 * @return the variant
+	 */
+	public static Variant valueOf(double value) {
+		return new Variant(11, Double.doubleToLongBits(value), Double.class);
+	}
+
+	/**
+	 * Create an Int16 array variant backed by the array. {@link #getValue()}
+	 * returns the values as Short[].
+	 *
+	 * @param values the values, not copied
+	 * @return the variant, {@link #NULL} if values is null
+	 */
+	public static Variant valueOf(short[] values) {
+		return values == null ? NULL : new Variant(values, values.length);
+	}
+
+	/**
+	 * Create an Int32 array variant backed by the array. {@link #getValue()}
+	 * returns the values as Integer[].
+	 *
+	 * @param values the values, not copied
+	 * @return the variant, {@link #NULL} if values is null
+	 */
+	public static Variant valueOf(int[] values) {
+		return values == null ? NULL : new Variant(values, values.length);
+	}
+
+	/**
+	 * Create an Int64 array variant backed by the array. {@link #getValue()}
+	 * returns the values as Long[].
+	 *
+	 * @param values the values, not copied
+	 * @return the variant, {@link #NULL} if values is null
+	 */
+	public static Variant valueOf(long[] values) {
+		return values == null ? NULL : new Variant(values, values.length);
+	}
+
+	/**
+	 * Create a Float array variant backed by the array. {@link #getValue()}
+	 * returns the values as Float[].
+	 *
+	 * @param values the values, not copied
+	 * @return the variant, {@link #NULL} if values is null
+	 */
+	public static Variant valueOf(float[] values) {
+		return values == null ? NULL : new Variant(values, values.length);
+	}
+
+	/**
+	 * Create a Double array variant backed by the array. {@link #getValue()}
+	 * returns the values as Double[].
+	 *
+	 * @param values the values, not copied
+	 * @return the variant, {@link #NULL} if values is null
+	 */
+	public static Variant valueOf(double[] values) {
+		return values == null ? NULL : new Variant(values, values.length);
+	}
+
+	/**
+	 * Create a multi-dimension array variant from a flat primitive array, 
+	 * without copying or boxing. The last dimension varies fastest, i.e. 
+	 * element [i][j] of a matrix with dimensions {rows, columns} is at 
+	 * index i * columns + j. The array must not be modified afterwards.
+	 *
+	 * @param flatArray short[], int[], long[], float[] or double[]
+	 * @param dimensions array dimensions
+	 * @return the variant, or {@link #NULL} if flatArray is null
+	 * @throws IllegalArgumentException if the array is of another type or its
+	 *         length is not the product of the dimensions
+	 */
+	public static Variant valueOf(Object flatArray, int[] dimensions) {
+		if (flatArray == null)
+			return NULL;
+		if (!PRIMITIVE_ARRAYS.containsKey(flatArray.getClass()))
+			throw new IllegalArgumentException("Not a primitive number array: " + flatArray.getClass().getName());
+		if (dimensions == null || dimensions.length == 0)
+			throw new IllegalArgumentException("No array dimensions");
+		long length = 1;
+		for (int d : dimensions) {
+			if (d < 0)
+				throw new IllegalArgumentException("Negative array dimension");
+			length *= d;
+		}
+		if (length != Array.getLength(flatArray))
+			throw new IllegalArgumentException("The array dimensions do not match the length of the array");
+		if (dimensions.length == 1)
+			return new Variant(flatArray, dimensions[0]);
+		return new Variant(flatArray, dimensions.clone());
+	}
+
+	private static void assertRectangular(Object array, int[] dims, int depth) {
+		if (array == null || Array.getLength(array) != dims[depth])
+			throw new IllegalArgumentException("The dimensions of inner arrays of a multi-dimension array must be equal in length");
+		if (depth < dims.length - 1)
+			for (int i = 0; i < dims[depth]; i++)
+				assertRectangular(Array.get(array, i), dims, depth + 1);
+	}
+
+	/**
+	 * Box the primitive scalar or the elements of the primitive array.
+	 */
+	private Object box() {
+		if (primitiveScalar)
+			return boxScalar();
+		Object boxed = boxArray();
+		return dimension > 1 ? MultiDimensionArrayUtils.demuxArray(boxed, arrayDimensions) : boxed;
+	}
+
+	private Object boxScalar() {
+		switch (builtinTypeId) {
+		case 1: return Boolean.valueOf(bits != 0);
+		case 6: return Integer.valueOf((int) bits);
+		case 8: return Long.valueOf(bits);
+		case 10: return Float.valueOf(Float.intBitsToFloat((int) bits));
+		default: return Double.valueOf(Double.longBitsToDouble(bits));
+		}
+	}
+
+	/**
+	 * Box the elements of the primitive array to an array of the composite class.
+	 */
+	private Object boxArray() {
+		if (primitiveArray instanceof short[]) {
+			short[] a = (short[]) primitiveArray;
+			Short[] r = new Short[a.length];
+			for (int i = 0; i < a.length; i++)
+				r[i] = a[i];
+			return r;
+		}
+		if (primitiveArray instanceof int[]) {
+			int[] a = (int[]) primitiveArray;
+			Integer[] r = new Integer[a.length];
+			for (int i = 0; i < a.length; i++)
+				r[i] = a[i];
+			return r;
+		}
+		if (primitiveArray instanceof long[]) {
+			long[] a = (long[]) primitiveArray;
+			Long[] r = new Long[a.length];
+			for (int i = 0; i < a.length; i++)
+				r[i] = a[i];
+			return r;
+		}
+		if (primitiveArray instanceof float[]) {
+			float[] a = (float[]) primitiveArray;
+			Float[] r = new Float[a.length];
+			for (int i = 0; i < a.length; i++)
+				r[i] = a[i];
+			return r;
+		}
+		double[] a = (double[]) primitiveArray;
+		Double[] r = new Double[a.length];
+		for (int i = 0; i < a.length; i++)
+			r[i] = a[i];
+		return r;
+	}
+
+	/**
+	 * Get the builtin type id of a valid composite class. Structures and
+	 * decimals are encoded as ExtensionObjects.
+	 */
+	private static int builtinTypeIdOf(Class<?> clazz) {
+		Integer id = BuiltinsMap.ID_MAP.get(clazz);
+		if (id != null)
+			return id;
+		if (Structure.class.isAssignableFrom(clazz) || BigDecimal.class.isAssignableFrom(clazz))
+			return 22;
+		return -1;
 	}
 
 	void assertValidClass(Class<?> clazz) {
@@ -232,7 +575,7 @@ public class Variant {
 	 * @return a boolean.
 	 */
 	public boolean isEmpty() {
-		return value == null;
+		return builtinTypeId == 0;
 	}
 
 	/**
@@ -241,18 +584,44 @@ public class Variant {
 	 * @return a boolean.
 	 */
 	public boolean isArray() {
-		if (value == null)
-			return false;
-		return value.getClass().isArray();
+		return dimension > 0;
 	}
 
 	/**
 	 * <p>Getter for the field <code>value</code>.</p>
+	 * 
+	 * If the variant is backed by a primitive, the value is boxed when this
+	 * is first called.
 	 *
 	 * @return a {@link java.lang.Object} object.
 	 */
 	public Object getValue() {
-		return value;
+		Object v = value;
+		if (v == null && builtinTypeId != 0)
+			value = v = box();
+		return v;
+	}
+
+	/**
+	 * Whether the variant is backed by a primitive scalar or a primitive array.
+	 * The numeric accessors, e.g. {@link #doubleValue()}, and {@link #getPrimitiveArray()}
+	 * read it without boxing.
+	 *
+	 * @return true if backed by a primitive
+	 */
+	public boolean isPrimitive() {
+		return primitiveScalar || primitiveArray != null;
+	}
+
+	/**
+	 * Get the primitive array the variant is backed by. The elements of
+	 * multi-dimension arrays are in row-major order, see {@link #getArrayDimensions()}.
+	 *
+	 * @return short[], int[], long[], float[] or double[], or null if the 
+	 *         value is not a primitive array
+	 */
+	public Object getPrimitiveArray() {
+		return primitiveArray;
 	}
 
 	/** {@inheritDoc} */
@@ -277,6 +646,7 @@ public class Variant {
 	 * @return the value as string
 	 */
 	public String toString(boolean includeCompositeClass) {
+		Object value = getValue();
 		if (value == null)
 			return "(null)";
 		String classStr = "";
@@ -320,13 +690,25 @@ public class Variant {
 		return compositeClass;
 	}
 
+	/**
+	 * The builtin type id of the value, resolved from the composite class when
+	 * the variant is created. Structures and decimals are ExtensionObjects (22).
+	 *
+	 * @return the builtin type id, 0 if the value is null
+	 */
+	public int getBuiltinTypeId() {
+		return builtinTypeId;
+	}
+
 	/**
 	 * <p>getArrayDimensions.</p>
 	 *
 	 * @return an array of int.
 	 */
 	public int[] getArrayDimensions() {
-		return calculateArrayDimensions(value, false);
+		if (arrayDimensions == null)
+			return new int[0];
+		return arrayDimensions.clone();
 	}
 
   private static int[] calculateArrayDimensions(Object value, boolean byteArray) {
@@ -340,11 +722,14 @@ public class Variant {
 
 		Object o = value;
 		for (int i = 0; i < dim; i++) {
-			Object[] array = (Object[]) o;
-			result[i] = array.length;
-			if (array.length == 0)
+			// an inner array that is not set yet counts as empty
+			if (o == null)
 				break;
-			o = array[0];
+			// the innermost array may be a primitive array
+			result[i] = Array.getLength(o);
+			if (result[i] == 0 || i == dim - 1)
+				break;
+			o = Array.get(o, 0);
 		}
 
 		return result;
@@ -356,16 +741,22 @@ public class Variant {
 	 * @return a int.
 	 */
 	public int getDimension() {
-		return MultiDimensionArrayUtils.getDimension(value);
+		return dimension;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int hashCode() {
+		// Same as Arrays.deepHashCode of the boxed array
+		if (primitiveArray != null)
+			return primitiveHashCode(0, 0);
+		Object value = getValue();
 		if (value == null)
 			return 0;
 		if (!isArray())
 			return value.hashCode();
+		if (!(value instanceof Object[]))
+			return Arrays.deepHashCode(new Object[] { value });
 		return Arrays.deepHashCode((Object[]) value);
 	}
 
@@ -377,19 +768,83 @@ public class Variant {
 		if (!(obj instanceof Variant))
 			return false;
 		Variant o = (Variant) obj;
-		if (value == null && o.value == null)
+		if (isPrimitive() && o.isPrimitive()) {
+			if (builtinTypeId != o.builtinTypeId || primitiveScalar != o.primitiveScalar)
+				return false;
+			if (primitiveScalar)
+				return bits == o.bits;
+			return Arrays.equals(arrayDimensions, o.arrayDimensions) && primitiveArrayEquals(o.primitiveArray);
+		}
+		Object value = getValue();
+		Object ovalue = o.getValue();
+		if (value == null && ovalue == null)
 			return true;
-		if (value == null && o.value != null)
+		if (value == null && ovalue != null)
 			return false;
-		if (value != null && o.value == null)
+		if (value != null && ovalue == null)
 			return false;
 
 		Class<?> c = value.getClass();
-		if (!c.equals(o.value.getClass()))
+		if (!c.equals(ovalue.getClass()))
 			return false;
 		if (!isArray())
-			return value.equals(o.value);
-		return Arrays.deepEquals((Object[]) value, (Object[]) o.value);
+			return value.equals(ovalue);
+		if (!(value instanceof Object[]))
+			return Arrays.deepEquals(new Object[] { value }, new Object[] { ovalue });
+		return Arrays.deepEquals((Object[]) value, (Object[]) ovalue);
+	}
+
+	/**
+	 * Compare the primitive array to another primitive array of the same builtin type.
+	 */
+	private boolean primitiveArrayEquals(Object other) {
+		if (primitiveArray instanceof short[])
+			return Arrays.equals((short[]) primitiveArray, (short[]) other);
+		if (primitiveArray instanceof int[])
+			return Arrays.equals((int[]) primitiveArray, (int[]) other);
+		if (primitiveArray instanceof long[])
+			return Arrays.equals((long[]) primitiveArray, (long[]) other);
+		if (primitiveArray instanceof float[])
+			return Arrays.equals((float[]) primitiveArray, (float[]) other);
+		return Arrays.equals((double[]) primitiveArray, (double[]) other);
+	}
+
+	/**
+	 * Hash the sub-array of the primitive array at the given depth and offset
+	 * the way {@link Arrays#deepHashCode(Object[])} hashes the boxed array.
+	 */
+	private int primitiveHashCode(int depth, int offset) {
+		int result = 1;
+		int length = arrayDimensions[depth];
+		if (depth == dimension - 1) {
+			for (int i = 0; i < length; i++)
+				result = 31 * result + elementHashCode(offset + i);
+			return result;
+		}
+		int stride = 1;
+		for (int d = depth + 1; d < dimension; d++)
+			stride *= arrayDimensions[d];
+		for (int i = 0; i < length; i++)
+			result = 31 * result + primitiveHashCode(depth + 1, offset + i * stride);
+		return result;
+	}
+
+	/**
+	 * Hash code of the boxed element of the primitive array.
+	 */
+	private int elementHashCode(int index) {
+		if (primitiveArray instanceof short[])
+			return ((short[]) primitiveArray)[index];
+		if (primitiveArray instanceof int[])
+			return ((int[]) primitiveArray)[index];
+		long l;
+		if (primitiveArray instanceof long[])
+			l = ((long[]) primitiveArray)[index];
+		else if (primitiveArray instanceof float[])
+			return Float.floatToIntBits(((float[]) primitiveArray)[index]);
+		else
+			l = Double.doubleToLongBits(((double[]) primitiveArray)[index]);
+		return (int) (l ^ (l >>> 32));
 	}
 
 	/**
@@ -401,6 +856,7 @@ public class Variant {
 	 * @param <T> a T object.
 	 */
 	public <T> T asClass(Class<T> clazz, T defaultValue) {
+		Object value = getValue();
 		if (value == null)
 			return defaultValue;
 		try {
@@ -422,6 +878,7 @@ public class Variant {
    *         them)
    */
 	public <T extends Enum<T> & Enumeration> Object asEnum(Class<T> clazz){	  
+	  Object value = getValue();
 	  if(value == null){
 	    return null;
 	  }
@@ -477,6 +934,9 @@ public class Variant {
 	 * @throws java.lang.ClassCastException if the value cannot be cast to boolean
 	 */
 	public boolean booleanValue() {
+		if (primitiveScalar)
+			return longValue() != 0;
+		Object value = getValue();
 		if (value instanceof Boolean)
 			return (Boolean) value;
 		if (isNumber())
@@ -503,6 +963,7 @@ public class Variant {
 	 * @throws java.lang.ClassCastException if the value cannot be cast to Number
 	 */
 	public Number toNumber() {
+		Object value = getValue();
 		if (value instanceof Boolean)
 			return booleanValue() ? 1 : 0;
 		if (isNumber())
@@ -518,6 +979,9 @@ public class Variant {
 	 * @return true if the current value is an instance of Number or Boolean (which can be used as Integer)
 	 */
 	public boolean isNumber() {
+		if (primitiveScalar)
+			return true;
+		Object value = getValue();
 		return value instanceof Number || value instanceof Boolean;
 	}
 
@@ -527,7 +991,7 @@ public class Variant {
 	 * @return a boolean.
 	 */
 	public boolean isComparable() {
-		return value instanceof Comparable<?>;
+		return primitiveScalar || getValue() instanceof Comparable<?>;
 	}
 	
     /**
@@ -539,6 +1003,12 @@ public class Variant {
      * @throws java.lang.ClassCastException if the value cannot be cast to Number
      */
     public int intValue() {
+		if (primitiveScalar)
+			switch (builtinTypeId) {
+			case 10: return (int) Float.intBitsToFloat((int) bits);
+			case 11: return (int) Double.longBitsToDouble(bits);
+			default: return (int) bits;
+			}
 		return toNumber().intValue();
 	}
 
@@ -551,6 +1021,12 @@ public class Variant {
      * @throws java.lang.ClassCastException if the value cannot be cast to Number
      */
     public long longValue() {
+		if (primitiveScalar)
+			switch (builtinTypeId) {
+			case 10: return (long) Float.intBitsToFloat((int) bits);
+			case 11: return (long) Double.longBitsToDouble(bits);
+			default: return bits;
+			}
 		return toNumber().longValue();
 	}
 
@@ -563,6 +1039,12 @@ public class Variant {
      * @throws java.lang.ClassCastException if the value cannot be cast to Number
      */
     public float floatValue() {
+		if (primitiveScalar)
+			switch (builtinTypeId) {
+			case 10: return Float.intBitsToFloat((int) bits);
+			case 11: return (float) Double.longBitsToDouble(bits);
+			default: return bits;
+			}
 		return toNumber().floatValue();
 	}
 
@@ -575,6 +1057,12 @@ public class Variant {
      * @throws java.lang.ClassCastException if the value cannot be cast to Number
      */
     public double doubleValue() {
+		if (primitiveScalar)
+			switch (builtinTypeId) {
+			case 10: return Float.intBitsToFloat((int) bits);
+			case 11: return Double.longBitsToDouble(bits);
+			default: return bits;
+			}
 		return toNumber().doubleValue();
 	}
 
@@ -587,6 +1075,8 @@ public class Variant {
 	 * @throws java.lang.ClassCastException if the value cannot be cast to Number
 	 */
 	public byte byteValue() {
+		if (primitiveScalar)
+			return (byte) intValue();
 		return toNumber().byteValue();
 	}
 
@@ -599,6 +1089,8 @@ public class Variant {
 	 * @throws java.lang.ClassCastException if the value cannot be cast to Number
 	 */
 	public short shortValue() {
+		if (primitiveScalar)
+			return (short) intValue();
 		return toNumber().shortValue();
 	}
 
@@ -61,7 +61,7 @@ public class ServiceFault extends AbstractStructure implements Structure, Clonea
 		ResponseHeader rh = new ResponseHeader();
 		ServiceFault result = new ServiceFault(rh);		
 		rh.setServiceResult( new StatusCode( statusCode ) );
-		rh.setTimestamp(new DateTime());
+		rh.setTimestamp(DateTime.currentTimeCached());
 		return result;
 	}
 
@@ -77,7 +77,7 @@ public class ServiceFault extends AbstractStructure implements Structure, Clonea
 		ServiceFault result = new ServiceFault(rh);
 		
 		rh.setServiceResult(t instanceof ServiceResultException ? ((ServiceResultException)t).getStatusCode() : new StatusCode(StatusCodes.Bad_InternalError));
-		rh.setTimestamp(new DateTime());
+		rh.setTimestamp(DateTime.currentTimeCached());
 
 		// Stack Trace
 		List<String> stringTable = new ArrayList<String>();
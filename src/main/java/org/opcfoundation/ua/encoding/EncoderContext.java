@@ -102,6 +102,13 @@ public class EncoderContext {
     public int maxByteStringLength = 0; //UnsignedShort.MAX_VALUE.intValue() * 16;
     public int maxArrayLength = 0; //UnsignedShort.MAX_VALUE.intValue();
 
+	/** Canonicalizes decoded NodeIds, null = disabled */
+	private NodeIdCache nodeIdCache;
+	/** Interns decoded QualifiedNames and LocalizedTexts, null = disabled */
+	private NameCache nameCache;
+	/** Leave decoded ExtensionObjects encoded until they are accessed */
+	private boolean lazyExtensionObjectDecoding;
+
 	/**
 	 * <p>Constructor for EncoderContext.</p>
 	 *
@@ -298,6 +305,69 @@ public class EncoderContext {
 		this.maxArrayLength = maxArrayLength;
 	}
 	
+	/**
+	 * <p>Getter for the field <code>nodeIdCache</code>.</p>
+	 *
+	 * @return the cache used for decoded NodeIds, or null
+	 */
+	public NodeIdCache getNodeIdCache() {
+		return nodeIdCache;
+	}
+
+	/**
+	 * Set a cache that decoders use to share instances of equal NodeIds and 
+	 * ExpandedNodeIds. The cache is not used by default.
+	 *
+	 * @param nodeIdCache the cache, or null to disable caching
+	 */
+	public void setNodeIdCache(NodeIdCache nodeIdCache) {
+		this.nodeIdCache = nodeIdCache;
+	}
+	
+	/**
+	 * <p>Getter for the field <code>nameCache</code>.</p>
+	 *
+	 * @return the cache used for decoded QualifiedNames and LocalizedTexts, or null
+	 */
+	public NameCache getNameCache() {
+		return nameCache;
+	}
+
+	/**
+	 * Set a cache that decoders use to share instances of equal QualifiedNames
+	 * and LocalizedTexts. The cache is not used by default.
+	 *
+	 * @param nameCache the cache, or null to disable interning
+	 */
+	public void setNameCache(NameCache nameCache) {
+		this.nameCache = nameCache;
+	}
+	
+	/**
+	 * <p>isLazyExtensionObjectDecoding.</p>
+	 *
+	 * @return true if decoders leave the bodies of ExtensionObjects encoded
+	 */
+	public boolean isLazyExtensionObjectDecoding() {
+		return lazyExtensionObjectDecoding;
+	}
+
+	/**
+	 * Set whether the binary decoder leaves the bodies of ExtensionObjects 
+	 * encoded. The body is then decoded when {@link ExtensionObject#decode(EncoderContext)} 
+	 * is first called, and bodies that are only forwarded are never decoded. 
+	 * By default the bodies of known types are decoded right away.
+	 * <p>
+	 * With lazy decoding, {@link ExtensionObject#decode(EncoderContext)} also 
+	 * caches the decoded object and returns the same, shared instance on later 
+	 * calls with this context, instead of a new instance on every call.
+	 *
+	 * @param lazyExtensionObjectDecoding true to decode on first access
+	 */
+	public void setLazyExtensionObjectDecoding(boolean lazyExtensionObjectDecoding) {
+		this.lazyExtensionObjectDecoding = lazyExtensionObjectDecoding;
+	}
+	
 	/**
 	 * Returns a new EncoderContext with same values. Serializer, NamespaceTable and ServerTable refers to same objects as this one.
 	 */
@@ -307,6 +377,9 @@ public class EncoderContext {
 		copy.setMaxByteStringLength(getMaxByteStringLength());
 		copy.setMaxMessageSize(getMaxMessageSize());
 		copy.setMaxStringLength(getMaxStringLength());
+		copy.setNodeIdCache(getNodeIdCache());
+		copy.setNameCache(getNameCache());
+		copy.setLazyExtensionObjectDecoding(isLazyExtensionObjectDecoding());
 		return copy;
 	}
 	
@@ -125,6 +125,16 @@ public interface IDecoder {
 	public Short[] getInt16Array(String fieldName)
     throws DecodingException;	
 	
+	/**
+	 * <p>getInt16Array_.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @return an array of short.
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public short[] getInt16Array_(String fieldName)
+    throws DecodingException;	
+	
 	/**
 	 * <p>getUInt16.</p>
 	 *
@@ -215,6 +225,16 @@ public interface IDecoder {
 	public Long[] getInt64Array(String fieldName)
     throws DecodingException;	
 	
+	/**
+	 * <p>getInt64Array_.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @return an array of long.
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public long[] getInt64Array_(String fieldName)
+    throws DecodingException;	
+	
 	/**
 	 * <p>getUInt64.</p>
 	 *
@@ -255,6 +275,16 @@ public interface IDecoder {
 	public Float[] getFloatArray(String fieldName)
     throws DecodingException;	
 	
+	/**
+	 * <p>getFloatArray_.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @return an array of float.
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public float[] getFloatArray_(String fieldName)
+    throws DecodingException;	
+	
 	/**
 	 * <p>getDouble.</p>
 	 *
@@ -275,6 +305,16 @@ public interface IDecoder {
 	public Double[] getDoubleArray(String fieldName)
     throws DecodingException;	
 	
+	/**
+	 * <p>getDoubleArray_.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @return an array of double.
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public double[] getDoubleArray_(String fieldName)
+    throws DecodingException;	
+	
 	/**
 	 * <p>getString.</p>
 	 *
@@ -305,6 +345,16 @@ public interface IDecoder {
 	public DateTime getDateTime(String fieldName)
     throws DecodingException;	
 	
+	/**
+	 * Read a DateTime as 100 nanosecond ticks, see {@link DateTime#getValue()}.
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @return the time in ticks
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public long getDateTime_(String fieldName)
+    throws DecodingException;	
+	
 	/**
 	 * <p>getDateTimeArray.</p>
 	 *
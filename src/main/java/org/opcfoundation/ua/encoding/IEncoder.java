@@ -195,6 +195,16 @@ public interface IEncoder {
 	void putInt16Array(String fieldName, Collection<Short> v)
     throws EncodingException;	
 	
+	/**
+	 * <p>putInt16Array.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of short.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	void putInt16Array(String fieldName, short[] v)
+    throws EncodingException;	
+	
 	/**
 	 * <p>putUInt16.</p>
 	 *
@@ -345,6 +355,16 @@ public interface IEncoder {
 	void putInt64Array(String fieldName, Collection<Long> v)
     throws EncodingException;	
 	
+	/**
+	 * <p>putInt64Array.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of long.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	void putInt64Array(String fieldName, long[] v)
+    throws EncodingException;	
+	
 	/**
 	 * <p>putUInt64.</p>
 	 *
@@ -415,6 +435,16 @@ public interface IEncoder {
 	void putFloatArray(String fieldName, Collection<Float> v)
     throws EncodingException;	
 	
+	/**
+	 * <p>putFloatArray.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of float.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	void putFloatArray(String fieldName, float[] v)
+    throws EncodingException;	
+	
 	/**
 	 * <p>putDouble.</p>
 	 *
@@ -455,6 +485,16 @@ public interface IEncoder {
 	void putDoubleArray(String fieldName, Collection<Double> v)
     throws EncodingException;	
 	
+	/**
+	 * <p>putDoubleArray.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of double.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	void putDoubleArray(String fieldName, double[] v)
+    throws EncodingException;	
+	
 	/**
 	 * <p>putString.</p>
 	 *
@@ -495,6 +535,16 @@ public interface IEncoder {
 	void putDateTime(String fieldName, DateTime v)
     throws EncodingException;	
 	
+	/**
+	 * Write a DateTime given in 100 nanosecond ticks, see {@link DateTime#getValue()}.
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param ticks the time in ticks
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	void putDateTime(String fieldName, long ticks)
+    throws EncodingException;	
+	
 	/**
 	 * <p>putDateTimeArray.</p>
 	 *
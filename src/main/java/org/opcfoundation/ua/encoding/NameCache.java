@@ -0,0 +1,103 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.encoding;
+
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.utils.LruCache;
+
+/**
+ * Interns decoded QualifiedNames and LocalizedTexts, so that browse names,
+ * display names and locales that are repeated in responses share one 
+ * instance. The cached values are bounded and the least recently used ones
+ * are evicted first.
+ * <p>
+ * The cache is used by the binary decoder when one is set with
+ * {@link EncoderContext#setNameCache(NameCache)}.
+ */
+public class NameCache {
+
+	/** Default number of cached QualifiedNames, and separately, LocalizedTexts */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** Number of cached locale ids */
+	static final int LOCALE_CAPACITY = 256;
+
+	private final LruCache<QualifiedName, QualifiedName> qualifiedNames;
+	private final LruCache<LocalizedText, LocalizedText> localizedTexts;
+	private final LruCache<String, String> locales;
+
+	/**
+	 * Create a cache with {@link #DEFAULT_CAPACITY}.
+	 */
+	public NameCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * <p>Constructor for NameCache.</p>
+	 *
+	 * @param capacity maximum number of cached QualifiedNames, and separately, LocalizedTexts
+	 */
+	public NameCache(int capacity) {
+		qualifiedNames = new LruCache<QualifiedName, QualifiedName>(capacity);
+		localizedTexts = new LruCache<LocalizedText, LocalizedText>(capacity);
+		locales = new LruCache<String, String>(Math.min(capacity, LOCALE_CAPACITY));
+	}
+
+	/**
+	 * Get the shared instance of a QualifiedName.
+	 *
+	 * @param name the name
+	 * @return an instance equal to name
+	 */
+	public QualifiedName getQualifiedName(QualifiedName name) {
+		if (name == null || name.getName() == null)
+			return name;
+		return qualifiedNames.putIfAbsent(name, name);
+	}
+
+	/**
+	 * Get the shared instance of a LocalizedText.
+	 *
+	 * @param text the text
+	 * @return an instance equal to text
+	 */
+	public LocalizedText getLocalizedText(LocalizedText text) {
+		if (text == null || text.getText() == null)
+			return text;
+		return localizedTexts.putIfAbsent(text, text);
+	}
+
+	/**
+	 * Get the shared instance of a locale id.
+	 *
+	 * @param localeId the locale id or null
+	 * @return a string equal to localeId
+	 */
+	public String getLocaleId(String localeId) {
+		if (localeId == null)
+			return null;
+		return locales.putIfAbsent(localeId, localeId);
+	}
+
+	/**
+	 * Remove the cached values.
+	 */
+	public void clear() {
+		qualifiedNames.clear();
+		localizedTexts.clear();
+		locales.clear();
+	}
+
+}
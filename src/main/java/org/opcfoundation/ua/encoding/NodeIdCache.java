@@ -0,0 +1,161 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.encoding;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.core.IdType;
+import org.opcfoundation.ua.core.Identifiers;
+import org.opcfoundation.ua.utils.LruCache;
+
+/**
+ * Canonicalizes decoded NodeIds, so that equal ids share one instance.
+ * <p>
+ * Numeric ids of namespace 0 are resolved to the constants of 
+ * {@link Identifiers}. Other ids are kept in a bounded cache that evicts
+ * the least recently used ones. Shared instances keep their hash code 
+ * computed, which makes lookups in maps keyed by NodeId cheaper.
+ * <p>
+ * The cache is used by the binary decoder when one is set with
+ * {@link EncoderContext#setNodeIdCache(NodeIdCache)}.
+ */
+public class NodeIdCache {
+
+	/** Default number of cached NodeIds and ExpandedNodeIds */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** Constants of {@link Identifiers} indexed by numeric value */
+	private static class StandardNodeIds {
+		static final NodeId[] TABLE = createTable();
+	}
+
+	private final LruCache<NodeId, NodeId> nodeIds;
+	private final LruCache<ExpandedNodeId, ExpandedNodeId> expandedNodeIds;
+
+	/**
+	 * Create a cache with {@link #DEFAULT_CAPACITY}.
+	 */
+	public NodeIdCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * <p>Constructor for NodeIdCache.</p>
+	 *
+	 * @param capacity maximum number of cached NodeIds, and separately, ExpandedNodeIds
+	 */
+	public NodeIdCache(int capacity) {
+		nodeIds = new LruCache<NodeId, NodeId>(capacity);
+		expandedNodeIds = new LruCache<ExpandedNodeId, ExpandedNodeId>(capacity);
+	}
+
+	/**
+	 * Get the constant of {@link Identifiers} with a numeric identifier in namespace 0.
+	 *
+	 * @param value the numeric identifier
+	 * @return the constant or null, if there is no such standard NodeId
+	 */
+	public static NodeId getStandardNodeId(int value) {
+		NodeId[] table = StandardNodeIds.TABLE;
+		return (value >= 0 && value < table.length) ? table[value] : null;
+	}
+
+	/**
+	 * Get the canonical instance of a numeric NodeId.
+	 *
+	 * @param namespaceIndex namespace index
+	 * @param value the identifier as unsigned int bits
+	 * @return the NodeId
+	 */
+	public NodeId getNodeId(int namespaceIndex, int value) {
+		if (namespaceIndex == 0) {
+			NodeId result = getStandardNodeId(value);
+			if (result != null)
+				return result;
+		}
+		return getNodeId(new NodeId(namespaceIndex, UnsignedInteger.getFromBits(value)));
+	}
+
+	/**
+	 * Get the canonical instance of a NodeId. Null NodeIds are not cached
+	 * since NodeIds of different types are equal when they are null.
+	 *
+	 * @param nodeId the NodeId
+	 * @return an instance equal to nodeId
+	 */
+	public NodeId getNodeId(NodeId nodeId) {
+		if (NodeId.isNull(nodeId))
+			return nodeId;
+		if (nodeId.getNamespaceIndex() == 0 && nodeId.getIdType() == IdType.Numeric) {
+			NodeId result = getStandardNodeId(((UnsignedInteger) nodeId.getValue()).intValue());
+			if (result != null)
+				return result;
+		}
+		return nodeIds.putIfAbsent(nodeId, nodeId);
+	}
+
+	/**
+	 * Get the canonical instance of an ExpandedNodeId. Only ids that are local 
+	 * and refer to the namespace by index are cached, since others may be equal 
+	 * to ids that are constructed differently.
+	 *
+	 * @param nodeId the ExpandedNodeId
+	 * @return an instance equal to nodeId
+	 */
+	public ExpandedNodeId getExpandedNodeId(ExpandedNodeId nodeId) {
+		if (ExpandedNodeId.isNull(nodeId) || !nodeId.isLocal() || nodeId.getNamespaceUri() != null)
+			return nodeId;
+		return expandedNodeIds.putIfAbsent(nodeId, nodeId);
+	}
+
+	/**
+	 * Remove the cached ids. The {@link Identifiers} are always available.
+	 */
+	public void clear() {
+		nodeIds.clear();
+		expandedNodeIds.clear();
+	}
+
+	private static NodeId[] createTable() {
+		List<NodeId> ids = new ArrayList<NodeId>();
+		int max = -1;
+		for (Field f : Identifiers.class.getFields()) {
+			if (!Modifier.isStatic(f.getModifiers()) || f.getType() != NodeId.class)
+				continue;
+			NodeId id;
+			try {
+				id = (NodeId) f.get(null);
+			} catch (IllegalAccessException e) {
+				continue;
+			}
+			if (id == null || id.getNamespaceIndex() != 0 || id.getIdType() != IdType.Numeric)
+				continue;
+			int value = ((UnsignedInteger) id.getValue()).intValue();
+			if (value < 0)
+				continue;
+			ids.add(id);
+			max = Math.max(max, value);
+		}
+		NodeId[] table = new NodeId[max + 1];
+		for (NodeId id : ids)
+			table[((UnsignedInteger) id.getValue()).intValue()] = id;
+		return table;
+	}
+
+}
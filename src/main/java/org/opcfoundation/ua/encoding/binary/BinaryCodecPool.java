@@ -0,0 +1,132 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.encoding.binary;
+
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryReadable;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryWriteable;
+
+/**
+ * Pool of {@link BinaryEncoder}s and {@link BinaryDecoder}s, so that the
+ * codecs and their scratch buffers are reused from message to message.
+ * <p>
+ * A connection holds one pool. A codec is taken with {@link #getEncoder(IBinaryWriteable, EncoderContext)}
+ * or {@link #getDecoder(IBinaryReadable, EncoderContext)} and returned with
+ * {@link #release(BinaryEncoder)} or {@link #release(BinaryDecoder)} once the message
+ * is done. A new codec is created if the pool is empty, released codecs are dropped
+ * if the pool is full.
+ * <p>
+ * This class is thread-safe.
+ */
+public class BinaryCodecPool {
+
+	/** Default number of encoders and decoders kept in the pool */
+	public static final int DEFAULT_CAPACITY = 4;
+
+	private final BinaryEncoder[] encoders;
+	private int encoderCount;
+	private final BinaryDecoder[] decoders;
+	private int decoderCount;
+
+	/**
+	 * Create a pool with the default capacity.
+	 */
+	public BinaryCodecPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param capacity max number of encoders and decoders (each) kept in the pool
+	 */
+	public BinaryCodecPool(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity < 0");
+		encoders = new BinaryEncoder[capacity];
+		decoders = new BinaryDecoder[capacity];
+	}
+
+	/**
+	 * Get an encoder that writes to the given output.
+	 *
+	 * @param out the output, in little endian byte order
+	 * @param ctx encoder context
+	 * @return encoder, to be released with {@link #release(BinaryEncoder)}
+	 */
+	public BinaryEncoder getEncoder(IBinaryWriteable out, EncoderContext ctx) {
+		BinaryEncoder enc = null;
+		synchronized (encoders) {
+			if (encoderCount > 0) {
+				enc = encoders[--encoderCount];
+				encoders[encoderCount] = null;
+			}
+		}
+		if (enc == null)
+			enc = new BinaryEncoder(out);
+		else
+			enc.reset(out);
+		enc.setEncoderContext(ctx);
+		return enc;
+	}
+
+	/**
+	 * Get a decoder that reads from the given input.
+	 *
+	 * @param in the input, in little endian byte order
+	 * @param ctx encoder context
+	 * @return decoder, to be released with {@link #release(BinaryDecoder)}
+	 */
+	public BinaryDecoder getDecoder(IBinaryReadable in, EncoderContext ctx) {
+		BinaryDecoder dec = null;
+		synchronized (decoders) {
+			if (decoderCount > 0) {
+				dec = decoders[--decoderCount];
+				decoders[decoderCount] = null;
+			}
+		}
+		if (dec == null)
+			dec = new BinaryDecoder(in);
+		else
+			dec.reset(in);
+		dec.setEncoderContext(ctx);
+		return dec;
+	}
+
+	/**
+	 * Return an encoder to the pool. The encoder must not be used after this.
+	 *
+	 * @param enc encoder taken from this pool
+	 */
+	public void release(BinaryEncoder enc) {
+		enc.reset((IBinaryWriteable) null);
+		synchronized (encoders) {
+			if (encoderCount < encoders.length)
+				encoders[encoderCount++] = enc;
+		}
+	}
+
+	/**
+	 * Return a decoder to the pool. The decoder must not be used after this.
+	 *
+	 * @param dec decoder taken from this pool
+	 */
+	public void release(BinaryDecoder dec) {
+		dec.reset((IBinaryReadable) null);
+		synchronized (decoders) {
+			if (decoderCount < decoders.length)
+				decoders[decoderCount++] = dec;
+		}
+	}
+
+}
@@ -57,8 +57,11 @@ import org.opcfoundation.ua.encoding.DecodingException;
 import org.opcfoundation.ua.encoding.EncoderContext;
 import org.opcfoundation.ua.encoding.IDecoder;
 import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.NameCache;
+import org.opcfoundation.ua.encoding.NodeIdCache;
 import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
 import org.opcfoundation.ua.utils.bytebuffer.ByteBufferReadable;
+import org.opcfoundation.ua.utils.bytebuffer.CompositeByteBufferReadable;
 import org.opcfoundation.ua.utils.bytebuffer.IBinaryReadable;
 import org.opcfoundation.ua.utils.bytebuffer.InputStreamReadable;
 import org.slf4j.Logger;
@@ -387,6 +390,18 @@ public class BinaryDecoder implements IDecoder {
 	
 	IBinaryReadable in;
 	EncoderContext ctx;
+	/** Reused buffer for decoding strings, see {@link #getString(String)} */
+	byte[] stringBuffer;
+
+	/** Reused buffer for reading primitive arrays, see {@link #arrayBuffer()} */
+	ByteBuffer arrayBuffer;
+
+	/** Size of the buffer used for reading primitive arrays in blocks */
+	static final int ARRAY_BUFFER_SIZE = 8192;
+	/** ByteStrings of at least this many bytes are sliced from the input, 0 = never */
+	int byteStringSliceThreshold;
+	/** Whether ByteStrings sliced from the current input have been returned */
+	boolean slicesReturned;
 
 	/**
 	 * <p>Constructor for BinaryDecoder.</p>
@@ -464,7 +479,8 @@ public class BinaryDecoder implements IDecoder {
 		//handle 1-dim array
 		if(dims == 1) {
 			final int len = getInt32(null);
-			assertArrayLength(len);
+			// Every element takes at least one byte
+			assertArrayLength(len, 1);
 			if(len == -1) {
 				//null array
 				return null;
@@ -488,7 +504,7 @@ public class BinaryDecoder implements IDecoder {
 			//ASSUMPTION, null if dimensions not known, returning null
 			return null;
 		}
-		int totalElements = 1; //starting value; total is multiplication of all elements
+		long totalElements = 1; //starting value; total is multiplication of all elements
 		for(int dimLen : arrDims) {
 			//ASSUMPTION, if any is negative, it means it is null instead of empty
 			//specification does not define null specially, but assuming one exists
@@ -498,10 +514,12 @@ public class BinaryDecoder implements IDecoder {
 			}
 			//NOTE that if any is 0, total is 0, which is what spec says.
 			totalElements = totalElements * dimLen;
+			//Clamped so that the product cannot overflow, the length is rejected below
+			totalElements = Math.min(totalElements, Integer.MAX_VALUE + 1L);
 		}
-		assertArrayLength(totalElements);
+		assertArrayLength(totalElements, 1);
 		//can cast; actual type does not change
-		Object[] arr = (Object[]) Array.newInstance(componentType, totalElements);
+		Object[] arr = (Object[]) Array.newInstance(componentType, (int) totalElements);
 		@SuppressWarnings("unchecked")
 		ScalarDecoder<Object> sSerializer = (ScalarDecoder<Object>) serializer;
 		for(int i=0;i<totalElements;i++) {
@@ -512,16 +530,6 @@ public class BinaryDecoder implements IDecoder {
 		return r;
 	}
 
-	private void assertArrayLength(int len) throws DecodingException {
-	    if (len < -1) {
-	        throw new DecodingException(StatusCodes.Bad_DecodingError, "Illegal array length " + len);
-	      }
-	      int maxLen = ctx.getMaxArrayLength();
-	      if (maxLen > 0 && len > maxLen) {
-	        throw new DecodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxArrayLength=" + maxLen + " < " + len);
-	      }
-	}
-
 	/** {@inheritDoc} */
 	@Override
 	public Object getArrayObject(String fieldName, int builtinTypeId)
@@ -627,9 +635,19 @@ public class BinaryDecoder implements IDecoder {
 			int len = in.getInt();
 			if (len==-1) return null;
 			assertByteStringLength(len);
+			if (byteStringSliceThreshold > 0 && len >= byteStringSliceThreshold) {
+				ByteBuffer src = directArrayBuffer(len);
+				if (src != null && src.hasArray() && src.remaining() >= len) {
+					int position = src.position();
+					ByteString result = ByteString.slice(src.array(), src.arrayOffset() + position, len);
+					src.position(position + len);
+					slicesReturned = true;
+					return result;
+				}
+			}
 			byte data[] = new byte[len];
 			in.get(data);
-			return ByteString.valueOf(data);
+			return ByteString.wrap(data);
 		} catch (IOException e) {
 			throw toDecodingException(e);
 		}
@@ -659,13 +677,14 @@ public class BinaryDecoder implements IDecoder {
 			throws DecodingException
 	{
 		try {
+			// The status, timestamps and picoseconds are kept as primitives
 			int encodingMask = in.get();
 			Variant value					= (encodingMask &    1)!=0 ? getVariant(null) : null;
-			StatusCode status				= (encodingMask &    2)!=0 ? getStatusCode(null) : StatusCode.GOOD;
-			DateTime sourceTimeStamp		= (encodingMask &    4)!=0 ? getDateTime(null) : null;//DateTime.MIN_VALUE;
-			UnsignedShort sourcePicoSeconds	= (encodingMask & 0x10)!=0 ? getUInt16(null) : UnsignedShort.MIN_VALUE;
-			DateTime serverTimeStamp		= (encodingMask &    8)!=0 ? getDateTime(null) : null;//DateTime.MIN_VALUE;
-			UnsignedShort serverPicoSeconds	= (encodingMask & 0x20)!=0 ? getUInt16(null) : UnsignedShort.MIN_VALUE;
+			int status						= (encodingMask &    2)!=0 ? in.getInt() : 0;
+			long sourceTimeStamp			= (encodingMask &    4)!=0 ? getDateTimeTicks() : 0;
+			int sourcePicoSeconds			= (encodingMask & 0x10)!=0 ? in.getShort() & 0xffff : 0;
+			long serverTimeStamp			= (encodingMask &    8)!=0 ? getDateTimeTicks() : 0;
+			int serverPicoSeconds			= (encodingMask & 0x20)!=0 ? in.getShort() & 0xffff : 0;
 			return new DataValue(value, status, sourceTimeStamp, sourcePicoSeconds, serverTimeStamp, serverPicoSeconds);
 		} catch (IOException e) {
 			throw toDecodingException(e);
@@ -690,21 +709,48 @@ public class BinaryDecoder implements IDecoder {
 		}
 	}
 
+	/**
+	 * Read a DateTime as 100 ns ticks, limited to the range of
+	 * {@link DateTime#MIN_VALUE} and {@link DateTime#MAX_VALUE}.
+	 *
+	 * @return the time in ticks
+	 * @throws IOException
+	 */
+	private long getDateTimeTicks()
+			throws IOException
+	{
+		long v = in.getLong();
+		if (v > DateTime.MAX_VALUE.getValue())
+			return DateTime.MAX_VALUE.getValue();
+		if (v < DateTime.MIN_VALUE.getValue())
+			return DateTime.MIN_VALUE.getValue();
+		return v;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public DateTime getDateTime(String fieldName)
 			throws DecodingException
 	{
 		try {
-			long v = in.getLong();
-			DateTime t = new DateTime(v);
-			if(t.compareTo(DateTime.MAX_VALUE) > 0) {
+			long v = getDateTimeTicks();
+			if (v == DateTime.MAX_VALUE.getValue())
 				return DateTime.MAX_VALUE;
-			} else if (t.compareTo(DateTime.MIN_VALUE) < 0) {
+			if (v == DateTime.MIN_VALUE.getValue())
 				return DateTime.MIN_VALUE;
-			} else {
-				return t;
-			}
+			return new DateTime(v);
+		} catch (IOException e) {
+			throw toDecodingException(e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getDateTime_(String fieldName)
+			throws DecodingException
+	{
+		try {
+			return getDateTimeTicks();
 		} catch (IOException e) {
 			throw toDecodingException(e);
 		}
@@ -797,6 +843,37 @@ public class BinaryDecoder implements IDecoder {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public double[] getDoubleArray_(String fieldName)
+			throws DecodingException
+	{
+		try {
+			int len = in.getInt();
+			if (len==-1) return null;
+			assertArrayLength(len, 8);
+			double[] result = new double[len];
+			ByteBuffer src = directArrayBuffer(len * 8);
+			if (src != null) {
+				src.asDoubleBuffer().get(result);
+				src.position(src.position() + len * 8);
+				return result;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < len; ) {
+				int n = Math.min(len - offset, buf.capacity() / 8);
+				buf.clear();
+				in.get(buf, n * 8);
+				buf.flip();
+				buf.asDoubleBuffer().get(result, offset, n);
+				offset += n;
+			}
+			return result;
+		} catch (IOException e) {
+			throw toDecodingException(e);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	@SuppressWarnings("unchecked")
@@ -947,8 +1024,10 @@ public class BinaryDecoder implements IDecoder {
 
 			if (namespaceUri!=null)
 				return new ExpandedNodeId(serverIndex, namespaceUri, id);
-			else
-				return new ExpandedNodeId(serverIndex, namespaceIndex, id);
+			NodeIdCache cache = ctx == null ? null : ctx.getNodeIdCache();
+			if (cache != null)
+				return cache.getExpandedNodeId(new ExpandedNodeId(serverIndex, namespaceIndex, id));
+			return new ExpandedNodeId(serverIndex, namespaceIndex, id);
 		} catch (IOException e) {
 			throw toDecodingException(e);
 		}
@@ -1001,6 +1080,11 @@ public class BinaryDecoder implements IDecoder {
 				return tmp;
 			}
 			
+			//the body is decoded and cached by ExtensionObject.decode when accessed
+			if(ctx.isLazyExtensionObjectDecoding()) {
+				return tmp;
+			}
+			
 			//try decoding, but failing is allowed (might be e.g. unknown Structure)
 			try{
 			  Structure decoded = tmp.decode(getEncoderContext());
@@ -1061,33 +1145,50 @@ public class BinaryDecoder implements IDecoder {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public float[] getFloatArray_(String fieldName)
+			throws DecodingException
+	{
+		try {
+			int len = in.getInt();
+			if (len==-1) return null;
+			assertArrayLength(len, 4);
+			float[] result = new float[len];
+			ByteBuffer src = directArrayBuffer(len * 4);
+			if (src != null) {
+				src.asFloatBuffer().get(result);
+				src.position(src.position() + len * 4);
+				return result;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < len; ) {
+				int n = Math.min(len - offset, buf.capacity() / 4);
+				buf.clear();
+				in.get(buf, n * 4);
+				buf.flip();
+				buf.asFloatBuffer().get(result, offset, n);
+				offset += n;
+			}
+			return result;
+		} catch (IOException e) {
+			throw toDecodingException(e);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public UUID getGuid(String fieldName)
 			throws DecodingException
 	{
 		try {
-			byte[] enc = new byte[16];
-
-			enc[3] = in.get();
-			enc[2] = in.get();
-			enc[1] = in.get();
-			enc[0] = in.get();
-			enc[5] = in.get();
-			enc[4] = in.get();
-			enc[7] = in.get();
-			enc[6] = in.get();
-			for (int i = 8; i < 16; i++)
-				enc[i] = in.get();;
-
-				long hiBits = 0;
-				long loBits = 0;
-				for (int i = 0; i < 8; i++)
-					hiBits = (hiBits << 8) | (enc[i] & 0xff);
-				for (int i = 8; i < 16; i++)
-					loBits = (loBits << 8) | (enc[i] & 0xff);
-
-				return new UUID(hiBits, loBits);
+			// Data1, Data2 and Data3 are little endian, Data4 is 8 bytes in order
+			long hiBits = (long) in.getInt() << 32;
+			hiBits |= (in.getShort() & 0xffffL) << 16;
+			hiBits |= in.getShort() & 0xffffL;
+			long loBits = Long.reverseBytes(in.getLong());
+
+			return new UUID(hiBits, loBits);
 		} catch (IOException e) {
 			throw toDecodingException(e);
 		}
@@ -1141,6 +1242,37 @@ public class BinaryDecoder implements IDecoder {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public short[] getInt16Array_(String fieldName)
+			throws DecodingException
+	{
+		try {
+			int len = in.getInt();
+			if (len==-1) return null;
+			assertArrayLength(len, 2);
+			short[] result = new short[len];
+			ByteBuffer src = directArrayBuffer(len * 2);
+			if (src != null) {
+				src.asShortBuffer().get(result);
+				src.position(src.position() + len * 2);
+				return result;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < len; ) {
+				int n = Math.min(len - offset, buf.capacity() / 2);
+				buf.clear();
+				in.get(buf, n * 2);
+				buf.flip();
+				buf.asShortBuffer().get(result, offset, n);
+				offset += n;
+			}
+			return result;
+		} catch (IOException e) {
+			throw toDecodingException(e);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Integer getInt32(String fieldName)
@@ -1181,8 +1313,21 @@ public class BinaryDecoder implements IDecoder {
 			if (len==-1) return null;
 			assertArrayLength(len, 4);
 			int[] result = new int[len];
-			for (int i=0; i<len; i++)
-				result[i] = getInt32(null);
+			ByteBuffer src = directArrayBuffer(len * 4);
+			if (src != null) {
+				src.asIntBuffer().get(result);
+				src.position(src.position() + len * 4);
+				return result;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < len; ) {
+				int n = Math.min(len - offset, buf.capacity() / 4);
+				buf.clear();
+				in.get(buf, n * 4);
+				buf.flip();
+				buf.asIntBuffer().get(result, offset, n);
+				offset += n;
+			}
 			return result;
 		} catch (IOException e) {
 			throw toDecodingException(e);
@@ -1219,6 +1364,37 @@ public class BinaryDecoder implements IDecoder {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public long[] getInt64Array_(String fieldName)
+			throws DecodingException
+	{
+		try {
+			int len = in.getInt();
+			if (len==-1) return null;
+			assertArrayLength(len, 8);
+			long[] result = new long[len];
+			ByteBuffer src = directArrayBuffer(len * 8);
+			if (src != null) {
+				src.asLongBuffer().get(result);
+				src.position(src.position() + len * 8);
+				return result;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < len; ) {
+				int n = Math.min(len - offset, buf.capacity() / 8);
+				buf.clear();
+				in.get(buf, n * 8);
+				buf.flip();
+				buf.asLongBuffer().get(result, offset, n);
+				offset += n;
+			}
+			return result;
+		} catch (IOException e) {
+			throw toDecodingException(e);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public LocalizedText getLocalizedText(String fieldName)
@@ -1230,6 +1406,9 @@ public class BinaryDecoder implements IDecoder {
 			String text			= null;
 			if ((encodingMask & 1)==1) locale = getString(null);
 			if ((encodingMask & 2)==2) text = getString(null);
+			NameCache cache = ctx == null ? null : ctx.getNameCache();
+			if (cache != null)
+				return cache.getLocalizedText(new LocalizedText(text, cache.getLocaleId(locale)));
 			return new LocalizedText(text, locale);
 		} catch (IOException e) {
 			throw toDecodingException(e);
@@ -1280,26 +1459,27 @@ public class BinaryDecoder implements IDecoder {
 
 			NodeId result;
 			int namespaceIndex = 0;
+			NodeIdCache cache = ctx == null ? null : ctx.getNodeIdCache();
 
 			if (encoding == NodeIdEncoding.TwoByte)
 			{
 				namespaceIndex = 0;
-				UnsignedInteger id = UnsignedInteger.getFromBits( in.get() & 0xff );
-				result = new NodeId(namespaceIndex, id);
+				int id = in.get() & 0xff;
+				return cache != null ? cache.getNodeId(namespaceIndex, id) : new NodeId(namespaceIndex, UnsignedInteger.getFromBits(id));
 			}
 			else
 				if (encoding == NodeIdEncoding.FourByte)
 				{
 					namespaceIndex = in.get() & 0xff;
-					UnsignedInteger id = UnsignedInteger.getFromBits( in.getShort() & 0xffff);
-					result = new NodeId(namespaceIndex, id);
+					int id = in.getShort() & 0xffff;
+					return cache != null ? cache.getNodeId(namespaceIndex, id) : new NodeId(namespaceIndex, UnsignedInteger.getFromBits(id));
 				}
 				else
 					if (encoding == NodeIdEncoding.Numeric)
 					{
 						namespaceIndex = in.getShort() & 0xffff;
-						UnsignedInteger id = getUInt32(null);
-						result = new NodeId(namespaceIndex, id);
+						int id = in.getInt();
+						return cache != null ? cache.getNodeId(namespaceIndex, id) : new NodeId(namespaceIndex, UnsignedInteger.getFromBits(id));
 					}
 					else
 						if (encoding == NodeIdEncoding.String)
@@ -1324,7 +1504,7 @@ public class BinaryDecoder implements IDecoder {
 								}
 								else
 									throw new DecodingException("Unsupported NodeId Encoding byte "+encoding);
-			return result;
+			return cache != null ? cache.getNodeId(result) : result;
 		} catch (IOException e) {
 			throw toDecodingException(e);
 		}
@@ -1357,6 +1537,9 @@ public class BinaryDecoder implements IDecoder {
 		String name						= getString(null);
 		//if (name==null) return null; //test 21.5.
 		if (name==null) return new QualifiedName( namespaceIndex, null );
+		NameCache cache = ctx == null ? null : ctx.getNameCache();
+		if (cache != null)
+			return cache.getQualifiedName(new QualifiedName( namespaceIndex, name ));
 		return new QualifiedName( namespaceIndex, name );
 	}
 
@@ -1458,7 +1641,11 @@ public class BinaryDecoder implements IDecoder {
 	public StatusCode getStatusCode(String fieldName)
 			throws DecodingException
 	{
-		return new StatusCode( getUInt32(null) );
+		try {
+			return StatusCode.getFromBits( in.getInt() );
+		} catch (IOException e) {
+			throw toDecodingException(e);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -1488,9 +1675,27 @@ public class BinaryDecoder implements IDecoder {
 			int len = in.getInt();
 			if (len==-1) return null;
 			assertStringLength(len);
-			byte dada[] = new byte[len];
-			in.get(dada);
-			return new String(dada, UTF8);
+			if (in instanceof ByteBufferReadable)
+				return ((ByteBufferReadable) in).getString(len, UTF8);
+			if (in instanceof CompositeByteBufferReadable) {
+				ByteBuffer src = ((CompositeByteBufferReadable) in).currentBuffer(len);
+				if (src != null && src.hasArray()) {
+					int position = src.position();
+					String result = new String(src.array(), src.arrayOffset() + position, len, UTF8);
+					src.position(position + len);
+					return result;
+				}
+			}
+			if (len > BinaryEncoder.MAX_STRING_BUFFER_SIZE) {
+				byte dada[] = new byte[len];
+				in.get(dada);
+				return new String(dada, UTF8);
+			}
+			byte[] buf = stringBuffer;
+			if (buf == null || buf.length < len)
+				buf = stringBuffer = new byte[Math.max(64, len)];
+			in.get(buf, 0, len);
+			return new String(buf, 0, len, UTF8);
 		} catch (IOException e) {
 			throw toDecodingException(e);
 		}
@@ -1668,6 +1873,17 @@ public class BinaryDecoder implements IDecoder {
 				builtinType = 15; //ByteString
 			}
 			
+			// Numbers and arrays of them are read without boxing
+			if (!hasDimensionLengths) {
+				Variant primitive = isArray ? getPrimitiveArrayVariant(builtinType) : getPrimitiveVariant(builtinType);
+				if (primitive != null)
+					return primitive;
+			} else if (isArray) {
+				Variant primitive = getPrimitiveArrayVariant(builtinType);
+				if (primitive != null)
+					return toMultiDimensionVariant(primitive, getInt32Array_(null));
+			}
+			
 			Object value					= isNull ? null : isArray ? getArrayObject(null, builtinType) : getScalarObject(null, builtinType);
 			int[] dims						= hasDimensionLengths ? getInt32Array_(null) : null;
 			boolean multiDimension			= isArray && dims != null && dims.length>1;
@@ -1697,7 +1913,7 @@ public class BinaryDecoder implements IDecoder {
 					throw new DecodingException("Did not get an ExtensionObject with ByteString data for Decimal type", e);
 				}
 			}else {
-				if (value instanceof ExtensionObject) {
+				if (value instanceof ExtensionObject && !ctx.isLazyExtensionObjectDecoding()) {
 					ExtensionObject extobj = (ExtensionObject) value;
 					try {
 						value = extobj.decode(ctx);
@@ -1713,7 +1929,7 @@ public class BinaryDecoder implements IDecoder {
 					value = tryDecimalConversion((ExtensionObject[]) value);
 				}
 				//If still ExtensionObject[], it was not Decimals
-				if (value instanceof ExtensionObject[]) {
+				if (value instanceof ExtensionObject[] && !ctx.isLazyExtensionObjectDecoding()) {
 					ExtensionObject[] values = (ExtensionObject[]) value;
 					try {
 						value = ctx.decode(values);
@@ -1737,6 +1953,72 @@ public class BinaryDecoder implements IDecoder {
 		}
 	}
 
+	/**
+	 * Read the value of a scalar variant of a primitive type.
+	 *
+	 * @param builtinType builtin type id of the value
+	 * @return variant backed by the primitive, or null if the type is not primitive
+	 * @throws IOException
+	 */
+	private Variant getPrimitiveVariant(int builtinType) 
+			throws IOException
+	{
+		switch (builtinType) {
+		case 1: return Variant.valueOf(in.get() != 0);
+		case 6: return Variant.valueOf(in.getInt());
+		case 8: return Variant.valueOf(in.getLong());
+		case 10: return Variant.valueOf(in.getFloat());
+		case 11: return Variant.valueOf(in.getDouble());
+		}
+		return null;
+	}
+
+	/**
+	 * Read the value of a 1-dim array variant of a primitive type.
+	 *
+	 * @param builtinType builtin type id of the elements
+	 * @return variant backed by the primitive array, or null if the type is not primitive
+	 * @throws DecodingException
+	 */
+	private Variant getPrimitiveArrayVariant(int builtinType) 
+			throws DecodingException
+	{
+		switch (builtinType) {
+		case 4: return Variant.valueOf(getInt16Array_(null));
+		case 6: return Variant.valueOf(getInt32Array_(null));
+		case 8: return Variant.valueOf(getInt64Array_(null));
+		case 10: return Variant.valueOf(getFloatArray_(null));
+		case 11: return Variant.valueOf(getDoubleArray_(null));
+		}
+		return null;
+	}
+
+	/**
+	 * Get a multi-dimension variant backed by the flat primitive array of 
+	 * a 1-dim variant.
+	 *
+	 * @param flat variant read with {@link #getPrimitiveArrayVariant(int)}
+	 * @param dims the array dimensions
+	 * @return the variant
+	 * @throws DecodingException if the dimensions do not match the length of the array
+	 */
+	private Variant toMultiDimensionVariant(Variant flat, int[] dims)
+			throws DecodingException
+	{
+		Object array = flat.getPrimitiveArray();
+		long total = dims == null ? -1 : 1;
+		if (dims != null)
+			for (int i : dims)
+				total = total * i;
+		long length = array == null ? -1 : Array.getLength(array);
+		// GH#53, see getVariant
+		if (length != total)
+			throw new DecodingException("The ArrayDimensions do not match the ArrayLength in total size");
+		if (dims == null || dims.length <= 1)
+			return flat;
+		return Variant.valueOf(array, dims);
+	}
+
 	private boolean isDecimal(ExtensionObject value) {
 		return ctx.getNamespaceTable().nodeIdEquals(Identifiers.Decimal, value.getTypeId());
 	}
@@ -1812,14 +2094,67 @@ public class BinaryDecoder implements IDecoder {
 	}
 
 	/**
-	 * Assert array length is within restrictions
+	 * Set the length from which ByteStrings are returned as slices of the input 
+	 * buffer instead of copies, see {@link ByteString#slice(byte[], int, int)}. 
+	 * Slices are only made when the input is backed by an array that holds 
+	 * the whole value. The input buffers must not be reused while the 
+	 * decoded values are in use, see {@link #hasSlices()}.
+	 *
+	 * @param threshold minimum length of a slice in bytes, 0 to always copy
+	 */
+	public void setByteStringSliceThreshold(int threshold)
+	{
+		this.byteStringSliceThreshold = threshold;
+	}
+
+	/**
+	 * <p>getByteStringSliceThreshold.</p>
+	 *
+	 * @return minimum length of a ByteString slice in bytes, 0 if slicing is disabled
+	 */
+	public int getByteStringSliceThreshold()
+	{
+		return byteStringSliceThreshold;
+	}
+
+	/**
+	 * Whether ByteStrings that refer to the input buffers have been returned since
+	 * the decoder was reset. If so, the buffers must not be reused.
+	 *
+	 * @return true if slices were returned
+	 */
+	public boolean hasSlices()
+	{
+		return slicesReturned;
+	}
+
+	/**
+	 * Reset the decoder to read from another input. The encoder context and
+	 * the scratch buffers are kept, so that the decoder can be reused for many
+	 * messages, see {@link BinaryCodecPool}.
+	 *
+	 * @param in the input, or null to only release the previous input
+	 */
+	public void reset(IBinaryReadable in)
+	{
+		slicesReturned = false;
+		if (in == null)
+			this.in = null;
+		else
+			setReadable(in);
+	}
+
+	/**
+	 * Assert array length is within restrictions, and that the remaining
+	 * bytes of the input can hold the elements, before the array is allocated.
 	 * @param len
+	 * @param elementSizeInBytes minimum encoded size of an element
 	 * @throws DecodingException
 	 */
-	private void assertArrayLength(int len, int elementSizeInBytes)
+	private void assertArrayLength(long len, int elementSizeInBytes)
 			throws DecodingException
 	{
-		if (len<-1){
+		if (len<-1 || len>Integer.MAX_VALUE){
 			throw new DecodingException(StatusCodes.Bad_DecodingError, "Illegal array length "+len);
 		}
 		int maxLen = ctx.getMaxArrayLength();
@@ -1827,9 +2162,7 @@ public class BinaryDecoder implements IDecoder {
 			throw new DecodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxArrayLength="+maxLen+" < "+len);
 		}
 
-		long l = len; //avoid overflow
-
-		if (l*elementSizeInBytes > remaining()){
+		if (len*elementSizeInBytes > remaining()){
 			throw new DecodingException(StatusCodes.Bad_EndOfStream, "Buffer underflow");
 		}
 	}
@@ -1942,6 +2275,41 @@ public class BinaryDecoder implements IDecoder {
 		return new BigDecimal(value, scale);
 	}
 
+	/**
+	 * Get the buffer of the input, if the input is a single buffer, or the
+	 * current buffer of a composite input that holds the whole array.
+	 * Primitive arrays are read from it directly through a typed view.
+	 *
+	 * @param length number of bytes of the array
+	 * @return the buffer of the input or null
+	 * @throws IOException
+	 */
+	private ByteBuffer directArrayBuffer(int length)
+		throws IOException
+	{
+		if (in instanceof ByteBufferReadable)
+			return ((ByteBufferReadable) in).getBuffer();
+		if (in instanceof CompositeByteBufferReadable)
+			return ((CompositeByteBufferReadable) in).currentBuffer(length);
+		return null;
+	}
+
+	/**
+	 * Get the reused buffer for reading primitive arrays in blocks from
+	 * inputs that are not a single buffer, e.g. chunks of a message.
+	 *
+	 * @return cleared buffer in the byte order of the input
+	 */
+	private ByteBuffer arrayBuffer()
+	{
+		ByteBuffer buf = arrayBuffer;
+		if (buf == null)
+			buf = arrayBuffer = ByteBuffer.allocate(ARRAY_BUFFER_SIZE);
+		buf.clear();
+		buf.order(in.order());
+		return buf;
+	}
+
 	/**
 	 * <p>remaining.</p>
 	 *
@@ -26,7 +26,6 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
 
@@ -67,6 +66,7 @@ import org.opcfoundation.ua.utils.EncodingLimitsExceededIoException;
 import org.opcfoundation.ua.utils.LimitedByteArrayOutputStream;
 import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
 import org.opcfoundation.ua.utils.bytebuffer.ByteBufferWriteable;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryPatchableWriteable;
 import org.opcfoundation.ua.utils.bytebuffer.IBinaryWriteable;
 import org.opcfoundation.ua.utils.bytebuffer.OutputStreamWriteable;
 
@@ -391,6 +391,22 @@ public class BinaryEncoder implements IEncoder {
 	IBinaryWriteable out;
 	EncoderContext ctx; 
 	EncoderMode mode = EncoderMode.NonStrict;
+	/** Reused buffer for encoding strings, see {@link #putString(String, String)} */
+	byte[] stringBuffer;
+
+	/** 
+	 * Max size of the reused string buffers of the encoder and the decoder, in bytes.
+	 * Longer strings are encoded in blocks or with {@link String#getBytes(Charset)}, 
+	 * and decoded from a new array.
+	 */
+	static final int MAX_STRING_BUFFER_SIZE = 16384;
+	/** Number of chars encoded to the string buffer at a time, UTF-8 needs at most 3 bytes per char */
+	static final int STRING_BLOCK_LENGTH = MAX_STRING_BUFFER_SIZE / 3;
+	/** Reused buffer for writing primitive arrays, see {@link #arrayBuffer()} */
+	ByteBuffer arrayBuffer;
+
+	/** Size of the buffer used for writing primitive arrays in blocks */
+	static final int ARRAY_BUFFER_SIZE = 8192;
 
 	/**
 	 * <p>Constructor for BinaryEncoder.</p>
@@ -481,6 +497,21 @@ public class BinaryEncoder implements IEncoder {
 		this.out = out;
 	}
 
+	/**
+	 * Reset the encoder to write to another output. The encoder context, the
+	 * mode and the scratch buffers are kept, so that the encoder can be reused
+	 * for many messages, see {@link BinaryCodecPool}.
+	 *
+	 * @param out the output, or null to only release the previous output
+	 */
+	public void reset(IBinaryWriteable out)
+	{
+		if (out == null)
+			this.out = null;
+		else
+			setWriteable(out);
+	}
+
 	/**
 	 * <p>getWriteable.</p>
 	 *
@@ -581,6 +612,38 @@ public class BinaryEncoder implements IEncoder {
 		}
 	}		
 	
+	/**
+	 * Get the buffer of the output, if the output is a single buffer
+	 * with room for the given number of bytes. Primitive arrays are
+	 * written to it directly through a typed view.
+	 *
+	 * @param bytes number of bytes to write
+	 * @return the buffer of the output or null
+	 */
+	private ByteBuffer directArrayBuffer(long bytes)
+	{
+		if (!(out instanceof ByteBufferWriteable))
+			return null;
+		ByteBuffer buf = ((ByteBufferWriteable) out).getBuffer();
+		return buf.remaining() >= bytes ? buf : null;
+	}
+
+	/**
+	 * Get the reused buffer for writing primitive arrays in blocks to
+	 * outputs that are not a single buffer, e.g. chunks of a message.
+	 *
+	 * @return cleared buffer in the byte order of the output
+	 */
+	private ByteBuffer arrayBuffer()
+	{
+		ByteBuffer buf = arrayBuffer;
+		if (buf == null)
+			buf = arrayBuffer = ByteBuffer.allocate(ARRAY_BUFFER_SIZE);
+		buf.clear();
+		buf.order(out.order());
+		return buf;
+	}
+
 	private static EncodingException toEncodingException(IOException e) {
 		if (e instanceof ClosedChannelException)
 			return new EncodingException(StatusCodes.Bad_ConnectionClosed, e);
@@ -896,6 +959,44 @@ public class BinaryEncoder implements IEncoder {
 		}
 	}	
 	
+	/**
+	 * <p>putInt16Array.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of short.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putInt16Array(String fieldName, short[] v)
+    throws EncodingException	
+	{
+		try {
+			if (v==null) {
+				out.putInt(-1);
+				return;
+			}
+		
+			assertArrayLength(v.length);
+			out.putInt(v.length);
+			ByteBuffer dst = directArrayBuffer(v.length * 2L);
+			if (dst != null) {
+				dst.asShortBuffer().put(v);
+				dst.position(dst.position() + v.length * 2);
+				return;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < v.length; ) {
+				int n = Math.min(v.length - offset, buf.capacity() / 2);
+				buf.clear();
+				buf.asShortBuffer().put(v, offset, n);
+				buf.limit(n * 2);
+				out.put(buf);
+				offset += n;
+			}
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+	}
+	
 	/** {@inheritDoc} */
 	public void putUInt16(String fieldName, UnsignedShort v)
     throws EncodingException	
@@ -1013,8 +1114,21 @@ public class BinaryEncoder implements IEncoder {
 		
 			assertArrayLength(v.length);
 			out.putInt(v.length);
-			for (int o : v)
-				putInt32(null, o);
+			ByteBuffer dst = directArrayBuffer(v.length * 4L);
+			if (dst != null) {
+				dst.asIntBuffer().put(v);
+				dst.position(dst.position() + v.length * 4);
+				return;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < v.length; ) {
+				int n = Math.min(v.length - offset, buf.capacity() / 4);
+				buf.clear();
+				buf.asIntBuffer().put(v, offset, n);
+				buf.limit(n * 4);
+				out.put(buf);
+				offset += n;
+			}
 		} catch (IOException e) {
 			throw toEncodingException(e);
 		}
@@ -1209,6 +1323,44 @@ public class BinaryEncoder implements IEncoder {
 		}
 	}
 	
+	/**
+	 * <p>putInt64Array.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of long.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putInt64Array(String fieldName, long[] v)
+    throws EncodingException	
+	{
+		try {
+			if (v==null) {
+				out.putInt(-1);
+				return;
+			}
+		
+			assertArrayLength(v.length);
+			out.putInt(v.length);
+			ByteBuffer dst = directArrayBuffer(v.length * 8L);
+			if (dst != null) {
+				dst.asLongBuffer().put(v);
+				dst.position(dst.position() + v.length * 8);
+				return;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < v.length; ) {
+				int n = Math.min(v.length - offset, buf.capacity() / 8);
+				buf.clear();
+				buf.asLongBuffer().put(v, offset, n);
+				buf.limit(n * 8);
+				out.put(buf);
+				offset += n;
+			}
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+	}
+	
 	/** {@inheritDoc} */
 	public void putUInt64(String fieldName, UnsignedLong v)
     throws EncodingException	
@@ -1358,6 +1510,44 @@ public class BinaryEncoder implements IEncoder {
 		}			
 	}		
 	
+	/**
+	 * <p>putFloatArray.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of float.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putFloatArray(String fieldName, float[] v)
+    throws EncodingException	
+	{
+		try {
+			if (v==null) {
+				out.putInt(-1);
+				return;
+			}
+		
+			assertArrayLength(v.length);
+			out.putInt(v.length);
+			ByteBuffer dst = directArrayBuffer(v.length * 4L);
+			if (dst != null) {
+				dst.asFloatBuffer().put(v);
+				dst.position(dst.position() + v.length * 4);
+				return;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < v.length; ) {
+				int n = Math.min(v.length - offset, buf.capacity() / 4);
+				buf.clear();
+				buf.asFloatBuffer().put(v, offset, n);
+				buf.limit(n * 4);
+				out.put(buf);
+				offset += n;
+			}
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+	}
+	
 	/** {@inheritDoc} */
 	public void putDouble(String fieldName, Double v)
     throws EncodingException	
@@ -1441,6 +1631,44 @@ public class BinaryEncoder implements IEncoder {
 		}
 	}	
 	
+	/**
+	 * <p>putDoubleArray.</p>
+	 *
+	 * @param fieldName a {@link java.lang.String} object.
+	 * @param v an array of double.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putDoubleArray(String fieldName, double[] v)
+    throws EncodingException	
+	{
+		try {
+			if (v==null) {
+				out.putInt(-1);
+				return;
+			}
+		
+			assertArrayLength(v.length);
+			out.putInt(v.length);
+			ByteBuffer dst = directArrayBuffer(v.length * 8L);
+			if (dst != null) {
+				dst.asDoubleBuffer().put(v);
+				dst.position(dst.position() + v.length * 8);
+				return;
+			}
+			ByteBuffer buf = arrayBuffer();
+			for (int offset = 0; offset < v.length; ) {
+				int n = Math.min(v.length - offset, buf.capacity() / 8);
+				buf.clear();
+				buf.asDoubleBuffer().put(v, offset, n);
+				buf.limit(n * 8);
+				out.put(buf);
+				offset += n;
+			}
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+	}
+	
 	/** {@inheritDoc} */
 	public void putString(String fieldName, String v)
     throws EncodingException	
@@ -1450,16 +1678,94 @@ public class BinaryEncoder implements IEncoder {
 				assertNullOk(v);
 				out.putInt(-1);
 			} else {
-				assertStringLength(v.length());
-				final byte[] bytes = v.getBytes(UTF8);
-				out.putInt(bytes.length);
-				out.put(bytes);
+				int length = v.length();
+				assertStringLength(length);
+				if (length <= STRING_BLOCK_LENGTH) {
+					byte[] buf = stringBuffer(length);
+					int n = encodeUtf8(v, 0, length, buf);
+					out.putInt(n);
+					out.put(buf, 0, n);
+				} else if (out instanceof IBinaryPatchableWriteable) {
+					// Encode the string block by block to the output and back-patch its length
+					IBinaryPatchableWriteable pout = (IBinaryPatchableWriteable) out;
+					int mark = pout.reserveInt();
+					byte[] buf = stringBuffer(STRING_BLOCK_LENGTH);
+					for (int start = 0; start < length; ) {
+						int end = Math.min(length, start + STRING_BLOCK_LENGTH);
+						// Keep a surrogate pair in one block
+						if (end < length && Character.isHighSurrogate(v.charAt(end - 1)))
+							end--;
+						out.put(buf, 0, encodeUtf8(v, start, end, buf));
+						start = end;
+					}
+					pout.patchInt(mark, pout.getLengthAfter(mark));
+				} else {
+					final byte[] bytes = v.getBytes(UTF8);
+					out.putInt(bytes.length);
+					out.put(bytes);
+				}
 			}
 		} catch (IOException e) {
 			throw toEncodingException(e);
 		}
 	}
 
+	/**
+	 * Get the reused string buffer, with room for the UTF-8 encoding of the given number of chars.
+	 */
+	private byte[] stringBuffer(int length)
+	{
+		byte[] buf = stringBuffer;
+		if (buf == null || buf.length < length * 3)
+			buf = stringBuffer = new byte[Math.max(64, length * 3)];
+		return buf;
+	}
+
+	/**
+	 * Encode the chars from start to end of a string as UTF-8. Produces the 
+	 * same bytes as {@link String#getBytes(Charset)}, i.e. unpaired surrogates
+	 * are replaced with '?'.
+	 *
+	 * @param v string to encode
+	 * @param start index of the first char
+	 * @param end index after the last char
+	 * @param buf buffer with room for 3 bytes per char
+	 * @return number of bytes written to buf
+	 */
+	static int encodeUtf8(String v, int start, int end, byte[] buf)
+	{
+		int i = start;
+		int n = 0;
+		// ASCII
+		for (; i < end; i++) {
+			char c = v.charAt(i);
+			if (c >= 0x80) break;
+			buf[n++] = (byte) c;
+		}
+		for (; i < end; i++) {
+			char c = v.charAt(i);
+			if (c < 0x80) {
+				buf[n++] = (byte) c;
+			} else if (c < 0x800) {
+				buf[n++] = (byte) (0xc0 | (c >> 6));
+				buf[n++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(v.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, v.charAt(++i));
+				buf[n++] = (byte) (0xf0 | (cp >> 18));
+				buf[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				buf[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				buf[n++] = (byte) (0x80 | (cp & 0x3f));
+			} else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+				buf[n++] = '?';
+			} else {
+				buf[n++] = (byte) (0xe0 | (c >> 12));
+				buf[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buf[n++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		return n;
+	}
+
 	/**
 	 * <p>putStringArray.</p>
 	 *
@@ -1519,19 +1825,48 @@ public class BinaryEncoder implements IEncoder {
 				assertNullOk(v);
 				out.putLong(0);
 			} else {
-				if (v.compareTo(DateTime.MAX_VALUE) >= 0) {
-					out.putLong(Long.MAX_VALUE);
-				} else if (v.compareTo(DateTime.MIN_VALUE) <= 0) {
-					out.putLong(0);
-				} else {
-					out.putLong(v.getValue());
-				}
+				putDateTimeTicks(v.getValue());
 			}
 		} catch (IOException e) {
 			throw toEncodingException(e);
 		}
 }
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Values after {@link DateTime#MAX_VALUE} are written as Long.MAX_VALUE
+	 * and values before {@link DateTime#MIN_VALUE} as 0.
+	 */
+	public void putDateTime(String fieldName, long ticks)
+	throws EncodingException
+	{
+		try {
+			putDateTimeTicks(ticks);
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	/**
+	 * Write a DateTime given in 100 ns ticks. Values after {@link DateTime#MAX_VALUE}
+	 * are written as Long.MAX_VALUE and values before {@link DateTime#MIN_VALUE} as 0.
+	 *
+	 * @param ticks the time
+	 * @throws IOException
+	 */
+	private void putDateTimeTicks(long ticks)
+	throws IOException
+	{
+		if (ticks >= DateTime.MAX_VALUE.getValue()) {
+			out.putLong(Long.MAX_VALUE);
+		} else if (ticks <= DateTime.MIN_VALUE.getValue()) {
+			out.putLong(0);
+		} else {
+			out.putLong(ticks);
+		}
+	}
+
 	/**
 	 * <p>putDateTimeArray.</p>
 	 *
@@ -1589,23 +1924,11 @@ public class BinaryEncoder implements IEncoder {
 				long hi = v.getMostSignificantBits();
 				long lo = v.getLeastSignificantBits();
 				
-				byte[] uuidBytes = new byte[16];
-
-				for (int i = 0; i < 8; i++)
-					uuidBytes[i] = (byte) (hi >>> 8 * (7 - i));
-				for (int i = 8; i < 16; i++)
-					uuidBytes[i] = (byte) (lo >>> 8 * (7 - i));
-
-				out.put(uuidBytes[3]);
-				out.put(uuidBytes[2]);
-				out.put(uuidBytes[1]);
-				out.put(uuidBytes[0]);
-				out.put(uuidBytes[5]);
-				out.put(uuidBytes[4]);
-				out.put(uuidBytes[7]);
-				out.put(uuidBytes[6]);
-				for (int i = 8; i < 16; i++)
-					out.put(uuidBytes[i]);
+				// Data1, Data2 and Data3 are little endian, Data4 is 8 bytes in order
+				out.putInt((int) (hi >>> 32));
+				out.putShort((short) (hi >>> 16));
+				out.putShort((short) hi);
+				out.putLong(Long.reverseBytes(lo));
 			}
 		} catch (IOException e) {
 			throw toEncodingException(e);
@@ -1691,7 +2014,16 @@ public class BinaryEncoder implements IEncoder {
 	public void putByteString(String fieldName, ByteString v)
     throws EncodingException	
 	{		
-	  putByteString(fieldName, ByteString.asByteArray(v));
+		try {
+			if (v==null) out.putInt(-1);
+			else {
+				assertByteStringLength(v.getLength());
+				out.putInt(v.getLength());
+				v.writeTo(out);
+			}
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
 	}
 	
 	/**
@@ -2244,6 +2576,21 @@ public class BinaryEncoder implements IEncoder {
 		}
 		putSByte(null, 1);
 		
+		if (out instanceof IBinaryPatchableWriteable) {
+			// Encode the body directly and back-patch its length
+			IBinaryPatchableWriteable pout = (IBinaryPatchableWriteable) out;
+			try {
+				int mark = pout.reserveInt();
+				putEncodeable(null, v);
+				int length = pout.getLengthAfter(mark);
+				assertByteStringLength(length);
+				pout.patchInt(mark, length);
+			} catch (IOException e) {
+				throw toEncodingException(e);
+			}
+			return;
+		}
+		
 		int limit = ctx.getMaxByteStringLength();
 		if(limit == 0) {
 			limit = ctx.getMaxMessageSize();
@@ -2393,22 +2740,33 @@ public class BinaryEncoder implements IEncoder {
 			putSByte(null, 0);
 			return;
 		}
+		// The status, timestamps and picoseconds are read as primitives, null and 
+		// zero values are not encoded
+		final int status = v.getStatusCodeBits();
+		final long sourceTimestamp = v.getSourceTimestampTicks();
+		final long serverTimestamp = v.getServerTimestampTicks();
+		final int sourcePicoseconds = v.getSourcePicos();
+		final int serverPicoseconds = v.getServerPicos();
 		int mask = 0;
 		if (v.getValue()!=null) mask |= 1;		
-		if (v.getStatusCode()!=null && !v.getStatusCode().equals(StatusCode.GOOD)) mask |= 2;
-		if (v.getSourceTimestamp()!=null && !v.getSourceTimestamp().equals(DateTime.MIN_VALUE)) mask |= 4; 
-		if (v.getServerTimestamp()!=null && !v.getServerTimestamp().equals(DateTime.MIN_VALUE)) mask |= 8;		
-		if (v.getSourcePicoseconds()!=null && !v.getSourcePicoseconds().equals(UnsignedShort.MIN_VALUE)) mask |= 0x10;
-		if (v.getServerPicoseconds()!=null && !v.getServerPicoseconds().equals(UnsignedShort.MIN_VALUE)) mask |= 0x20;
+		if (status != 0) mask |= 2;
+		if (sourceTimestamp != 0) mask |= 4; 
+		if (serverTimestamp != 0) mask |= 8;		
+		if (sourcePicoseconds != 0) mask |= 0x10;
+		if (serverPicoseconds != 0) mask |= 0x20;
 		
-		putSByte(null, mask);
-		// NOTE!! The order of fields differ from the "order" of the mask, see spec 1.04 Part 6 section 5.2.2.17 for DataValue encoding
-		if ((mask & 1) == 1) putVariant(null, v.getValue());
-		if ((mask & 2) == 2) putStatusCode(null, v.getStatusCode());
-		if ((mask & 4) == 4) putDateTime(null, v.getSourceTimestamp());
-		if ((mask & 0x10) == 0x10) putUInt16(null, v.getSourcePicoseconds());
-		if ((mask & 8) == 8) putDateTime(null, v.getServerTimestamp());
-		if ((mask & 0x20) == 0x20) putUInt16(null, v.getServerPicoseconds());
+		try {
+			putSByte(null, mask);
+			// NOTE!! The order of fields differ from the "order" of the mask, see spec 1.04 Part 6 section 5.2.2.17 for DataValue encoding
+			if ((mask & 1) == 1) putVariant(null, v.getValue());
+			if ((mask & 2) == 2) out.putInt(status);
+			if ((mask & 4) == 4) putDateTimeTicks(sourceTimestamp);
+			if ((mask & 0x10) == 0x10) out.putShort((short) sourcePicoseconds);
+			if ((mask & 8) == 8) putDateTimeTicks(serverTimestamp);
+			if ((mask & 0x20) == 0x20) out.putShort((short) serverPicoseconds);
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
 	}
 	
 	/**
@@ -2465,34 +2823,27 @@ public class BinaryEncoder implements IEncoder {
 			return;
 		}
 		
+		// Variants backed by primitives are written without boxing
+		if (v.isPrimitive()) {
+			putPrimitiveVariant(v);
+			return;
+		}
+		
 		Object o = v.getValue();
 		if (o==null) {
 			putSByte(null, 0);
 			return;
 		}		
 
-		Class<?> compositeClass			= v.getCompositeClass();
-		final int builtinType;
-		final boolean isDecimal;
-		if(BigDecimal.class.isAssignableFrom(compositeClass)) {
-			builtinType = 22;
-			isDecimal = true;
-		}else {
-			isDecimal = false;
-			if (Structure.class.isAssignableFrom(compositeClass)) {
-				builtinType = 22;
-			}else {
-				if(BuiltinsMap.ID_MAP.containsKey(compositeClass)) {
-					builtinType = BuiltinsMap.ID_MAP.get(compositeClass);
-				}else {
-					throw new EncodingException("Non-suitable composite class for Variant: "+compositeClass);
-				}
-				
-			}
-		}
+		// Type and shape are resolved when the Variant is created
+		final int builtinType = v.getBuiltinTypeId();
+		if (builtinType <= 0)
+			throw new EncodingException("Non-suitable composite class for Variant: "+v.getCompositeClass());
+		final boolean isDecimal = builtinType == 22 && (o instanceof BigDecimal || o instanceof BigDecimal[]);
 		
 		// Scalar
-		if (!v.isArray()) {
+		int dim = v.getDimension();
+		if (dim==0) {
 			putSByte(null, builtinType);
 			if(isDecimal) {
 				o = decimalToExtensionObject((BigDecimal) o);
@@ -2502,7 +2853,6 @@ public class BinaryEncoder implements IEncoder {
 		} 
 		
 		// Array
-		int dim = v.getDimension();
 		if (dim==1) {
 			putSByte( null, (builtinType | 0x80));
 			if(isDecimal) {
@@ -2515,25 +2865,77 @@ public class BinaryEncoder implements IEncoder {
 		// Multi-dimension array
 		int dims[] = v.getArrayDimensions();
 		int len = MultiDimensionArrayUtils.getLength(dims);
-		Iterator<Object> i = MultiDimensionArrayUtils.arrayIterator(v.getValue(), v.getArrayDimensions());
 		try {
 			putSByte( null, (builtinType | 0xC0));
 			out.putInt(len);
-			while (i.hasNext()) {
-				Object elem = i.next();
-				if(isDecimal) {
-					elem = decimalToExtensionObject((BigDecimal) elem);
-				}
-				putScalar(null, builtinType, elem);
-			}
+			putArrayElements((Object[]) o, dims, 0, builtinType);
 			putInt32Array(null, dims);
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new EncodingException("The dimensions of inner array elements of a multi-dimension variable must be equal in length", e);
 		} catch (IOException e) {
 			throw toEncodingException(e);
 		}		
 	}	
 	
+	/**
+	 * Write a variant backed by a primitive scalar or a primitive array. 
+	 * The flat array of a multi-dimension variant is written as is.
+	 *
+	 * @param v variant for which {@link Variant#isPrimitive()} is true
+	 * @throws EncodingException
+	 */
+	private void putPrimitiveVariant(Variant v)
+	throws EncodingException
+	{
+		final int builtinType = v.getBuiltinTypeId();
+		Object array = v.getPrimitiveArray();
+		if (array != null && v.getDimension() > 1) {
+			putSByte(null, (builtinType | 0xC0));
+			putArray(null, builtinType, array);
+			putInt32Array(null, v.getArrayDimensions());
+			return;
+		}
+		if (array != null) {
+			putSByte(null, (builtinType | 0x80));
+			putArray(null, builtinType, array);
+			return;
+		}
+		putSByte(null, builtinType);
+		switch (builtinType) {
+		case 1: putSByte(null, v.booleanValue() ? 1 : 0); break;
+		case 6: putInt32(null, v.intValue()); break;
+		case 8: putInt64(null, v.longValue()); break;
+		case 10: putFloat(null, v.floatValue()); break;
+		case 11: putDouble(null, v.doubleValue()); break;
+		default: throw new EncodingException("Non-suitable composite class for Variant: "+v.getCompositeClass());
+		}
+	}
+
+	/**
+	 * Write the elements of a multi-dimension array in row-major order.
+	 *
+	 * @param array array of the given depth
+	 * @param dims dimensions of the whole array
+	 * @param depth depth of array
+	 * @param builtinType builtin type of the elements
+	 * @throws EncodingException if the inner arrays do not match the dimensions
+	 */
+	private void putArrayElements(Object[] array, int[] dims, int depth, int builtinType)
+	throws EncodingException
+	{
+		if (array == null || array.length != dims[depth])
+			throw new EncodingException("The dimensions of inner array elements of a multi-dimension variable must be equal in length");
+		if (depth < dims.length - 1) {
+			for (Object inner : array)
+				putArrayElements((Object[]) inner, dims, depth + 1, builtinType);
+			return;
+		}
+		for (Object elem : array) {
+			if (elem instanceof BigDecimal) {
+				elem = decimalToExtensionObject((BigDecimal) elem);
+			}
+			putScalar(null, builtinType, elem);
+		}
+	}
+	
 	/**
 	 * <p>putVariantArray.</p>
 	 *
@@ -2798,14 +3200,29 @@ public class BinaryEncoder implements IEncoder {
 		case 1: putBooleanArray(null, (Boolean[]) o); break;
 		case 2: putSByteArray(null, (Byte[]) o); break;
 		case 3: putByteArray(null, (UnsignedByte[]) o); break;
-		case 4: putInt16Array(null, (Short[]) o); break;
+		case 4:
+			if (o instanceof short[]) putInt16Array(null, (short[]) o);
+			else putInt16Array(null, (Short[]) o);
+			break;
 		case 5: putUInt16Array(null, (UnsignedShort[]) o); break;
-		case 6: putInt32Array(null, (Integer[]) o); break;
+		case 6:
+			if (o instanceof int[]) putInt32Array(null, (int[]) o);
+			else putInt32Array(null, (Integer[]) o);
+			break;
 		case 7: putUInt32Array(null, (UnsignedInteger[]) o); break;
-		case 8: putInt64Array(null, (Long[]) o); break;
+		case 8:
+			if (o instanceof long[]) putInt64Array(null, (long[]) o);
+			else putInt64Array(null, (Long[]) o);
+			break;
 		case 9: putUInt64Array(null, (UnsignedLong[]) o); break;
-		case 10: putFloatArray(null, (Float[]) o); break;
-		case 11: putDoubleArray(null, (Double[]) o); break;
+		case 10:
+			if (o instanceof float[]) putFloatArray(null, (float[]) o);
+			else putFloatArray(null, (Float[]) o);
+			break;
+		case 11:
+			if (o instanceof double[]) putDoubleArray(null, (double[]) o);
+			else putDoubleArray(null, (Double[]) o);
+			break;
 		case 12: putStringArray(null, (String[]) o); break;
 		case 13: putDateTimeArray(null, (DateTime[]) o); break;
 		case 14: putGuidArray(null, (UUID[]) o); break;
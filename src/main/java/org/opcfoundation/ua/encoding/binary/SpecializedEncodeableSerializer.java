@@ -0,0 +1,338 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.encoding.binary;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.DiagnosticInfo;
+import org.opcfoundation.ua.builtintypes.Enumeration;
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.ServiceResponse;
+import org.opcfoundation.ua.builtintypes.StatusCode;
+import org.opcfoundation.ua.builtintypes.UnsignedByte;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.UnsignedLong;
+import org.opcfoundation.ua.builtintypes.UnsignedShort;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.builtintypes.XmlElement;
+import org.opcfoundation.ua.encoding.DecodingException;
+import org.opcfoundation.ua.encoding.EncodeType;
+import org.opcfoundation.ua.encoding.EncodingException;
+import org.opcfoundation.ua.encoding.IDecoder;
+import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.IEncoder;
+import org.opcfoundation.ua.encoding.utils.EncodeableDesc;
+import org.opcfoundation.ua.encoding.utils.EncodeableDescTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes {@link IEncodeable}s using codecs that are specialized for each
+ * class when the serializer is created.
+ * <p>
+ * Each field of a class is resolved once to the typed encoder and decoder
+ * methods of its type, so that encoding does no per field type lookups and
+ * decoding does no per call access checks. The field values are still
+ * accessed with reflection.
+ * <p>
+ * Classes that cannot be specialized, and classes added to the table
+ * afterwards, are serialized with {@link EncodeableReflectionSerializer}.
+ */
+public class SpecializedEncodeableSerializer implements IEncodeableSerializer {
+
+	private static final Logger logger = LoggerFactory.getLogger(SpecializedEncodeableSerializer.class);
+
+	// Field kinds, builtin type ids are used for scalar builtin types
+	static final int ARRAY = 32;
+	static final int ENUMERATION = 64;
+	static final int ENUMERATION_ARRAY = 65;
+	static final int ENCODEABLE = 66;
+	static final int ENCODEABLE_ARRAY = 67;
+
+	EncodeableDescTable encodeableTable;
+	EncodeableReflectionSerializer fallback;
+	Map<Class<? extends IEncodeable>, ClassCodec> codecs = new IdentityHashMap<Class<? extends IEncodeable>, ClassCodec>();
+
+	/**
+	 * <p>Constructor for SpecializedEncodeableSerializer.</p>
+	 *
+	 * @param table a {@link org.opcfoundation.ua.encoding.utils.EncodeableDescTable} object.
+	 */
+	public SpecializedEncodeableSerializer(EncodeableDescTable table)
+	{
+		this.encodeableTable = table;
+		this.fallback = new EncodeableReflectionSerializer(table);
+		for (EncodeableDesc desc : table.getClassMap().values()) {
+			try {
+				codecs.put(desc.clazz, new ClassCodec(desc));
+			} catch (NoSuchMethodException e) {
+				logger.debug("No default constructor in {}, using reflection serializer", desc.clazz);
+			} catch (SecurityException e) {
+				logger.debug("Cannot access {}, using reflection serializer", desc.clazz);
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Deprecated
+	@Override
+	public void calcEncodeable(Class<? extends IEncodeable> clazz, IEncodeable encodeable, IEncoder calculator)
+	throws EncodingException
+	{
+		putEncodeable(clazz, encodeable, calculator);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void putEncodeable(Class<? extends IEncodeable> clazz, IEncodeable encodeable, IEncoder encoder)
+	throws EncodingException
+	{
+		ClassCodec codec = codecs.get(clazz);
+		if (codec == null) {
+			fallback.putEncodeable(clazz, encodeable, encoder);
+			return;
+		}
+		try {
+			for (FieldCodec fc : codec.fields)
+				fc.put(encodeable == null ? null : fc.field.get(encodeable), encoder);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public IEncodeable getEncodeable(Class<? extends IEncodeable> clazz, IDecoder decoder)
+	throws DecodingException
+	{
+		ClassCodec codec = codecs.get(clazz);
+		if (codec == null)
+			return fallback.getEncodeable(clazz, decoder);
+		try {
+			IEncodeable result = codec.constructor.newInstance();
+			for (FieldCodec fc : codec.fields)
+				fc.field.set(result, fc.get(decoder));
+			// Fixes diagnostic infos to point string table of the message
+			if (result instanceof ServiceResponse) {
+				DecoderUtils.fixResponseHeader(  ((ServiceResponse)result).getResponseHeader() );
+			}
+			return result;
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void getSupportedNodeIds(Collection<ExpandedNodeId> result) {
+		fallback.getSupportedNodeIds(result);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void getSupportedClasses(Collection<Class<? extends IEncodeable>> result) {
+		fallback.getSupportedClasses(result);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<? extends IEncodeable> getClass(ExpandedNodeId id) {
+		return fallback.getClass(id);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ExpandedNodeId getNodeId(Class<? extends IEncodeable> clazz, EncodeType type) {
+		return fallback.getNodeId(clazz, type);
+	}
+
+	/**
+	 * Constructor and field codecs of a class
+	 */
+	static class ClassCodec {
+		final Constructor<? extends IEncodeable> constructor;
+		final FieldCodec[] fields;
+
+		ClassCodec(EncodeableDesc desc) throws NoSuchMethodException {
+			constructor = desc.clazz.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			fields = new FieldCodec[desc.fields.length];
+			for (int i = 0; i < fields.length; i++)
+				fields[i] = new FieldCodec(desc.fields[i]);
+		}
+	}
+
+	/**
+	 * Encodes and decodes the value of one field with the typed methods
+	 * of the encoder and decoder.
+	 */
+	static class FieldCodec {
+		final Field field;
+		final String name;
+		final int kind;
+		final Class<?> type;
+
+		FieldCodec(EncodeableDesc.FieldInfo fi) {
+			field = fi.field;
+			name = fi.field.getName();
+			Class<?> scalarType = fi.isArray ? fi.type.getComponentType() : fi.type;
+			if (fi.builtinType >= 0)
+				kind = fi.isArray ? ARRAY + fi.builtinType : fi.builtinType;
+			else if (Enumeration.class.isAssignableFrom(scalarType))
+				kind = fi.isArray ? ENUMERATION_ARRAY : ENUMERATION;
+			else
+				kind = fi.isArray ? ENCODEABLE_ARRAY : ENCODEABLE;
+			type = scalarType;
+		}
+
+		@SuppressWarnings("unchecked")
+		void put(Object o, IEncoder e) throws EncodingException {
+			switch (kind) {
+			case 1: e.putBoolean(name, (Boolean) o); break;
+			case 2: e.putSByte(name, (Byte) o); break;
+			case 3: e.putByte(name, (UnsignedByte) o); break;
+			case 4: e.putInt16(name, (Short) o); break;
+			case 5: e.putUInt16(name, (UnsignedShort) o); break;
+			case 6: e.putInt32(name, (Integer) o); break;
+			case 7: e.putUInt32(name, (UnsignedInteger) o); break;
+			case 8: e.putInt64(name, (Long) o); break;
+			case 9: e.putUInt64(name, (UnsignedLong) o); break;
+			case 10: e.putFloat(name, (Float) o); break;
+			case 11: e.putDouble(name, (Double) o); break;
+			case 12: e.putString(name, (String) o); break;
+			case 13: e.putDateTime(name, (DateTime) o); break;
+			case 14: e.putGuid(name, (UUID) o); break;
+			case 15: e.putByteString(name, (ByteString) o); break;
+			case 16: e.putXmlElement(name, (XmlElement) o); break;
+			case 17: e.putNodeId(name, (NodeId) o); break;
+			case 18: e.putExpandedNodeId(name, (ExpandedNodeId) o); break;
+			case 19: e.putStatusCode(name, (StatusCode) o); break;
+			case 20: e.putQualifiedName(name, (QualifiedName) o); break;
+			case 21: e.putLocalizedText(name, (LocalizedText) o); break;
+			case 22: e.putExtensionObject(name, (ExtensionObject) o); break;
+			case 23: e.putDataValue(name, (DataValue) o); break;
+			case 24: e.putVariant(name, (Variant) o); break;
+			case 25: e.putDiagnosticInfo(name, (DiagnosticInfo) o); break;
+			case ARRAY + 1: e.putBooleanArray(name, (Boolean[]) o); break;
+			case ARRAY + 2: e.putSByteArray(name, (Byte[]) o); break;
+			case ARRAY + 3: e.putByteArray(name, (UnsignedByte[]) o); break;
+			case ARRAY + 4: e.putInt16Array(name, (Short[]) o); break;
+			case ARRAY + 5: e.putUInt16Array(name, (UnsignedShort[]) o); break;
+			case ARRAY + 6: e.putInt32Array(name, (Integer[]) o); break;
+			case ARRAY + 7: e.putUInt32Array(name, (UnsignedInteger[]) o); break;
+			case ARRAY + 8: e.putInt64Array(name, (Long[]) o); break;
+			case ARRAY + 9: e.putUInt64Array(name, (UnsignedLong[]) o); break;
+			case ARRAY + 10: e.putFloatArray(name, (Float[]) o); break;
+			case ARRAY + 11: e.putDoubleArray(name, (Double[]) o); break;
+			case ARRAY + 12: e.putStringArray(name, (String[]) o); break;
+			case ARRAY + 13: e.putDateTimeArray(name, (DateTime[]) o); break;
+			case ARRAY + 14: e.putGuidArray(name, (UUID[]) o); break;
+			case ARRAY + 15: e.putByteStringArray(name, (ByteString[]) o); break;
+			case ARRAY + 16: e.putXmlElementArray(name, (XmlElement[]) o); break;
+			case ARRAY + 17: e.putNodeIdArray(name, (NodeId[]) o); break;
+			case ARRAY + 18: e.putExpandedNodeIdArray(name, (ExpandedNodeId[]) o); break;
+			case ARRAY + 19: e.putStatusCodeArray(name, (StatusCode[]) o); break;
+			case ARRAY + 20: e.putQualifiedNameArray(name, (QualifiedName[]) o); break;
+			case ARRAY + 21: e.putLocalizedTextArray(name, (LocalizedText[]) o); break;
+			case ARRAY + 22: e.putExtensionObjectArray(name, (ExtensionObject[]) o); break;
+			case ARRAY + 23: e.putDataValueArray(name, (DataValue[]) o); break;
+			case ARRAY + 24: e.putVariantArray(name, (Variant[]) o); break;
+			case ARRAY + 25: e.putDiagnosticInfoArray(name, (DiagnosticInfo[]) o); break;
+			case ENUMERATION: e.putEnumeration(name, (Enumeration) o); break;
+			case ENUMERATION_ARRAY: e.putEnumerationArray(name, o); break;
+			case ENCODEABLE: e.putEncodeable(name, (Class<? extends IEncodeable>) type, (IEncodeable) o); break;
+			case ENCODEABLE_ARRAY: e.putEncodeableArray(name, (Class<? extends IEncodeable>) type, o); break;
+			default: throw new EncodingException("Cannot encode "+field.getType());
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		Object get(IDecoder d) throws DecodingException {
+			switch (kind) {
+			case 1: return d.getBoolean(name);
+			case 2: return d.getSByte(name);
+			case 3: return d.getByte(name);
+			case 4: return d.getInt16(name);
+			case 5: return d.getUInt16(name);
+			case 6: return d.getInt32(name);
+			case 7: return d.getUInt32(name);
+			case 8: return d.getInt64(name);
+			case 9: return d.getUInt64(name);
+			case 10: return d.getFloat(name);
+			case 11: return d.getDouble(name);
+			case 12: return d.getString(name);
+			case 13: return d.getDateTime(name);
+			case 14: return d.getGuid(name);
+			case 15: return d.getByteString(name);
+			case 16: return d.getXmlElement(name);
+			case 17: return d.getNodeId(name);
+			case 18: return d.getExpandedNodeId(name);
+			case 19: return d.getStatusCode(name);
+			case 20: return d.getQualifiedName(name);
+			case 21: return d.getLocalizedText(name);
+			case 22: return d.getExtensionObject(name);
+			case 23: return d.getDataValue(name);
+			case 24: return d.getVariant(name);
+			case 25: return d.getDiagnosticInfo(name);
+			case ARRAY + 1: return d.getBooleanArray(name);
+			case ARRAY + 2: return d.getSByteArray(name);
+			case ARRAY + 3: return d.getByteArray(name);
+			case ARRAY + 4: return d.getInt16Array(name);
+			case ARRAY + 5: return d.getUInt16Array(name);
+			case ARRAY + 6: return d.getInt32Array(name);
+			case ARRAY + 7: return d.getUInt32Array(name);
+			case ARRAY + 8: return d.getInt64Array(name);
+			case ARRAY + 9: return d.getUInt64Array(name);
+			case ARRAY + 10: return d.getFloatArray(name);
+			case ARRAY + 11: return d.getDoubleArray(name);
+			case ARRAY + 12: return d.getStringArray(name);
+			case ARRAY + 13: return d.getDateTimeArray(name);
+			case ARRAY + 14: return d.getGuidArray(name);
+			case ARRAY + 15: return d.getByteStringArray(name);
+			case ARRAY + 16: return d.getXmlElementArray(name);
+			case ARRAY + 17: return d.getNodeIdArray(name);
+			case ARRAY + 18: return d.getExpandedNodeIdArray(name);
+			case ARRAY + 19: return d.getStatusCodeArray(name);
+			case ARRAY + 20: return d.getQualifiedNameArray(name);
+			case ARRAY + 21: return d.getLocalizedTextArray(name);
+			case ARRAY + 22: return d.getExtensionObjectArray(name);
+			case ARRAY + 23: return d.getDataValueArray(name);
+			case ARRAY + 24: return d.getVariantArray(name);
+			case ARRAY + 25: return d.getDiagnosticInfoArray(name);
+			case ENUMERATION: return d.getEnumeration(name, (Class<Enumeration>) type);
+			case ENUMERATION_ARRAY: return d.getEnumerationArray(name, (Class<Enumeration>) type);
+			case ENCODEABLE: return d.getEncodeable(name, (Class<? extends IEncodeable>) type);
+			case ENCODEABLE_ARRAY: return d.getEncodeableArray(name, (Class<? extends IEncodeable>) type);
+			default: throw new DecodingException("Cannot decode "+field.getType());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,1734 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.encoding.json;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.opcfoundation.ua.builtintypes.BuiltinsMap;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.DiagnosticInfo;
+import org.opcfoundation.ua.builtintypes.Enumeration;
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.StatusCode;
+import org.opcfoundation.ua.builtintypes.Structure;
+import org.opcfoundation.ua.builtintypes.UnsignedByte;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.UnsignedLong;
+import org.opcfoundation.ua.builtintypes.UnsignedShort;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.builtintypes.XmlElement;
+import org.opcfoundation.ua.common.NamespaceTable;
+import org.opcfoundation.ua.core.IdType;
+import org.opcfoundation.ua.core.Identifiers;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.DecodingException;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.IDecoder;
+import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.utils.CryptoUtil;
+import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes built-in types, Enumerations, Structures and Messages from the
+ * reversible form of the OPC UA JSON Data Encoding, as written by {@link JsonEncoder}.
+ * <p>
+ * The UTF-8 text is parsed straight from a byte array, no object tree is built.
+ * Fields are expected in the order they are read, which is the order
+ * {@link JsonEncoder} writes them. If a field is not found at the current
+ * position, the rest of the members of the object are indexed by name, so
+ * fields in any order and unknown fields are accepted too.
+ * <p>
+ * A missing field or a JSON null decodes as null, or 0 for the primitive getters.
+ * The non-reversible form cannot be decoded in general, it lacks the type
+ * information of Variants and ExtensionObjects.
+ * <p>
+ * ExtensionObjects with a JSON body are decoded to their Structure, if
+ * the type is known to the encoder context.
+ */
+public class JsonDecoder implements IDecoder {
+
+	static Logger logger = LoggerFactory.getLogger(JsonDecoder.class);
+
+	private static final ExpandedNodeId DECIMAL_EXPANDED_NODE_ID = new ExpandedNodeId(NamespaceTable.OPCUA_NAMESPACE, Identifiers.Decimal.getValue());
+
+	/** An open object or array */
+	private static class Level {
+		boolean array;
+		/** True until the first member or element is read */
+		boolean first;
+		/** True when the members of the object are looked up from index */
+		boolean indexed;
+		/** Positions of the member values by name */
+		final Map<String, Integer> index = new HashMap<String, Integer>();
+		/** Position after the end of an indexed object */
+		int end;
+	}
+
+	private final byte[] data;
+	private final int limit;
+	private int pos;
+	private EncoderContext ctx;
+
+	private Level[] levels = new Level[16];
+	/** Number of open objects and arrays */
+	private int depth;
+	/** Scratch buffer for decoding strings */
+	private char[] chars = new char[64];
+
+	/**
+	 * <p>Constructor for JsonDecoder.</p>
+	 *
+	 * @param data UTF-8 encoded JSON
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public JsonDecoder(byte[] data, EncoderContext context)
+	{
+		this(data, 0, data.length, context);
+	}
+
+	/**
+	 * <p>Constructor for JsonDecoder.</p>
+	 *
+	 * @param data UTF-8 encoded JSON
+	 * @param offset offset of the JSON in data
+	 * @param length length of the JSON in bytes
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public JsonDecoder(byte[] data, int offset, int length, EncoderContext context)
+	{
+		if (data == null)
+			throw new NullPointerException("data");
+		if (context == null)
+			throw new NullPointerException("context");
+		if (offset < 0 || length < 0 || offset + length > data.length)
+			throw new IllegalArgumentException("offset and length out of bounds");
+		this.data = data;
+		this.pos = offset;
+		this.limit = offset + length;
+		this.ctx = context;
+	}
+
+	/**
+	 * Constructor for JsonDecoder. The remaining bytes of the buffer are read
+	 * from its backing array without copying, if it has one. The position
+	 * of the buffer is not changed.
+	 *
+	 * @param buf UTF-8 encoded JSON
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public JsonDecoder(ByteBuffer buf, EncoderContext context)
+	{
+		this(arrayOf(buf), buf.hasArray() ? buf.arrayOffset() + buf.position() : 0, buf.remaining(), context);
+	}
+
+	private static byte[] arrayOf(ByteBuffer buf)
+	{
+		if (buf.hasArray())
+			return buf.array();
+		byte[] result = new byte[buf.remaining()];
+		buf.duplicate().get(result);
+		return result;
+	}
+
+	/**
+	 * <p>getEncoderContext.</p>
+	 *
+	 * @return a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public EncoderContext getEncoderContext() {
+		return ctx;
+	}
+
+	/**
+	 * <p>setEncoderContext.</p>
+	 *
+	 * @param ctx a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public void setEncoderContext(EncoderContext ctx) {
+		if (ctx == null)
+			throw new NullPointerException("context");
+		this.ctx = ctx;
+	}
+
+	/**
+	 * Read the start of an object, the counterpart of {@link JsonEncoder#putStartObject(String)}.
+	 *
+	 * @param fieldName name of the field or null
+	 * @return false if the field is missing or null
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public boolean getStartObject(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return false;
+		enterObject();
+		return true;
+	}
+
+	/**
+	 * Read the end of the latest open object, skipping the members that were not read.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public void getEndObject() throws DecodingException
+	{
+		if (depth == 0 || levels[depth - 1].array)
+			throw error("No object to end");
+		leaveObject();
+	}
+
+	// Input
+
+	private DecodingException error(String message)
+	{
+		return new DecodingException(StatusCodes.Bad_DecodingError, message + " at position " + pos);
+	}
+
+	private DecodingException endOfStream()
+	{
+		return new DecodingException(StatusCodes.Bad_EndOfStream, "Unexpected end of JSON");
+	}
+
+	/**
+	 * Skip whitespace and return the next byte without consuming it.
+	 */
+	private int peek() throws DecodingException
+	{
+		while (pos < limit) {
+			byte b = data[pos];
+			if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+				return b;
+			pos++;
+		}
+		throw endOfStream();
+	}
+
+	private void expect(char c) throws DecodingException
+	{
+		if (peek() != c)
+			throw error("Expected '" + c + "'");
+		pos++;
+	}
+
+	private void literal(String s) throws DecodingException
+	{
+		int len = s.length();
+		if (pos + len > limit)
+			throw endOfStream();
+		for (int i = 0; i < len; i++)
+			if (data[pos + i] != s.charAt(i))
+				throw error("Expected " + s);
+		pos += len;
+	}
+
+	/**
+	 * Consume a JSON null, if there is one.
+	 */
+	private boolean readNull() throws DecodingException
+	{
+		if (peek() != 'n')
+			return false;
+		literal("null");
+		return true;
+	}
+
+	private String ascii(int start, int end)
+	{
+		if (chars.length < end - start)
+			chars = new char[end - start];
+		for (int i = start; i < end; i++)
+			chars[i - start] = (char) data[i];
+		return new String(chars, 0, end - start);
+	}
+
+	/**
+	 * Read a quoted string, decoding UTF-8 and escapes to a reused buffer.
+	 */
+	private String readString() throws DecodingException
+	{
+		if (peek() != '"')
+			throw error("Expected a string");
+		int p = pos + 1;
+		char[] cs = chars;
+		int n = 0;
+		while (true) {
+			if (p >= limit)
+				throw endOfStream();
+			int b = data[p++];
+			if (n + 2 > cs.length)
+				cs = chars = Arrays.copyOf(cs, cs.length * 2);
+			if (b >= 0) {
+				if (b == '"')
+					break;
+				if (b != '\\') {
+					cs[n++] = (char) b;
+					continue;
+				}
+				if (p >= limit)
+					throw endOfStream();
+				b = data[p++];
+				switch (b) {
+				case '"': case '\\': case '/': cs[n++] = (char) b; break;
+				case 'n': cs[n++] = '\n'; break;
+				case 'r': cs[n++] = '\r'; break;
+				case 't': cs[n++] = '\t'; break;
+				case 'b': cs[n++] = '\b'; break;
+				case 'f': cs[n++] = '\f'; break;
+				case 'u':
+					if (p + 4 > limit)
+						throw endOfStream();
+					int c = 0;
+					for (int i = 0; i < 4; i++) {
+						int h = Character.digit((char) data[p++], 16);
+						if (h < 0) {
+							pos = p;
+							throw error("Invalid unicode escape");
+						}
+						c = (c << 4) | h;
+					}
+					cs[n++] = (char) c;
+					break;
+				default:
+					pos = p;
+					throw error("Invalid escape");
+				}
+			} else if ((b & 0xe0) == 0xc0) {
+				if (p + 1 > limit)
+					throw endOfStream();
+				cs[n++] = (char) (((b & 0x1f) << 6) | (data[p++] & 0x3f));
+			} else if ((b & 0xf0) == 0xe0) {
+				if (p + 2 > limit)
+					throw endOfStream();
+				cs[n++] = (char) (((b & 0x0f) << 12) | ((data[p++] & 0x3f) << 6) | (data[p++] & 0x3f));
+			} else if ((b & 0xf8) == 0xf0) {
+				if (p + 3 > limit)
+					throw endOfStream();
+				int cp = ((b & 0x07) << 18) | ((data[p++] & 0x3f) << 12) | ((data[p++] & 0x3f) << 6) | (data[p++] & 0x3f);
+				cp -= 0x10000;
+				cs[n++] = (char) (0xd800 + (cp >> 10));
+				cs[n++] = (char) (0xdc00 + (cp & 0x3ff));
+			} else
+				cs[n++] = '\uFFFD';
+		}
+		pos = p;
+		assertStringLength(n);
+		return new String(cs, 0, n);
+	}
+
+	private void skipString() throws DecodingException
+	{
+		pos++;
+		while (pos < limit) {
+			byte b = data[pos++];
+			if (b == '\\')
+				pos++;
+			else if (b == '"')
+				return;
+		}
+		throw endOfStream();
+	}
+
+	/**
+	 * Skip a value of any type.
+	 */
+	private void skipValue() throws DecodingException
+	{
+		int c = peek();
+		if (c == '"') {
+			skipString();
+			return;
+		}
+		if (c == '{' || c == '[') {
+			int nesting = 0;
+			while (pos < limit) {
+				byte b = data[pos];
+				if (b == '"') {
+					skipString();
+					continue;
+				}
+				pos++;
+				if (b == '{' || b == '[')
+					nesting++;
+				else if ((b == '}' || b == ']') && --nesting == 0)
+					return;
+			}
+			throw endOfStream();
+		}
+		int start = pos;
+		while (pos < limit) {
+			byte b = data[pos];
+			if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t')
+				break;
+			pos++;
+		}
+		if (pos == start)
+			throw error("Expected a value");
+	}
+
+	private boolean readBoolean() throws DecodingException
+	{
+		int c = peek();
+		if (c == 't') {
+			literal("true");
+			return true;
+		}
+		if (c == 'f') {
+			literal("false");
+			return false;
+		}
+		throw error("Expected a boolean");
+	}
+
+	/**
+	 * Read an integer without allocating. Quoted integers, as Int64 is
+	 * written, are accepted too.
+	 */
+	private long readLong() throws DecodingException
+	{
+		boolean quoted = peek() == '"';
+		if (quoted)
+			pos++;
+		int start = pos;
+		boolean negative = pos < limit && data[pos] == '-';
+		if (negative)
+			pos++;
+		int digitsStart = pos;
+		long v = 0;
+		while (pos < limit) {
+			int d = data[pos] - '0';
+			if (d < 0 || d > 9)
+				break;
+			v = v * 10 + d;
+			pos++;
+		}
+		int digits = pos - digitsStart;
+		if (digits == 0)
+			throw error("Expected an integer");
+		if (pos < limit && (data[pos] == '.' || data[pos] == 'e' || data[pos] == 'E')) {
+			// An integer written in a floating point notation
+			while (pos < limit && data[pos] != '"' && data[pos] != ',' && data[pos] != '}' && data[pos] != ']')
+				pos++;
+			v = (long) parseDouble(start, pos);
+			negative = false;
+		} else if (digits > 18) {
+			try {
+				v = Long.parseLong(ascii(start, pos));
+			} catch (NumberFormatException e) {
+				throw new DecodingException(e, "Integer out of range at position " + start);
+			}
+			negative = false;
+		}
+		if (quoted) {
+			if (pos >= limit || data[pos] != '"')
+				throw error("Expected '\"'");
+			pos++;
+		}
+		return negative ? -v : v;
+	}
+
+	private double parseDouble(int start, int end) throws DecodingException
+	{
+		try {
+			return Double.parseDouble(ascii(start, end));
+		} catch (NumberFormatException e) {
+			throw new DecodingException(e, "Invalid number at position " + start);
+		}
+	}
+
+	/**
+	 * Read a number, or one of the strings "NaN", "Infinity" and "-Infinity".
+	 */
+	private double readDouble() throws DecodingException
+	{
+		if (peek() == '"') {
+			int start = pos;
+			String s = readString();
+			if ("NaN".equals(s))
+				return Double.NaN;
+			if ("Infinity".equals(s))
+				return Double.POSITIVE_INFINITY;
+			if ("-Infinity".equals(s))
+				return Double.NEGATIVE_INFINITY;
+			return parseDouble(start + 1, pos - 1);
+		}
+		int start = pos;
+		while (pos < limit) {
+			byte b = data[pos];
+			if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E')
+				pos++;
+			else
+				break;
+		}
+		if (pos == start)
+			throw error("Expected a number");
+		return parseDouble(start, pos);
+	}
+
+	/**
+	 * Read the text of a number, quoted or not.
+	 */
+	private String readNumberText() throws DecodingException
+	{
+		if (peek() == '"')
+			return readString();
+		int start = pos;
+		skipValue();
+		return ascii(start, pos);
+	}
+
+	/**
+	 * Read an ISO 8601 timestamp. The UTC form "yyyy-MM-ddTHH:mm:ss.fffffffZ"
+	 * is parsed without a calendar, other forms with {@link DateTime#parseDateTime(String)}.
+	 * Timestamps out of the range of DateTime are clamped.
+	 *
+	 * @return 100 nanosecond intervals since January 1, 1601
+	 */
+	private long readDateTimeTicks() throws DecodingException
+	{
+		String s = readString();
+		long ticks;
+		if (isUtcDateTime(s))
+			ticks = parseUtcDateTime(s);
+		else {
+			try {
+				ticks = DateTime.parseDateTime(s).getValue();
+			} catch (ParseException e) {
+				throw new DecodingException(e, "Invalid DateTime " + s);
+			} catch (RuntimeException e) {
+				// parseDateTime does not validate the digits or the length
+				throw new DecodingException(e, "Invalid DateTime " + s);
+			}
+		}
+		if (ticks <= 0)
+			return DateTime.MIN_VALUE.getValue();
+		if (ticks >= DateTime.MAX_VALUE.getValue())
+			return DateTime.MAX_VALUE.getValue();
+		return ticks;
+	}
+
+	private static boolean isUtcDateTime(String s)
+	{
+		int len = s.length();
+		if (len < 20 || s.charAt(len - 1) != 'Z')
+			return false;
+		if (s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' || s.charAt(13) != ':' || s.charAt(16) != ':')
+			return false;
+		if (len > 20 && (s.charAt(19) != '.' || len == 21))
+			return false;
+		for (int i = 0; i < len - 1; i++) {
+			if (i == 4 || i == 7 || i == 10 || i == 13 || i == 16 || i == 19)
+				continue;
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		return true;
+	}
+
+	private static int digits(String s, int start, int end)
+	{
+		int v = 0;
+		for (int i = start; i < end; i++)
+			v = v * 10 + s.charAt(i) - '0';
+		return v;
+	}
+
+	private static long parseUtcDateTime(String s)
+	{
+		int year = digits(s, 0, 4);
+		int month = digits(s, 5, 7);
+		int day = digits(s, 8, 10);
+		int seconds = digits(s, 11, 13) * 3600 + digits(s, 14, 16) * 60 + digits(s, 17, 19);
+		int fraction = 0;
+		int len = s.length();
+		for (int i = 20; i < 27; i++)
+			fraction = fraction * 10 + (i < len - 1 ? s.charAt(i) - '0' : 0);
+		// Days since 1970-01-01 of the civil date in the proleptic Gregorian calendar
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long days = era * 146097L + dayOfEra - 719468;
+		return (days * 86400 + seconds) * 10000000 + fraction + DateTime.OffsetToGregorianCalendarZero;
+	}
+
+	// Structure
+
+	private void push(boolean array)
+	{
+		if (depth == levels.length)
+			levels = Arrays.copyOf(levels, depth * 2);
+		Level l = levels[depth];
+		if (l == null)
+			levels[depth] = l = new Level();
+		l.array = array;
+		l.first = true;
+		l.indexed = false;
+		depth++;
+	}
+
+	private void enterObject() throws DecodingException
+	{
+		expect('{');
+		push(false);
+	}
+
+	private void enterArray() throws DecodingException
+	{
+		expect('[');
+		push(true);
+	}
+
+	/**
+	 * Move past the end of the current object, skipping the members that were not read.
+	 */
+	private void leaveObject() throws DecodingException
+	{
+		Level l = levels[depth - 1];
+		if (l.indexed)
+			pos = l.end;
+		else {
+			while (peek() != '}') {
+				if (!l.first)
+					expect(',');
+				l.first = false;
+				if (peek() != '"')
+					throw error("Expected a field name");
+				skipString();
+				expect(':');
+				skipValue();
+			}
+			pos++;
+		}
+		depth--;
+	}
+
+	/**
+	 * Move to the next element of the current array.
+	 *
+	 * @return false at the end of the array, which is consumed
+	 */
+	private boolean nextElement() throws DecodingException
+	{
+		Level l = levels[depth - 1];
+		int c = peek();
+		if (c == ']') {
+			pos++;
+			depth--;
+			return false;
+		}
+		if (!l.first) {
+			if (c != ',')
+				throw error("Expected ','");
+			pos++;
+		}
+		l.first = false;
+		return true;
+	}
+
+	/**
+	 * Compare the field name at the current position with the given name
+	 * and consume it, if it matches.
+	 */
+	private boolean matchKey(String name) throws DecodingException
+	{
+		if (data[pos] != '"')
+			throw error("Expected a field name");
+		int p = pos + 1;
+		int len = name.length();
+		for (int i = 0; i < len; i++, p++) {
+			char c = name.charAt(i);
+			if (p >= limit)
+				return false;
+			if (data[p] != c) {
+				// Non-ASCII and escaped names are compared decoded
+				if (c >= 0x80 || data[p] == '\\') {
+					int start = pos;
+					if (name.equals(readString()))
+						return true;
+					pos = start;
+				}
+				return false;
+			}
+		}
+		if (p >= limit || data[p] != '"')
+			return false;
+		pos = p + 1;
+		return true;
+	}
+
+	/**
+	 * Index the positions of the values of the rest of the members of
+	 * the current object by name.
+	 */
+	private void buildIndex(Level l) throws DecodingException
+	{
+		l.index.clear();
+		boolean first = l.first;
+		while (peek() != '}') {
+			if (!first)
+				expect(',');
+			first = false;
+			String key = readString();
+			expect(':');
+			peek();
+			l.index.put(key, pos);
+			skipValue();
+		}
+		l.end = ++pos;
+		l.indexed = true;
+	}
+
+	/**
+	 * Move to the value of a field. A named field at the top level enters
+	 * the root object. A null field name reads the value at the current
+	 * position, e.g. an array element.
+	 *
+	 * @param fieldName name of the field or null
+	 * @return true if there is a value to read, false if the field is missing or null
+	 * @throws DecodingException
+	 */
+	private boolean beginField(String fieldName) throws DecodingException
+	{
+		if (fieldName != null && fieldName.length() > 0) {
+			if (depth == 0)
+				enterObject();
+			Level l = levels[depth - 1];
+			if (l.array)
+				throw error("Field " + fieldName + " in an array");
+			if (!l.indexed) {
+				int start = pos;
+				int c = peek();
+				if (c == '}')
+					return false;
+				if (!l.first) {
+					if (c != ',')
+						throw error("Expected ','");
+					pos++;
+					peek();
+				}
+				if (matchKey(fieldName)) {
+					l.first = false;
+					expect(':');
+					return !readNull();
+				}
+				pos = start;
+				buildIndex(l);
+			}
+			Integer p = l.index.get(fieldName);
+			if (p == null)
+				return false;
+			pos = p;
+		}
+		return !readNull();
+	}
+
+	private long getLong(String fieldName, long defaultValue) throws DecodingException
+	{
+		return beginField(fieldName) ? readLong() : defaultValue;
+	}
+
+	private void assertArrayLength(int len)
+	throws DecodingException
+	{
+		int maxLen = ctx.getMaxArrayLength();
+		if (maxLen>0 && len>maxLen) {
+			final DecodingException decodingException = new DecodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxArrayLength "+maxLen+" < "+len);
+			logger.warn("assertArrayLength: failed", decodingException);
+			throw decodingException;
+		}
+	}
+
+	private void assertStringLength(int len)
+	throws DecodingException
+	{
+		int maxLen = ctx.getMaxStringLength();
+		if (maxLen>0 && len>maxLen) {
+			final DecodingException decodingException = new DecodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxStringLength "+maxLen+" < "+len);
+			logger.warn("assertStringLength: failed", decodingException);
+			throw decodingException;
+		}
+	}
+
+	private void assertByteStringLength(int len)
+	throws DecodingException
+	{
+		int maxLen = ctx.getMaxByteStringLength();
+		if (maxLen>0 && len>maxLen) {
+			final DecodingException decodingException = new DecodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxByteStringLength "+maxLen+" < "+len);
+			logger.warn("assertByteStringLength: failed", decodingException);
+			throw decodingException;
+		}
+	}
+
+	/**
+	 * Read an array of built-in type elements.
+	 */
+	private Object[] getElements(String fieldName, int builtinType, Class<?> componentType)
+	throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		List<Object> list = new ArrayList<Object>();
+		while (nextElement()) {
+			assertArrayLength(list.size() + 1);
+			list.add(getScalarObject(null, builtinType));
+		}
+		return list.toArray((Object[]) Array.newInstance(componentType, list.size()));
+	}
+
+	/** {@inheritDoc} */
+	public Boolean getBoolean(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Boolean.valueOf(readBoolean()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Boolean[] getBooleanArray(String fieldName) throws DecodingException
+	{
+		return (Boolean[]) getElements(fieldName, 1, Boolean.class);
+	}
+
+	/** {@inheritDoc} */
+	public Byte getSByte(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Byte.valueOf((byte) readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Byte[] getSByteArray(String fieldName) throws DecodingException
+	{
+		return (Byte[]) getElements(fieldName, 2, Byte.class);
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedByte getByte(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? UnsignedByte.valueOf((int) readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedByte[] getByteArray(String fieldName) throws DecodingException
+	{
+		return (UnsignedByte[]) getElements(fieldName, 3, UnsignedByte.class);
+	}
+
+	/** {@inheritDoc} */
+	public Short getInt16(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Short.valueOf((short) readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Short[] getInt16Array(String fieldName) throws DecodingException
+	{
+		return (Short[]) getElements(fieldName, 4, Short.class);
+	}
+
+	/** {@inheritDoc} */
+	public short[] getInt16Array_(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		short[] result = new short[16];
+		int n = 0;
+		while (nextElement()) {
+			if (n == result.length) {
+				assertArrayLength(n + 1);
+				result = Arrays.copyOf(result, n * 2);
+			}
+			result[n++] = (short) readLong();
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedShort getUInt16(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? UnsignedShort.valueOf((int) readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedShort[] getUInt16Array(String fieldName) throws DecodingException
+	{
+		return (UnsignedShort[]) getElements(fieldName, 5, UnsignedShort.class);
+	}
+
+	/** {@inheritDoc} */
+	public Integer getInt32(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Integer.valueOf((int) readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Integer[] getInt32Array(String fieldName) throws DecodingException
+	{
+		return (Integer[]) getElements(fieldName, 6, Integer.class);
+	}
+
+	/** {@inheritDoc} */
+	public int[] getInt32Array_(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		int[] result = new int[16];
+		int n = 0;
+		while (nextElement()) {
+			if (n == result.length) {
+				assertArrayLength(n + 1);
+				result = Arrays.copyOf(result, n * 2);
+			}
+			result[n++] = (int) readLong();
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedInteger getUInt32(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? UnsignedInteger.valueOf(readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedInteger[] getUInt32Array(String fieldName) throws DecodingException
+	{
+		return (UnsignedInteger[]) getElements(fieldName, 7, UnsignedInteger.class);
+	}
+
+	/** {@inheritDoc} */
+	public Long getInt64(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Long.valueOf(readLong()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Long[] getInt64Array(String fieldName) throws DecodingException
+	{
+		return (Long[]) getElements(fieldName, 8, Long.class);
+	}
+
+	/** {@inheritDoc} */
+	public long[] getInt64Array_(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		long[] result = new long[16];
+		int n = 0;
+		while (nextElement()) {
+			if (n == result.length) {
+				assertArrayLength(n + 1);
+				result = Arrays.copyOf(result, n * 2);
+			}
+			result[n++] = readLong();
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedLong getUInt64(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		String text = readNumberText();
+		try {
+			return UnsignedLong.valueOf(text);
+		} catch (NumberFormatException e) {
+			throw new DecodingException(e, "Invalid UInt64 " + text);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public UnsignedLong[] getUInt64Array(String fieldName) throws DecodingException
+	{
+		return (UnsignedLong[]) getElements(fieldName, 9, UnsignedLong.class);
+	}
+
+	/** {@inheritDoc} */
+	public Float getFloat(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Float.valueOf((float) readDouble()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Float[] getFloatArray(String fieldName) throws DecodingException
+	{
+		return (Float[]) getElements(fieldName, 10, Float.class);
+	}
+
+	/** {@inheritDoc} */
+	public float[] getFloatArray_(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		float[] result = new float[16];
+		int n = 0;
+		while (nextElement()) {
+			if (n == result.length) {
+				assertArrayLength(n + 1);
+				result = Arrays.copyOf(result, n * 2);
+			}
+			result[n++] = (float) readDouble();
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/** {@inheritDoc} */
+	public Double getDouble(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? Double.valueOf(readDouble()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public Double[] getDoubleArray(String fieldName) throws DecodingException
+	{
+		return (Double[]) getElements(fieldName, 11, Double.class);
+	}
+
+	/** {@inheritDoc} */
+	public double[] getDoubleArray_(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		double[] result = new double[16];
+		int n = 0;
+		while (nextElement()) {
+			if (n == result.length) {
+				assertArrayLength(n + 1);
+				result = Arrays.copyOf(result, n * 2);
+			}
+			result[n++] = readDouble();
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/** {@inheritDoc} */
+	public String getString(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? readString() : null;
+	}
+
+	/** {@inheritDoc} */
+	public String[] getStringArray(String fieldName) throws DecodingException
+	{
+		return (String[]) getElements(fieldName, 12, String.class);
+	}
+
+	/** {@inheritDoc} */
+	public DateTime getDateTime(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? new DateTime(readDateTimeTicks()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public long getDateTime_(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? readDateTimeTicks() : 0;
+	}
+
+	/** {@inheritDoc} */
+	public DateTime[] getDateTimeArray(String fieldName) throws DecodingException
+	{
+		return (DateTime[]) getElements(fieldName, 13, DateTime.class);
+	}
+
+	/** {@inheritDoc} */
+	public UUID getGuid(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		String s = readString();
+		try {
+			return UUID.fromString(s);
+		} catch (IllegalArgumentException e) {
+			throw new DecodingException(e, "Invalid Guid " + s);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public UUID[] getGuidArray(String fieldName) throws DecodingException
+	{
+		return (UUID[]) getElements(fieldName, 14, UUID.class);
+	}
+
+	/** {@inheritDoc} */
+	public ByteString getByteString(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		byte[] value = CryptoUtil.base64Decode(readString());
+		assertByteStringLength(value.length);
+		return ByteString.valueOf(value);
+	}
+
+	/** {@inheritDoc} */
+	public ByteString[] getByteStringArray(String fieldName) throws DecodingException
+	{
+		return (ByteString[]) getElements(fieldName, 15, ByteString.class);
+	}
+
+	/** {@inheritDoc} */
+	public XmlElement getXmlElement(String fieldName) throws DecodingException
+	{
+		return beginField(fieldName) ? new XmlElement(readString()) : null;
+	}
+
+	/** {@inheritDoc} */
+	public XmlElement[] getXmlElementArray(String fieldName) throws DecodingException
+	{
+		return (XmlElement[]) getElements(fieldName, 16, XmlElement.class);
+	}
+
+	private IdType getIdType() throws DecodingException
+	{
+		int value = (int) getLong("IdType", 0);
+		IdType type = IdType.valueOf(value);
+		if (type == null)
+			throw error("Invalid IdType " + value);
+		return type;
+	}
+
+	private Object getIdentifier(IdType type) throws DecodingException
+	{
+		switch (type) {
+		case Numeric: return UnsignedInteger.valueOf(getLong("Id", 0));
+		case String: return getString("Id");
+		case Guid: return getGuid("Id");
+		default: return getByteString("Id");
+		}
+	}
+
+	/**
+	 * Read a namespace index, or a namespace URI that is in the namespace table.
+	 */
+	private int getNamespaceIndex(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return 0;
+		if (peek() != '"')
+			return (int) readLong();
+		String uri = readString();
+		int index = ctx.getNamespaceTable().getIndex(uri);
+		if (index < 0)
+			throw new DecodingException(StatusCodes.Bad_DecodingError, "Namespace " + uri + " is not in the namespace table");
+		return index;
+	}
+
+	/** {@inheritDoc} */
+	public NodeId getNodeId(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterObject();
+		IdType type = getIdType();
+		Object value = getIdentifier(type);
+		int namespaceIndex = getNamespaceIndex("Namespace");
+		leaveObject();
+		try {
+			return NodeId.get(type, namespaceIndex, value);
+		} catch (IllegalArgumentException e) {
+			throw new DecodingException(e, "Invalid NodeId");
+		}
+	}
+
+	/** {@inheritDoc} */
+	public NodeId[] getNodeIdArray(String fieldName) throws DecodingException
+	{
+		return (NodeId[]) getElements(fieldName, 17, NodeId.class);
+	}
+
+	/** {@inheritDoc} */
+	public ExpandedNodeId getExpandedNodeId(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterObject();
+		IdType type = getIdType();
+		Object value = getIdentifier(type);
+		String namespaceUri = null;
+		int namespaceIndex = 0;
+		if (beginField("Namespace")) {
+			if (peek() == '"')
+				namespaceUri = readString();
+			else
+				namespaceIndex = (int) readLong();
+		}
+		long serverIndex = 0;
+		if (beginField("ServerUri")) {
+			if (peek() == '"') {
+				String uri = readString();
+				serverIndex = ctx.getServerTable().getIndex(uri);
+				if (serverIndex < 0)
+					throw new DecodingException(StatusCodes.Bad_DecodingError, "Server " + uri + " is not in the server table");
+			} else
+				serverIndex = readLong();
+		}
+		leaveObject();
+		try {
+			if (namespaceUri != null)
+				return new ExpandedNodeId(UnsignedInteger.valueOf(serverIndex), namespaceUri, value);
+			return new ExpandedNodeId(UnsignedInteger.valueOf(serverIndex), namespaceIndex, value);
+		} catch (IllegalArgumentException e) {
+			throw new DecodingException(e, "Invalid ExpandedNodeId");
+		}
+	}
+
+	/** {@inheritDoc} */
+	public ExpandedNodeId[] getExpandedNodeIdArray(String fieldName) throws DecodingException
+	{
+		return (ExpandedNodeId[]) getElements(fieldName, 18, ExpandedNodeId.class);
+	}
+
+	/** {@inheritDoc} */
+	public StatusCode getStatusCode(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		long code;
+		if (peek() == '{') {
+			enterObject();
+			code = getLong("Code", 0);
+			leaveObject();
+		} else
+			code = readLong();
+		return StatusCode.getFromBits((int) code);
+	}
+
+	/** {@inheritDoc} */
+	public StatusCode[] getStatusCodeArray(String fieldName) throws DecodingException
+	{
+		return (StatusCode[]) getElements(fieldName, 19, StatusCode.class);
+	}
+
+	/** {@inheritDoc} */
+	public QualifiedName getQualifiedName(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterObject();
+		String name = getString("Name");
+		int namespaceIndex = getNamespaceIndex("Uri");
+		leaveObject();
+		return new QualifiedName(namespaceIndex, name);
+	}
+
+	/** {@inheritDoc} */
+	public QualifiedName[] getQualifiedNameArray(String fieldName) throws DecodingException
+	{
+		return (QualifiedName[]) getElements(fieldName, 20, QualifiedName.class);
+	}
+
+	/** {@inheritDoc} */
+	public LocalizedText getLocalizedText(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		if (peek() == '"')
+			return new LocalizedText(readString(), (String) null);
+		enterObject();
+		String locale = getString("Locale");
+		String text = getString("Text");
+		leaveObject();
+		return new LocalizedText(text, locale);
+	}
+
+	/** {@inheritDoc} */
+	public LocalizedText[] getLocalizedTextArray(String fieldName) throws DecodingException
+	{
+		return (LocalizedText[]) getElements(fieldName, 21, LocalizedText.class);
+	}
+
+	/** {@inheritDoc} */
+	public Structure getStructure(String fieldName) throws DecodingException
+	{
+		ExtensionObject eo = getExtensionObject(fieldName);
+		if (eo == null)
+			return null;
+		if (!eo.isEncoded())
+			return (Structure) eo.getObject();
+		Structure result = eo.decode(ctx);
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	public Structure[] getStructureArray(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		List<Structure> list = new ArrayList<Structure>();
+		while (nextElement()) {
+			assertArrayLength(list.size() + 1);
+			list.add(getStructure(null));
+		}
+		return list.toArray(new Structure[list.size()]);
+	}
+
+	/**
+	 * Read the Body of a Decimal, its scale and unscaled value.
+	 */
+	private BigDecimal readDecimalBody() throws DecodingException
+	{
+		enterObject();
+		int scale = (int) getLong("Scale", 0);
+		String value = getString("Value");
+		leaveObject();
+		try {
+			return new BigDecimal(value == null ? BigInteger.ZERO : new BigInteger(value), scale);
+		} catch (NumberFormatException e) {
+			throw new DecodingException(e, "Invalid Decimal " + value);
+		}
+	}
+
+	/**
+	 * Read an ExtensionObject. JSON bodies are decoded to the Structure of
+	 * the TypeId or to a BigDecimal.
+	 *
+	 * @return ExtensionObject, BigDecimal or null
+	 * @throws DecodingException
+	 */
+	@SuppressWarnings("unchecked")
+	private Object readExtensionObject() throws DecodingException
+	{
+		enterObject();
+		NodeId typeId = getNodeId("TypeId");
+		int encoding = (int) getLong("Encoding", 0);
+		ExpandedNodeId expandedTypeId = typeId == null ? null : ctx.getNamespaceTable().toExpandedNodeId(typeId);
+		Object result;
+		if (encoding == 1)
+			result = new ExtensionObject(expandedTypeId, getByteString("Body"));
+		else if (encoding == 2)
+			result = new ExtensionObject(expandedTypeId, getXmlElement("Body"));
+		else if (encoding != 0)
+			throw error("Unexpected Encoding (" + encoding + ") in ExtensionObject");
+		else if (Identifiers.Decimal.equals(typeId))
+			result = beginField("Body") ? readDecimalBody() : null;
+		else if (typeId == null || NodeId.isNull(typeId))
+			result = null;
+		else {
+			Class<? extends IEncodeable> clazz = ctx.getEncodeableClass(typeId);
+			if (clazz == null || !Structure.class.isAssignableFrom(clazz)) {
+				logger.warn("Cannot decode the body of ExtensionObject of type {}", typeId);
+				result = new ExtensionObject(expandedTypeId);
+			} else {
+				Structure body = getEncodeable("Body", (Class<? extends Structure>) clazz);
+				result = body == null ? new ExtensionObject(expandedTypeId) : new ExtensionObject(body);
+			}
+		}
+		leaveObject();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * A Decimal is returned as an ExtensionObject of its binary encoding.
+	 */
+	public ExtensionObject getExtensionObject(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		Object o = readExtensionObject();
+		if (o instanceof BigDecimal)
+			return decimalToExtensionObject((BigDecimal) o);
+		return (ExtensionObject) o;
+	}
+
+	/**
+	 * Binary encode a Decimal: the scale as Int16 and the unscaled value, both in little-endian.
+	 */
+	private static ExtensionObject decimalToExtensionObject(BigDecimal v) throws DecodingException
+	{
+		int scale = v.scale();
+		if (scale > Short.MAX_VALUE || scale < Short.MIN_VALUE)
+			throw new DecodingException("Scale of the Decimal " + v + " does not fit in Int16: " + scale);
+		byte[] unscaled = v.unscaledValue().toByteArray();
+		byte[] body = new byte[unscaled.length + 2];
+		body[0] = (byte) scale;
+		body[1] = (byte) (scale >> 8);
+		for (int i = 0; i < unscaled.length; i++)
+			body[i + 2] = unscaled[unscaled.length - 1 - i];
+		return new ExtensionObject(DECIMAL_EXPANDED_NODE_ID, ByteString.valueOf(body));
+	}
+
+	/** {@inheritDoc} */
+	public ExtensionObject[] getExtensionObjectArray(String fieldName) throws DecodingException
+	{
+		return (ExtensionObject[]) getElements(fieldName, 22, ExtensionObject.class);
+	}
+
+	private BigDecimal getDecimal(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		Object o = readExtensionObject();
+		if (o != null && !(o instanceof BigDecimal))
+			throw new DecodingException("Expected a Decimal, got " + o);
+		return (BigDecimal) o;
+	}
+
+	/** {@inheritDoc} */
+	public DataValue getDataValue(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterObject();
+		Variant value = getVariant("Value");
+		StatusCode status = getStatusCode("Status");
+		long sourceTimestamp = getDateTime_("SourceTimestamp");
+		int sourcePicoseconds = (int) getLong("SourcePicoseconds", 0);
+		long serverTimestamp = getDateTime_("ServerTimestamp");
+		int serverPicoseconds = (int) getLong("ServerPicoseconds", 0);
+		leaveObject();
+		return new DataValue(value, status == null ? 0 : status.getValueAsIntBits(),
+				sourceTimestamp, sourcePicoseconds, serverTimestamp, serverPicoseconds);
+	}
+
+	/** {@inheritDoc} */
+	public DataValue[] getDataValueArray(String fieldName) throws DecodingException
+	{
+		return (DataValue[]) getElements(fieldName, 23, DataValue.class);
+	}
+
+	/**
+	 * Read the array Body of a Variant. Number arrays are read to primitive arrays.
+	 */
+	private Object readVariantArray(int builtinType) throws DecodingException
+	{
+		switch (builtinType) {
+		case 4: return getInt16Array_(null);
+		case 6: return getInt32Array_(null);
+		case 8: return getInt64Array_(null);
+		case 10: return getFloatArray_(null);
+		case 11: return getDoubleArray_(null);
+		case 22: {
+			enterArray();
+			List<Object> list = new ArrayList<Object>();
+			boolean decimals = false;
+			while (nextElement()) {
+				assertArrayLength(list.size() + 1);
+				Object o = beginField(null) ? readExtensionObject() : null;
+				decimals |= o instanceof BigDecimal;
+				list.add(o);
+			}
+			try {
+				return decimals ? list.toArray(new BigDecimal[list.size()]) : list.toArray(new ExtensionObject[list.size()]);
+			} catch (ArrayStoreException e) {
+				throw new DecodingException(e, "Decimals and ExtensionObjects in the same array");
+			}
+		}
+		default: return getArrayObject(null, builtinType);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public Variant getVariant(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return Variant.NULL;
+		enterObject();
+		int builtinType = (int) getLong("Type", 0);
+		Object value = null;
+		boolean array = false;
+		if (beginField("Body")) {
+			array = peek() == '[';
+			if (array)
+				value = readVariantArray(builtinType);
+			else if (builtinType == 22)
+				value = readExtensionObject();
+			else
+				value = getScalarObject(null, builtinType);
+		}
+		int[] dims = getInt32Array_("Dimensions");
+		leaveObject();
+		if (value == null)
+			return Variant.NULL;
+		if (!array)
+			return new Variant(value);
+		try {
+			if (value.getClass().getComponentType().isPrimitive())
+				return Variant.valueOf(value, dims != null && dims.length > 1 ? dims : new int[] {Array.getLength(value)});
+			if (dims != null && dims.length > 1) {
+				int length = MultiDimensionArrayUtils.getLength(dims);
+				if (length != Array.getLength(value))
+					throw new DecodingException(StatusCodes.Bad_DecodingError, "The array dimensions do not match the length of the array");
+				value = MultiDimensionArrayUtils.demuxArray(value, dims, value.getClass().getComponentType());
+			}
+		} catch (IllegalArgumentException e) {
+			throw new DecodingException(e, "Invalid Variant array");
+		}
+		return new Variant(value);
+	}
+
+	/** {@inheritDoc} */
+	public Variant[] getVariantArray(String fieldName) throws DecodingException
+	{
+		return (Variant[]) getElements(fieldName, 24, Variant.class);
+	}
+
+	/** {@inheritDoc} */
+	public DiagnosticInfo getDiagnosticInfo(String fieldName) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterObject();
+		DiagnosticInfo result = new DiagnosticInfo();
+		result.setSymbolicId(getInt32("SymbolicId"));
+		result.setNamespaceUri(getInt32("NamespaceUri"));
+		result.setLocale(getInt32("Locale"));
+		result.setLocalizedText(getInt32("LocalizedText"));
+		result.setAdditionalInfo(getString("AdditionalInfo"));
+		result.setInnerStatusCode(getStatusCode("InnerStatusCode"));
+		result.setInnerDiagnosticInfo(getDiagnosticInfo("InnerDiagnosticInfo"));
+		leaveObject();
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	public DiagnosticInfo[] getDiagnosticInfoArray(String fieldName) throws DecodingException
+	{
+		return (DiagnosticInfo[]) getElements(fieldName, 25, DiagnosticInfo.class);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The value is a number, or a string of Name_Value as in the non-reversible form.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Enumeration> T getEnumeration(String fieldName, Class<T> enumerationClass) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		int value;
+		if (peek() == '"') {
+			String s = readString();
+			try {
+				value = Integer.parseInt(s.substring(s.lastIndexOf('_') + 1));
+			} catch (NumberFormatException e) {
+				throw new DecodingException(e, "cannot decode "+enumerationClass);
+			}
+		} else
+			value = (int) readLong();
+		try {
+			return (T) enumerationClass.getMethod("valueOf", int.class).invoke(null, value);
+		} catch (Exception e) {
+			throw new DecodingException(e, "cannot decode "+enumerationClass);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	public <T extends Enumeration> T[] getEnumerationArray(String fieldName, Class<T> enumerationClass) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		List<T> list = new ArrayList<T>();
+		while (nextElement()) {
+			assertArrayLength(list.size() + 1);
+			list.add(getEnumeration(null, enumerationClass));
+		}
+		return list.toArray((T[]) Array.newInstance(enumerationClass, list.size()));
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	public <T extends IEncodeable> T[] getEncodeableArray(String fieldName, Class<? extends T> encodeableClass) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		List<T> list = new ArrayList<T>();
+		while (nextElement()) {
+			assertArrayLength(list.size() + 1);
+			T value = getEncodeable(null, encodeableClass);
+			list.add(value);
+		}
+		return list.toArray((T[]) Array.newInstance(encodeableClass, list.size()));
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	public <T extends IEncodeable> T getEncodeable(String fieldName, Class<? extends T> encodeableClass) throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterObject();
+		T result = (T) ctx.getEncodeableSerializer().getEncodeable(encodeableClass, this);
+		leaveObject();
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Multi-dimension arrays are read from nested arrays.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T get(String fieldName, Class<T> clazz) throws DecodingException {
+		final Class<?> componentType = MultiDimensionArrayUtils.getComponentType(clazz);
+		int dims = MultiDimensionArrayUtils.getClassDimensions(clazz);
+		if (dims == 0)
+			return (T) getValue(fieldName, componentType);
+		return (T) getNestedArray(fieldName, dims, componentType);
+	}
+
+	private Object[] getNestedArray(String fieldName, int dims, Class<?> componentType)
+	throws DecodingException
+	{
+		if (!beginField(fieldName))
+			return null;
+		enterArray();
+		List<Object> list = new ArrayList<Object>();
+		while (nextElement()) {
+			assertArrayLength(list.size() + 1);
+			list.add(dims > 1 ? getNestedArray(null, dims - 1, componentType) : getValue(null, componentType));
+		}
+		Class<?> elementClass = dims > 1 ? Array.newInstance(componentType, new int[dims - 1]).getClass() : componentType;
+		return list.toArray((Object[]) Array.newInstance(elementClass, list.size()));
+	}
+
+	/**
+	 * Read a scalar value of the given class, the counterpart of {@link JsonEncoder#put(String, Object, Class)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private Object getValue(String fieldName, Class<?> clazz)
+	throws DecodingException
+	{
+		Integer bt = BuiltinsMap.ID_MAP.get(clazz);
+		if (bt != null)
+			return getScalarObject(fieldName, bt);
+		if (Structure.class.isAssignableFrom(clazz))
+			return getEncodeable(fieldName, (Class<? extends IEncodeable>) clazz);
+		if (Enumeration.class.isAssignableFrom(clazz))
+			return getEnumeration(fieldName, (Class<? extends Enumeration>) clazz);
+		if (BigDecimal.class.equals(clazz))
+			return getDecimal(fieldName);
+		if (Object.class.equals(clazz))
+			return getVariant(fieldName).getValue();
+		throw new DecodingException("Cannot decode " + clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The message is read from an object of the TypeId of its data type and the Body of its fields.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IEncodeable> T getMessage() throws DecodingException
+	{
+		if (!beginField(null))
+			return null;
+		enterObject();
+		NodeId id = getNodeId("TypeId");
+		if (id==null) throw new DecodingException("Cannot decode "+id);
+		Class<T> clazz = (Class<T>) ctx.getEncodeableClass(id);
+		if (clazz==null) throw new DecodingException("Cannot decode "+id);
+		T result = getEncodeable("Body", clazz);
+		leaveObject();
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	public Object getScalarObject(String fieldName, int builtinTypeId) throws DecodingException
+	{
+		switch (builtinTypeId) {
+		case 1: return getBoolean(fieldName);
+		case 2: return getSByte(fieldName);
+		case 3: return getByte(fieldName);
+		case 4: return getInt16(fieldName);
+		case 5: return getUInt16(fieldName);
+		case 6: return getInt32(fieldName);
+		case 7: return getUInt32(fieldName);
+		case 8: return getInt64(fieldName);
+		case 9: return getUInt64(fieldName);
+		case 10: return getFloat(fieldName);
+		case 11: return getDouble(fieldName);
+		case 12: return getString(fieldName);
+		case 13: return getDateTime(fieldName);
+		case 14: return getGuid(fieldName);
+		case 15: return getByteString(fieldName);
+		case 16: return getXmlElement(fieldName);
+		case 17: return getNodeId(fieldName);
+		case 18: return getExpandedNodeId(fieldName);
+		case 19: return getStatusCode(fieldName);
+		case 20: return getQualifiedName(fieldName);
+		case 21: return getLocalizedText(fieldName);
+		case 22: return getExtensionObject(fieldName);
+		case 23: return getDataValue(fieldName);
+		case 24: return getVariant(fieldName);
+		case 25: return getDiagnosticInfo(fieldName);
+		}
+		throw new DecodingException("Cannot decode builtin type id "+builtinTypeId);
+	}
+
+	/** {@inheritDoc} */
+	public Object getArrayObject(String fieldName, int builtinTypeId) throws DecodingException
+	{
+		switch (builtinTypeId) {
+		case 1: return getBooleanArray(fieldName);
+		case 2: return getSByteArray(fieldName);
+		case 3: return getByteArray(fieldName);
+		case 4: return getInt16Array(fieldName);
+		case 5: return getUInt16Array(fieldName);
+		case 6: return getInt32Array(fieldName);
+		case 7: return getUInt32Array(fieldName);
+		case 8: return getInt64Array(fieldName);
+		case 9: return getUInt64Array(fieldName);
+		case 10: return getFloatArray(fieldName);
+		case 11: return getDoubleArray(fieldName);
+		case 12: return getStringArray(fieldName);
+		case 13: return getDateTimeArray(fieldName);
+		case 14: return getGuidArray(fieldName);
+		case 15: return getByteStringArray(fieldName);
+		case 16: return getXmlElementArray(fieldName);
+		case 17: return getNodeIdArray(fieldName);
+		case 18: return getExpandedNodeIdArray(fieldName);
+		case 19: return getStatusCodeArray(fieldName);
+		case 20: return getQualifiedNameArray(fieldName);
+		case 21: return getLocalizedTextArray(fieldName);
+		case 22: return getExtensionObjectArray(fieldName);
+		case 23: return getDataValueArray(fieldName);
+		case 24: return getVariantArray(fieldName);
+		case 25: return getDiagnosticInfoArray(fieldName);
+		}
+		throw new DecodingException("Cannot decode builtin type id "+builtinTypeId);
+	}
+
+}
@@ -0,0 +1,2097 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.encoding.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.opcfoundation.ua.builtintypes.BuiltinsMap;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.DiagnosticInfo;
+import org.opcfoundation.ua.builtintypes.Enumeration;
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.StatusCode;
+import org.opcfoundation.ua.builtintypes.Structure;
+import org.opcfoundation.ua.builtintypes.UnsignedByte;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.UnsignedLong;
+import org.opcfoundation.ua.builtintypes.UnsignedShort;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.builtintypes.XmlElement;
+import org.opcfoundation.ua.common.ServiceResultException;
+import org.opcfoundation.ua.common.StatusCodeDescriptions;
+import org.opcfoundation.ua.core.IdType;
+import org.opcfoundation.ua.core.Identifiers;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.EncodeType;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.EncodingException;
+import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.IEncoder;
+import org.opcfoundation.ua.utils.CryptoUtil;
+import org.opcfoundation.ua.utils.EncodingLimitsExceededIoException;
+import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferWriteable;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryWriteable;
+import org.opcfoundation.ua.utils.bytebuffer.OutputStreamWriteable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encodes built-in types, Enumerations, Structures and Messages to JSON
+ * as specified in OPC UA Part 6, JSON Data Encoding.
+ * <p>
+ * The text is written as UTF-8 straight to an {@link IBinaryWriteable} through
+ * a small internal buffer, no object tree or intermediate strings are built.
+ * <p>
+ * By default the reversible form is written, which {@link JsonDecoder} can read
+ * back. The non-reversible form, see {@link #setReversible(boolean)}, is meant
+ * for consumers that do not know the OPC UA type system: StatusCodes and
+ * Enumerations are written with their symbolic names, NodeIds with namespace
+ * URIs and Variants, LocalizedTexts and ExtensionObjects with their values only.
+ * <p>
+ * A named field at the top level opens an implicit root object, which
+ * {@link #close()} closes. Fields with a null value are left out.
+ * A null field name writes the value without a name, e.g. an array element.
+ */
+public class JsonEncoder implements IEncoder {
+
+	/** ByteStrings are base64 encoded in blocks of this many bytes, a multiple of 3 */
+	private static final int BASE64_BLOCK_SIZE = 3 * 1024;
+	private static final int BUFFER_SIZE = 8 * 1024;
+	private static final byte[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+
+	static Logger logger = LoggerFactory.getLogger(JsonEncoder.class);
+
+	private IBinaryWriteable out;
+	private EncoderContext ctx;
+	private boolean reversible = true;
+
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private int count;
+	/** Bytes flushed to out */
+	private long written;
+
+	/** Number of open objects and arrays */
+	private int depth;
+	/** Whether the object or array at each depth is an array */
+	private boolean[] isArray = new boolean[16];
+	/** Whether the object or array at each depth has members already */
+	private boolean[] hasValues = new boolean[16];
+	/** Whether the top level object was opened implicitly by a named field */
+	private boolean implicitRoot;
+
+	/**
+	 * <p>Constructor for JsonEncoder.</p>
+	 *
+	 * @param out a {@link org.opcfoundation.ua.utils.bytebuffer.IBinaryWriteable} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public JsonEncoder(IBinaryWriteable out, EncoderContext context)
+	{
+		if (out == null)
+			throw new NullPointerException("out");
+		if (context == null)
+			throw new NullPointerException("context");
+		this.out = out;
+		this.ctx = context;
+	}
+
+	/**
+	 * <p>Constructor for JsonEncoder.</p>
+	 *
+	 * @param buf a {@link java.nio.ByteBuffer} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public JsonEncoder(ByteBuffer buf, EncoderContext context)
+	{
+		this(new ByteBufferWriteable(buf), context);
+	}
+
+	/**
+	 * <p>Constructor for JsonEncoder.</p>
+	 *
+	 * @param out a {@link java.io.OutputStream} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public JsonEncoder(OutputStream out, EncoderContext context)
+	{
+		this(new OutputStreamWriteable(out), context);
+	}
+
+	/**
+	 * <p>getEncoderContext.</p>
+	 *
+	 * @return a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public EncoderContext getEncoderContext() {
+		return ctx;
+	}
+
+	/**
+	 * <p>setEncoderContext.</p>
+	 *
+	 * @param ctx a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public void setEncoderContext(EncoderContext ctx) {
+		if (ctx == null)
+			throw new NullPointerException("context");
+		this.ctx = ctx;
+	}
+
+	/**
+	 * <p>isReversible.</p>
+	 *
+	 * @return true if the reversible form is written
+	 */
+	public boolean isReversible() {
+		return reversible;
+	}
+
+	/**
+	 * Select between the reversible and the non-reversible form.
+	 * Only the reversible form can be decoded with {@link JsonDecoder}.
+	 *
+	 * @param reversible true to write the reversible form (the default)
+	 */
+	public void setReversible(boolean reversible) {
+		this.reversible = reversible;
+	}
+
+	/**
+	 * Write the start of an object, e.g. an explicit root object of
+	 * a document that contains several fields.
+	 *
+	 * @param fieldName name of the field or null
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putStartObject(String fieldName) throws EncodingException
+	{
+		writeFieldName(fieldName);
+		startObject();
+	}
+
+	/**
+	 * Write the end of the latest open object.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putEndObject() throws EncodingException
+	{
+		endObject();
+	}
+
+	/**
+	 * Flush the written text to the output.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void flush() throws EncodingException
+	{
+		flushBuffer();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	/**
+	 * Close the implicit root object and flush the output. The underlying output is not closed.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void close() throws EncodingException
+	{
+		if (implicitRoot && depth == 1) {
+			endObject();
+			implicitRoot = false;
+		}
+		flush();
+	}
+
+	private static EncodingException toEncodingException(IOException e)
+	{
+		if (e instanceof ClosedChannelException)
+			return new EncodingException(StatusCodes.Bad_ConnectionClosed, e);
+		if (e instanceof EOFException)
+			return new EncodingException(StatusCodes.Bad_EndOfStream, e);
+		if (e instanceof ConnectException)
+			return new EncodingException(StatusCodes.Bad_ConnectionRejected, e);
+		if (e instanceof SocketException)
+			return new EncodingException(StatusCodes.Bad_CommunicationError, e);
+		if (e instanceof EncodingLimitsExceededIoException)
+			return new EncodingException(new StatusCode(StatusCodes.Bad_EncodingLimitsExceeded), e, e.getMessage());
+		return new EncodingException(StatusCodes.Bad_UnexpectedError, e);
+	}
+
+	// Output
+
+	private void flushBuffer() throws EncodingException
+	{
+		if (count == 0)
+			return;
+		written += count;
+		int maxLen = ctx.getMaxMessageSize();
+		if (maxLen > 0 && written > maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxMessageSize "+maxLen+" < "+written);
+			logger.warn("flush: failed", encodingException);
+			throw encodingException;
+		}
+		try {
+			out.put(buf, 0, count);
+		} catch (IOException e) {
+			throw toEncodingException(e);
+		}
+		count = 0;
+	}
+
+	/**
+	 * Make room for at most {@link #BUFFER_SIZE} bytes in the buffer.
+	 */
+	private void ensure(int n) throws EncodingException
+	{
+		if (count + n > buf.length)
+			flushBuffer();
+	}
+
+	private void write(char c) throws EncodingException
+	{
+		if (count == buf.length)
+			flushBuffer();
+		buf[count++] = (byte) c;
+	}
+
+	/**
+	 * Write text that is known to be ASCII without escaping.
+	 */
+	private void writeAscii(String s) throws EncodingException
+	{
+		int len = s.length();
+		int i = 0;
+		while (i < len) {
+			if (count == buf.length)
+				flushBuffer();
+			int n = Math.min(len - i, buf.length - count);
+			for (int j = 0; j < n; j++)
+				buf[count++] = (byte) s.charAt(i++);
+		}
+	}
+
+	/**
+	 * Write a string as a quoted JSON string in UTF-8. ASCII characters that
+	 * need no escaping are copied straight to the buffer.
+	 */
+	private void writeString(String s) throws EncodingException
+	{
+		write('"');
+		final int len = s.length();
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if (count + 12 > buf.length)
+				flushBuffer();
+			if (c < 0x80) {
+				if (c >= 0x20 && c != '"' && c != '\\') {
+					buf[count++] = (byte) c;
+					continue;
+				}
+				buf[count++] = '\\';
+				switch (c) {
+				case '"': buf[count++] = '"'; break;
+				case '\\': buf[count++] = '\\'; break;
+				case '\n': buf[count++] = 'n'; break;
+				case '\r': buf[count++] = 'r'; break;
+				case '\t': buf[count++] = 't'; break;
+				case '\b': buf[count++] = 'b'; break;
+				case '\f': buf[count++] = 'f'; break;
+				default:
+					buf[count++] = 'u';
+					buf[count++] = '0';
+					buf[count++] = '0';
+					buf[count++] = HEX[c >> 4];
+					buf[count++] = HEX[c & 0xf];
+				}
+			} else if (c < 0x800) {
+				buf[count++] = (byte) (0xc0 | (c >> 6));
+				buf[count++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				buf[count++] = (byte) (0xf0 | (cp >> 18));
+				buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				buf[count++] = (byte) (0x80 | (cp & 0x3f));
+			} else {
+				// A lone surrogate cannot be encoded in UTF-8
+				if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c))
+					c = '\uFFFD';
+				buf[count++] = (byte) (0xe0 | (c >> 12));
+				buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buf[count++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		write('"');
+	}
+
+	/**
+	 * Write an integer in decimal without allocating.
+	 */
+	private void writeLong(long v) throws EncodingException
+	{
+		if (v == Long.MIN_VALUE) {
+			writeAscii(Long.toString(v));
+			return;
+		}
+		ensure(20);
+		if (v < 0) {
+			buf[count++] = '-';
+			v = -v;
+		}
+		int start = count;
+		do {
+			buf[count++] = (byte) ('0' + (v % 10));
+			v /= 10;
+		} while (v != 0);
+		for (int i = start, j = count - 1; i < j; i++, j--) {
+			byte b = buf[i];
+			buf[i] = buf[j];
+			buf[j] = b;
+		}
+	}
+
+	private void writeDigits(int v, int digits)
+	{
+		for (int i = count + digits - 1; i >= count; i--) {
+			buf[i] = (byte) ('0' + (v % 10));
+			v /= 10;
+		}
+		count += digits;
+	}
+
+	private void writeDouble(double v) throws EncodingException
+	{
+		if (Double.isNaN(v))
+			writeAscii("\"NaN\"");
+		else if (Double.isInfinite(v))
+			writeAscii(v > 0 ? "\"Infinity\"" : "\"-Infinity\"");
+		else
+			writeAscii(Double.toString(v));
+	}
+
+	private void writeFloat(float v) throws EncodingException
+	{
+		if (Float.isNaN(v))
+			writeAscii("\"NaN\"");
+		else if (Float.isInfinite(v))
+			writeAscii(v > 0 ? "\"Infinity\"" : "\"-Infinity\"");
+		else
+			writeAscii(Float.toString(v));
+	}
+
+	/**
+	 * Write a timestamp as a quoted ISO 8601 string in UTC, e.g. "2016-03-01T12:15:03.1234567Z".
+	 * The fraction of a second has 100 nanosecond precision and is left out if zero.
+	 * Timestamps out of the range of years 1601-9999 are clamped.
+	 *
+	 * @param ticks 100 nanosecond intervals since January 1, 1601
+	 */
+	private void writeDateTime(long ticks) throws EncodingException
+	{
+		if (ticks <= 0) {
+			writeAscii("\"0001-01-01T00:00:00Z\"");
+			return;
+		}
+		if (ticks >= DateTime.MAX_VALUE.getValue()) {
+			writeAscii("\"9999-12-31T23:59:59Z\"");
+			return;
+		}
+		long unixTicks = ticks - DateTime.OffsetToGregorianCalendarZero;
+		long seconds = unixTicks / 10000000;
+		int fraction = (int) (unixTicks % 10000000);
+		if (fraction < 0) {
+			fraction += 10000000;
+			seconds--;
+		}
+		long days = seconds / 86400;
+		int secondOfDay = (int) (seconds % 86400);
+		if (secondOfDay < 0) {
+			secondOfDay += 86400;
+			days--;
+		}
+		// Civil date of the days since 1970-01-01 in the proleptic Gregorian calendar
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = (int) (z - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+		ensure(32);
+		buf[count++] = '"';
+		writeDigits(year, 4);
+		buf[count++] = '-';
+		writeDigits(month, 2);
+		buf[count++] = '-';
+		writeDigits(day, 2);
+		buf[count++] = 'T';
+		writeDigits(secondOfDay / 3600, 2);
+		buf[count++] = ':';
+		writeDigits(secondOfDay / 60 % 60, 2);
+		buf[count++] = ':';
+		writeDigits(secondOfDay % 60, 2);
+		if (fraction > 0) {
+			int digits = 7;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				digits--;
+			}
+			buf[count++] = '.';
+			writeDigits(fraction, digits);
+		}
+		buf[count++] = 'Z';
+		buf[count++] = '"';
+	}
+
+	private void writeByteString(ByteString v) throws EncodingException
+	{
+		// Encode in blocks to avoid a base64 copy of the whole value
+		ByteBuffer bytes = v.asByteBuffer();
+		byte[] block = new byte[Math.min(bytes.remaining(), BASE64_BLOCK_SIZE)];
+		write('"');
+		while (bytes.hasRemaining()) {
+			if (bytes.remaining() < block.length)
+				block = new byte[bytes.remaining()];
+			bytes.get(block);
+			writeAscii(CryptoUtil.base64Encode(block));
+		}
+		write('"');
+	}
+
+	// Structure
+
+	private void push(boolean array)
+	{
+		if (depth == isArray.length) {
+			boolean[] a = new boolean[depth * 2];
+			System.arraycopy(isArray, 0, a, 0, depth);
+			isArray = a;
+			boolean[] h = new boolean[depth * 2];
+			System.arraycopy(hasValues, 0, h, 0, depth);
+			hasValues = h;
+		}
+		isArray[depth] = array;
+		hasValues[depth] = false;
+		depth++;
+	}
+
+	private void startObject() throws EncodingException
+	{
+		write('{');
+		push(false);
+	}
+
+	private void endObject() throws EncodingException
+	{
+		if (depth == 0 || isArray[depth - 1])
+			throw new EncodingException("No object to end");
+		depth--;
+		write('}');
+	}
+
+	private void startArray() throws EncodingException
+	{
+		write('[');
+		push(true);
+	}
+
+	private void endArray() throws EncodingException
+	{
+		depth--;
+		write(']');
+	}
+
+	/**
+	 * Write the separator and the name of a field, if any. A named field at the
+	 * top level opens the implicit root object. In an array and after a name
+	 * the field name is ignored.
+	 *
+	 * @param fieldName name of the field or null
+	 * @throws EncodingException
+	 */
+	private void writeFieldName(String fieldName) throws EncodingException
+	{
+		if (depth == 0) {
+			if (fieldName == null || fieldName.length() == 0)
+				return;
+			startObject();
+			implicitRoot = true;
+		}
+		int level = depth - 1;
+		if (isArray[level]) {
+			if (hasValues[level])
+				write(',');
+			hasValues[level] = true;
+			return;
+		}
+		if (fieldName == null || fieldName.length() == 0)
+			return;
+		if (hasValues[level])
+			write(',');
+		hasValues[level] = true;
+		writeString(fieldName);
+		write(':');
+	}
+
+	/**
+	 * Write a null value. A named field of an object is left out.
+	 */
+	private void putNull(String fieldName) throws EncodingException
+	{
+		boolean named = fieldName != null && fieldName.length() > 0;
+		if (named && depth == 0) {
+			startObject();
+			implicitRoot = true;
+		}
+		if (named && !isArray[depth - 1])
+			return;
+		writeFieldName(null);
+		writeAscii("null");
+	}
+
+	private void putLong(String fieldName, long v) throws EncodingException
+	{
+		writeFieldName(fieldName);
+		writeLong(v);
+	}
+
+	private void putText(String fieldName, String v) throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		writeString(v);
+	}
+
+	private void assertArrayLength(int len)
+	throws EncodingException
+	{
+		int maxLen = ctx.getMaxArrayLength();
+		if (maxLen>0 && len>maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxArrayLength "+maxLen+" < "+len);
+			logger.warn("assertArrayLength: failed", encodingException);
+			throw encodingException;
+		}
+	}
+
+	private void assertStringLength(int len)
+	throws EncodingException
+	{
+		int maxLen = ctx.getMaxStringLength();
+		if (maxLen>0 && len>maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxStringLength "+maxLen+" < "+len);
+			logger.warn("assertStringLength: failed", encodingException);
+			throw encodingException;
+		}
+	}
+
+	private void assertByteStringLength(int len)
+	throws EncodingException
+	{
+		int maxLen = ctx.getMaxByteStringLength();
+		if (maxLen>0 && len>maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxByteStringLength "+maxLen+" < "+len);
+			logger.warn("assertByteStringLength: failed", encodingException);
+			throw encodingException;
+		}
+	}
+
+	private void putElements(String fieldName, int builtinType, Object[] v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		assertArrayLength(v.length);
+		writeFieldName(fieldName);
+		startArray();
+		for (Object o : v)
+			putScalar(null, builtinType, o);
+		endArray();
+	}
+
+	private void putElements(String fieldName, int builtinType, Collection<?> v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		assertArrayLength(v.size());
+		writeFieldName(fieldName);
+		startArray();
+		for (Object o : v)
+			putScalar(null, builtinType, o);
+		endArray();
+	}
+
+	/**
+	 * Write the elements of a primitive array without boxing them.
+	 *
+	 * @param array int[], short[], long[], float[] or double[]
+	 * @param offset index of the first element
+	 * @param length number of elements
+	 * @throws EncodingException
+	 */
+	private void putPrimitiveElements(Object array, int offset, int length)
+	throws EncodingException
+	{
+		final int end = offset + length;
+		if (array instanceof int[]) {
+			int[] a = (int[]) array;
+			for (int i = offset; i < end; i++)
+				putLong(null, a[i]);
+		} else if (array instanceof short[]) {
+			short[] a = (short[]) array;
+			for (int i = offset; i < end; i++)
+				putLong(null, a[i]);
+		} else if (array instanceof long[]) {
+			long[] a = (long[]) array;
+			for (int i = offset; i < end; i++)
+				putInt64(null, a[i]);
+		} else if (array instanceof float[]) {
+			float[] a = (float[]) array;
+			for (int i = offset; i < end; i++)
+				putFloat(null, a[i]);
+		} else if (array instanceof double[]) {
+			double[] a = (double[]) array;
+			for (int i = offset; i < end; i++)
+				putDouble(null, a[i]);
+		} else
+			throw new EncodingException("cannot encode "+array);
+	}
+
+	private void putPrimitiveArray(String fieldName, Object array)
+	throws EncodingException
+	{
+		if (array == null) {
+			putNull(fieldName);
+			return;
+		}
+		int length = Array.getLength(array);
+		assertArrayLength(length);
+		writeFieldName(fieldName);
+		startArray();
+		putPrimitiveElements(array, 0, length);
+		endArray();
+	}
+
+	/** {@inheritDoc} */
+	public void putBoolean(String fieldName, Boolean v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else {
+			writeFieldName(fieldName);
+			writeAscii(v ? "true" : "false");
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putBooleanArray(String fieldName, Boolean[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 1, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putBooleanArray(String fieldName, Collection<Boolean> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 1, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByte(String fieldName, Byte v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putLong(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByte(String fieldName, byte v)
+	throws EncodingException
+	{
+		putLong(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByte(String fieldName, int v)
+	throws EncodingException
+	{
+		putLong(fieldName, (byte) v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByteArray(String fieldName, Byte[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 2, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByteArray(String fieldName, Collection<Byte> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 2, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByte(String fieldName, UnsignedByte v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putLong(fieldName, v.intValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putByteArray(String fieldName, UnsignedByte[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 3, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteArray(String fieldName, Collection<UnsignedByte> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 3, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16(String fieldName, Short v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putLong(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16(String fieldName, short v)
+	throws EncodingException
+	{
+		putLong(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16Array(String fieldName, Short[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 4, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16Array(String fieldName, Collection<Short> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 4, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16Array(String fieldName, short[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt16(String fieldName, UnsignedShort v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putLong(fieldName, v.intValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt16Array(String fieldName, UnsignedShort[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 5, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt16Array(String fieldName, Collection<UnsignedShort> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 5, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32(String fieldName, Integer v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putLong(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32(String fieldName, int v)
+	throws EncodingException
+	{
+		putLong(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32Array(String fieldName, int[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32Array(String fieldName, Collection<Integer> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 6, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32Array(String fieldName, Integer[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 6, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt32(String fieldName, UnsignedInteger v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putLong(fieldName, v.longValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt32Array(String fieldName, UnsignedInteger[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 7, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt32Array(String fieldName, Collection<UnsignedInteger> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 7, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64(String fieldName, Long v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putInt64(fieldName, v.longValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Int64 is written as a string, JSON numbers are not exact beyond 2^53.
+	 */
+	public void putInt64(String fieldName, long v)
+	throws EncodingException
+	{
+		writeFieldName(fieldName);
+		write('"');
+		writeLong(v);
+		write('"');
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64Array(String fieldName, Long[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 8, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64Array(String fieldName, Collection<Long> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 8, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64Array(String fieldName, long[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt64(String fieldName, UnsignedLong v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		write('"');
+		writeAscii(v.toString());
+		write('"');
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt64Array(String fieldName, UnsignedLong[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 9, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt64Array(String fieldName, Collection<UnsignedLong> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 9, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloat(String fieldName, Float v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putFloat(fieldName, v.floatValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putFloat(String fieldName, float v)
+	throws EncodingException
+	{
+		writeFieldName(fieldName);
+		writeFloat(v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloatArray(String fieldName, Float[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 10, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloatArray(String fieldName, Collection<Float> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 10, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloatArray(String fieldName, float[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDouble(String fieldName, Double v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putDouble(fieldName, v.doubleValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putDouble(String fieldName, double v)
+	throws EncodingException
+	{
+		writeFieldName(fieldName);
+		writeDouble(v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDoubleArray(String fieldName, Double[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 11, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDoubleArray(String fieldName, Collection<Double> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 11, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDoubleArray(String fieldName, double[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putString(String fieldName, String v)
+	throws EncodingException
+	{
+		if (v != null)
+			assertStringLength(v.length());
+		putText(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStringArray(String fieldName, Collection<String> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 12, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStringArray(String fieldName, String[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 12, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTime(String fieldName, DateTime v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else
+			putDateTime(fieldName, v.getValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTime(String fieldName, long ticks)
+	throws EncodingException
+	{
+		writeFieldName(fieldName);
+		writeDateTime(ticks);
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTimeArray(String fieldName, DateTime[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 13, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTimeArray(String fieldName, Collection<DateTime> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 13, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putGuid(String fieldName, UUID v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else {
+			writeFieldName(fieldName);
+			write('"');
+			writeAscii(v.toString());
+			write('"');
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putGuidArray(String fieldName, UUID[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 14, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putGuidArray(String fieldName, Collection<UUID> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 14, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteString(String fieldName, ByteString v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		assertByteStringLength(v.getLength());
+		writeFieldName(fieldName);
+		writeByteString(v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteStringArray(String fieldName, ByteString[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 15, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteStringArray(String fieldName, Collection<ByteString> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 15, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putXmlElement(String fieldName, XmlElement v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.getValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putXmlElementArray(String fieldName, XmlElement[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 16, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putXmlElementArray(String fieldName, Collection<XmlElement> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 16, v);
+	}
+
+	/**
+	 * Write the members of a NodeId object: IdType, unless numeric, and Id.
+	 */
+	private void putIdentifier(IdType type, Object value)
+	throws EncodingException
+	{
+		if (type != IdType.Numeric)
+			putLong("IdType", type.getValue());
+		switch (type) {
+		case Numeric: putLong("Id", ((UnsignedInteger) value).longValue()); break;
+		case String: putText("Id", (String) value); break;
+		case Guid: putGuid("Id", (UUID) value); break;
+		case Opaque: putByteString("Id", (ByteString) value); break;
+		}
+	}
+
+	/**
+	 * Write a namespace index, or its URI in the non-reversible form if the
+	 * index is above 1 and the URI is known.
+	 */
+	private void putNamespace(int namespaceIndex)
+	throws EncodingException
+	{
+		if (namespaceIndex == 0)
+			return;
+		String uri = reversible || namespaceIndex == 1 ? null : ctx.getNamespaceTable().getUri(namespaceIndex);
+		if (uri != null)
+			putText("Namespace", uri);
+		else
+			putLong("Namespace", namespaceIndex);
+	}
+
+	/** {@inheritDoc} */
+	public void putNodeId(String fieldName, NodeId v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putIdentifier(v.getIdType(), v.getValue());
+		putNamespace(v.getNamespaceIndex());
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putNodeIdArray(String fieldName, NodeId[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 17, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putNodeIdArray(String fieldName, Collection<NodeId> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 17, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putExpandedNodeId(String fieldName, ExpandedNodeId v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putIdentifier(v.getIdType(), v.getValue());
+		if (v.getNamespaceUri() != null)
+			putText("Namespace", v.getNamespaceUri());
+		else
+			putNamespace(v.getNamespaceIndex());
+		long serverIndex = v.getServerIndex() == null ? 0 : v.getServerIndex().longValue();
+		if (serverIndex != 0) {
+			String uri = reversible ? null : ctx.getServerTable().getUri((int) serverIndex);
+			if (uri != null)
+				putText("ServerUri", uri);
+			else
+				putLong("ServerUri", serverIndex);
+		}
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putExpandedNodeIdArray(String fieldName, ExpandedNodeId[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 18, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putExpandedNodeIdArray(String fieldName, Collection<ExpandedNodeId> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 18, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The non-reversible form is an object of the Code and its Symbol.
+	 */
+	public void putStatusCode(String fieldName, StatusCode v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		long code = v.getValueAsIntBits() & 0xFFFFFFFFL;
+		if (reversible) {
+			putLong(fieldName, code);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putLong("Code", code);
+		String symbol = StatusCodeDescriptions.getStatusCode(v.getValueAsIntBits());
+		if (symbol != null)
+			putText("Symbol", symbol);
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putStatusCodeArray(String fieldName, StatusCode[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 19, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStatusCodeArray(String fieldName, Collection<StatusCode> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 19, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putQualifiedName(String fieldName, QualifiedName v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putString("Name", v.getName());
+		int namespaceIndex = v.getNamespaceIndex();
+		if (namespaceIndex != 0) {
+			String uri = reversible || namespaceIndex == 1 ? null : ctx.getNamespaceTable().getUri(namespaceIndex);
+			if (uri != null)
+				putText("Uri", uri);
+			else
+				putLong("Uri", namespaceIndex);
+		}
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putQualifiedNameArray(String fieldName, QualifiedName[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 20, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putQualifiedNameArray(String fieldName, Collection<QualifiedName> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 20, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The non-reversible form is the text only.
+	 */
+	public void putLocalizedText(String fieldName, LocalizedText v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		if (!reversible) {
+			putString(fieldName, v.getText());
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putString("Locale", v.getLocaleId());
+		putString("Text", v.getText());
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putLocalizedTextArray(String fieldName, LocalizedText[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 21, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putLocalizedTextArray(String fieldName, Collection<LocalizedText> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 21, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The structure is written as an ExtensionObject of the data type id and
+	 * the JSON encoded Body. The non-reversible form is the Body only.
+	 */
+	public void putStructure(String fieldName, Structure v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		if (!reversible) {
+			putEncodeable(fieldName, v);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putNodeId("TypeId", ctx.toNodeId(v.getTypeId()));
+		putEncodeable("Body", v);
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putStructureArray(String fieldName, Structure[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 22, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStructureArray(String fieldName, Collection<Structure> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 22, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Binary and XML encoded bodies are written as a base64 string and an
+	 * XML string, marked with Encoding 1 and 2 respectively.
+	 */
+	public void putExtensionObject(String fieldName, ExtensionObject v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		if (!v.isEncoded()) {
+			putStructure(fieldName, (Structure) v.getObject());
+			return;
+		}
+		Object o = v.getObject();
+		EncodeType type = v.getEncodeType();
+		if (o != null && type != EncodeType.Binary && type != EncodeType.Xml)
+			throw new EncodingException("Unexpected encoding type: "+type);
+		if (!reversible) {
+			if (o == null)
+				putNull(fieldName);
+			else if (type == EncodeType.Binary)
+				putByteString(fieldName, (ByteString) o);
+			else
+				putXmlElement(fieldName, (XmlElement) o);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putNodeId("TypeId", ctx.toNodeId(v.getTypeId()));
+		if (o != null) {
+			if (type == EncodeType.Binary) {
+				putLong("Encoding", 1);
+				putByteString("Body", (ByteString) o);
+			} else {
+				putLong("Encoding", 2);
+				putXmlElement("Body", (XmlElement) o);
+			}
+		}
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putExtensionObjectArray(String fieldName, ExtensionObject[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 22, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putExtensionObjectArray(String fieldName, Collection<ExtensionObject> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 22, v);
+	}
+
+	/**
+	 * Write a Decimal as an ExtensionObject with the Decimal data type id
+	 * and a Body of the scale and the unscaled value. The non-reversible
+	 * form is a JSON number.
+	 *
+	 * @param fieldName name of the field or null
+	 * @param v the value
+	 * @throws EncodingException if the scale does not fit in Int16
+	 */
+	private void putDecimal(String fieldName, BigDecimal v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		int scale = v.scale();
+		if (scale > Short.MAX_VALUE)
+			throw new EncodingException("Scale of the Decimal " + v + " is too large: " + scale + " > " + Short.MAX_VALUE);
+		if (scale < Short.MIN_VALUE)
+			throw new EncodingException("Scale of the Decimal " + v + " is too small: " + scale + " < " + Short.MIN_VALUE);
+		writeFieldName(fieldName);
+		if (!reversible) {
+			writeAscii(v.toString());
+			return;
+		}
+		startObject();
+		putNodeId("TypeId", Identifiers.Decimal);
+		writeFieldName("Body");
+		startObject();
+		putLong("Scale", scale);
+		putText("Value", v.unscaledValue().toString());
+		endObject();
+		endObject();
+	}
+
+	private void putDecimalArray(String fieldName, BigDecimal[] v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		assertArrayLength(v.length);
+		writeFieldName(fieldName);
+		startArray();
+		for (BigDecimal d : v)
+			putDecimal(null, d);
+		endArray();
+	}
+
+	/** {@inheritDoc} */
+	public void putDataValue(String fieldName, DataValue v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putVariant("Value", v.getValue());
+		if (v.getStatusCodeBits() != 0)
+			putStatusCode("Status", v.getStatusCode());
+		long sourceTimestamp = v.getSourceTimestampTicks();
+		if (sourceTimestamp != 0)
+			putDateTime("SourceTimestamp", sourceTimestamp);
+		if (v.getSourcePicos() != 0)
+			putLong("SourcePicoseconds", v.getSourcePicos());
+		long serverTimestamp = v.getServerTimestampTicks();
+		if (serverTimestamp != 0)
+			putDateTime("ServerTimestamp", serverTimestamp);
+		if (v.getServerPicos() != 0)
+			putLong("ServerPicoseconds", v.getServerPicos());
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putDataValueArray(String fieldName, DataValue[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 23, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDataValueArray(String fieldName, Collection<DataValue> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 23, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The reversible form is an object of the built-in Type, the Body and
+	 * the Dimensions of a multi-dimension array, whose elements are written
+	 * to the Body in row-major order. The non-reversible form is the value
+	 * only, multi-dimension arrays as nested arrays.
+	 */
+	public void putVariant(String fieldName, Variant v)
+	throws EncodingException
+	{
+		if (v != null && !v.isPrimitive() && v.getValue() == null)
+			v = null;
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		final int builtinType = v.getBuiltinTypeId();
+		if (builtinType <= 0)
+			throw new EncodingException("Non-suitable composite class for Variant: "+v.getCompositeClass());
+		final int dim = v.getDimension();
+		// Variants backed by primitive arrays are written without boxing
+		final Object array = v.isPrimitive() ? v.getPrimitiveArray() : v.getValue();
+		if (!reversible) {
+			if (dim == 0)
+				putScalar(fieldName, builtinType, v.getValue());
+			else if (dim == 1)
+				putArray(fieldName, builtinType, array);
+			else {
+				int[] dims = v.getArrayDimensions();
+				assertArrayLength(MultiDimensionArrayUtils.getLength(dims));
+				writeFieldName(fieldName);
+				if (v.isPrimitive())
+					putNestedPrimitiveElements(array, dims, 0, 0);
+				else
+					putNestedElements((Object[]) array, dims, 0, builtinType);
+			}
+			return;
+		}
+
+		writeFieldName(fieldName);
+		startObject();
+		putLong("Type", builtinType);
+		if (dim == 0)
+			putScalar("Body", builtinType, v.getValue());
+		else if (dim == 1)
+			putArray("Body", builtinType, array);
+		else {
+			int[] dims = v.getArrayDimensions();
+			int length = MultiDimensionArrayUtils.getLength(dims);
+			assertArrayLength(length);
+			writeFieldName("Body");
+			startArray();
+			if (v.isPrimitive())
+				putPrimitiveElements(array, 0, length);
+			else
+				putFlatElements((Object[]) array, dims, 0, builtinType);
+			endArray();
+			putInt32Array("Dimensions", dims);
+		}
+		endObject();
+	}
+
+	/**
+	 * Write the elements of a multi-dimension array in row-major order
+	 * to the current array.
+	 *
+	 * @param array array of the given depth
+	 * @param dims dimensions of the whole array
+	 * @param level depth of array
+	 * @param builtinType builtin type of the elements
+	 * @throws EncodingException if the inner arrays do not match the dimensions
+	 */
+	private void putFlatElements(Object[] array, int[] dims, int level, int builtinType)
+	throws EncodingException
+	{
+		if (array == null || array.length != dims[level])
+			throw new EncodingException("The dimensions of inner array elements of a multi-dimension variable must be equal in length");
+		if (level < dims.length - 1) {
+			for (Object inner : array)
+				putFlatElements((Object[]) inner, dims, level + 1, builtinType);
+			return;
+		}
+		for (Object elem : array)
+			putScalar(null, builtinType, elem);
+	}
+
+	/**
+	 * Write a multi-dimension array as nested arrays.
+	 */
+	private void putNestedElements(Object[] array, int[] dims, int level, int builtinType)
+	throws EncodingException
+	{
+		if (array == null || array.length != dims[level])
+			throw new EncodingException("The dimensions of inner array elements of a multi-dimension variable must be equal in length");
+		startArray();
+		for (Object elem : array) {
+			if (level < dims.length - 1) {
+				writeFieldName(null);
+				putNestedElements((Object[]) elem, dims, level + 1, builtinType);
+			} else
+				putScalar(null, builtinType, elem);
+		}
+		endArray();
+	}
+
+	/**
+	 * Write a flat primitive array in row-major order as nested arrays.
+	 *
+	 * @return offset of the next element
+	 */
+	private int putNestedPrimitiveElements(Object array, int[] dims, int level, int offset)
+	throws EncodingException
+	{
+		startArray();
+		if (level == dims.length - 1) {
+			putPrimitiveElements(array, offset, dims[level]);
+			offset += dims[level];
+		} else {
+			for (int i = 0; i < dims[level]; i++) {
+				writeFieldName(null);
+				offset = putNestedPrimitiveElements(array, dims, level + 1, offset);
+			}
+		}
+		endArray();
+		return offset;
+	}
+
+	/** {@inheritDoc} */
+	public void putVariantArray(String fieldName, Variant[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 24, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putVariantArray(String fieldName, Collection<Variant> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 24, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDiagnosticInfoArray(String fieldName, DiagnosticInfo[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 25, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDiagnosticInfoArray(String fieldName, Collection<DiagnosticInfo> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 25, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDiagnosticInfo(String fieldName, DiagnosticInfo v)
+	throws EncodingException
+	{
+		if (v == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		putInt32("SymbolicId", v.getSymbolicId());
+		putInt32("NamespaceUri", v.getNamespaceUri());
+		putInt32("Locale", v.getLocale());
+		putInt32("LocalizedText", v.getLocalizedText());
+		putString("AdditionalInfo", v.getAdditionalInfo());
+		putStatusCode("InnerStatusCode", v.getInnerStatusCode());
+		putDiagnosticInfo("InnerDiagnosticInfo", v.getInnerDiagnosticInfo());
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	public void putEnumerationArray(String fieldName, Object array)
+	throws EncodingException
+	{
+		if (array == null) {
+			putNull(fieldName);
+			return;
+		}
+		int length = Array.getLength(array);
+		assertArrayLength(length);
+		writeFieldName(fieldName);
+		startArray();
+		for (int i = 0; i < length; i++)
+			putEnumeration(null, (Enumeration) Array.get(array, i));
+		endArray();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The non-reversible form is a string of Name_Value, e.g. "Running_0".
+	 */
+	public void putEnumeration(String fieldName, Enumeration v)
+	throws EncodingException
+	{
+		if (v == null)
+			putNull(fieldName);
+		else if (!reversible && v instanceof Enum)
+			putText(fieldName, ((Enum<?>) v).name() + "_" + v.getValue());
+		else
+			putLong(fieldName, v.getValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putObject(String fieldName, Object o)
+	throws EncodingException
+	{
+		if (o==null) throw new EncodingException("Cannot encode null value");
+		putObject(fieldName, o.getClass(), o);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	public void putObject(String fieldName, Class<?> c, Object o)
+	throws EncodingException
+	{
+		Integer bt = BuiltinsMap.ID_MAP.get(c);
+		boolean array = c.isArray();
+		if (bt!=null) {
+			if (array)
+				putArray(fieldName, bt, o);
+			else
+				putScalar(fieldName, bt, o);
+			return;
+		}
+
+		if (!array && Enumeration.class.isAssignableFrom(c)) {
+			putEnumeration(fieldName, (Enumeration)o);
+			return;
+		}
+
+		if (array && Enumeration.class.isAssignableFrom(c.getComponentType())) {
+			putEnumerationArray(fieldName, o);
+			return;
+		}
+
+		if (array)
+			putEncodeableArray(fieldName, (Class<? extends IEncodeable>)c.getComponentType(), o);
+		else
+			putEncodeable(fieldName, (Class<? extends IEncodeable>) c, (IEncodeable)o);
+	}
+
+	/** {@inheritDoc} */
+	public void putScalar(String fieldName, int builtinType, Object o)
+	throws EncodingException
+	{
+		switch (builtinType) {
+		case 1: putBoolean(fieldName, (Boolean) o); break;
+		case 2: putSByte(fieldName, (Byte) o); break;
+		case 3: putByte(fieldName, (UnsignedByte) o); break;
+		case 4: putInt16(fieldName, (Short) o); break;
+		case 5: putUInt16(fieldName, (UnsignedShort) o); break;
+		case 6: putInt32(fieldName, (Integer) o); break;
+		case 7: putUInt32(fieldName, (UnsignedInteger) o); break;
+		case 8: putInt64(fieldName, (Long) o); break;
+		case 9: putUInt64(fieldName, (UnsignedLong) o); break;
+		case 10: putFloat(fieldName, (Float) o); break;
+		case 11: putDouble(fieldName, (Double) o); break;
+		case 12: putString(fieldName, (String) o); break;
+		case 13: putDateTime(fieldName, (DateTime) o); break;
+		case 14: putGuid(fieldName, (UUID) o); break;
+		case 15: putByteString(fieldName, (ByteString) o); break;
+		case 16: putXmlElement(fieldName, (XmlElement) o); break;
+		case 17: putNodeId(fieldName, (NodeId) o); break;
+		case 18: putExpandedNodeId(fieldName, (ExpandedNodeId) o); break;
+		case 19: putStatusCode(fieldName, (StatusCode) o); break;
+		case 20: putQualifiedName(fieldName, (QualifiedName) o); break;
+		case 21: putLocalizedText(fieldName, (LocalizedText) o); break;
+		case 22: {
+			if (o instanceof Structure)
+				putStructure(fieldName, (Structure) o);
+			else if (o instanceof BigDecimal)
+				putDecimal(fieldName, (BigDecimal) o);
+			else
+				putExtensionObject(fieldName, (ExtensionObject) o);
+			break;
+		}
+		case 23: putDataValue(fieldName, (DataValue) o); break;
+		case 24: putVariant(fieldName, (Variant) o); break;
+		case 25: putDiagnosticInfo(fieldName, (DiagnosticInfo) o); break;
+		default: throw new EncodingException("cannot encode builtin type "+builtinType);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putArray(String fieldName, int builtinType, Object o)
+	throws EncodingException
+	{
+		switch (builtinType) {
+		case 1: putBooleanArray(fieldName, (Boolean[]) o); break;
+		case 2: putSByteArray(fieldName, (Byte[]) o); break;
+		case 3: putByteArray(fieldName, (UnsignedByte[]) o); break;
+		case 4:
+			if (o instanceof short[]) putInt16Array(fieldName, (short[]) o);
+			else putInt16Array(fieldName, (Short[]) o);
+			break;
+		case 5: putUInt16Array(fieldName, (UnsignedShort[]) o); break;
+		case 6:
+			if (o instanceof int[]) putInt32Array(fieldName, (int[]) o);
+			else putInt32Array(fieldName, (Integer[]) o);
+			break;
+		case 7: putUInt32Array(fieldName, (UnsignedInteger[]) o); break;
+		case 8:
+			if (o instanceof long[]) putInt64Array(fieldName, (long[]) o);
+			else putInt64Array(fieldName, (Long[]) o);
+			break;
+		case 9: putUInt64Array(fieldName, (UnsignedLong[]) o); break;
+		case 10:
+			if (o instanceof float[]) putFloatArray(fieldName, (float[]) o);
+			else putFloatArray(fieldName, (Float[]) o);
+			break;
+		case 11:
+			if (o instanceof double[]) putDoubleArray(fieldName, (double[]) o);
+			else putDoubleArray(fieldName, (Double[]) o);
+			break;
+		case 12: putStringArray(fieldName, (String[]) o); break;
+		case 13: putDateTimeArray(fieldName, (DateTime[]) o); break;
+		case 14: putGuidArray(fieldName, (UUID[]) o); break;
+		case 15: putByteStringArray(fieldName, (ByteString[]) o); break;
+		case 16: putXmlElementArray(fieldName, (XmlElement[]) o); break;
+		case 17: putNodeIdArray(fieldName, (NodeId[]) o); break;
+		case 18: putExpandedNodeIdArray(fieldName, (ExpandedNodeId[]) o); break;
+		case 19: putStatusCodeArray(fieldName, (StatusCode[]) o); break;
+		case 20: putQualifiedNameArray(fieldName, (QualifiedName[]) o); break;
+		case 21: putLocalizedTextArray(fieldName, (LocalizedText[]) o); break;
+		case 22: {
+			if (o instanceof ExtensionObject[])
+				putExtensionObjectArray(fieldName, (ExtensionObject[]) o);
+			else if (o instanceof Structure[])
+				putStructureArray(fieldName, (Structure[]) o);
+			else if (o instanceof BigDecimal[])
+				putDecimalArray(fieldName, (BigDecimal[]) o);
+			else throw new EncodingException("cannot encode "+o);
+			break;
+		}
+		case 23: putDataValueArray(fieldName, (DataValue[]) o); break;
+		case 24: putVariantArray(fieldName, (Variant[]) o); break;
+		case 25: putDiagnosticInfoArray(fieldName, (DiagnosticInfo[]) o); break;
+		default: throw new EncodingException("cannot encode builtin type "+builtinType);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putEncodeableArray(String fieldName, Class<? extends IEncodeable> clazz, Object array)
+	throws EncodingException
+	{
+		if (array == null) {
+			putNull(fieldName);
+			return;
+		}
+		int length = Array.getLength(array);
+		assertArrayLength(length);
+		writeFieldName(fieldName);
+		startArray();
+		for (int i=0; i<length; i++)
+			putEncodeable(null, clazz, (IEncodeable)Array.get(array, i));
+		endArray();
+	}
+
+	/** {@inheritDoc} */
+	public void putEncodeable(String fieldName, IEncodeable s)
+	throws EncodingException
+	{
+		if (s == null)
+			putNull(fieldName);
+		else
+			putEncodeable(fieldName, s.getClass(), s);
+	}
+
+	/** {@inheritDoc} */
+	public void putEncodeable(String fieldName, Class<? extends IEncodeable> clazz, IEncodeable s)
+	throws EncodingException
+	{
+		if (s == null) {
+			putNull(fieldName);
+			return;
+		}
+		writeFieldName(fieldName);
+		startObject();
+		ctx.getEncodeableSerializer().putEncodeable(clazz, s, this);
+		endObject();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The message is written as an object of the TypeId of its data type
+	 * and the Body of its fields.
+	 */
+	@SuppressWarnings("unchecked")
+	public void putMessage(IEncodeable s)
+	throws EncodingException
+	{
+		Class<IEncodeable> clazz = (Class<IEncodeable>) s.getClass();
+		NodeId typeId;
+		if (s instanceof Structure)
+			typeId = ctx.toNodeId(((Structure) s).getTypeId());
+		else {
+			try {
+				typeId = ctx.getEncodeableNodeId(clazz, null);
+			} catch (ServiceResultException e) {
+				throw new EncodingException(e);
+			}
+		}
+		writeFieldName(null);
+		startObject();
+		putNodeId("TypeId", typeId);
+		putEncodeable("Body", clazz, s);
+		endObject();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(String fieldName, Object o) throws EncodingException {
+		if(o == null){
+			throw new EncodingException("Cannot encode null object without Class information, use the overload that takes Class parameter");
+		}
+		put(fieldName, o, o.getClass());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Multi-dimension arrays are written as nested arrays.
+	 */
+	@Override
+	public void put(String fieldName, Object o, Class<?> clazz) throws EncodingException {
+		// NOTE! the Object o is allowed to be null
+		final Class<?> componentType = MultiDimensionArrayUtils.getComponentType(clazz);
+		int dims = MultiDimensionArrayUtils.getClassDimensions(clazz);
+		if (dims == 0)
+			putValue(fieldName, o, componentType);
+		else
+			putNestedArray(fieldName, (Object[]) o, dims, componentType);
+	}
+
+	private void putNestedArray(String fieldName, Object[] array, int dims, Class<?> componentType)
+	throws EncodingException
+	{
+		if (array == null) {
+			putNull(fieldName);
+			return;
+		}
+		assertArrayLength(array.length);
+		writeFieldName(fieldName);
+		startArray();
+		for (Object elem : array) {
+			if (dims > 1)
+				putNestedArray(null, (Object[]) elem, dims - 1, componentType);
+			else
+				putValue(null, elem, componentType);
+		}
+		endArray();
+	}
+
+	/**
+	 * Write a scalar value of the given class, the counterpart of {@link JsonDecoder#get(String, Class)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private void putValue(String fieldName, Object o, Class<?> clazz)
+	throws EncodingException
+	{
+		Integer bt = BuiltinsMap.ID_MAP.get(clazz);
+		if (bt != null)
+			putScalar(fieldName, bt, o);
+		else if (Structure.class.isAssignableFrom(clazz))
+			putEncodeable(fieldName, (Class<? extends IEncodeable>) clazz, (IEncodeable) o);
+		else if (Enumeration.class.isAssignableFrom(clazz))
+			putEnumeration(fieldName, (Enumeration) o);
+		else if (BigDecimal.class.equals(clazz))
+			putDecimal(fieldName, (BigDecimal) o);
+		else if (Object.class.equals(clazz))
+			putVariant(fieldName, o == null ? null : new Variant(o));
+		else
+			throw new EncodingException("Cannot encode " + clazz);
+	}
+
+}
@@ -15,11 +15,15 @@ package org.opcfoundation.ua.encoding.utils;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.common.NamespaceTable;
+import org.opcfoundation.ua.core.IdType;
 import org.opcfoundation.ua.encoding.DecodingException;
 import org.opcfoundation.ua.encoding.EncodeType;
 import org.opcfoundation.ua.encoding.EncodingException;
@@ -30,15 +34,42 @@ import org.opcfoundation.ua.encoding.binary.IEncodeableSerializer;
 
 /**
  * A collection of serializers for Structure types. Used by the encoders and decoders.
+ * <p>
+ * Numeric ids of the standard namespace are resolved by indexing an array
+ * with the identifier, other ids are resolved with a map lookup. Classes are
+ * resolved with an identity map and a cache of the previously used class, as
+ * arrays of Structures typically repeat the same class.
  */
 public class SerializerComposition implements IEncodeableSerializer {
 
-	Map<Class<? extends IEncodeable>, IEncodeableSerializer> serializers = new HashMap<Class<? extends IEncodeable>, IEncodeableSerializer>();
+	/** Numeric standard namespace ids above this are not put in the id table */
+	static final int MAX_TABLE_ID = 0xffff;
+
+	/**
+	 * Serializer and encoding ids of a class
+	 */
+	static class Entry {
+		final Class<? extends IEncodeable> clazz;
+		final IEncodeableSerializer serializer;
+		final ExpandedNodeId binId;
+		final ExpandedNodeId xmlId;
+
+		Entry(Class<? extends IEncodeable> clazz, IEncodeableSerializer serializer, ExpandedNodeId binId, ExpandedNodeId xmlId) {
+			this.clazz = clazz;
+			this.serializer = serializer;
+			this.binId = binId;
+			this.xmlId = xmlId;
+		}
+	}
+
+	Map<Class<? extends IEncodeable>, Entry> entries = new IdentityHashMap<Class<? extends IEncodeable>, Entry>();
 	Map<ExpandedNodeId, Class<? extends IEncodeable>> idToClass = new HashMap<ExpandedNodeId, Class<? extends IEncodeable>>();
-	Map<Class<? extends IEncodeable>, ExpandedNodeId> classToBinId = new HashMap<Class<? extends IEncodeable>, ExpandedNodeId>();
-	Map<Class<? extends IEncodeable>, ExpandedNodeId> classToXmlId = new HashMap<Class<? extends IEncodeable>, ExpandedNodeId>();
 	Set<ExpandedNodeId> nodeIds = idToClass.keySet();
-	Set<Class<? extends IEncodeable>> classes = classToBinId.keySet();
+	Set<Class<? extends IEncodeable>> classes = entries.keySet();
+	/** Classes of numeric standard namespace ids, indexed with the identifier */
+	volatile Class<?>[] ns0IdToClass = new Class<?>[0];
+	/** The entry that was looked up last */
+	volatile Entry lastEntry;
 
 	/**
 	 * <p>Constructor for SerializerComposition.</p>
@@ -58,18 +89,16 @@ public class SerializerComposition implements IEncodeableSerializer {
 		for (Class<? extends IEncodeable> clazz : classes)
 		{
 			ExpandedNodeId binId = serializer.getNodeId(clazz, EncodeType.Binary);
-			classToBinId.put(clazz, binId);
 			ExpandedNodeId xmlId = serializer.getNodeId(clazz, EncodeType.Xml);
-			classToXmlId.put(clazz, xmlId);
-			serializers.put(clazz, serializer);
+			entries.put(clazz, new Entry(clazz, serializer, binId, xmlId));
 			if (binId!=null) 
-				idToClass.put(binId, clazz);			
+				putId(binId, clazz);			
 			if (xmlId!=null) 
-				idToClass.put(xmlId, clazz);		
+				putId(xmlId, clazz);		
 			try{
 				ExpandedNodeId nodeId = serializer.getNodeId(clazz, null);
 				if(nodeId != null){
-					idToClass.put(nodeId, clazz);
+					putId(nodeId, clazz);
 				}
 			}catch(Exception e){
 				/*
@@ -80,41 +109,94 @@ public class SerializerComposition implements IEncodeableSerializer {
 				 */
 			}
 		}
+		lastEntry = null;
+	}
+
+	private void putId(ExpandedNodeId id, Class<? extends IEncodeable> clazz) {
+		idToClass.put(id, clazz);
+		int index = toTableIndex(id);
+		if (index < 0)
+			return;
+		Class<?>[] table = ns0IdToClass;
+		if (index >= table.length) {
+			Class<?>[] newTable = new Class<?>[Math.min(MAX_TABLE_ID + 1, Math.max(index + 1, table.length + (table.length >> 1)))];
+			System.arraycopy(table, 0, newTable, 0, table.length);
+			table = newTable;
+		}
+		table[index] = clazz;
+		ns0IdToClass = table;
+	}
+
+	/**
+	 * Get the index of the id in the standard namespace id table
+	 *
+	 * @param id the id
+	 * @return index or -1 if the id is not a numeric id of the standard namespace
+	 */
+	private static int toTableIndex(ExpandedNodeId id) {
+		if (id.getIdType() != IdType.Numeric || !id.isLocal())
+			return -1;
+		String uri = id.getNamespaceUri();
+		if (uri != NamespaceTable.OPCUA_NAMESPACE && (uri == null || !uri.equals(NamespaceTable.OPCUA_NAMESPACE)))
+			return -1;
+		long value = ((UnsignedInteger) id.getValue()).longValue();
+		return value <= MAX_TABLE_ID ? (int) value : -1;
+	}
+
+	private Entry getEntry(Class<? extends IEncodeable> clazz) {
+		Entry e = lastEntry;
+		if (e != null && e.clazz == clazz)
+			return e;
+		e = entries.get(clazz);
+		if (e != null)
+			lastEntry = e;
+		return e;
 	}
 
 	/** {@inheritDoc} */
 	public void putEncodeable(Class<? extends IEncodeable> clazz, IEncodeable encodeable, IEncoder encoder) throws EncodingException {
-		IEncodeableSerializer s = serializers.get(clazz);
-		if (s==null) throw new EncodingException("Cannot encode "+clazz);
-		s.putEncodeable(clazz, encodeable, encoder);
+		Entry e = getEntry(clazz);
+		if (e==null) throw new EncodingException("Cannot encode "+clazz);
+		e.serializer.putEncodeable(clazz, encodeable, encoder);
 	}
 	
 	/** {@inheritDoc} */
 	public void calcEncodeable(Class<? extends IEncodeable> clazz, IEncodeable encodeable, IEncoder calculator)
 	throws EncodingException {
-		IEncodeableSerializer s = serializers.get(clazz);
-		if (s==null) throw new EncodingException("Cannot encode "+clazz);
-		s.calcEncodeable(clazz, encodeable, calculator);		
+		Entry e = getEntry(clazz);
+		if (e==null) throw new EncodingException("Cannot encode "+clazz);
+		e.serializer.calcEncodeable(clazz, encodeable, calculator);		
 	}
 
 	/** {@inheritDoc} */
 	public IEncodeable getEncodeable(Class<? extends IEncodeable> clazz, IDecoder decoder) throws DecodingException {
-		IEncodeableSerializer s = serializers.get(clazz);
-		if (s==null) throw new DecodingException("Cannot decode "+clazz);
-		return s.getEncodeable(clazz, decoder);
+		Entry e = getEntry(clazz);
+		if (e==null) throw new DecodingException("Cannot decode "+clazz);
+		return e.serializer.getEncodeable(clazz, decoder);
 	}
 
 	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
 	public Class<? extends IEncodeable> getClass(ExpandedNodeId id) {
+		if (id == null)
+			return null;
+		int index = toTableIndex(id);
+		if (index >= 0) {
+			Class<?>[] table = ns0IdToClass;
+			return index < table.length ? (Class<? extends IEncodeable>) table[index] : null;
+		}
 		return idToClass.get(id);
 	}
 	
 	/** {@inheritDoc} */
 	public ExpandedNodeId getNodeId(Class<? extends IEncodeable> clazz, EncodeType type) {
+		Entry e = getEntry(clazz);
+		if (e == null)
+			return null;
 		if (type == EncodeType.Binary)
-			return classToBinId.get(clazz);
+			return e.binId;
 		if (type == EncodeType.Xml)
-			return classToXmlId.get(clazz);
+			return e.xmlId;
 		return null;
 	}
 
@@ -11,6 +11,7 @@
  */
 package org.opcfoundation.ua.encoding.xml;
 
+import java.io.InputStream;
 import java.io.StringReader;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
@@ -19,14 +20,19 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import org.opcfoundation.ua.builtintypes.BuiltinsMap;
 import org.opcfoundation.ua.builtintypes.ByteString;
 import org.opcfoundation.ua.builtintypes.DataValue;
 import org.opcfoundation.ua.builtintypes.DateTime;
@@ -54,6 +60,7 @@ import org.opcfoundation.ua.encoding.DecodingException;
 import org.opcfoundation.ua.encoding.EncoderContext;
 import org.opcfoundation.ua.encoding.IDecoder;
 import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.binary.IEncodeableSerializer;
 import org.opcfoundation.ua.utils.CryptoUtil;
 import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
 import org.opcfoundation.ua.utils.XMLFactoryCache;
@@ -73,6 +80,31 @@ public class XmlDecoder implements IDecoder {
 	private static final String XML_SCHEMA_INSTANCE = "http://www.w3.org/2001/XMLSchema-instance";
 	private static final String EMPTY_STRING = "";
 	private static final String OPC_UA_XSD_NAMESPACE = "http://opcfoundation.org/UA/2008/02/Types.xsd";
+	/** Element names of the built-in types, indexed by built-in type id */
+	private static final String[] TYPE_NAMES = {
+		null, "Boolean", "SByte", "Byte", "Int16", "UInt16", "Int32", "UInt32", "Int64", "UInt64",
+		"Float", "Double", "String", "DateTime", "Guid", "ByteString", "XmlElement", "NodeId",
+		"ExpandedNodeId", "StatusCode", "QualifiedName", "LocalizedText", "ExtensionObject",
+		"DataValue", "Variant", "DiagnosticInfo"};
+	/** Variant content element name -&gt; built-in type id, negated for ListOf elements */
+	private static final Map<String, Integer> VARIANT_ELEMENTS = new HashMap<String, Integer>();
+	/** Class -&gt; decoding kind, resolved once per class by {@link #get(String, Class)} */
+	private static final ConcurrentMap<Class<?>, Integer> CLASS_KINDS = new ConcurrentHashMap<Class<?>, Integer>();
+	// Decoding kinds that are not built-in type ids; KIND_ARRAY is or'ed for one dimensional arrays
+	private static final int KIND_OBJECT = 0x20;
+	private static final int KIND_STRUCTURE = 0x21;
+	private static final int KIND_ENUMERATION = 0x22;
+	private static final int KIND_DECIMAL = 0x23;
+	private static final int KIND_ARRAY = 0x100;
+
+	static {
+		for (int i = 1; i < TYPE_NAMES.length; i++) {
+			// A Variant cannot directly contain a scalar Variant
+			if (i != 24)
+				VARIANT_ELEMENTS.put(TYPE_NAMES[i], i);
+			VARIANT_ELEMENTS.put("ListOf" + TYPE_NAMES[i], -i);
+		}
+	}
 
 	static Logger logger = LoggerFactory.getLogger(XmlDecoder.class);
 
@@ -89,6 +121,8 @@ public class XmlDecoder implements IDecoder {
 
 	private UnsignedShort[] serverMappings;
 
+	/** Decode XML bodies of ExtensionObjects in place from the reader */
+	private boolean streaming;
 
 	/// <summary>
 	/// Initializes the object with an XML element to parse.
@@ -106,13 +140,29 @@ public class XmlDecoder implements IDecoder {
 			throw new NullPointerException("context");
 		initialize();
 		try {
-			this.reader  = XMLFactoryCache.getXMLInputFactory().createXMLStreamReader(new StringReader(element.toString()));
+			// Parse the document form directly; toString() would build and serialize a DOM first
+			String document = element.getValue();
+			if (document.startsWith(XmlElement.UTF8_BOM))
+				document = document.substring(XmlElement.UTF8_BOM.length());
+			this.reader  = XMLFactoryCache.getXMLInputFactory().createXMLStreamReader(new StringReader(document));
 		} catch (XMLStreamException e) {
 			throw new DecodingException(e);
 		}
 		this.encoderContext = context;
 	}
 
+	/**
+	 * Constructor for XmlDecoder. The document is read from the stream as it is decoded.
+	 *
+	 * @param in a {@link java.io.InputStream} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 * @throws org.opcfoundation.ua.encoding.DecodingException if any.
+	 */
+	public XmlDecoder(InputStream in, EncoderContext context) throws DecodingException
+	{
+		this(createReader(in), context);
+	}
+
 	/// <summary>
 	/// Initializes the object with an XML element to parse.
 	/// </summary>
@@ -132,6 +182,40 @@ public class XmlDecoder implements IDecoder {
 		this.encoderContext = context;
 	}
 
+	private static XMLStreamReader createReader(InputStream in) throws DecodingException
+	{
+		try {
+			return XMLFactoryCache.getXMLInputFactory().createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			throw new DecodingException(e);
+		}
+	}
+
+	/**
+	 * Whether the decoder is in streaming mode.
+	 *
+	 * @return true if XML bodies of ExtensionObjects are decoded in place
+	 * @see #setStreaming(boolean)
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * Set streaming mode. In streaming mode the XML body of an ExtensionObject of
+	 * a known type is decoded directly from the reader of the enclosing document,
+	 * instead of being copied into an {@link XmlElement} and parsed again by a
+	 * separate decoder. This keeps decoding of large documents linear, but since
+	 * the reader cannot be rewound, a body that fails to decode fails the whole
+	 * decoding, whereas otherwise the ExtensionObject is returned undecoded.
+	 * Bodies of unknown types are returned as an XmlElement in both modes.
+	 *
+	 * @param streaming true to decode XML bodies of ExtensionObjects in place
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 	/// <summary>
 	/// Closes the stream used for reading.
 	/// </summary>
@@ -176,186 +260,64 @@ public class XmlDecoder implements IDecoder {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T get(String fieldName, Class<T> clazz) throws DecodingException {
-		if (clazz.equals(Boolean.class)) {
-			return (T) getBoolean(fieldName);
-		}
-		if (clazz.equals(Byte.class)) {
-			return (T) getSByte(fieldName);
-		}
-		if (clazz.equals(UnsignedByte.class)) {
-			return (T) getByte(fieldName);
-		}
-		if (clazz.equals(Short.class)) {
-			return (T) getInt16(fieldName);
-		}
-		if (clazz.equals(UnsignedShort.class)) {
-			return (T) getUInt16(fieldName);
-		}
-		if (clazz.equals(Integer.class)) {
-			return (T) getInt32(fieldName);
-		}
-		if (clazz.equals(UnsignedInteger.class)) {
-			return (T) getUInt32(fieldName);
-		}
-		if (clazz.equals(Long.class)) {
-			return (T) getInt64(fieldName);
-		}
-		if (clazz.equals(UnsignedLong.class)) {
-			return (T) getUInt64(fieldName);
-		}
-		if (clazz.equals(Float.class)) {
-			return (T) getFloat(fieldName);
-		}
-		if (clazz.equals(Double.class)) {
-			return (T) getDouble(fieldName);
-		}
-		if (clazz.equals(String.class)) {
-			return (T) getString(fieldName);
-		}
-		if (clazz.equals(DateTime.class)) {
-			return (T) getDateTime(fieldName);
-		}
-		if (clazz.equals(UUID.class)) {
-			return (T) getGuid(fieldName);
-		}
-		if (clazz.equals(ByteString.class)) {
-			return (T) getByteString(fieldName);
-		}
-		if (clazz.equals(XmlElement.class)) {
-			return (T) getXmlElement(fieldName);
-		}
-		if (clazz.equals(NodeId.class)) {
-			return (T) getNodeId(fieldName);
-		}
-		if (clazz.equals(ExpandedNodeId.class)) {
-			return (T) getExpandedNodeId(fieldName);
-		}
-		if (clazz.equals(StatusCode.class)) {
-			return (T) getStatusCode(fieldName);
-		}
-		if (clazz.equals(QualifiedName.class)) {
-			return (T) getQualifiedName(fieldName);
-		}
-		if (clazz.equals(LocalizedText.class)) {
-			return (T) getLocalizedText(fieldName);
-		}
-		if (clazz.equals(ExtensionObject.class)) {
-			return (T) getExtensionObject(fieldName);
-		}
-		if (Structure.class.isAssignableFrom(clazz)) {
-			return (T) getEncodeable(fieldName, (Class<? extends IEncodeable>) clazz);
-		}
-		if (clazz.equals(DataValue.class)) {
-			return (T) getDataValue(fieldName);
-		}
-		if (clazz.equals(Variant.class)) {
-			return (T) getVariant(fieldName);
-		}
-		if (clazz.equals(Object.class)) {
+		int kind = getKind(clazz);
+		switch (kind) {
+		case KIND_OBJECT:
 			return (T) getVariant(fieldName).getValue();
-		}
-		if (clazz.equals(DiagnosticInfo.class)) {
-			return (T) getDiagnosticInfo(fieldName);
-		}
-		if (clazz.equals(Boolean[].class)) {
-			return (T) getBooleanArray(fieldName);
-		}
-		if (clazz.equals(Byte[].class)) {
-			return (T) getSByteArray(fieldName);
-		}
-		if (clazz.equals(UnsignedByte[].class)) {
-			return (T) getByteArray(fieldName);
-		}
-		if (clazz.equals(Short[].class)) {
-			return (T) getInt16Array(fieldName);
-		}
-		if (clazz.equals(UnsignedShort[].class)) {
-			return (T) getUInt16Array(fieldName);
-		}
-		if (clazz.equals(Integer[].class)) {
-			return (T) getInt32Array(fieldName);
-		}
-		if (clazz.equals(UnsignedInteger[].class)) {
-			return (T) getUInt32Array(fieldName);
-		}
-		if (clazz.equals(Long[].class)) {
-			return (T) getInt64Array(fieldName);
-		}
-		if (clazz.equals(UnsignedLong[].class)) {
-			return (T) getUInt64Array(fieldName);
-		}
-		if (clazz.equals(Float[].class)) {
-			return (T) getFloatArray(fieldName);
-		}
-		if (clazz.equals(Double[].class)) {
-			return (T) getDoubleArray(fieldName);
-		}
-		if (clazz.equals(String[].class)) {
-			return (T) getStringArray(fieldName);
-		}
-		if (clazz.equals(DateTime[].class)) {
-			return (T) getDateTimeArray(fieldName);
-		}
-		if (clazz.equals(UUID[].class)) {
-			return (T) getGuidArray(fieldName);
-		}
-		if (clazz.equals(ByteString[].class)) {
-			return (T) getByteStringArray(fieldName);
-		}
-		if (clazz.equals(XmlElement[].class)) {
-			return (T) getXmlElementArray(fieldName);
-		}
-		if (clazz.equals(NodeId[].class)) {
-			return (T) getNodeIdArray(fieldName);
-		}
-		if (clazz.equals(ExpandedNodeId[].class)) {
-			return (T) getExpandedNodeIdArray(fieldName);
-		}
-		if (clazz.equals(StatusCode[].class)) {
-			return (T) getStatusCodeArray(fieldName);
-		}
-		if (clazz.equals(QualifiedName[].class)) {
-			return (T) getQualifiedNameArray(fieldName);
-		}
-		if (clazz.equals(LocalizedText[].class)) {
-			return (T) getLocalizedTextArray(fieldName);
-		}
-		if (clazz.equals(ExtensionObject[].class)) {
-			return (T) getExtensionObjectArray(fieldName);
-		}
-		if (clazz.getComponentType() != null && Structure.class.isAssignableFrom(clazz.getComponentType())) {
-			final Class<? extends Structure> param = (Class<? extends Structure>) clazz.getComponentType();
-			Structure[] r = getEncodeableArray(fieldName, param);
-			return (T) r;
-		}
-		if (clazz.equals(DataValue[].class)) {
-			return (T) getDataValueArray(fieldName);
-		}
-		if (clazz.equals(Variant[].class)) {
-			return (T) getVariantArray(fieldName);
-		}
-		if (clazz.equals(Object[].class)) {
+		case KIND_OBJECT | KIND_ARRAY:
 			Variant[] varArray = getVariantArray(fieldName);
 			Object[] objArray = new Object[varArray.length];
 			for (int i = 0; i < varArray.length; i++)
 				objArray[i] = varArray[i].getValue();
 			return (T) objArray;
-		}
-		if (clazz.equals(DiagnosticInfo[].class)) {
-			return (T) getDiagnosticInfoArray(fieldName);
-		}
-		if (Enumeration.class.isAssignableFrom(clazz)) {
+		case KIND_STRUCTURE:
+			return (T) getEncodeable(fieldName, (Class<? extends IEncodeable>) clazz);
+		case KIND_STRUCTURE | KIND_ARRAY:
+			return (T) getEncodeableArray(fieldName, (Class<? extends Structure>) clazz.getComponentType());
+		case KIND_ENUMERATION:
 			return (T) getEnumeration(fieldName, (Class<? extends Enumeration>) clazz);
-		}
-		if (clazz.getComponentType() != null && Enumeration.class.isAssignableFrom(clazz.getComponentType())) {
-			return (T) getEnumerationArray(fieldName, (Class<? extends Enumeration>) clazz);
-		}
-		if(clazz.equals(BigDecimal.class)) {
+		case KIND_ENUMERATION | KIND_ARRAY:
+			return (T) getEnumerationArray(fieldName, (Class<? extends Enumeration>) clazz.getComponentType());
+		case KIND_DECIMAL:
 			return (T) getDecimal(fieldName);
-		}
-		if(clazz.equals(BigDecimal[].class)) {
+		case KIND_DECIMAL | KIND_ARRAY:
 			return (T) getDecimalArray(fieldName);
 		}
+		if ((kind & KIND_ARRAY) != 0)
+			return (T) getArrayObject(fieldName, kind & ~KIND_ARRAY);
+		return (T) getScalarObject(fieldName, kind);
+	}
+
+	/**
+	 * Get the decoding kind of a class: either a built-in type id or one of the
+	 * KIND_ constants, with KIND_ARRAY set for arrays. Resolved kinds are cached,
+	 * so that decoding a field does not need to test the class against every
+	 * supported type.
+	 */
+	private static int getKind(Class<?> clazz) throws DecodingException {
+		Integer kind = CLASS_KINDS.get(clazz);
+		if (kind == null) {
+			kind = resolveKind(clazz);
+			CLASS_KINDS.putIfAbsent(clazz, kind);
+		}
+		return kind;
+	}
+
+	private static int resolveKind(Class<?> clazz) throws DecodingException {
+		Integer builtinType = BuiltinsMap.ID_MAP.get(clazz);
+		if (builtinType != null)
+			return clazz.isArray() ? builtinType | KIND_ARRAY : builtinType;
+		Class<?> componentType = clazz.getComponentType();
+		Class<?> type = componentType == null ? clazz : componentType;
+		int array = componentType == null ? 0 : KIND_ARRAY;
+		if (type.equals(Object.class))
+			return KIND_OBJECT | array;
+		if (Structure.class.isAssignableFrom(type))
+			return KIND_STRUCTURE | array;
+		if (Enumeration.class.isAssignableFrom(type))
+			return KIND_ENUMERATION | array;
+		if (type.equals(BigDecimal.class))
+			return KIND_DECIMAL | array;
 		throw new DecodingException("Cannot decode " + clazz);
 	}
 
@@ -365,31 +327,31 @@ public class XmlDecoder implements IDecoder {
 			throws DecodingException
 	{
 		switch (builtinTypeId) {
-		case 1: return getBooleanArray(null);
-		case 2: return getSByteArray(null);
-		case 3: return getByteArray(null);
-		case 4: return getInt16Array(null);
-		case 5: return getUInt16Array(null);
-		case 6: return getInt32Array(null);
-		case 7: return getUInt32Array(null);
-		case 8: return getInt64Array(null);
-		case 9: return getUInt64Array(null);
-		case 10: return getFloatArray(null);
-		case 11: return getDoubleArray(null);
-		case 12: return getStringArray(null);
-		case 13: return getDateTimeArray(null);
-		case 14: return getGuidArray(null);
-		case 15: return getByteStringArray(null);
-		case 16: return getXmlElementArray(null);
-		case 17: return getNodeIdArray(null);
-		case 18: return getExpandedNodeIdArray(null);
-		case 19: return getStatusCodeArray(null);
-		case 20: return getQualifiedNameArray(null);
-		case 21: return getLocalizedTextArray(null);
-		case 22: return getExtensionObjectArray(null);
-		case 23: return getDataValueArray(null);
-		case 24: return getVariantArray(null);
-		case 25: return getDiagnosticInfoArray(null);
+		case 1: return getBooleanArray(fieldName);
+		case 2: return getSByteArray(fieldName);
+		case 3: return getByteArray(fieldName);
+		case 4: return getInt16Array(fieldName);
+		case 5: return getUInt16Array(fieldName);
+		case 6: return getInt32Array(fieldName);
+		case 7: return getUInt32Array(fieldName);
+		case 8: return getInt64Array(fieldName);
+		case 9: return getUInt64Array(fieldName);
+		case 10: return getFloatArray(fieldName);
+		case 11: return getDoubleArray(fieldName);
+		case 12: return getStringArray(fieldName);
+		case 13: return getDateTimeArray(fieldName);
+		case 14: return getGuidArray(fieldName);
+		case 15: return getByteStringArray(fieldName);
+		case 16: return getXmlElementArray(fieldName);
+		case 17: return getNodeIdArray(fieldName);
+		case 18: return getExpandedNodeIdArray(fieldName);
+		case 19: return getStatusCodeArray(fieldName);
+		case 20: return getQualifiedNameArray(fieldName);
+		case 21: return getLocalizedTextArray(fieldName);
+		case 22: return getExtensionObjectArray(fieldName);
+		case 23: return getDataValueArray(fieldName);
+		case 24: return getVariantArray(fieldName);
+		case 25: return getDiagnosticInfoArray(fieldName);
 		}
 		throw new DecodingException("Cannot decode builtin type id "+builtinTypeId);
 	}
@@ -683,6 +645,13 @@ public class XmlDecoder implements IDecoder {
 		return DateTime.MIN_VALUE;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public long getDateTime_(String fieldName) throws DecodingException
+	{
+		return getDateTime(fieldName).getValue();
+	}
+
 	/// <summary>
 	/// Reads a UTC date/time array from the stream.
 	/// </summary>
@@ -837,12 +806,12 @@ public class XmlDecoder implements IDecoder {
 
 				if (xml.length() == 3)
 				{
-					if (xml == "NaN")
+					if (xml.equals("NaN"))
 					{
 						value = Double.NaN;
 					}
 
-					if (xml == "INF")
+					if (xml.equals("INF"))
 					{
 						value = Double.POSITIVE_INFINITY;
 					}
@@ -850,7 +819,7 @@ public class XmlDecoder implements IDecoder {
 
 				if (xml.length() == 4)
 				{
-					if (xml == "-INF")
+					if (xml.equals("-INF"))
 					{
 						value = Double.NEGATIVE_INFINITY;
 					}
@@ -902,6 +871,19 @@ public class XmlDecoder implements IDecoder {
 		return values.toArray(new Double[0]);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public double[] getDoubleArray_(String fieldName) throws DecodingException
+	{
+		Double[] values = getDoubleArray(fieldName);
+		if (values == null)
+			return null;
+		double[] array = new double[values.length];
+		for (int i = 0; i < values.length; i++)
+			array[i] = values[i];
+		return array;
+	}
+
 	/// <summary>
 	/// Reads an encodeable object from the stream.
 	/// </summary>
@@ -1137,9 +1119,9 @@ public class XmlDecoder implements IDecoder {
 
 		if (beginFieldSafe(fieldName, true))
 		{
-			String name = enumerationClass.toString();
+			String name = enumerationClass.getSimpleName();
 
-			while (moveToElement(name));
+			while (moveToElement(name))
 			{
 				enums.add(getEnumeration(name, enumerationClass));
 				assertArrayLength(enums.size());
@@ -1154,7 +1136,7 @@ public class XmlDecoder implements IDecoder {
 			endField(fieldName);
 		}
 
-		return (T[]) enums.toArray(new Enumeration[0]);
+		return enums.toArray((T[]) Array.newInstance(enumerationClass, enums.size()));
 	}
 
 	/// <summary>
@@ -1265,6 +1247,17 @@ public class XmlDecoder implements IDecoder {
 			return new ExtensionObject(absoluteId, new XmlElement(""));
 		}
 
+		if (streaming)
+		{
+			Structure decoded = getExtensionObjectBodyInPlace(absoluteId);
+			if (decoded != null)
+			{
+				endField("Body");
+				endField(fieldName);
+				return new ExtensionObject(decoded);
+			}
+		}
+
 		// read the body.
 		Object body = getExtensionObjectBody(absoluteId);
 
@@ -1333,6 +1326,27 @@ public class XmlDecoder implements IDecoder {
 	}
 
 
+	/**
+	 * Decode an XML body of a known structure type directly from the reader.
+	 *
+	 * @return the decoded structure, or null if the body is binary or of an unknown type,
+	 *  in which case the reader is left at the start of the body
+	 */
+	private Structure getExtensionObjectBodyInPlace(ExpandedNodeId typeId) throws DecodingException
+	{
+		moveToTag();
+		if (!reader.isStartElement() || ExpandedNodeId.isNull(typeId))
+			return null;
+		IEncodeableSerializer serializer = encoderContext.getEncodeableSerializer();
+		Class<? extends IEncodeable> clazz = serializer.getClass(typeId);
+		if (clazz == null || !Structure.class.isAssignableFrom(clazz) || !clazz.getSimpleName().equals(reader.getLocalName()))
+			return null;
+		getStartElement();
+		IEncodeable result = serializer.getEncodeable(clazz, this);
+		getEndElement();
+		return (Structure) result;
+	}
+
 	/// <summary>
 	/// Reads the body extension object from the stream.
 	/// </summary>
@@ -1348,7 +1362,7 @@ public class XmlDecoder implements IDecoder {
 		moveToTag();
 
 		// check for binary encoded body.
-		if (reader.getLocalName() == "ByteString" && reader.getNamespaceURI() == OPC_UA_XSD_NAMESPACE)
+		if (reader.isStartElement() && "ByteString".equals(reader.getLocalName()) && OPC_UA_XSD_NAMESPACE.equals(reader.getNamespaceURI()))
 		{
 			//pushNamespace(OPC_UA_XSD_NAMESPACE);
 			ByteString bytes = getByteString("ByteString");
@@ -1410,12 +1424,12 @@ public class XmlDecoder implements IDecoder {
 
 				if (xml.length() == 3)
 				{
-					if (xml == "NaN")
+					if (xml.equals("NaN"))
 					{
 						value = Float.NaN;
 					}
 
-					if (xml == "INF")
+					if (xml.equals("INF"))
 					{
 						value = Float.POSITIVE_INFINITY;
 					}
@@ -1423,7 +1437,7 @@ public class XmlDecoder implements IDecoder {
 
 				if (xml.length() == 4)
 				{
-					if (xml == "-INF")
+					if (xml.equals("-INF"))
 					{
 						value = Float.NEGATIVE_INFINITY;
 					}
@@ -1476,6 +1490,19 @@ public class XmlDecoder implements IDecoder {
 		return values.toArray(new Float[0]);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public float[] getFloatArray_(String fieldName) throws DecodingException
+	{
+		Float[] values = getFloatArray(fieldName);
+		if (values == null)
+			return null;
+		float[] array = new float[values.length];
+		for (int i = 0; i < values.length; i++)
+			array[i] = values[i];
+		return array;
+	}
+
 	/// <summary>
 	/// Reads a GUID from the stream.
 	/// </summary>
@@ -1495,7 +1522,7 @@ public class XmlDecoder implements IDecoder {
 			endField(fieldName);
 		}
 
-		return UUID.fromString(guidString);
+		return guidString == null ? null : UUID.fromString(guidString);
 	}
 
 	/// <summary>
@@ -1587,6 +1614,19 @@ public class XmlDecoder implements IDecoder {
 		return values.toArray(new Short[0]);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public short[] getInt16Array_(String fieldName) throws DecodingException
+	{
+		Short[] values = getInt16Array(fieldName);
+		if (values == null)
+			return null;
+		short[] array = new short[values.length];
+		for (int i = 0; i < values.length; i++)
+			array[i] = values[i];
+		return array;
+	}
+
 	/// <summary>
 	/// Reads an int from the stream.
 	/// </summary>
@@ -1735,6 +1775,19 @@ public class XmlDecoder implements IDecoder {
 		return values.toArray(new Long[0]);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public long[] getInt64Array_(String fieldName) throws DecodingException
+	{
+		Long[] values = getInt64Array(fieldName);
+		if (values == null)
+			return null;
+		long[] array = new long[values.length];
+		for (int i = 0; i < values.length; i++)
+			array[i] = values[i];
+		return array;
+	}
+
 	/// <summary>
 	/// Reads an LocalizedText from the stream.
 	/// </summary>
@@ -1820,13 +1873,7 @@ public class XmlDecoder implements IDecoder {
 			int[] dims = getInt32Array_("Dimensions");
 
 			if (beginFieldSafe("Elements", true)) {
-				try {
-					reader.next();
-				} catch (XMLStreamException e) {
-					logger.error(e.getMessage());
-				}
-
-				while (reader.getEventType() != XMLStreamConstants.END_ELEMENT) {
+				while (moveToElement(null)) {
 					Object value = null;
 					String typeName = reader.getLocalName();
 					if (typeName.equals("Boolean")) {
@@ -1888,13 +1935,6 @@ public class XmlDecoder implements IDecoder {
 					}
 
 					list.add(value);
-
-					try {
-						reader.next();
-					} catch (XMLStreamException e) {
-						logger.error(e.getMessage());
-					}
-
 				}
 
 				endField("Elements");
@@ -2133,31 +2173,31 @@ public class XmlDecoder implements IDecoder {
 			throws DecodingException
 	{
 		switch (builtinTypeId) {
-		case 1: return getBoolean(null);
-		case 2: return getSByte(null);
-		case 3: return getByte(null);
-		case 4: return getInt16(null);
-		case 5: return getUInt16(null);
-		case 6: return getInt32(null);
-		case 7: return getUInt32(null);
-		case 8: return getInt64(null);
-		case 9: return getUInt64(null);
-		case 10: return getFloat(null);
-		case 11: return getDouble(null);
-		case 12: return getString(null);
-		case 13: return getDateTime(null);
-		case 14: return getGuid(null);
-		case 15: return getByteString(null);
-		case 16: return getXmlElement(null);
-		case 17: return getNodeId(null);
-		case 18: return getExpandedNodeId(null);
-		case 19: return getStatusCode(null);
-		case 20: return getQualifiedName(null);
-		case 21: return getLocalizedText(null);
-		case 22: return getExtensionObject(null);
-		case 23: return getDataValue(null);
-		case 24: return getVariant(null);
-		case 25: return getDiagnosticInfo(null);
+		case 1: return getBoolean(fieldName);
+		case 2: return getSByte(fieldName);
+		case 3: return getByte(fieldName);
+		case 4: return getInt16(fieldName);
+		case 5: return getUInt16(fieldName);
+		case 6: return getInt32(fieldName);
+		case 7: return getUInt32(fieldName);
+		case 8: return getInt64(fieldName);
+		case 9: return getUInt64(fieldName);
+		case 10: return getFloat(fieldName);
+		case 11: return getDouble(fieldName);
+		case 12: return getString(fieldName);
+		case 13: return getDateTime(fieldName);
+		case 14: return getGuid(fieldName);
+		case 15: return getByteString(fieldName);
+		case 16: return getXmlElement(fieldName);
+		case 17: return getNodeId(fieldName);
+		case 18: return getExpandedNodeId(fieldName);
+		case 19: return getStatusCode(fieldName);
+		case 20: return getQualifiedName(fieldName);
+		case 21: return getLocalizedText(fieldName);
+		case 22: return getExtensionObject(fieldName);
+		case 23: return getDataValue(fieldName);
+		case 24: return getVariant(fieldName);
+		case 25: return getDiagnosticInfo(fieldName);
 		}
 		throw new DecodingException("Cannot decode builtin type id "+builtinTypeId);
 	}
@@ -2201,7 +2241,7 @@ public class XmlDecoder implements IDecoder {
 		if (beginFieldSafe(fieldName, true))
 		{
 			//pushNamespace(OPC_UA_XSD_NAMESPACE);
-			value = new StatusCode(getUInt32("Code"));
+			value = StatusCode.getFromBits(getUInt32("Code").intValue());
 			//popNamespace();
 
 			endField(fieldName);
@@ -2624,74 +2664,19 @@ public class XmlDecoder implements IDecoder {
 		//			m_namespaces.push(OPC_UA_XSD_NAMESPACE);
 
 		String typeName = reader.getLocalName();
+		Integer builtinType = VARIANT_ELEMENTS.get(typeName);
 
 		// process array types.
-		if (typeName.startsWith("ListOf"))
-		{
-			String type = typeName.substring("ListOf".length());
-			if (type.equals("Boolean")) { return getBooleanArray(typeName); }
-			else if (type.equals("SByte")) { return getSByteArray(typeName); }
-			else if (type.equals("Byte")) { return getByteArray(typeName); }
-			else if (type.equals("Int16")) { return getInt16Array(typeName); }
-			else if (type.equals("UInt16")) { return getUInt16Array(typeName); }
-			else if (type.equals("Int32")) { return getInt32Array(typeName); }
-			else if (type.equals("UInt32")) { return getUInt32Array(typeName); }
-			else if (type.equals("Int64")) { return getInt64Array(typeName); }
-			else if (type.equals("UInt64")) { return getUInt64Array(typeName); }
-			else if (type.equals("Float")) { return getFloatArray(typeName); }
-			else if (type.equals("Double")) { return getDoubleArray(typeName); }
-			else if (type.equals("String")) { return getStringArray(typeName); }
-			else if (type.equals("DateTime")) { return getDateTimeArray(typeName); }
-			else if (type.equals("Guid")) { return getGuidArray(typeName); }
-			else if (type.equals("ByteString")) { return getByteStringArray(typeName); }
-			else if (type.equals("XmlElement")) { return getXmlElementArray(typeName); }
-			else if (type.equals("NodeId")) { return getNodeIdArray(typeName); }
-			else if (type.equals("ExpandedNodeId")) { return getExpandedNodeIdArray(typeName); }
-			else if (type.equals("StatusCode")) { return getStatusCodeArray(typeName); }
-			else if (type.equals("DiagnosticInfo")) { return getDiagnosticInfoArray(typeName); }
-			else if (type.equals("QualifiedName")) { return getQualifiedNameArray(typeName); }
-			else if (type.equals("LocalizedText")) { return getLocalizedTextArray(typeName); }
-			else if (type.equals("ExtensionObject")) { return decode(getExtensionObjectArray(typeName)); }
-			else if (type.equals("DataValue")) { return getDataValueArray(typeName); }
-			else if (type.equals("Variant")) { return getVariantArray(typeName); }
+		if (builtinType != null && builtinType < 0)
+		{
+			if (builtinType == -22) { return decode(getExtensionObjectArray(typeName)); }
+			return getArrayObject(typeName, -builtinType);
 		}
 
 		// process scalar types.
-		else
+		if (builtinType != null)
 		{
-			if(typeName.equals("Null"))
-			{
-				if (beginFieldSafe(typeName, true))
-				{
-					endField(typeName);
-				}
-
-				return null;
-			}
-
-			else if (typeName.equals("Boolean")) { return getBoolean(typeName); }
-			else if (typeName.equals("SByte")) { return getSByte(typeName); }
-			else if (typeName.equals("Byte")) { return getByte(typeName); }
-			else if (typeName.equals("Int16")) { return getInt16(typeName); }
-			else if (typeName.equals("UInt16")) { return getUInt16(typeName); }
-			else if (typeName.equals("Int32")) { return getInt32(typeName); }
-			else if (typeName.equals("UInt32")) { return getUInt32(typeName); }
-			else if (typeName.equals("Int64")) { return getInt64(typeName); }
-			else if (typeName.equals("UInt64")) { return getUInt64(typeName); }
-			else if (typeName.equals("Float")) { return getFloat(typeName); }
-			else if (typeName.equals("Double")) { return getDouble(typeName); }
-			else if (typeName.equals("String")) { return getString(typeName); }
-			else if (typeName.equals("DateTime")) { return getDateTime(typeName); }
-			else if (typeName.equals("Guid")) { return getGuid(typeName); }
-			else if (typeName.equals("ByteString")) { return getByteString(typeName); }
-			else if (typeName.equals("XmlElement")) { return getXmlElement(typeName); }
-			else if (typeName.equals("NodeId")) { return getNodeId(typeName); }
-			else if (typeName.equals("ExpandedNodeId")) { return getExpandedNodeId(typeName); }
-			else if (typeName.equals("StatusCode")) { return getStatusCode(typeName); }
-			else if (typeName.equals("DiagnosticInfo")) { return getDiagnosticInfo(typeName); }
-			else if (typeName.equals("QualifiedName")) { return getQualifiedName(typeName); }
-			else if (typeName.equals("LocalizedText")) { return getLocalizedText(typeName); }
-			else if (typeName.equals("ExtensionObject")) {
+			if (builtinType == 22) {
 				ExtensionObject extensionObject = getExtensionObject(typeName);
 				try {
 					return decode(extensionObject);
@@ -2700,19 +2685,29 @@ public class XmlDecoder implements IDecoder {
 					return extensionObject;
 				}
 			}
-			else if (typeName.equals("DataValue")) { return getDataValue(typeName); }
+			return getScalarObject(typeName, builtinType);
+		}
 
-			//				else if (typeName.equals("Matrix"))  TODO how should this be replaced?
-			//				{
-			//					Matrix matrix = getMatrix(typeName);
-			//					typeInfo = matrix.TypeInfo;
-			//					return matrix;
-			//				}
-			//				}
-			
-			else if (typeName.equals("Matrix")){ return getMatrix(typeName); }
+		if(typeName.equals("Null"))
+		{
+			if (beginFieldSafe(typeName, true))
+			{
+				endField(typeName);
+			}
+
+			return null;
 		}
 
+		//				else if (typeName.equals("Matrix"))  TODO how should this be replaced?
+		//				{
+		//					Matrix matrix = getMatrix(typeName);
+		//					typeInfo = matrix.TypeInfo;
+		//					return matrix;
+		//				}
+		//				}
+
+		if (typeName.equals("Matrix")){ return getMatrix(typeName); }
+
 		throw new DecodingException(
 				StatusCodes.Bad_DecodingError,
 				"Element '" +
@@ -2736,7 +2731,9 @@ public class XmlDecoder implements IDecoder {
 	{
 		if (beginFieldSafe(fieldName, true))
 		{
-			return new XmlElement(getInnerXml(""));
+			String xml = getInnerXml("");
+			endField(fieldName);
+			return new XmlElement(xml);
 		}
 
 		return null;
@@ -2942,12 +2939,16 @@ public class XmlDecoder implements IDecoder {
 		// check for empty or nil element.
 		if (reader.getAttributeCount() != 0)//HasAttributes)
 		{
-			String nilValue = reader.getAttributeValue("nil", XML_SCHEMA_INSTANCE);
+			String nilValue = reader.getAttributeValue(XML_SCHEMA_INSTANCE, "nil");
 
 			if (!isNullOrEmpty(nilValue))
 			{
 				if (Boolean.parseBoolean(nilValue))
 				{
+					// consume the nil element
+					getStartElement();
+					moveToEnd();
+					getEndElement();
 					return false;
 				}
 			}
@@ -2960,7 +2961,7 @@ public class XmlDecoder implements IDecoder {
 		// check for an element with no children but not empty (due to
 		// whitespace).
 		if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
-			if (reader.getLocalName() == fieldName)
+			if (reader.getLocalName().equals(fieldName))
 			{
 				getEndElement();
 				return false;
@@ -3172,7 +3173,7 @@ public class XmlDecoder implements IDecoder {
 	}
 	
 	private String getInnerXml(String fieldName) throws DecodingException {
-		String innerXml=""; // TODO refine and fix implementation
+		StringBuilder innerXml = new StringBuilder(); // TODO refine and fix implementation
 		boolean isGetme=true;
 		int level = 0;
 		int eventType;
@@ -3185,24 +3186,24 @@ public class XmlDecoder implements IDecoder {
 						isGetme=true;
 					}
 					if(isGetme){
-						innerXml+="<"+reader.getLocalName()+">";
+						innerXml.append('<').append(reader.getLocalName()).append('>');
 					}
 					level++;
 					break;
 				case XMLStreamConstants.CHARACTERS:
 					if(isGetme){
-						innerXml+=reader.getText();
+						innerXml.append(escapeText(reader.getText()));
 					}
 					break;
 				case XMLStreamConstants.END_ELEMENT:
 					if (--level < 0)
-						return innerXml;
+						return innerXml.toString();
 					if(reader.getLocalName().equals(fieldName)){
-						innerXml+="</"+reader.getLocalName()+">";
+						innerXml.append("</").append(reader.getLocalName()).append('>');
 						isGetme=false;
 					}
 					if(isGetme && !reader.getLocalName().equals(fieldName)){
-						innerXml+="</"+reader.getLocalName()+">";
+						innerXml.append("</").append(reader.getLocalName()).append('>');
 					}
 					break;
 				default:
@@ -3213,7 +3214,13 @@ public class XmlDecoder implements IDecoder {
 		} catch (XMLStreamException e) {
 			throw new DecodingException(e);
 		}
-		return innerXml;
+		return innerXml.toString();
+	}
+
+	private static String escapeText(String text) {
+		if (text.indexOf('&') < 0 && text.indexOf('<') < 0 && text.indexOf('>') < 0)
+			return text;
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
 	}
 
 	/// <summary>
@@ -3247,9 +3254,11 @@ public class XmlDecoder implements IDecoder {
 	private boolean isNullOrEmpty(String xml) {
 		if(xml == null)
 			return true;
-		if(xml.trim().length() == 0)
-			return true;
-		return false;
+		// Called for every field name, so check without trim()
+		for (int i = 0; i < xml.length(); i++)
+			if (xml.charAt(i) > ' ')
+				return false;
+		return true;
 	}
 
 	private boolean isStartElement(String localname)//, String namespace)
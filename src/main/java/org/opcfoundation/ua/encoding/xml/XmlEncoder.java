@@ -12,12 +12,1706 @@
 
 package org.opcfoundation.ua.encoding.xml;
 
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.UUID;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.opcfoundation.ua.builtintypes.BuiltinsMap;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.DiagnosticInfo;
+import org.opcfoundation.ua.builtintypes.Enumeration;
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.StatusCode;
+import org.opcfoundation.ua.builtintypes.Structure;
+import org.opcfoundation.ua.builtintypes.UnsignedByte;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.UnsignedLong;
+import org.opcfoundation.ua.builtintypes.UnsignedShort;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.builtintypes.XmlElement;
+import org.opcfoundation.ua.common.ServiceResultException;
+import org.opcfoundation.ua.core.Identifiers;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.EncodeType;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.EncodingException;
+import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.IEncoder;
+import org.opcfoundation.ua.utils.CryptoUtil;
+import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
+import org.opcfoundation.ua.utils.XMLFactoryCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * TODO Implement this
+ * Encodes built-in types, Enumerations, Structures and Messages to XML
+ * as specified in OPC UA Part 6, XML Data Encoding.
+ * <p>
+ * The values are streamed to an {@link XMLStreamWriter}, no document tree
+ * is built in memory. The output is readable with {@link XmlDecoder}.
+ * <p>
+ * Fields with a null value are written as empty elements with the
+ * xsi:nil attribute. A null or empty field name writes the value without
+ * an enclosing element.
  */
-public class XmlEncoder /*implements IEncoder*/ {
+public class XmlEncoder implements IEncoder {
+
+	private static final String XML_SCHEMA_INSTANCE = "http://www.w3.org/2001/XMLSchema-instance";
+	private static final String OPC_UA_XSD_NAMESPACE = "http://opcfoundation.org/UA/2008/02/Types.xsd";
+	/** Element names of the built-in types, indexed by built-in type id */
+	private static final String[] TYPE_NAMES = {
+		null, "Boolean", "SByte", "Byte", "Int16", "UInt16", "Int32", "UInt32", "Int64", "UInt64",
+		"Float", "Double", "String", "DateTime", "Guid", "ByteString", "XmlElement", "NodeId",
+		"ExpandedNodeId", "StatusCode", "QualifiedName", "LocalizedText", "ExtensionObject",
+		"DataValue", "Variant", "DiagnosticInfo"};
+	/** ByteStrings are base64 encoded in blocks of this many bytes, a multiple of 3 */
+	private static final int BASE64_BLOCK_SIZE = 3 * 1024;
+
+	static Logger logger = LoggerFactory.getLogger(XmlEncoder.class);
+
+	private XMLStreamWriter writer;
+	private EncoderContext ctx;
+	/** Number of elements open in the writer */
+	private int depth;
+
+	/**
+	 * <p>Constructor for XmlEncoder.</p>
+	 *
+	 * @param writer a {@link javax.xml.stream.XMLStreamWriter} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public XmlEncoder(XMLStreamWriter writer, EncoderContext context)
+	{
+		if (writer == null)
+			throw new NullPointerException("writer");
+		if (context == null)
+			throw new NullPointerException("context");
+		this.writer = writer;
+		this.ctx = context;
+	}
+
+	/**
+	 * <p>Constructor for XmlEncoder.</p>
+	 *
+	 * @param out a {@link java.io.Writer} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public XmlEncoder(Writer out, EncoderContext context) throws EncodingException
+	{
+		this(createWriter(out), context);
+	}
+
+	/**
+	 * Constructor for XmlEncoder. The output is encoded in UTF-8.
+	 *
+	 * @param out a {@link java.io.OutputStream} object.
+	 * @param context a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public XmlEncoder(OutputStream out, EncoderContext context) throws EncodingException
+	{
+		this(createWriter(out), context);
+	}
+
+	private static XMLStreamWriter createWriter(Writer out) throws EncodingException
+	{
+		try {
+			return XMLFactoryCache.getXMLOutputFactory().createXMLStreamWriter(out);
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	private static XMLStreamWriter createWriter(OutputStream out) throws EncodingException
+	{
+		try {
+			return XMLFactoryCache.getXMLOutputFactory().createXMLStreamWriter(out, "UTF-8");
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	private static EncodingException toEncodingException(XMLStreamException e)
+	{
+		return new EncodingException(StatusCodes.Bad_EncodingError, e);
+	}
+
+	/**
+	 * <p>getEncoderContext.</p>
+	 *
+	 * @return a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public EncoderContext getEncoderContext() {
+		return ctx;
+	}
+
+	/**
+	 * <p>setEncoderContext.</p>
+	 *
+	 * @param ctx a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 */
+	public void setEncoderContext(EncoderContext ctx) {
+		if (ctx == null)
+			throw new NullPointerException("context");
+		this.ctx = ctx;
+	}
+
+	/**
+	 * <p>getWriter.</p>
+	 *
+	 * @return a {@link javax.xml.stream.XMLStreamWriter} object.
+	 */
+	public XMLStreamWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Write a start element, e.g. the root element of a document that
+	 * contains several fields. The outermost element declares the
+	 * OPC UA types namespace as the default namespace.
+	 *
+	 * @param name local name of the element
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putStartElement(String name) throws EncodingException
+	{
+		startElement(name);
+	}
+
+	/**
+	 * Write the end element of the latest open element.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void putEndElement() throws EncodingException
+	{
+		endElement();
+	}
+
+	/**
+	 * Flush the written elements to the output.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void flush() throws EncodingException
+	{
+		try {
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	/**
+	 * Close the open elements and flush the writer. The underlying output is not closed.
+	 *
+	 * @throws org.opcfoundation.ua.encoding.EncodingException if any.
+	 */
+	public void close() throws EncodingException
+	{
+		try {
+			while (depth > 0)
+				endElement();
+			writer.writeEndDocument();
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	private void startElement(String name) throws EncodingException
+	{
+		try {
+			writer.writeStartElement(name);
+			if (depth == 0)
+				writeNamespaces();
+			depth++;
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	private void endElement() throws EncodingException
+	{
+		try {
+			writer.writeEndElement();
+			depth--;
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	private void writeNamespaces() throws XMLStreamException
+	{
+		writer.writeDefaultNamespace(OPC_UA_XSD_NAMESPACE);
+		writer.writeNamespace("xsi", XML_SCHEMA_INSTANCE);
+	}
+
+	private void characters(String text) throws EncodingException
+	{
+		try {
+			writer.writeCharacters(text);
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	/**
+	 * Write the start of a field.
+	 *
+	 * @param fieldName name of the field or null
+	 * @param isNull true if the value is null
+	 * @return true if the caller must write the value and call {@link #endField(String)}
+	 * @throws EncodingException
+	 */
+	private boolean beginField(String fieldName, boolean isNull) throws EncodingException
+	{
+		if (isNullOrEmpty(fieldName))
+			return !isNull;
+		if (!isNull) {
+			startElement(fieldName);
+			return true;
+		}
+		try {
+			writer.writeEmptyElement(fieldName);
+			if (depth == 0)
+				writeNamespaces();
+			writer.writeAttribute("xsi", XML_SCHEMA_INSTANCE, "nil", "true");
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+		return false;
+	}
+
+	private void endField(String fieldName) throws EncodingException
+	{
+		if (!isNullOrEmpty(fieldName))
+			endElement();
+	}
+
+	private void putText(String fieldName, String text) throws EncodingException
+	{
+		if (beginField(fieldName, text == null)) {
+			characters(text);
+			endField(fieldName);
+		}
+	}
+
+	private static boolean isNullOrEmpty(String s)
+	{
+		return s == null || s.length() == 0;
+	}
+
+	private void assertArrayLength(int len)
+	throws EncodingException
+	{
+		int maxLen = ctx.getMaxArrayLength();
+		if (maxLen>0 && len>maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxArrayLength "+maxLen+" < "+len);
+			logger.warn("assertArrayLength: failed", encodingException);
+			throw encodingException;
+		}
+	}
+
+	private void assertStringLength(int len)
+	throws EncodingException
+	{
+		int maxLen = ctx.getMaxStringLength();
+		if (maxLen>0 && len>maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxStringLength "+maxLen+" < "+len);
+			logger.warn("assertStringLength: failed", encodingException);
+			throw encodingException;
+		}
+	}
+
+	private void assertByteStringLength(int len)
+	throws EncodingException
+	{
+		int maxLen = ctx.getMaxByteStringLength();
+		if (maxLen>0 && len>maxLen) {
+			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxByteStringLength "+maxLen+" < "+len);
+			logger.warn("assertByteStringLength: failed", encodingException);
+			throw encodingException;
+		}
+	}
+
+	/**
+	 * Write the elements of an array, each element named after the built-in type.
+	 */
+	private void putElements(String fieldName, int builtinType, Object[] v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		assertArrayLength(v.length);
+		String name = TYPE_NAMES[builtinType];
+		for (Object o : v)
+			putScalar(name, builtinType, o);
+		endField(fieldName);
+	}
+
+	private void putElements(String fieldName, int builtinType, Collection<?> v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		assertArrayLength(v.size());
+		String name = TYPE_NAMES[builtinType];
+		for (Object o : v)
+			putScalar(name, builtinType, o);
+		endField(fieldName);
+	}
+
+	/**
+	 * Write the elements of a primitive array without boxing them.
+	 *
+	 * @param array int[], short[], long[], float[] or double[]
+	 * @throws EncodingException
+	 */
+	private void putPrimitiveElements(Object array)
+	throws EncodingException
+	{
+		if (array instanceof int[]) {
+			for (int x : (int[]) array)
+				putInt32("Int32", x);
+		} else if (array instanceof short[]) {
+			for (short x : (short[]) array)
+				putInt16("Int16", x);
+		} else if (array instanceof long[]) {
+			for (long x : (long[]) array)
+				putInt64("Int64", x);
+		} else if (array instanceof float[]) {
+			for (float x : (float[]) array)
+				putFloat("Float", x);
+		} else if (array instanceof double[]) {
+			for (double x : (double[]) array)
+				putDouble("Double", x);
+		} else
+			throw new EncodingException("cannot encode "+array);
+	}
+
+	private void putPrimitiveArray(String fieldName, Object array, int length)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, array == null))
+			return;
+		assertArrayLength(length);
+		putPrimitiveElements(array);
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putBoolean(String fieldName, Boolean v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putBooleanArray(String fieldName, Boolean[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 1, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putBooleanArray(String fieldName, Collection<Boolean> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 1, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByte(String fieldName, Byte v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putSByte(String fieldName, byte v)
+	throws EncodingException
+	{
+		putText(fieldName, Byte.toString(v));
+	}
+
+	/** {@inheritDoc} */
+	public void putSByte(String fieldName, int v)
+	throws EncodingException
+	{
+		putText(fieldName, Byte.toString((byte) v));
+	}
+
+	/** {@inheritDoc} */
+	public void putSByteArray(String fieldName, Byte[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 2, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putSByteArray(String fieldName, Collection<Byte> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 2, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByte(String fieldName, UnsignedByte v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putByteArray(String fieldName, UnsignedByte[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 3, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteArray(String fieldName, Collection<UnsignedByte> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 3, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16(String fieldName, Short v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16(String fieldName, short v)
+	throws EncodingException
+	{
+		putText(fieldName, Short.toString(v));
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16Array(String fieldName, Short[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 4, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16Array(String fieldName, Collection<Short> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 4, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt16Array(String fieldName, short[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v, v == null ? 0 : v.length);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt16(String fieldName, UnsignedShort v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt16Array(String fieldName, UnsignedShort[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 5, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt16Array(String fieldName, Collection<UnsignedShort> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 5, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32(String fieldName, Integer v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32(String fieldName, int v)
+	throws EncodingException
+	{
+		putText(fieldName, Integer.toString(v));
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32Array(String fieldName, int[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v, v == null ? 0 : v.length);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32Array(String fieldName, Collection<Integer> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 6, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt32Array(String fieldName, Integer[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 6, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt32(String fieldName, UnsignedInteger v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt32Array(String fieldName, UnsignedInteger[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 7, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt32Array(String fieldName, Collection<UnsignedInteger> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 7, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64(String fieldName, Long v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64(String fieldName, long v)
+	throws EncodingException
+	{
+		putText(fieldName, Long.toString(v));
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64Array(String fieldName, Long[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 8, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64Array(String fieldName, Collection<Long> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 8, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putInt64Array(String fieldName, long[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v, v == null ? 0 : v.length);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt64(String fieldName, UnsignedLong v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : v.toString());
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt64Array(String fieldName, UnsignedLong[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 9, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putUInt64Array(String fieldName, Collection<UnsignedLong> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 9, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloat(String fieldName, Float v)
+	throws EncodingException
+	{
+		if (v == null)
+			putText(fieldName, null);
+		else
+			putFloat(fieldName, v.floatValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putFloat(String fieldName, float v)
+	throws EncodingException
+	{
+		String text;
+		if (Float.isNaN(v))
+			text = "NaN";
+		else if (Float.isInfinite(v))
+			text = v > 0 ? "INF" : "-INF";
+		else
+			text = Float.toString(v);
+		putText(fieldName, text);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloatArray(String fieldName, Float[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 10, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloatArray(String fieldName, Collection<Float> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 10, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putFloatArray(String fieldName, float[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v, v == null ? 0 : v.length);
+	}
+
+	/** {@inheritDoc} */
+	public void putDouble(String fieldName, Double v)
+	throws EncodingException
+	{
+		if (v == null)
+			putText(fieldName, null);
+		else
+			putDouble(fieldName, v.doubleValue());
+	}
+
+	/** {@inheritDoc} */
+	public void putDouble(String fieldName, double v)
+	throws EncodingException
+	{
+		String text;
+		if (Double.isNaN(v))
+			text = "NaN";
+		else if (Double.isInfinite(v))
+			text = v > 0 ? "INF" : "-INF";
+		else
+			text = Double.toString(v);
+		putText(fieldName, text);
+	}
+
+	/** {@inheritDoc} */
+	public void putDoubleArray(String fieldName, Double[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 11, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDoubleArray(String fieldName, Collection<Double> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 11, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDoubleArray(String fieldName, double[] v)
+	throws EncodingException
+	{
+		putPrimitiveArray(fieldName, v, v == null ? 0 : v.length);
+	}
+
+	/** {@inheritDoc} */
+	public void putString(String fieldName, String v)
+	throws EncodingException
+	{
+		if (v != null)
+			assertStringLength(v.length());
+		putText(fieldName, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStringArray(String fieldName, Collection<String> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 12, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStringArray(String fieldName, String[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 12, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTime(String fieldName, DateTime v)
+	throws EncodingException
+	{
+		putText(fieldName, v == null ? null : toXmlDateTime(v.getValue()));
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTime(String fieldName, long ticks)
+	throws EncodingException
+	{
+		putText(fieldName, toXmlDateTime(ticks));
+	}
+
+	/**
+	 * Format a timestamp as an xs:dateTime in UTC, e.g. 2016-03-01T12:15:03.1234567Z.
+	 * The fraction of a second has 100 nanosecond precision and is left out if zero.
+	 *
+	 * @param ticks 100 nanosecond intervals since January 1, 1601
+	 * @return the formatted timestamp
+	 */
+	private static String toXmlDateTime(long ticks)
+	{
+		GregorianCalendar c = new DateTime(ticks).getUtcCalendar();
+		StringBuilder sb = new StringBuilder(28);
+		appendPadded(sb, c.get(Calendar.YEAR), 4).append('-');
+		appendPadded(sb, c.get(Calendar.MONTH) + 1, 2).append('-');
+		appendPadded(sb, c.get(Calendar.DAY_OF_MONTH), 2).append('T');
+		appendPadded(sb, c.get(Calendar.HOUR_OF_DAY), 2).append(':');
+		appendPadded(sb, c.get(Calendar.MINUTE), 2).append(':');
+		appendPadded(sb, c.get(Calendar.SECOND), 2);
+		int fraction = (int) (ticks % 10000000);
+		if (fraction > 0) {
+			int digits = 7;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				digits--;
+			}
+			appendPadded(sb.append('.'), fraction, digits);
+		}
+		return sb.append('Z').toString();
+	}
+
+	private static StringBuilder appendPadded(StringBuilder sb, int value, int digits)
+	{
+		String s = Integer.toString(value);
+		for (int i = s.length(); i < digits; i++)
+			sb.append('0');
+		return sb.append(s);
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTimeArray(String fieldName, DateTime[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 13, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDateTimeArray(String fieldName, Collection<DateTime> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 13, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putGuid(String fieldName, UUID v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			putText("String", v.toString());
+			endField(fieldName);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putGuidArray(String fieldName, UUID[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 14, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putGuidArray(String fieldName, Collection<UUID> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 14, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteString(String fieldName, ByteString v)
+	throws EncodingException
+	{
+		if (v != null)
+			assertByteStringLength(v.getLength());
+		if (!beginField(fieldName, v == null))
+			return;
+		// Encode in blocks to avoid a base64 copy of the whole value
+		ByteBuffer buf = v.asByteBuffer();
+		byte[] block = new byte[Math.min(buf.remaining(), BASE64_BLOCK_SIZE)];
+		while (buf.hasRemaining()) {
+			if (buf.remaining() < block.length)
+				block = new byte[buf.remaining()];
+			buf.get(block);
+			characters(CryptoUtil.base64Encode(block));
+		}
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteStringArray(String fieldName, ByteString[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 15, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putByteStringArray(String fieldName, Collection<ByteString> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 15, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putXmlElement(String fieldName, XmlElement v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			copyXml(v.getValue());
+			endField(fieldName);
+		}
+	}
+
+	/**
+	 * Copy an XML fragment to the writer event by event.
+	 *
+	 * @param xml the XML document
+	 * @throws EncodingException
+	 */
+	private void copyXml(String xml)
+	throws EncodingException
+	{
+		if (isNullOrEmpty(xml))
+			return;
+		try {
+			XMLStreamReader reader = XMLFactoryCache.getXMLInputFactory().createXMLStreamReader(new StringReader(xml));
+			try {
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						copyStartElement(reader);
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						writer.writeEndElement();
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.SPACE:
+						writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						break;
+					case XMLStreamConstants.CDATA:
+						writer.writeCData(reader.getText());
+						break;
+					case XMLStreamConstants.COMMENT:
+						writer.writeComment(reader.getText());
+						break;
+					default:
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw toEncodingException(e);
+		}
+	}
+
+	private void copyStartElement(XMLStreamReader reader)
+	throws XMLStreamException
+	{
+		String namespace = reader.getNamespaceURI();
+		if (isNullOrEmpty(namespace))
+			writer.writeStartElement(reader.getLocalName());
+		else {
+			String prefix = reader.getPrefix();
+			writer.writeStartElement(prefix == null ? "" : prefix, reader.getLocalName(), namespace);
+		}
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			if (isNullOrEmpty(prefix))
+				writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+			else
+				writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String attributeNamespace = reader.getAttributeNamespace(i);
+			if (isNullOrEmpty(attributeNamespace))
+				writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+			else
+				writer.writeAttribute(reader.getAttributePrefix(i), attributeNamespace, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putXmlElementArray(String fieldName, XmlElement[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 16, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putXmlElementArray(String fieldName, Collection<XmlElement> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 16, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putNodeId(String fieldName, NodeId v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			putText("Identifier", v.toString());
+			endField(fieldName);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putNodeIdArray(String fieldName, NodeId[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 17, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putNodeIdArray(String fieldName, Collection<NodeId> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 17, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putExpandedNodeId(String fieldName, ExpandedNodeId v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			putText("Identifier", v.toString());
+			endField(fieldName);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putExpandedNodeIdArray(String fieldName, ExpandedNodeId[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 18, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putExpandedNodeIdArray(String fieldName, Collection<ExpandedNodeId> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 18, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStatusCode(String fieldName, StatusCode v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			putUInt32("Code", v.getValue());
+			endField(fieldName);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putStatusCodeArray(String fieldName, StatusCode[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 19, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putStatusCodeArray(String fieldName, Collection<StatusCode> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 19, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putQualifiedName(String fieldName, QualifiedName v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		putInt32("NamespaceIndex", v.getNamespaceIndex());
+		if (v.getName() != null)
+			putString("Name", v.getName());
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putQualifiedNameArray(String fieldName, QualifiedName[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 20, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putQualifiedNameArray(String fieldName, Collection<QualifiedName> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 20, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putLocalizedText(String fieldName, LocalizedText v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		if (v.getLocaleId() != null)
+			putString("Locale", v.getLocaleId());
+		if (v.getText() != null)
+			putString("Text", v.getText());
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putLocalizedTextArray(String fieldName, LocalizedText[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 21, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putLocalizedTextArray(String fieldName, Collection<LocalizedText> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 21, v);
+	}
+
+	/**
+	 * Write the TypeId and the XML encoded Body of a structure.
+	 */
+	private void putStructureContents(Structure s)
+	throws EncodingException
+	{
+		putNodeId("TypeId", ctx.toNodeId(s.getXmlEncodeId()));
+		startElement("Body");
+		putEncodeable(s.getClass().getSimpleName(), s);
+		endElement();
+	}
+
+	/** {@inheritDoc} */
+	public void putStructure(String fieldName, Structure v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			putStructureContents(v);
+			endField(fieldName);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putStructureArray(String fieldName, Structure[] v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		assertArrayLength(v.length);
+		for (Structure s : v)
+			putStructure("ExtensionObject", s);
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putStructureArray(String fieldName, Collection<Structure> v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		assertArrayLength(v.size());
+		for (Structure s : v)
+			putStructure("ExtensionObject", s);
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putExtensionObject(String fieldName, ExtensionObject v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		if (!v.isEncoded()) {
+			putStructureContents((Structure) v.getObject());
+			endField(fieldName);
+			return;
+		}
+		putNodeId("TypeId", ctx.toNodeId(v.getTypeId()));
+		Object o = v.getObject();
+		if (o != null) {
+			startElement("Body");
+			if (v.getEncodeType() == EncodeType.Binary)
+				putByteString("ByteString", (ByteString) o);
+			else if (v.getEncodeType() == EncodeType.Xml)
+				copyXml(((XmlElement) o).getValue());
+			else
+				throw new EncodingException("Unexpected encoding type: "+v.getEncodeType());
+			endElement();
+		}
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putExtensionObjectArray(String fieldName, ExtensionObject[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 22, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putExtensionObjectArray(String fieldName, Collection<ExtensionObject> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 22, v);
+	}
+
+	/**
+	 * Write a Decimal as an ExtensionObject with the Decimal data type id
+	 * and an XML body of the scale and the unscaled value.
+	 *
+	 * @param fieldName name of the field or null
+	 * @param v the value
+	 * @throws EncodingException if the scale does not fit in Int16
+	 */
+	private void putDecimal(String fieldName, BigDecimal v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		int scale = v.scale();
+		if (scale > Short.MAX_VALUE)
+			throw new EncodingException("Scale of the Decimal " + v + " is too large: " + scale + " > " + Short.MAX_VALUE);
+		if (scale < Short.MIN_VALUE)
+			throw new EncodingException("Scale of the Decimal " + v + " is too small: " + scale + " < " + Short.MIN_VALUE);
+		putNodeId("TypeId", Identifiers.Decimal);
+		startElement("Body");
+		startElement("Decimal");
+		putInt16("Scale", (short) scale);
+		putText("Value", v.unscaledValue().toString());
+		endElement();
+		endElement();
+		endField(fieldName);
+	}
+
+	private void putDecimalArray(String fieldName, BigDecimal[] v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		assertArrayLength(v.length);
+		for (BigDecimal d : v)
+			putDecimal("ExtensionObject", d);
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putDataValue(String fieldName, DataValue v)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, v == null))
+			return;
+		if (v.getValue() != null)
+			putVariant("Value", v.getValue());
+		if (v.getStatusCodeBits() != 0)
+			putStatusCode("StatusCode", v.getStatusCode());
+		long sourceTimestamp = v.getSourceTimestampTicks();
+		if (sourceTimestamp != 0)
+			putDateTime("SourceTimestamp", sourceTimestamp);
+		if (v.getSourcePicos() != 0)
+			putInt32("SourcePicoseconds", v.getSourcePicos());
+		long serverTimestamp = v.getServerTimestampTicks();
+		if (serverTimestamp != 0)
+			putDateTime("ServerTimestamp", serverTimestamp);
+		if (v.getServerPicos() != 0)
+			putInt32("ServerPicoseconds", v.getServerPicos());
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putDataValueArray(String fieldName, DataValue[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 23, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDataValueArray(String fieldName, Collection<DataValue> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 23, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putVariant(String fieldName, Variant v)
+	throws EncodingException
+	{
+		if (v != null && !v.isPrimitive() && v.getValue() == null)
+			v = null;
+		if (!beginField(fieldName, v == null))
+			return;
+		startElement("Value");
+		putVariantValue(v);
+		endElement();
+		endField(fieldName);
+	}
+
+	/**
+	 * Write the value of a variant as an element named after its type.
+	 * Arrays are written as ListOf elements and multi-dimension arrays as
+	 * a Matrix of the dimensions and the elements in row-major order.
+	 *
+	 * @param v non-null variant
+	 * @throws EncodingException
+	 */
+	private void putVariantValue(Variant v)
+	throws EncodingException
+	{
+		final int builtinType = v.getBuiltinTypeId();
+		if (builtinType <= 0)
+			throw new EncodingException("Non-suitable composite class for Variant: "+v.getCompositeClass());
+		final String typeName = TYPE_NAMES[builtinType];
+		final int dim = v.getDimension();
+		if (dim == 0) {
+			putScalar(typeName, builtinType, v.getValue());
+			return;
+		}
+
+		// Variants backed by primitive arrays are written without boxing
+		final Object array = v.isPrimitive() ? v.getPrimitiveArray() : v.getValue();
+		if (dim == 1) {
+			putArray("ListOf" + typeName, builtinType, array);
+			return;
+		}
+
+		int[] dims = v.getArrayDimensions();
+		assertArrayLength(MultiDimensionArrayUtils.getLength(dims));
+		startElement("Matrix");
+		putInt32Array("Dimensions", dims);
+		startElement("Elements");
+		if (v.isPrimitive())
+			putPrimitiveElements(array);
+		else
+			putArrayElements((Object[]) array, dims, 0, builtinType, typeName);
+		endElement();
+		endElement();
+	}
+
+	/**
+	 * Write the elements of a multi-dimension array in row-major order.
+	 *
+	 * @param array array of the given depth
+	 * @param dims dimensions of the whole array
+	 * @param depth depth of array
+	 * @param builtinType builtin type of the elements
+	 * @param name element name of the elements
+	 * @throws EncodingException if the inner arrays do not match the dimensions
+	 */
+	private void putArrayElements(Object[] array, int[] dims, int depth, int builtinType, String name)
+	throws EncodingException
+	{
+		if (array == null || array.length != dims[depth])
+			throw new EncodingException("The dimensions of inner array elements of a multi-dimension variable must be equal in length");
+		if (depth < dims.length - 1) {
+			for (Object inner : array)
+				putArrayElements((Object[]) inner, dims, depth + 1, builtinType, name);
+			return;
+		}
+		for (Object elem : array)
+			putScalar(name, builtinType, elem);
+	}
+
+	/** {@inheritDoc} */
+	public void putVariantArray(String fieldName, Variant[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 24, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putVariantArray(String fieldName, Collection<Variant> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 24, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDiagnosticInfoArray(String fieldName, DiagnosticInfo[] v)
+	throws EncodingException
+	{
+		putElements(fieldName, 25, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDiagnosticInfoArray(String fieldName, Collection<DiagnosticInfo> v)
+	throws EncodingException
+	{
+		putElements(fieldName, 25, v);
+	}
+
+	/** {@inheritDoc} */
+	public void putDiagnosticInfo(String fieldName, DiagnosticInfo v)
+	throws EncodingException
+	{
+		if (beginField(fieldName, v == null)) {
+			putDiagnosticInfoFields(v);
+			endField(fieldName);
+		}
+	}
+
+	private void putDiagnosticInfoFields(DiagnosticInfo v)
+	throws EncodingException
+	{
+		if (v.getSymbolicId() != null)
+			putInt32("SymbolicId", v.getSymbolicId());
+		if (v.getNamespaceUri() != null)
+			putInt32("NamespaceUri", v.getNamespaceUri());
+		if (v.getLocale() != null)
+			putInt32("Locale", v.getLocale());
+		if (v.getLocalizedText() != null)
+			putInt32("LocalizedText", v.getLocalizedText());
+		if (v.getAdditionalInfo() != null)
+			putString("AdditionalInfo", v.getAdditionalInfo());
+		if (v.getInnerStatusCode() != null)
+			putStatusCode("InnerStatusCode", v.getInnerStatusCode());
+		if (v.getInnerDiagnosticInfo() != null) {
+			startElement("InnerDiagnosticInfo");
+			putDiagnosticInfoFields(v.getInnerDiagnosticInfo());
+			endElement();
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putEnumerationArray(String fieldName, Object array)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, array == null))
+			return;
+		int length = Array.getLength(array);
+		assertArrayLength(length);
+		String name = array.getClass().getComponentType().getSimpleName();
+		for (int i = 0; i < length; i++)
+			putEnumeration(name, (Enumeration) Array.get(array, i));
+		endField(fieldName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Enumerations are written as Name_Value, e.g. Running_0.
+	 */
+	public void putEnumeration(String fieldName, Enumeration v)
+	throws EncodingException
+	{
+		String text = null;
+		if (v instanceof Enum)
+			text = ((Enum<?>) v).name() + "_" + v.getValue();
+		else if (v != null)
+			text = Integer.toString(v.getValue());
+		putText(fieldName, text);
+	}
+
+	/** {@inheritDoc} */
+	public void putObject(String fieldName, Object o)
+	throws EncodingException
+	{
+		if (o==null) throw new EncodingException("Cannot encode null value");
+		putObject(fieldName, o.getClass(), o);
+	}
+
+	/** {@inheritDoc} */
+	@SuppressWarnings("unchecked")
+	public void putObject(String fieldName, Class<?> c, Object o)
+	throws EncodingException
+	{
+		Integer bt = BuiltinsMap.ID_MAP.get(c);
+		boolean array = c.isArray();
+		if (bt!=null) {
+			if (array)
+				putArray(fieldName, bt, o);
+			else
+				putScalar(fieldName, bt, o);
+			return;
+		}
+
+		if (!array && Enumeration.class.isAssignableFrom(c)) {
+			putEnumeration(fieldName, (Enumeration)o);
+			return;
+		}
+
+		if (array && Enumeration.class.isAssignableFrom(c.getComponentType())) {
+			putEnumerationArray(fieldName, o);
+			return;
+		}
+
+		if (array)
+			putEncodeableArray(fieldName, (Class<? extends IEncodeable>)c.getComponentType(), o);
+		else
+			putEncodeable(fieldName, (Class<? extends IEncodeable>) c, (IEncodeable)o);
+	}
+
+	/** {@inheritDoc} */
+	public void putScalar(String fieldName, int builtinType, Object o)
+	throws EncodingException
+	{
+		switch (builtinType) {
+		case 1: putBoolean(fieldName, (Boolean) o); break;
+		case 2: putSByte(fieldName, (Byte) o); break;
+		case 3: putByte(fieldName, (UnsignedByte) o); break;
+		case 4: putInt16(fieldName, (Short) o); break;
+		case 5: putUInt16(fieldName, (UnsignedShort) o); break;
+		case 6: putInt32(fieldName, (Integer) o); break;
+		case 7: putUInt32(fieldName, (UnsignedInteger) o); break;
+		case 8: putInt64(fieldName, (Long) o); break;
+		case 9: putUInt64(fieldName, (UnsignedLong) o); break;
+		case 10: putFloat(fieldName, (Float) o); break;
+		case 11: putDouble(fieldName, (Double) o); break;
+		case 12: putString(fieldName, (String) o); break;
+		case 13: putDateTime(fieldName, (DateTime) o); break;
+		case 14: putGuid(fieldName, (UUID) o); break;
+		case 15: putByteString(fieldName, (ByteString) o); break;
+		case 16: putXmlElement(fieldName, (XmlElement) o); break;
+		case 17: putNodeId(fieldName, (NodeId) o); break;
+		case 18: putExpandedNodeId(fieldName, (ExpandedNodeId) o); break;
+		case 19: putStatusCode(fieldName, (StatusCode) o); break;
+		case 20: putQualifiedName(fieldName, (QualifiedName) o); break;
+		case 21: putLocalizedText(fieldName, (LocalizedText) o); break;
+		case 22: {
+			if (o instanceof Structure)
+				putStructure(fieldName, (Structure) o);
+			else if (o instanceof BigDecimal)
+				putDecimal(fieldName, (BigDecimal) o);
+			else
+				putExtensionObject(fieldName, (ExtensionObject) o);
+			break;
+		}
+		case 23: putDataValue(fieldName, (DataValue) o); break;
+		case 24: putVariant(fieldName, (Variant) o); break;
+		case 25: putDiagnosticInfo(fieldName, (DiagnosticInfo) o); break;
+		default: throw new EncodingException("cannot encode builtin type "+builtinType);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putArray(String fieldName, int builtinType, Object o)
+	throws EncodingException
+	{
+		switch (builtinType) {
+		case 1: putBooleanArray(fieldName, (Boolean[]) o); break;
+		case 2: putSByteArray(fieldName, (Byte[]) o); break;
+		case 3: putByteArray(fieldName, (UnsignedByte[]) o); break;
+		case 4:
+			if (o instanceof short[]) putInt16Array(fieldName, (short[]) o);
+			else putInt16Array(fieldName, (Short[]) o);
+			break;
+		case 5: putUInt16Array(fieldName, (UnsignedShort[]) o); break;
+		case 6:
+			if (o instanceof int[]) putInt32Array(fieldName, (int[]) o);
+			else putInt32Array(fieldName, (Integer[]) o);
+			break;
+		case 7: putUInt32Array(fieldName, (UnsignedInteger[]) o); break;
+		case 8:
+			if (o instanceof long[]) putInt64Array(fieldName, (long[]) o);
+			else putInt64Array(fieldName, (Long[]) o);
+			break;
+		case 9: putUInt64Array(fieldName, (UnsignedLong[]) o); break;
+		case 10:
+			if (o instanceof float[]) putFloatArray(fieldName, (float[]) o);
+			else putFloatArray(fieldName, (Float[]) o);
+			break;
+		case 11:
+			if (o instanceof double[]) putDoubleArray(fieldName, (double[]) o);
+			else putDoubleArray(fieldName, (Double[]) o);
+			break;
+		case 12: putStringArray(fieldName, (String[]) o); break;
+		case 13: putDateTimeArray(fieldName, (DateTime[]) o); break;
+		case 14: putGuidArray(fieldName, (UUID[]) o); break;
+		case 15: putByteStringArray(fieldName, (ByteString[]) o); break;
+		case 16: putXmlElementArray(fieldName, (XmlElement[]) o); break;
+		case 17: putNodeIdArray(fieldName, (NodeId[]) o); break;
+		case 18: putExpandedNodeIdArray(fieldName, (ExpandedNodeId[]) o); break;
+		case 19: putStatusCodeArray(fieldName, (StatusCode[]) o); break;
+		case 20: putQualifiedNameArray(fieldName, (QualifiedName[]) o); break;
+		case 21: putLocalizedTextArray(fieldName, (LocalizedText[]) o); break;
+		case 22: {
+			if (o instanceof ExtensionObject[])
+				putExtensionObjectArray(fieldName, (ExtensionObject[]) o);
+			else if (o instanceof Structure[])
+				putStructureArray(fieldName, (Structure[]) o);
+			else if (o instanceof BigDecimal[])
+				putDecimalArray(fieldName, (BigDecimal[]) o);
+			else throw new EncodingException("cannot encode "+o);
+			break;
+		}
+		case 23: putDataValueArray(fieldName, (DataValue[]) o); break;
+		case 24: putVariantArray(fieldName, (Variant[]) o); break;
+		case 25: putDiagnosticInfoArray(fieldName, (DiagnosticInfo[]) o); break;
+		default: throw new EncodingException("cannot encode builtin type "+builtinType);
+		}
+	}
+
+	/** {@inheritDoc} */
+	public void putEncodeableArray(String fieldName, Class<? extends IEncodeable> clazz, Object array)
+	throws EncodingException
+	{
+		if (!beginField(fieldName, array == null))
+			return;
+		int length = Array.getLength(array);
+		assertArrayLength(length);
+		String name = clazz.getSimpleName();
+		for (int i=0; i<length; i++)
+			putEncodeable(name, clazz, (IEncodeable)Array.get(array, i));
+		endField(fieldName);
+	}
+
+	/** {@inheritDoc} */
+	public void putEncodeable(String fieldName, IEncodeable s)
+	throws EncodingException
+	{
+		putEncodeable(fieldName, s.getClass(), s);
+	}
+
+	/** {@inheritDoc} */
+	public void putEncodeable(String fieldName, Class<? extends IEncodeable> clazz, IEncodeable s)
+	throws EncodingException
+	{
+		beginField(fieldName, false);
+		ctx.getEncodeableSerializer().putEncodeable(clazz, s, this);
+		endField(fieldName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The message is written as the XML encoding id of its type followed by its fields.
+	 */
+	@SuppressWarnings("unchecked")
+	public void putMessage(IEncodeable s)
+	throws EncodingException
+	{
+		Class<IEncodeable> clazz = (Class<IEncodeable>) s.getClass();
+		try {
+			putNodeId(null, ctx.getEncodeableNodeId(clazz, EncodeType.Xml));
+		} catch (ServiceResultException e) {
+			throw new EncodingException(e);
+		}
+		ctx.getEncodeableSerializer().putEncodeable(clazz, s, this);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(String fieldName, Object o) throws EncodingException {
+		if(o == null){
+			throw new EncodingException("Cannot encode null object without Class information, use the overload that takes Class parameter");
+		}
+		put(fieldName, o, o.getClass());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(String fieldName, Object o, Class<?> clazz) throws EncodingException {
+		// NOTE! the Object o is allowed to be null
+		final Class<?> componentType = MultiDimensionArrayUtils.getComponentType(clazz);
+		final String elementName = elementName(componentType);
+		int dims = MultiDimensionArrayUtils.getClassDimensions(clazz);
+
+		if (dims == 0) {
+			putValue(fieldName, o, componentType);
+			return;
+		}
+
+		if (!beginField(fieldName, o == null))
+			return;
+		if (dims == 1) {
+			Object[] array = (Object[]) o;
+			assertArrayLength(array.length);
+			for (Object elem : array)
+				putValue(elementName, elem, componentType);
+		} else {
+			// Multi-dimension arrays are written as a Matrix, the elements in row-major order
+			int[] lengths = MultiDimensionArrayUtils.getArrayLengths(o);
+			Object[] elements = (Object[]) MultiDimensionArrayUtils.muxArray(o, lengths, componentType);
+			assertArrayLength(elements.length);
+			putInt32Array("Dimensions", lengths);
+			startElement("Elements");
+			for (Object elem : elements)
+				putValue(elementName, elem, componentType);
+			endElement();
+		}
+		endField(fieldName);
+	}
+
+	/**
+	 * Write a scalar value of the given class, the counterpart of {@link XmlDecoder#get(String, Class)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private void putValue(String fieldName, Object o, Class<?> clazz)
+	throws EncodingException
+	{
+		Integer bt = BuiltinsMap.ID_MAP.get(clazz);
+		if (bt != null)
+			putScalar(fieldName, bt, o);
+		else if (Structure.class.isAssignableFrom(clazz))
+			putEncodeable(fieldName, (Class<? extends IEncodeable>) clazz, (IEncodeable) o);
+		else if (Enumeration.class.isAssignableFrom(clazz))
+			putEnumeration(fieldName, (Enumeration) o);
+		else if (BigDecimal.class.equals(clazz))
+			putDecimal(fieldName, (BigDecimal) o);
+		else if (Object.class.equals(clazz))
+			putVariant(fieldName, o == null ? null : new Variant(o));
+		else
+			throw new EncodingException("Cannot encode " + clazz);
+	}
 
-	// TODO IMPLEMENT
+	private static String elementName(Class<?> clazz)
+	{
+		Integer bt = BuiltinsMap.ID_MAP.get(clazz);
+		if (bt != null)
+			return TYPE_NAMES[bt];
+		if (BigDecimal.class.equals(clazz))
+			return "ExtensionObject";
+		if (Object.class.equals(clazz))
+			return "Variant";
+		return clazz.getSimpleName();
+	}
 
 }
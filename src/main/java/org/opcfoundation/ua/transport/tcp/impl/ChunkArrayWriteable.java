@@ -0,0 +1,297 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.transport.tcp.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opcfoundation.ua.utils.EncodingLimitsExceededIoException;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferUtils;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryPatchableWriteable;
+
+/**
+ * Writeable that allocates chunk plaintexts from a {@link ChunkFactory} as
+ * the message is being written. This allows a message to be encoded in a single
+ * pass without calculating its size beforehand.
+ * <p>
+ * All chunks but the last are allocated with the maximum plaintext size.
+ * When the message is complete, {@link #finish()} trims the last chunk to the
+ * written length, so that chunk size and padding are correct. The chunk headers
+ * (message type and final/continue flag) are written by the sender once the
+ * chunk count is known.
+ * <p>
+ * Max chunk count and max message size are enforced while writing,
+ * exceeding either throws {@link EncodingLimitsExceededIoException}.
+ * <p>
+ * Reserved ints may span chunk boundaries, they are patched directly
+ * to the chunks as nothing is sent before the message is finished.
+ */
+public class ChunkArrayWriteable implements IBinaryPatchableWriteable {
+
+	ChunkFactory chunkFactory;
+	int maxChunkCount;
+	int maxMessageSize;
+	List<ByteBuffer> plaintexts = new ArrayList<ByteBuffer>();
+	ByteBuffer cur;
+	ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+	/** Number of bytes in the chunks preceding the current chunk */
+	int completedBytes;
+	boolean chunkCountExceeded;
+
+	/**
+	 * <p>Constructor for ChunkArrayWriteable.</p>
+	 *
+	 * @param chunkFactory factory that allocates the chunks
+	 * @param maxChunkCount max number of chunks, 0 for no limit
+	 * @param maxMessageSize max number of plaintext bytes, 0 for no limit
+	 */
+	public ChunkArrayWriteable(ChunkFactory chunkFactory, int maxChunkCount, int maxMessageSize) {
+		if (chunkFactory == null)
+			throw new IllegalArgumentException("null arg");
+		this.chunkFactory = chunkFactory;
+		this.maxChunkCount = maxChunkCount;
+		this.maxMessageSize = maxMessageSize;
+		cur = allocateChunk();
+	}
+
+	/**
+	 * Allocate the next plaintext. The plaintext is limited so that
+	 * max message size cannot be exceeded.
+	 */
+	private ByteBuffer allocateChunk() {
+		int size = chunkFactory.maxPlaintextSize;
+		if (maxMessageSize > 0)
+			size = Math.min(size, maxMessageSize - completedBytes);
+		ByteBuffer result = chunkFactory.allocate(size);
+		result.order(order);
+		plaintexts.add(result);
+		return result;
+	}
+
+	/**
+	 * Move to next chunk if the current chunk is full.
+	 *
+	 * @throws EncodingLimitsExceededIoException if max chunk count or max message size is exceeded
+	 */
+	private void prepareNextChunk() throws EncodingLimitsExceededIoException {
+		while (!cur.hasRemaining()) {
+			if (maxMessageSize > 0 && completedBytes + cur.position() >= maxMessageSize)
+				throw new EncodingLimitsExceededIoException("MaxMessageSize " + maxMessageSize + " exceeded");
+			if (maxChunkCount > 0 && plaintexts.size() >= maxChunkCount) {
+				chunkCountExceeded = true;
+				throw new EncodingLimitsExceededIoException("MaxChunkCount " + maxChunkCount + " exceeded");
+			}
+			completedBytes += cur.position();
+			cur = allocateChunk();
+		}
+	}
+
+	/**
+	 * Complete the message. The last plaintext is reallocated to match the
+	 * number of bytes written to it. No more bytes can be written after this.
+	 *
+	 * @return plaintexts of the message, rewound to the start of the body
+	 */
+	public ByteBuffer[] finish() {
+		int last = plaintexts.size() - 1;
+		int length = cur.position();
+		if (cur.hasRemaining()) {
+			ByteBuffer trimmed = chunkFactory.allocate(length);
+			trimmed.order(order);
+			cur.flip();
+			trimmed.put(cur);
+			plaintexts.set(last, trimmed);
+		}
+		completedBytes += length;
+		cur = null;
+		ByteBuffer[] result = plaintexts.toArray(new ByteBuffer[plaintexts.size()]);
+		for (ByteBuffer plaintext : result)
+			plaintext.rewind();
+		return result;
+	}
+
+	/**
+	 * Get the number of bytes written
+	 *
+	 * @return number of bytes written
+	 */
+	public int getLength() {
+		return cur == null ? completedBytes : completedBytes + cur.position();
+	}
+
+	/**
+	 * <p>isChunkCountExceeded.</p>
+	 *
+	 * @return true if writing failed because max chunk count was exceeded
+	 */
+	public boolean isChunkCountExceeded() {
+		return chunkCountExceeded;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ByteOrder order() {
+		return order;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void order(ByteOrder order) {
+		this.order = order;
+		if (cur != null)
+			cur.order(order);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(byte b) throws IOException {
+		prepareNextChunk();
+		cur.put(b);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(ByteBuffer src) throws IOException {
+		while (src.hasRemaining()) {
+			prepareNextChunk();
+			ByteBufferUtils.copyRemaining(src, cur);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(ByteBuffer src, int length) throws IOException {
+		while (length > 0) {
+			prepareNextChunk();
+			int n = Math.min(length, cur.remaining());
+			ByteBufferUtils.copy(src, cur, n);
+			length -= n;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(byte[] src, int offset, int length) throws IOException {
+		while (length > 0) {
+			prepareNextChunk();
+			int n = Math.min(length, cur.remaining());
+			cur.put(src, offset, n);
+			offset += n;
+			length -= n;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void put(byte[] src) throws IOException {
+		put(src, 0, src.length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void putShort(short value) throws IOException {
+		if (cur.remaining() >= 2) {
+			cur.putShort(value);
+			return;
+		}
+		if (order == ByteOrder.BIG_ENDIAN) {
+			put((byte) (value >> 8));
+			put((byte) value);
+		} else {
+			put((byte) value);
+			put((byte) (value >> 8));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void putInt(int value) throws IOException {
+		if (cur.remaining() >= 4) {
+			cur.putInt(value);
+			return;
+		}
+		if (order == ByteOrder.BIG_ENDIAN) {
+			for (int shift = 24; shift >= 0; shift -= 8)
+				put((byte) (value >> shift));
+		} else {
+			for (int shift = 0; shift < 32; shift += 8)
+				put((byte) (value >> shift));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void putLong(long value) throws IOException {
+		if (cur.remaining() >= 8) {
+			cur.putLong(value);
+			return;
+		}
+		if (order == ByteOrder.BIG_ENDIAN) {
+			for (int shift = 56; shift >= 0; shift -= 8)
+				put((byte) (value >> shift));
+		} else {
+			for (int shift = 0; shift < 64; shift += 8)
+				put((byte) (value >> shift));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void putFloat(float value) throws IOException {
+		putInt(Float.floatToIntBits(value));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void putDouble(double value) throws IOException {
+		putLong(Double.doubleToLongBits(value));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void flush() {
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int reserveInt() throws IOException {
+		int mark = getLength();
+		putInt(0);
+		return mark;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getLengthAfter(int mark) {
+		return getLength() - mark - 4;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void patchInt(int mark, int value) {
+		int j = 0;
+		int index = mark;
+		for (int k = 0; k < 4; k++) {
+			while (index >= plaintexts.get(j).position()) {
+				index -= plaintexts.get(j).position();
+				j++;
+			}
+			int shift = order == ByteOrder.BIG_ENDIAN ? 24 - 8 * k : 8 * k;
+			plaintexts.get(j).put(index++, (byte) (value >> shift));
+		}
+	}
+
+}
@@ -0,0 +1,243 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.transport.tcp.io;
+
+import static org.opcfoundation.ua.core.StatusCodes.Bad_ConnectionClosed;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opcfoundation.ua.common.RuntimeServiceResultException;
+import org.opcfoundation.ua.common.ServiceResultException;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.DecodingException;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.utils.IStatefulObject;
+import org.opcfoundation.ua.utils.StackUtils;
+import org.opcfoundation.ua.utils.asyncsocket.AsyncInputStream;
+import org.opcfoundation.ua.utils.asyncsocket.AsyncSelector;
+import org.opcfoundation.ua.utils.asyncsocket.AsyncSocketImpl;
+import org.opcfoundation.ua.utils.asyncsocket.BufferMonitorState;
+import org.opcfoundation.ua.utils.asyncsocket.MonitorListener;
+import org.opcfoundation.ua.utils.asyncsocket.SocketState;
+import org.opcfoundation.ua.utils.bytebuffer.OutputStreamWriteable;
+
+/**
+ * Non-blocking variant of {@link TcpConnection}.
+ * <p>
+ * The connection and the Hello/Acknowledge handshake are done with a blocking
+ * socket, as in {@link TcpConnection}. After the handshake the socket channel
+ * is switched to non-blocking mode and handed to an {@link AsyncSocketImpl}.
+ * Instead of a dedicated read thread per connection, the incoming data is read
+ * by a small pool of shared {@link AsyncSelector}s and the chunks are handled
+ * in {@link StackUtils#getNonBlockingWorkExecutor()}, one chunk of a
+ * connection at a time. Outgoing messages are queued to the socket and written
+ * when the channel is writable.
+ * <p>
+ * The secure channel logic is the same as in {@link TcpConnection}. The
+ * connection is used by {@link SecureChannelTcp} when
+ * {@link OpcTcpSettings.Flag#NonBlocking} is set.
+ */
+public class AsyncTcpConnection extends TcpConnection {
+
+	private static int selectorCount = StackUtils.cores();
+	private static AsyncSelector[] selectors;
+	private static final AtomicInteger nextSelector = new AtomicInteger();
+
+	/**
+	 * <p>Getter for the field <code>selectorCount</code>.</p>
+	 *
+	 * @return the number of selectors shared by the connections
+	 */
+	public static int getSelectorCount() {
+		return selectorCount;
+	}
+
+	/**
+	 * Define the number of selector threads shared by all the connections.
+	 * You must define the value before the first connection is opened.
+	 * <p>
+	 * Default value: the number of available processors
+	 *
+	 * @param selectorCount
+	 *            the new count
+	 */
+	public static void setSelectorCount(int selectorCount) {
+		if (selectorCount < 1)
+			throw new IllegalArgumentException("selectorCount must be at least 1");
+		AsyncTcpConnection.selectorCount = selectorCount;
+	}
+
+	/**
+	 * Get the selector for the next connection. The selectors are created on
+	 * the first call and then handed out in turns.
+	 */
+	static synchronized AsyncSelector getSelector() throws IOException {
+		if (selectors == null) {
+			AsyncSelector[] result = new AsyncSelector[selectorCount];
+			for (int i = 0; i < result.length; i++)
+				result[i] = new AsyncSelector();
+			selectors = result;
+		}
+		return selectors[(nextSelector.getAndIncrement() & Integer.MAX_VALUE) % selectors.length];
+	}
+
+	/**
+	 * The non-blocking socket, after the handshake
+	 */
+	AsyncSocketImpl asyncSocket;
+
+	/** {@inheritDoc} */
+	@Override
+	protected Socket createSocket() throws IOException {
+		return SocketChannel.open().socket();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected ServerSocket createServerSocket() throws IOException {
+		return ServerSocketChannel.open().socket();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Switches the channel of the socket to non-blocking mode and starts
+	 * listening to the incoming chunks.
+	 */
+	@Override
+	protected void startReading(Socket s, EncoderContext ctx) throws IOException {
+		SocketChannel channel = s.getChannel();
+		if (channel == null)
+			throw new IOException("Socket has no channel");
+		channel.configureBlocking(false);
+		AsyncSocketImpl socket = new AsyncSocketImpl(channel, StackUtils.getNonBlockingWorkExecutor(), getSelector());
+		asyncSocket = socket;
+
+		out = new OutputStreamWriteable(new BufferedOutputStream(socket.getOutputStream()));
+		out.order(ByteOrder.LITTLE_ENDIAN);
+
+		logger.debug("{} Reading in non-blocking mode", addr);
+		socket.getInputStream().createMonitor(8, new ChunkReader(s, socket, new ChunkReceiver(ctx)));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void closeSocket(Socket s) throws IOException {
+		AsyncSocketImpl socket = asyncSocket;
+		if (socket != null && socket.socket() == s) {
+			asyncSocket = null;
+			socket.close();
+		} else
+			super.closeSocket(s);
+	}
+
+	/**
+	 * ChunkReader reads the chunks of a connection as they become available
+	 * and passes them to the {@link ChunkReceiver}. It waits for the next
+	 * chunk with a monitor of the input stream, so no thread is blocked while
+	 * the connection is idle.
+	 */
+	class ChunkReader implements MonitorListener {
+		final Socket s;
+		final AsyncSocketImpl socket;
+		final ChunkReceiver receiver;
+
+		ChunkReader(Socket s, AsyncSocketImpl socket, ChunkReceiver receiver) {
+			this.s = s;
+			this.socket = socket;
+			this.receiver = receiver;
+		}
+
+		@Override
+		public void onStateTransition(IStatefulObject<BufferMonitorState, ?> sender,
+				BufferMonitorState oldState, BufferMonitorState newState) {
+			// Trigger is unreachable, the stream has been closed
+			if (newState.isUnreachable()) {
+				receiver.clear();
+				if (s != getSocket())
+					return;
+				ServiceResultException closeError;
+				if (socket.getState() == SocketState.Error) {
+					closeError = new ServiceResultException(Bad_ConnectionClosed, socket.getError(), "Connection closed (unexpected)");
+					logger.info("{} Closed (unexpected)", addr);
+				} else {
+					closeError = new ServiceResultException(Bad_ConnectionClosed, "Connection closed (graceful)");
+					logger.info("{} Closed (graceful)", addr);
+				}
+				close(closeError);
+				return;
+			}
+			if (newState != BufferMonitorState.Triggered)
+				return;
+
+			ServiceResultException closeError;
+			try {
+				AsyncInputStream is = socket.getInputStream();
+				while (s == getSocket()) {
+					// Wait for the chunk header
+					if (is.available() < 8) {
+						is.createMonitor(is.getPosition() + 8, this);
+						return;
+					}
+					ByteBuffer hdr = is.peek(8);
+					hdr.order(ByteOrder.LITTLE_ENDIAN);
+					int chunkType = hdr.getInt();
+					int size = hdr.getInt();
+					receiver.checkChunkHeader(chunkType, size);
+
+					// Wait for the rest of the chunk
+					if (is.available() < size) {
+						is.createMonitor(is.getPosition() + size, this);
+						return;
+					}
+					ByteBuffer chunk = receiver.allocateChunk(size);
+					is.read(chunk, size);
+					receiver.onChunk(chunk);
+				}
+				receiver.clear();
+				return;
+			} catch (DecodingException e) {
+				if (e.getCause()!=null && e.getCause() instanceof EOFException) {
+					logger.info("{} Closed", addr);
+				} else {
+					logger.warn(addr+" Error", e);
+				}
+				closeError = e;
+			} catch (ServiceResultException e) {
+				// Already logged by the ChunkReceiver
+				closeError = e;
+			} catch (RuntimeServiceResultException e) {
+				closeError = e.getCause();
+				logger.warn(addr+" Error", closeError);
+			} catch (Exception e) {
+				closeError = new ServiceResultException(StatusCodes.Bad_InternalError, e);
+				logger.error("Error in ChunkReader", closeError);
+			} catch (StackOverflowError e) {
+				closeError = new ServiceResultException(StatusCodes.Bad_DecodingError, e);
+				logger.error("Error in ChunkReader", closeError);
+			}
+			receiver.clear();
+			close(closeError);
+		}
+	}
+
+}
@@ -44,7 +44,15 @@ public class OpcTcpSettings implements Cloneable{
 		 * This allows higher throughput in secured data intensive applications with 
 		 * large messages.
 		 */
-		MultiThread
+		MultiThread,
+		/**
+		 * In non-blocking mode, client connections are read by a small pool of 
+		 * shared selector threads instead of a dedicated read thread per 
+		 * connection, see {@link AsyncTcpConnection}.
+		 * 
+		 * This allows a client to keep a large number of connections open.
+		 */
+		NonBlocking
 	}
 
 	
@@ -268,7 +268,10 @@ public class SecureChannelTcp implements IMessageListener, IConnectionListener,
 		
 		String url = settings.getDescription().getEndpointUrl();
 		if ( url == null || url.isEmpty() || UriUtil.SCHEME_OPCTCP.equals( UriUtil.getTransportProtocol(url) )) {
-			setTransportChannel(new TcpConnection());
+			if (settings.getOpctcpSettings().getFlags().contains(OpcTcpSettings.Flag.NonBlocking))
+				setTransportChannel(new AsyncTcpConnection());
+			else
+				setTransportChannel(new TcpConnection());
 			getTransportChannel().initialize(addr, settings, ctx);
 			getTransportChannel().addConnectionListener( this );
 			getTransportChannel().addMessageListener( this );			
@@ -69,6 +69,7 @@ import org.opcfoundation.ua.encoding.EncodeType;
 import org.opcfoundation.ua.encoding.EncoderContext;
 import org.opcfoundation.ua.encoding.EncodingException;
 import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.binary.BinaryCodecPool;
 import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
 import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
 import org.opcfoundation.ua.encoding.binary.IEncodeableSerializer;
@@ -86,6 +87,7 @@ import org.opcfoundation.ua.transport.security.SecurityConfiguration;
 import org.opcfoundation.ua.transport.security.SecurityMode;
 import org.opcfoundation.ua.transport.security.SecurityPolicy;
 import org.opcfoundation.ua.transport.tcp.impl.Acknowledge;
+import org.opcfoundation.ua.transport.tcp.impl.ChunkArrayWriteable;
 import org.opcfoundation.ua.transport.tcp.impl.ChunkAsymmDecryptVerifier;
 import org.opcfoundation.ua.transport.tcp.impl.ChunkAsymmEncryptSigner;
 import org.opcfoundation.ua.transport.tcp.impl.ChunkFactory;
@@ -102,8 +104,8 @@ import org.opcfoundation.ua.utils.CryptoUtil;
 import org.opcfoundation.ua.utils.SizeCalculationOutputStream;
 import org.opcfoundation.ua.utils.StackUtils;
 import org.opcfoundation.ua.utils.TimerUtil;
-import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayReadable;
-import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayWriteable2;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferPool;
+import org.opcfoundation.ua.utils.bytebuffer.CompositeByteBufferReadable;
 import org.opcfoundation.ua.utils.bytebuffer.IBinaryReadable;
 import org.opcfoundation.ua.utils.bytebuffer.InputStreamReadable;
 import org.opcfoundation.ua.utils.bytebuffer.OutputStreamWriteable;
@@ -275,6 +277,19 @@ public class TcpConnection implements IConnection {
 	 */
 	EncoderContext ctx;
 
+	/**
+	 * Encoders and decoders reused by the senders and the read thread
+	 */
+	final BinaryCodecPool codecPool = new BinaryCodecPool();
+
+	/**
+	 * ByteStrings of at least this many bytes are decoded as slices of the
+	 * received chunks. The chunks of a message with slices are not returned
+	 * to the chunk pool, so the slices stay valid, but each one keeps its
+	 * whole chunk in memory.
+	 */
+	static final int BYTESTRING_SLICE_THRESHOLD = 4096;
+
 	/**
 	 * Incoming message listeners. All incoming messages are notified to all
 	 * listeners. It is up to the listener to find the interesting messages.
@@ -389,6 +404,34 @@ public class TcpConnection implements IConnection {
 		TcpConnection.sendBufferSize = sendBufferSize;
 	}
 
+	private static volatile ByteBufferPool chunkPool = new ByteBufferPool();
+
+	/**
+	 * <p>Getter for the field <code>chunkPool</code>.</p>
+	 *
+	 * @return the pool of the receive buffers shared by the connections
+	 */
+	public static ByteBufferPool getChunkPool() {
+		return chunkPool;
+	}
+
+	/**
+	 * Define the pool that the receive buffers of the incoming chunks are
+	 * taken from. The buffers are returned to the pool once the message has
+	 * been decoded. The pool is shared by all the connections.
+	 * <p>
+	 * The pool must allocate heap buffers, as the chunks are decrypted in
+	 * their backing arrays.
+	 *
+	 * @param chunkPool
+	 *            the new pool
+	 */
+	public static void setChunkPool(ByteBufferPool chunkPool) {
+		if (chunkPool == null || chunkPool.isDirect())
+			throw new IllegalArgumentException("chunkPool must be a heap buffer pool");
+		TcpConnection.chunkPool = chunkPool;
+	}
+
 	/**
 	 * <p>initialize.</p>
 	 *
@@ -487,7 +530,7 @@ public class TcpConnection implements IConnection {
 				try {
 					logger.info("{} Connecting", addr);
 					
-					s = new Socket();
+					s = createSocket();
 					// Disable Nagle's algorithm
 					s.setTcpNoDelay(true);
 					if (receiveBufferSize > 0)
@@ -518,7 +561,7 @@ public class TcpConnection implements IConnection {
 			}else {
 				//Reverse Connect, wait for the server-side to open socket
 				try {
-					final ServerSocket ss = new ServerSocket();
+					final ServerSocket ss = createServerSocket();
 					ss.bind(addr);
 					logger.info("Opened ServerSocket at:{}, waiting ReverseHello connection", addr);
 					if(reverseHelloAcceptTimeout > 0) {
@@ -652,6 +695,7 @@ public class TcpConnection implements IConnection {
 				if (len < 8 || len > 0x1000) {
 					throw new ServiceResultException(Bad_TcpMessageTooLarge);
 				}
+				in.limit(in.position() + len - 8);
 
 				// ERRF
 				if (msgType == TcpMessageType.ERRF) {
@@ -715,11 +759,9 @@ public class TcpConnection implements IConnection {
 				for (IConnectionListener l : connectionListeners)
 					l.onOpen();
 
-				logger.debug("Creating ReadThread");
-				thread = new ReadThread(s, dec.getEncoderContext());
-				thread.start();
 				this.ctx = enc.getEncoderContext();
 				this.out = out;
+				startReading(s, dec.getEncoderContext());
 			} catch (IOException e) {
 				try {
 					s.close();
@@ -778,6 +820,7 @@ public class TcpConnection implements IConnection {
 		if (inLen < 8 || inLen > 0x1000) {
 			throw new ServiceResultException(Bad_TcpMessageTooLarge);
 		}
+		in.limit(in.position() + inLen - 8);
 		// ! (REVERSE_HELLO | FINAL)
 		if (msgType != TcpMessageType.RHEF) {
 			logger.error("Did not receive correct message type, expecting: {}, got: {}", TcpMessageType.RHEF, msgType);
@@ -801,7 +844,13 @@ public class TcpConnection implements IConnection {
 		close(new ServiceResultException(Bad_CommunicationError, "Socket closed by the user"));
 	}
 	
-	private void close(ServiceResultException closeError)  
+	/**
+	 * Close the socket connection and notify the connection listeners with the
+	 * given error. Does nothing if it is already closed.
+	 *
+	 * @param closeError the cause of the close
+	 */
+	protected void close(ServiceResultException closeError)  
 	{
 //		logger.warn("close"); // !!!
 		lock.lock();
@@ -810,7 +859,7 @@ public class TcpConnection implements IConnection {
 			if (s == null || !s.isConnected() || s.isClosed())
 				return;
 			try {
-				s.close();
+				closeSocket(s);
 			} catch (IOException e) {
 				// 	Unexpected, not important, log it for remotely possible debug situation 
 				logger.warn(addr+" Close error", e);
@@ -828,6 +877,51 @@ public class TcpConnection implements IConnection {
 			l.onClosed(closeError);
 	}
 
+	/**
+	 * Create an unconnected socket for the connection.
+	 *
+	 * @return a new socket
+	 * @throws java.io.IOException if any.
+	 */
+	protected Socket createSocket() throws IOException {
+		return new Socket();
+	}
+
+	/**
+	 * Create an unbound server socket, which is used to accept the reverse
+	 * connection from the server.
+	 *
+	 * @return a new server socket
+	 * @throws java.io.IOException if any.
+	 */
+	protected ServerSocket createServerSocket() throws IOException {
+		return new ServerSocket();
+	}
+
+	/**
+	 * Start reading the incoming chunks of a connected socket after the
+	 * handshake. The default implementation starts a {@link ReadThread}.
+	 *
+	 * @param s the connected socket
+	 * @param ctx encoder context for the incoming messages
+	 * @throws java.io.IOException if any.
+	 */
+	protected void startReading(Socket s, EncoderContext ctx) throws IOException {
+		logger.debug("Creating ReadThread");
+		thread = new ReadThread(s, ctx);
+		thread.start();
+	}
+
+	/**
+	 * Close the socket of the connection.
+	 *
+	 * @param s the socket
+	 * @throws java.io.IOException if any.
+	 */
+	protected void closeSocket(Socket s) throws IOException {
+		s.close();
+	}
+
 	/**
 	 * <p>Getter for the field <code>socket</code>.</p>
 	 *
@@ -898,269 +992,22 @@ public class TcpConnection implements IConnection {
 
 		@Override
 		public void run() {
+			ChunkReceiver receiver = new ChunkReceiver(ctx);
 			try {
-				// total chunk count
-//				int chunkCount = 0;
-				// boolean multithread = flags.contains(
-				// TransportChannelSettings.Flag.MultiThread );
 				IBinaryReadable in = new InputStreamReadable(s.getInputStream(), Long.MAX_VALUE);
 				in.order(ByteOrder.LITTLE_ENDIAN);
-				ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>(256);
-
-				read: while (this.s == TcpConnection.this.getSocket()) {
-					// Read new message
-					chunks.clear();
-					int messageType = 0;
-					int chunkNumber = 0;
-					int chunkContinuationType = 0;
-					int requestId = 0;
-					int secureChannelId = 0;
-
-					// Read Chunks
-					do {
-						if (chunkNumber > limits.maxRecvChunkCount) {
-							closeError = new ServiceResultException("Recv chunk count exceeded (max = "+chunkNumber+")");
-							logger.warn("{} Recv chunk count exceeded (max = {})", addr, chunkNumber);
-							break read;
-						}
-
-						int chunkType = in.getInt();
-						int chunkMessageType = chunkType & TcpMessageType.MESSAGE_TYPE_MASK;
-						chunkContinuationType = chunkType & TcpMessageType.CHUNK_TYPE_MASK;
-
-						if (chunkNumber == 0) {
-							messageType = chunkMessageType;
-						} else if (chunkMessageType != messageType) {
-							closeError = new ServiceResultException("Error, message type changed between chunks");
-							logger.warn("{} Error, message type changed between chunks", addr);
-							break read;
-						}							
-						
-						if (chunkMessageType != TcpMessageType.OPEN && chunkMessageType != TcpMessageType.MESSAGE && chunkType != TcpMessageType.ERRF)
-						{
-							closeError = new ServiceResultException("Error, unknown message type "+String.format("0x%08x", chunkType));
-							logger.warn("{} Error, unknown message type {}", addr, String.format("0x%08x", chunkType));
-							break read;
-						}
-
-						// Read size
-						int size = in.getInt();
-						
-						if (size>limits.maxRecvBufferSize) {
-							closeError = new ServiceResultException("Error, chunk too large (max = "+limits.maxRecvBufferSize+")");
-							logger.warn("{} Error, chunk too large (max = {})", addr, limits.maxRecvBufferSize);
-							break read;
-						}
-
-						// Read the rest of the chunk
-						ByteBuffer chunk = ByteBuffer.allocate(size);
-						chunk.order(ByteOrder.LITTLE_ENDIAN);
-						chunk.putInt(chunkType);
-						chunk.putInt(size);
-						in.get(chunk, size - 8);
-
-						// Handle ERRF
-						if (chunkType == TcpMessageType.ERRF) {
-							chunk.position(8);
-							BinaryDecoder dec = new BinaryDecoder(chunk);
-							dec.setEncoderContext(ctx);
-
-							ErrorMessage error = dec.getEncodeable(null, ErrorMessage.class);
-
-							ServiceResultException e = new ServiceResultException(error.getError(), error.getReason());
-							closeError = e;
-							logger.warn(s.getRemoteSocketAddress()+" Error", e);
-							break read;
-						}
 
-						int chunkSecureChannelId = ChunkUtils.getSecureChannelId(chunk);
-						if (chunkNumber == 0) {
-							secureChannelId = chunkSecureChannelId;
-						} else {
-							if (secureChannelId != chunkSecureChannelId) {
-								closeError = new ServiceResultException("Error, SecureChannelId mismatch");
-								logger.warn("{} Error, SecureChannelId mismatch", addr);
-								break read;									
-							}
-						}
-
-						// Verify & Decrypt
-						if (messageType == TcpMessageType.OPEN) {
-							try {
-								String securityPolicyUri = ChunkUtils.getSecurityPolicyUri(chunk);
-								SecurityPolicy securityPolicy = SecurityPolicy.getSecurityPolicy(securityPolicyUri);
-								byte[] encodedRemoteCertificate = ChunkUtils.getByteString(chunk);
-								byte[] encodedLocalCertificateThumbprint = ChunkUtils.getByteString(chunk);
-
-								// Verify returned values match requested
-								if (securityPolicy != securityConfiguration.getSecurityPolicy()) {
-									closeError = new ServiceResultException("Error, unexpected security policy in OpenSecureChannelResponse");
-									logger.warn("{} Error, unexpected security policy in OpenSecureChannelResponse", addr);
-									break read;									
-								}
-
-								if (securityConfiguration.getSecurityPolicy() != SecurityPolicy.NONE && !Arrays.equals(encodedLocalCertificateThumbprint, securityConfiguration.getEncodedLocalCertificateThumbprint())) {
-									closeError = new ServiceResultException("Error, certificate thumbprint mismatch");
-									logger.warn("{} Error, certificate thumbprint mismatch", addr);
-									break read;									
-								}
-
-								// Decode remote certificate
-								Cert remoteCertificate = null;
-								if (encodedRemoteCertificate != null && encodedRemoteCertificate.length > 0)
-									try {
-										remoteCertificate = new Cert(CertificateUtils.decodeX509Certificate(encodedRemoteCertificate));
-									} catch (CertificateException e) {
-										closeError = new ServiceResultException(Bad_CertificateInvalid, "Error, Invalid Remote Certificate");
-										logger.warn(addr + " Error, Invalid Remote Certificate", e);
-										break read;
-									}
-
-								// Validate remote certificate
-								if (certificateValidator!=null) {
-									StatusCode code = certificateValidator.validateCertificate( remoteCertificate );
-									if (code!=null && !code.isGood()) {
-										closeError = new ServiceResultException(code, "Remote certificate not accepted");										
-										logger.info("{} Remote certificate not accepted: {}", addr, code);
-										break read;									
-									}
-								}
-
-								securityConfiguration = new SecurityConfiguration(securityConfiguration.getSecurityMode(), securityConfiguration.getLocalCertificate2(), remoteCertificate);
-
-								ChunkAsymmDecryptVerifier processor = new ChunkAsymmDecryptVerifier(chunk, securityConfiguration);
-								processor.run();
-
-							} catch (ServiceResultException e) {
-								closeError = e;
-								logger.warn(addr+"", e);
-								break read;
-							}
-						}
-
-						// Verify & Decrypt
-						if (messageType == TcpMessageType.MESSAGE) {
-							int securityTokenId = ChunkUtils.getTokenId(chunk);
-
-							// Find token
-							SecurityToken token = null;
-							logger.debug("tokens({})={}", tokens.size(), tokens);
-							for (SecurityToken t : tokens) 
-								if (t.getTokenId() == securityTokenId && t.getSecureChannelId() == chunkSecureChannelId) 
-									token = t;				
-							logger.debug("token={}", token);
-							if (token==null) {								
-								closeError = new ServiceResultException("Unexpected securityTokenId = "+securityTokenId);										
-								logger.warn("{} Unexpected securityTokenId = {}", addr, securityTokenId);
-								break read;
-							}
-							if (!token.isValid()) {
-								closeError = new ServiceResultException("SecurityToken "+securityTokenId+" has timeouted");										
-								logger.warn("{} SecurityToken {} has timeouted", addr, token);
-								break read;
-							}
-							activeTokenIdMap.put(chunkSecureChannelId, token);
-
-							ChunkSymmDecryptVerifier processor = new ChunkSymmDecryptVerifier(chunk, token);
-							processor.run();
-
-							// Go to sequence header
-							chunk.position(24);
-						}
-
-						// Read & Verify Sequence number
-						chunk.position(chunk.position() - 8);
-						int chunkSequenceNumber = chunk.getInt();
-
-						SequenceNumber seq = sequenceNumbers.get(secureChannelId);
-						if ((messageType == TcpMessageType.MESSAGE) || (seq != null)) {
-							if (!seq.testAndSetRecvSequencenumber(chunkSequenceNumber)) {
-								// 	Sequence number mismatch
-								closeError = new ServiceResultException("Sequence number mismatch");										
-								logger.warn("{} Sequence number mismatch: {} vs. {}", addr, 
-										seq.getRecvSequenceNumber(), chunkSequenceNumber);
-								break read;
-							}
-						}
-
-						// Read & Verify request Id
-						int chunkRequestId = chunk.getInt();
-						if (chunkNumber == 0) {
-							requestId = chunkRequestId;
-						} else {
-							if (chunkRequestId!=requestId) {
-								closeError = new ServiceResultException("Request id mismatch");										
-								logger.warn("{} Request id mismatch", addr);
-								break read;
-							}
-						}
-
-						// Add chunk
-						chunks.add(chunk);
-
-						// Prepare next chunk
-						chunkNumber++;
-//						chunkCount++;
-
-					} while (chunkContinuationType == TcpMessageType.CONTINUE);
-
-					if (chunkContinuationType == TcpMessageType.ABORT)
-						continue;
-
-					// Decode message
-					IBinaryReadable r = new ByteBufferArrayReadable(chunks.toArray(new ByteBuffer[chunks.size()]));
-					r.order(ByteOrder.LITTLE_ENDIAN);
-					BinaryDecoder dec = new BinaryDecoder(r);
-					dec.setEncoderContext(ctx);
-					IEncodeable message = dec.getMessage();
-
-					// Capture security token
-					if (message instanceof OpenSecureChannelResponse) {
-
-						OpenSecureChannelResponse opn = (OpenSecureChannelResponse) message;
-						ChannelSecurityToken tkn = opn.getSecurityToken();
-
-						ByteString clientNonce = clientNonces.get(requestId);
-						ByteString serverNonce = opn.getServerNonce();
-
-						// HAX! In Reconnect to secure channel -situation, the
-						// C# Server implementation sends
-						// two conflicting secure channel id'socket.
-						// The old channel (correct) in message header and a new
-						// channel id in the plaintext.
-						int __secureChannelId = secureChannelId;
-						int ___secureChannelId = tkn.getChannelId().intValue();
-						
-						if (___secureChannelId != __secureChannelId) 
-							logger.warn("{} OpenSecureChannel, server sent two secureChannelIds {} and {} using {}", addr, __secureChannelId, ___secureChannelId, __secureChannelId);
-						
-						try {
-							SecurityToken token = new SecurityToken(
-									TcpConnection.this.securityConfiguration,
-									__secureChannelId,
-									tkn.getTokenId().intValue(),
-									System.currentTimeMillis(),
-									tkn.getRevisedLifetime().longValue(),
-									clientNonce,
-									serverNonce
-								);
-							logger.debug("new token={}", token);
-							tokens.add( token );
-							
-							// Add new sequence number counter
-							if (!sequenceNumbers.containsKey(__secureChannelId))
-								sequenceNumbers.put(__secureChannelId, new SequenceNumber());
-
-						} catch (ServiceResultException e) {
-							closeError = e;
-							logger.warn(addr+" SecurityTokenError ", e);
-							break read;
-						}
-					}
-					clientNonces.remove(requestId);
-
-					for (IMessageListener l : listeners)
-						l.onMessage(requestId, secureChannelId, message);
+				while (this.s == TcpConnection.this.getSocket()) {
+					int chunkType = in.getInt();
+					int size = in.getInt();
+					receiver.checkChunkHeader(chunkType, size);
+
+					// Read the rest of the chunk
+					ByteBuffer chunk = receiver.allocateChunk(size);
+					chunk.putInt(chunkType);
+					chunk.putInt(size);
+					in.get(chunk, size - 8);
+					receiver.onChunk(chunk);
 				}
 			} catch (IOException e) {
 				if (e instanceof SocketException) {
@@ -1185,6 +1032,9 @@ public class TcpConnection implements IConnection {
 					logger.warn(addr+" Error", e);
 				}
 				closeError = e;
+			} catch (ServiceResultException e) {
+				// Already logged by the ChunkReceiver
+				closeError = e;
 			} catch (RuntimeServiceResultException e) {
 				ServiceResultException sre = (ServiceResultException) e.getCause();
 				logger.warn(addr+" Error", sre);
@@ -1197,10 +1047,340 @@ public class TcpConnection implements IConnection {
 				logger.error("Error in ReadThread", closeError);
 			}
 
+			receiver.clear();
 			close(closeError);
 		}
 	}
 
+	/**
+	 * ChunkReceiver validates, deciphers and assembles incoming chunks and
+	 * fires the decoded messages to the listeners. It does not do any I/O by
+	 * itself, so it is shared by the blocking {@link ReadThread} and the
+	 * selector based reading of {@link AsyncTcpConnection}. A receiver is not
+	 * thread-safe, the chunks of a connection must be fed in order from one
+	 * thread at a time.
+	 * 
+	 * Errors are logged and thrown as {@link ServiceResultException}s, after
+	 * which the connection must be closed and {@link #clear()} called.
+	 * 
+	 * The chunks are taken from the chunk pool and returned to it after the
+	 * message has been decoded.
+	 */
+	class ChunkReceiver {
+		EncoderContext ctx;
+		ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>(256);
+		/** Chunk that has been allocated, but not yet handled */
+		ByteBuffer pending;
+		int messageType = 0;
+		int chunkNumber = 0;
+		int requestId = 0;
+		int secureChannelId = 0;
+
+		ChunkReceiver(EncoderContext ctx) {
+			this.ctx = ctx;
+		}
+
+		/**
+		 * Validate the header of the next chunk. The method does not change
+		 * the state of the receiver, so it may be called again for the same
+		 * chunk, while waiting for the rest of it.
+		 * 
+		 * @param chunkType
+		 *            message and chunk type
+		 * @param size
+		 *            size of the chunk, including the header
+		 * @throws ServiceResultException
+		 *             if the chunk is not acceptable
+		 */
+		void checkChunkHeader(int chunkType, int size) throws ServiceResultException {
+			if (chunkNumber > limits.maxRecvChunkCount) {
+				logger.warn("{} Recv chunk count exceeded (max = {})", addr, chunkNumber);
+				throw new ServiceResultException("Recv chunk count exceeded (max = "+chunkNumber+")");
+			}
+
+			int chunkMessageType = chunkType & TcpMessageType.MESSAGE_TYPE_MASK;
+			if (chunkNumber != 0 && chunkMessageType != messageType) {
+				logger.warn("{} Error, message type changed between chunks", addr);
+				throw new ServiceResultException("Error, message type changed between chunks");
+			}							
+
+			if (chunkMessageType != TcpMessageType.OPEN && chunkMessageType != TcpMessageType.MESSAGE && chunkType != TcpMessageType.ERRF)
+			{
+				logger.warn("{} Error, unknown message type {}", addr, String.format("0x%08x", chunkType));
+				throw new ServiceResultException("Error, unknown message type "+String.format("0x%08x", chunkType));
+			}
+
+			if (size>limits.maxRecvBufferSize) {
+				logger.warn("{} Error, chunk too large (max = {})", addr, limits.maxRecvBufferSize);
+				throw new ServiceResultException("Error, chunk too large (max = "+limits.maxRecvBufferSize+")");
+			}
+			if (size < 8) {
+				logger.warn("{} Error, chunk too small ({})", addr, size);
+				throw new ServiceResultException("Error, chunk too small ("+size+")");
+			}
+		}
+
+		/**
+		 * Allocate a buffer for a chunk of the given size from the chunk pool.
+		 * 
+		 * @param size
+		 *            size of the chunk, including the header
+		 * @return little-endian buffer, positioned at 0 and limited to size
+		 */
+		ByteBuffer allocateChunk(int size) {
+			ByteBuffer chunk = chunkPool.take(size);
+			chunk.order(ByteOrder.LITTLE_ENDIAN);
+			pending = chunk;
+			return chunk;
+		}
+
+		/**
+		 * Return the chunks of an incomplete message to the chunk pool.
+		 */
+		void clear() {
+			chunkPool.release(pending);
+			pending = null;
+			releaseChunks(chunks.toArray(new ByteBuffer[chunks.size()]), false);
+			chunks.clear();
+			chunkNumber = 0;
+		}
+
+		void releaseChunks(ByteBuffer[] messageChunks, boolean inUse) {
+			ByteBufferPool pool = chunkPool;
+			for (ByteBuffer chunk : messageChunks)
+				if (inUse)
+					pool.discard(chunk);
+				else
+					pool.release(chunk);
+		}
+
+		/**
+		 * Handle a complete chunk. The chunk must contain the whole chunk,
+		 * header included, and be positioned at its end. When the final chunk
+		 * of a message is received, the message is decoded and notified to the
+		 * listeners.
+		 * 
+		 * @param chunk
+		 *            the chunk
+		 * @throws ServiceResultException
+		 *             if the chunk or message is not acceptable
+		 */
+		void onChunk(ByteBuffer chunk) throws ServiceResultException {
+			// Keep the chunk with the message, so that it is released with it
+			if (pending == chunk)
+				pending = null;
+			chunks.add(chunk);
+
+			int chunkType = chunk.getInt(0);
+			int chunkContinuationType = chunkType & TcpMessageType.CHUNK_TYPE_MASK;
+			if (chunkNumber == 0)
+				messageType = chunkType & TcpMessageType.MESSAGE_TYPE_MASK;
+
+			// Handle ERRF
+			if (chunkType == TcpMessageType.ERRF) {
+				chunk.position(8);
+				BinaryDecoder dec = new BinaryDecoder(chunk);
+				dec.setEncoderContext(ctx);
+
+				ErrorMessage error = dec.getEncodeable(null, ErrorMessage.class);
+
+				ServiceResultException e = new ServiceResultException(error.getError(), error.getReason());
+				logger.warn(addr+" Error", e);
+				throw e;
+			}
+
+			int chunkSecureChannelId = ChunkUtils.getSecureChannelId(chunk);
+			if (chunkNumber == 0) {
+				secureChannelId = chunkSecureChannelId;
+			} else {
+				if (secureChannelId != chunkSecureChannelId) {
+					logger.warn("{} Error, SecureChannelId mismatch", addr);
+					throw new ServiceResultException("Error, SecureChannelId mismatch");
+				}
+			}
+
+			// Verify & Decrypt
+			if (messageType == TcpMessageType.OPEN) {
+				try {
+					String securityPolicyUri = ChunkUtils.getSecurityPolicyUri(chunk);
+					SecurityPolicy securityPolicy = SecurityPolicy.getSecurityPolicy(securityPolicyUri);
+					byte[] encodedRemoteCertificate = ChunkUtils.getByteString(chunk);
+					byte[] encodedLocalCertificateThumbprint = ChunkUtils.getByteString(chunk);
+
+					// Verify returned values match requested
+					if (securityPolicy != securityConfiguration.getSecurityPolicy()) {
+						logger.warn("{} Error, unexpected security policy in OpenSecureChannelResponse", addr);
+						throw new ServiceResultException("Error, unexpected security policy in OpenSecureChannelResponse");
+					}
+
+					if (securityConfiguration.getSecurityPolicy() != SecurityPolicy.NONE && !Arrays.equals(encodedLocalCertificateThumbprint, securityConfiguration.getEncodedLocalCertificateThumbprint())) {
+						logger.warn("{} Error, certificate thumbprint mismatch", addr);
+						throw new ServiceResultException("Error, certificate thumbprint mismatch");
+					}
+
+					// Decode remote certificate
+					Cert remoteCertificate = null;
+					if (encodedRemoteCertificate != null && encodedRemoteCertificate.length > 0)
+						try {
+							remoteCertificate = new Cert(CertificateUtils.decodeX509Certificate(encodedRemoteCertificate));
+						} catch (CertificateException e) {
+							logger.warn(addr + " Error, Invalid Remote Certificate", e);
+							throw new ServiceResultException(Bad_CertificateInvalid, "Error, Invalid Remote Certificate");
+						}
+
+					// Validate remote certificate
+					if (certificateValidator!=null) {
+						StatusCode code = certificateValidator.validateCertificate( remoteCertificate );
+						if (code!=null && !code.isGood()) {
+							logger.info("{} Remote certificate not accepted: {}", addr, code);
+							throw new ServiceResultException(code, "Remote certificate not accepted");
+						}
+					}
+
+					securityConfiguration = new SecurityConfiguration(securityConfiguration.getSecurityMode(), securityConfiguration.getLocalCertificate2(), remoteCertificate);
+
+					ChunkAsymmDecryptVerifier processor = new ChunkAsymmDecryptVerifier(chunk, securityConfiguration);
+					processor.run();
+
+				} catch (ServiceResultException e) {
+					logger.warn(addr+"", e);
+					throw e;
+				}
+			}
+
+			// Verify & Decrypt
+			if (messageType == TcpMessageType.MESSAGE) {
+				int securityTokenId = ChunkUtils.getTokenId(chunk);
+
+				// Find token
+				SecurityToken token = null;
+				logger.debug("tokens({})={}", tokens.size(), tokens);
+				for (SecurityToken t : tokens) 
+					if (t.getTokenId() == securityTokenId && t.getSecureChannelId() == chunkSecureChannelId) 
+						token = t;				
+				logger.debug("token={}", token);
+				if (token==null) {								
+					logger.warn("{} Unexpected securityTokenId = {}", addr, securityTokenId);
+					throw new ServiceResultException("Unexpected securityTokenId = "+securityTokenId);
+				}
+				if (!token.isValid()) {
+					logger.warn("{} SecurityToken {} has timeouted", addr, token);
+					throw new ServiceResultException("SecurityToken "+securityTokenId+" has timeouted");
+				}
+				activeTokenIdMap.put(chunkSecureChannelId, token);
+
+				ChunkSymmDecryptVerifier processor = new ChunkSymmDecryptVerifier(chunk, token);
+				processor.run();
+
+				// Go to sequence header
+				chunk.position(24);
+			}
+
+			// Read & Verify Sequence number
+			chunk.position(chunk.position() - 8);
+			int chunkSequenceNumber = chunk.getInt();
+
+			SequenceNumber seq = sequenceNumbers.get(secureChannelId);
+			if ((messageType == TcpMessageType.MESSAGE) || (seq != null)) {
+				if (!seq.testAndSetRecvSequencenumber(chunkSequenceNumber)) {
+					// 	Sequence number mismatch
+					logger.warn("{} Sequence number mismatch: {} vs. {}", addr, 
+							seq.getRecvSequenceNumber(), chunkSequenceNumber);
+					throw new ServiceResultException("Sequence number mismatch");
+				}
+			}
+
+			// Read & Verify request Id
+			int chunkRequestId = chunk.getInt();
+			if (chunkNumber == 0) {
+				requestId = chunkRequestId;
+			} else {
+				if (chunkRequestId!=requestId) {
+					logger.warn("{} Request id mismatch", addr);
+					throw new ServiceResultException("Request id mismatch");
+				}
+			}
+
+			// Prepare next chunk
+			chunkNumber++;
+			if (chunkContinuationType == TcpMessageType.CONTINUE)
+				return;
+
+			// Message is complete, reset for the next one
+			ByteBuffer[] messageChunks = chunks.toArray(new ByteBuffer[chunks.size()]);
+			int requestId = this.requestId;
+			int secureChannelId = this.secureChannelId;
+			chunks.clear();
+			chunkNumber = 0;
+
+			if (chunkContinuationType == TcpMessageType.ABORT) {
+				releaseChunks(messageChunks, false);
+				return;
+			}
+
+			// Decode message
+			IBinaryReadable r = new CompositeByteBufferReadable(messageChunks);
+			r.order(ByteOrder.LITTLE_ENDIAN);
+			BinaryDecoder dec = codecPool.getDecoder(r, ctx);
+			dec.setByteStringSliceThreshold(BYTESTRING_SLICE_THRESHOLD);
+			IEncodeable message;
+			try {
+				message = dec.getMessage();
+			} finally {
+				// Chunks that ByteStrings refer to are left to the garbage collector
+				releaseChunks(messageChunks, dec.hasSlices());
+				codecPool.release(dec);
+			}
+
+			// Capture security token
+			if (message instanceof OpenSecureChannelResponse) {
+
+				OpenSecureChannelResponse opn = (OpenSecureChannelResponse) message;
+				ChannelSecurityToken tkn = opn.getSecurityToken();
+
+				ByteString clientNonce = clientNonces.get(requestId);
+				ByteString serverNonce = opn.getServerNonce();
+
+				// HAX! In Reconnect to secure channel -situation, the
+				// C# Server implementation sends
+				// two conflicting secure channel id'socket.
+				// The old channel (correct) in message header and a new
+				// channel id in the plaintext.
+				int __secureChannelId = secureChannelId;
+				int ___secureChannelId = tkn.getChannelId().intValue();
+				
+				if (___secureChannelId != __secureChannelId) 
+					logger.warn("{} OpenSecureChannel, server sent two secureChannelIds {} and {} using {}", addr, __secureChannelId, ___secureChannelId, __secureChannelId);
+				
+				try {
+					SecurityToken token = new SecurityToken(
+							TcpConnection.this.securityConfiguration,
+							__secureChannelId,
+							tkn.getTokenId().intValue(),
+							System.currentTimeMillis(),
+							tkn.getRevisedLifetime().longValue(),
+							clientNonce,
+							serverNonce
+						);
+					logger.debug("new token={}", token);
+					tokens.add( token );
+					
+					// Add new sequence number counter
+					if (!sequenceNumbers.containsKey(__secureChannelId))
+						sequenceNumbers.put(__secureChannelId, new SequenceNumber());
+
+				} catch (ServiceResultException e) {
+					logger.warn(addr+" SecurityTokenError ", e);
+					throw e;
+				}
+			}
+			clientNonces.remove(requestId);
+
+			for (IMessageListener l : listeners)
+				l.onMessage(requestId, secureChannelId, message);
+		}
+	}
+
 	/**
 	 * <p>Getter for the field <code>endpointConfiguration</code>.</p>
 	 *
@@ -1277,13 +1457,6 @@ public class TcpConnection implements IConnection {
 
 			SecurityToken token = null;
 
-			// Count message size
-			SizeCalculationOutputStream calcBuf = new SizeCalculationOutputStream();
-			BinaryEncoder calc = new BinaryEncoder(calcBuf);
-			calc.setEncoderContext(ctx);
-			calc.putMessage(request);
-			int len = calcBuf.getLength();
-
 			if (secureChannelId != 0) {
 				token = getSecurityTokenToUse(secureChannelId);
 			}
@@ -1297,7 +1470,7 @@ public class TcpConnection implements IConnection {
 			// as the connection may otherwise be disposed in between
 			ChunkFactory cf = getChunkFactory(asymm, securityMode, keySize);
 			if (cf != null) {
-				MessageBuffers buffers = encodeMessage(cf, len, request);
+				MessageBuffers buffers = encodeMessage(cf, request);
 				if (buffers != null) {
 					ByteBuffer[] chunks = buffers.getChunks();
 					ByteBuffer[] plaintexts = buffers.getPlaintexts();
@@ -1446,16 +1619,12 @@ public class TcpConnection implements IConnection {
 		out.put(chunk);
 	}
 
-	private MessageBuffers encodeMessage(ChunkFactory cf, final int len, IEncodeable request) throws ServiceResultException {
-		// check message max size
-		if ( ctx.maxMessageSize!=0 && len > ctx.maxMessageSize ) {
-			final EncodingException encodingException = new EncodingException(StatusCodes.Bad_EncodingLimitsExceeded, "MaxMessageSize "+ctx.maxMessageSize+" < "+len);
-			logger.warn("encodeMessage: failed", encodingException);
-			throw encodingException;
-		}
-		
-		// Calculate chunk count
-		final int count = (len + cf.maxPlaintextSize - 1) / cf.maxPlaintextSize;
+	/**
+	 * Encode the message in a single pass. Chunks are allocated from the chunk
+	 * factory while the message is written, MaxMessageSize and MaxChunkCount are
+	 * checked as the chunks fill up.
+	 */
+	private MessageBuffers encodeMessage(ChunkFactory cf, IEncodeable request) throws ServiceResultException {
 		int maxSendChunkCount;
 		lock.lock();
 		try {
@@ -1466,31 +1635,21 @@ public class TcpConnection implements IConnection {
 			lock.unlock();
 		}
 
-		if (maxSendChunkCount != 0 && count > maxSendChunkCount)
-			throw new ServiceResultException(Bad_TcpMessageTooLarge);
-
-		// Allocate chunks
-		int bytesLeft = len;
-		ByteBuffer[] plaintexts = new ByteBuffer[count];
-		ByteBuffer[] chunks = new ByteBuffer[count];
-		for (int i = 0; i < count; i++) {
-			plaintexts[i] = cf.allocate(bytesLeft);
-			chunks[i] = cf.expandToCompleteChunk(plaintexts[i]);
-			bytesLeft -= plaintexts[i].remaining();
+		ChunkArrayWriteable outBuffer = new ChunkArrayWriteable(cf, maxSendChunkCount, ctx.maxMessageSize);
+		BinaryEncoder enc = codecPool.getEncoder(outBuffer, ctx);
+		try {
+			enc.putMessage(request);
+		} catch (EncodingException e) {
+			if (outBuffer.isChunkCountExceeded())
+				throw new ServiceResultException(Bad_TcpMessageTooLarge);
+			logger.warn("encodeMessage: failed", e);
+			throw e;
+		} finally {
+			codecPool.release(enc);
 		}
-		assert (bytesLeft == 0);
 
-		// Encode message
-		ByteBufferArrayWriteable2.ChunkListener listener = new ByteBufferArrayWriteable2.ChunkListener() {
-			public void onChunkComplete(ByteBuffer[] chunks, int index) {
-			}
-		};
-		ByteBufferArrayWriteable2 outBuffer = new ByteBufferArrayWriteable2(plaintexts, listener);
-		outBuffer.order(ByteOrder.LITTLE_ENDIAN);
-		
-		BinaryEncoder enc = new BinaryEncoder(outBuffer);
-		enc.setEncoderContext(ctx);
-		enc.putMessage(request);
+		ByteBuffer[] plaintexts = outBuffer.finish();
+		ByteBuffer[] chunks = cf.expandToCompleteChunk(plaintexts);
 		return new MessageBuffers(chunks, plaintexts);
 	}
 
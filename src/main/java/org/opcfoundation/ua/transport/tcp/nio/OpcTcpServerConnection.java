@@ -46,6 +46,7 @@ import org.opcfoundation.ua.core.SecurityTokenRequestType;
 import org.opcfoundation.ua.core.StatusCodes;
 import org.opcfoundation.ua.encoding.EncoderContext;
 import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.binary.BinaryCodecPool;
 import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
 import org.opcfoundation.ua.transport.AsyncWrite;
 import org.opcfoundation.ua.transport.CloseableObject;
@@ -161,6 +162,8 @@ public class OpcTcpServerConnection extends AbstractServerConnection {
 
 		EncoderContext encoderCtx;
 		EndpointConfiguration endpointConfiguration;
+		/** Encoders and decoders reused by the message builders and the senders */
+		final BinaryCodecPool codecPool = new BinaryCodecPool();
 
 		/// ??? ///
 		// Handles incoming data //
@@ -584,7 +587,7 @@ public class OpcTcpServerConnection extends AbstractServerConnection {
 
 					AtomicInteger recvSequenceNumber = secureChannel==null ? null : secureChannel.recvSequenceNumber;
 
-					secureMessageBuilder = new SecureInputMessageBuilder(securityConfiguration, messageListener, ctx, encoderCtx, recvSequenceNumber);
+					secureMessageBuilder = new SecureInputMessageBuilder(securityConfiguration, messageListener, ctx, encoderCtx, recvSequenceNumber, codecPool);
 				}
 				logger.debug("onAsymmSecureChunk: {}", chunk);
 				secureMessageBuilder.addChunk(chunk);
@@ -888,7 +891,7 @@ public class OpcTcpServerConnection extends AbstractServerConnection {
 				      secureMessageBuilder = null;
 				}
 				if (secureMessageBuilder==null) {
-					secureMessageBuilder = new SecureInputMessageBuilder(token/*channel*/, messageListener, ctx, encoderCtx, channel.recvSequenceNumber);
+					secureMessageBuilder = new SecureInputMessageBuilder(token/*channel*/, messageListener, ctx, encoderCtx, channel.recvSequenceNumber, codecPool);
 					logger.debug("handleSymmChunk: secureMessageBuilder={}", secureMessageBuilder);
 					//				onSecureMessageBegin(secureMessageBuilder, chunk);
 				}
@@ -1229,8 +1232,7 @@ public class OpcTcpServerConnection extends AbstractServerConnection {
 				ByteBufferArrayWriteable2 out = new ByteBufferArrayWriteable2(plaintexts, completitionListener);
 				out.order(ByteOrder.LITTLE_ENDIAN);
 
-				final BinaryEncoder enc = new BinaryEncoder(out);
-				enc.setEncoderContext(encoderCtx);
+				final BinaryEncoder enc = codecPool.getEncoder(out, encoderCtx);
 
 				Runnable encoder = new Runnable() {
 					@Override
@@ -1253,6 +1255,8 @@ public class OpcTcpServerConnection extends AbstractServerConnection {
 							}
 						} catch (ServiceResultException e) {
 							msg.setError( StackUtils.toServiceResultException(e) );
+						} finally {
+							codecPool.release(enc);
 						}
 					}};
 					StackUtils.getBlockingWorkExecutor().execute(encoder);
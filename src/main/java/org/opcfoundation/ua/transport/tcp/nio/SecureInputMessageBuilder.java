@@ -23,6 +23,7 @@ import org.opcfoundation.ua.common.ServiceResultException;
 import org.opcfoundation.ua.core.StatusCodes;
 import org.opcfoundation.ua.encoding.EncoderContext;
 import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.binary.BinaryCodecPool;
 import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
 import org.opcfoundation.ua.transport.security.SecurityConfiguration;
 import org.opcfoundation.ua.transport.tcp.impl.ChunkAsymmDecryptVerifier;
@@ -32,8 +33,8 @@ import org.opcfoundation.ua.transport.tcp.impl.SecurityToken;
 import org.opcfoundation.ua.transport.tcp.impl.TcpConnectionParameters;
 import org.opcfoundation.ua.transport.tcp.impl.TcpMessageType;
 import org.opcfoundation.ua.utils.StackUtils;
+import org.opcfoundation.ua.utils.bytebuffer.CompositeByteBufferReadable;
 import org.opcfoundation.ua.utils.bytebuffer.IncubationBuffer;
-import org.opcfoundation.ua.utils.bytebuffer.InputStreamReadable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,6 +106,21 @@ public class SecureInputMessageBuilder implements InputMessage {
 	 * @param encoderCtx a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
 	 */
 	public SecureInputMessageBuilder(Object token, MessageListener listener, TcpConnectionParameters ctx, EncoderContext encoderCtx, AtomicInteger expectedSequenceNumber)
+	{
+		this(token, listener, ctx, encoderCtx, expectedSequenceNumber, null);
+	}
+
+	/**
+	 * Create message builder. Message builder compiles inbound chunks into a message.
+	 *
+	 * @param token {@link SecurityToken} (symm) or {@link SecurityConfiguration} (asymm)
+	 * @param listener a {@link org.opcfoundation.ua.transport.tcp.nio.SecureInputMessageBuilder.MessageListener} object.
+	 * @param ctx a {@link org.opcfoundation.ua.transport.tcp.impl.TcpConnectionParameters} object.
+	 * @param encoderCtx a {@link org.opcfoundation.ua.encoding.EncoderContext} object.
+	 * @param expectedSequenceNumber a {@link java.util.concurrent.atomic.AtomicInteger} object.
+	 * @param codecPool pool the decoder is taken from for the duration of decoding, or null to create a new decoder
+	 */
+	public SecureInputMessageBuilder(Object token, MessageListener listener, TcpConnectionParameters ctx, EncoderContext encoderCtx, AtomicInteger expectedSequenceNumber, final BinaryCodecPool codecPool)
 	{
 		assert(token!=null);
 		this.listener = listener;
@@ -119,15 +135,23 @@ public class SecureInputMessageBuilder implements InputMessage {
 		chunkSink = new IncubationBuffer();		
 //		chunkSink = new OrderedByteBufferInputStream();
 		int maxRecvSize = ctx.maxRecvMessageSize==0 ? Integer.MAX_VALUE : ctx.maxRecvMessageSize;
-		InputStreamReadable isr = new InputStreamReadable(chunkSink, maxRecvSize);
+		// addChunk() rejects messages larger than this, so the decoder need not expect more
+		if (encoderCtx.getMaxMessageSize() > 0)
+			maxRecvSize = Math.min(maxRecvSize, encoderCtx.getMaxMessageSize());
+		final CompositeByteBufferReadable isr = new CompositeByteBufferReadable(chunkSink, maxRecvSize);
 		isr.order(ByteOrder.LITTLE_ENDIAN);		
-		final BinaryDecoder messageDecoder = new BinaryDecoder(isr);
-		messageDecoder.setEncoderContext(encoderCtx);
 		
 		// Runnable that starts decoding the message. 
 		// It is started in a thread right after the first chunk is added (addChunk())
 		messageDecoderRun = new Runnable() {
 			public void run() {				
+				BinaryDecoder messageDecoder;
+				if (codecPool != null) {
+					messageDecoder = codecPool.getDecoder(isr, SecureInputMessageBuilder.this.encoderCtx);
+				} else {
+					messageDecoder = new BinaryDecoder(isr);
+					messageDecoder.setEncoderContext(SecureInputMessageBuilder.this.encoderCtx);
+				}
 				try {					
 					// Decode the message using the chunk sink (set in dec)
 					// Decoding proceeds as chunks are added to the chunk sink. 
@@ -153,6 +177,9 @@ public class SecureInputMessageBuilder implements InputMessage {
 					// JVM setting -Xss influences possible level of nesting. At least 100 levels of nesting must be supported, this should not be a problem with normal thread stack sizes. 
 					// Inform receiving side that error has happened.
 					setError(new ServiceResultException(StatusCodes.Bad_DecodingError, "Stack overflow: " + Arrays.toString(Arrays.copyOf(e1.getStackTrace(), 30)) + "..."));
+				} finally {
+					if (codecPool != null)
+						codecPool.release(messageDecoder);
 				}
 			}};
 	}
@@ -0,0 +1,156 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded map that evicts the least recently used entries. The entries
+ * are split into independently locked segments by hash code, so that
+ * concurrent lookups of different keys seldom wait for each other. Each
+ * segment holds an equal share of the capacity.
+ * <p>
+ * The cache is intended for canonicalizing immutable values: 
+ * {@link #putIfAbsent(Object, Object)} returns the instance that is already
+ * in the cache, if there is one.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+	/** Default number of segments */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private final Segment<K, V>[] segments;
+	private final int mask;
+	private final int capacity;
+
+	/**
+	 * <p>Constructor for LruCache.</p>
+	 *
+	 * @param capacity maximum number of entries, greater than zero
+	 */
+	public LruCache(int capacity) {
+		this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * <p>Constructor for LruCache.</p>
+	 *
+	 * @param capacity maximum number of entries, greater than zero
+	 * @param concurrencyLevel the estimated number of concurrently accessing threads
+	 */
+	public LruCache(int capacity, int concurrencyLevel) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive");
+		int n = 1;
+		while (n < concurrencyLevel && n * 2 <= capacity)
+			n *= 2;
+		int segmentCapacity = (capacity + n - 1) / n;
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Segment<K, V>[] s = new Segment[n];
+		for (int i = 0; i < n; i++)
+			s[i] = new Segment<K, V>(segmentCapacity);
+		segments = s;
+		mask = n - 1;
+		this.capacity = segmentCapacity * n;
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16) ^ (h >>> 8);
+		return segments[h & mask];
+	}
+
+	/**
+	 * Get a value and mark it as recently used.
+	 *
+	 * @param key the key
+	 * @return the value or null
+	 */
+	public V get(K key) {
+		Segment<K, V> s = segmentFor(key);
+		synchronized (s) {
+			return s.get(key);
+		}
+	}
+
+	/**
+	 * Add a value unless the key already has one.
+	 *
+	 * @param key the key
+	 * @param value the value to add
+	 * @return the value already in the cache, or value if there was none
+	 */
+	public V putIfAbsent(K key, V value) {
+		Segment<K, V> s = segmentFor(key);
+		synchronized (s) {
+			V existing = s.get(key);
+			if (existing != null)
+				return existing;
+			s.put(key, value);
+			return value;
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		for (Segment<K, V> s : segments)
+			synchronized (s) {
+				s.clear();
+			}
+	}
+
+	/**
+	 * <p>size.</p>
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		int result = 0;
+		for (Segment<K, V> s : segments)
+			synchronized (s) {
+				result += s.size();
+			}
+		return result;
+	}
+
+	/**
+	 * <p>Getter for the field <code>capacity</code>.</p>
+	 *
+	 * @return the maximum number of entries
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+}
@@ -13,8 +13,11 @@
 package org.opcfoundation.ua.utils;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.Variant;
 import org.opcfoundation.ua.common.ServiceResultException;
 import org.opcfoundation.ua.core.StatusCodes;
 
@@ -22,6 +25,9 @@ import org.opcfoundation.ua.core.StatusCodes;
  * A helper class for defining index ranges according to the OPC UA
  * specification. The index ranges are transferred as string values, but are
  * easier to use with the NumericRange.
+ * <p>
+ * {@link #extract(Variant)} and {@link #patch(Variant, Variant)} read and 
+ * write the part of a value that the range selects.
  */
 public class NumericRange {
 
@@ -420,6 +426,297 @@ public class NumericRange {
 		return indexRange == null || indexRange.isEmpty();
 	}
 
+	/**
+	 * Get the part of a variant value selected by this range, e.g. for a 
+	 * Read with an IndexRange. Primitive number arrays are copied with 
+	 * {@link System#arraycopy(Object, int, Object, int, int)} without boxing.
+	 * See {@link #extract(Object)} for the rules.
+	 *
+	 * @param value the value
+	 * @return the selected part, or value as such if the range is empty
+	 * @throws org.opcfoundation.ua.common.ServiceResultException with Bad_IndexRangeNoData or Bad_IndexRangeInvalid
+	 */
+	public Variant extract(Variant value) throws ServiceResultException {
+		if (value == null || value.isEmpty() || isEmpty())
+			return value;
+		Object flat = value.getPrimitiveArray();
+		if (flat == null)
+			return new Variant(extract(value.getValue()));
+		int[] dims = value.getArrayDimensions();
+		checkDimensions(dims.length, false);
+		int[] from = new int[dims.length];
+		int[] count = new int[dims.length];
+		for (int d = 0; d < dims.length; d++) {
+			from[d] = from(d, dims[d]);
+			count[d] = count(d, dims[d], false);
+		}
+		Object result = Array.newInstance(flat.getClass().getComponentType(), MultiDimensionArrayUtils.getLength(count));
+		copyBlock(flat, dims, from, result, count, new int[dims.length], count);
+		return Variant.valueOf(result, count);
+	}
+
+	/**
+	 * Get the part of a value selected by this range. The value may be an 
+	 * array, a multi-dimension array, a String or a ByteString. For arrays 
+	 * of Strings and ByteStrings the range may have one more dimension, 
+	 * which selects the characters or bytes of each element. 
+	 * <p>
+	 * A range that ends after the end of the value is cut to the end of 
+	 * the value. The value is not modified.
+	 *
+	 * @param value the value
+	 * @return the selected part, or value as such if the range is empty
+	 * @throws org.opcfoundation.ua.common.ServiceResultException with Bad_IndexRangeNoData if 
+	 *         the range begins after the end of the value or the value is not indexable, or with 
+	 *         Bad_IndexRangeInvalid if the range has fewer dimensions than the value
+	 */
+	public Object extract(Object value) throws ServiceResultException {
+		if (value == null || isEmpty())
+			return value;
+		checkDimensions(dimensionsOf(value), isStringArray(value));
+		return extract(value, 0);
+	}
+
+	private Object extract(Object value, int dim) throws ServiceResultException {
+		if (value instanceof String) {
+			String s = (String) value;
+			int from = from(dim, s.length());
+			return s.substring(from, from + count(dim, s.length(), false));
+		}
+		if (value instanceof ByteString) {
+			ByteBuffer src = ((ByteString) value).asByteBuffer();
+			int from = from(dim, src.remaining());
+			byte[] result = new byte[count(dim, src.remaining(), false)];
+			src.position(from);
+			src.get(result);
+			return ByteString.wrap(result);
+		}
+		int length = Array.getLength(value);
+		int from = from(dim, length);
+		int count = count(dim, length, false);
+		Object result = Array.newInstance(value.getClass().getComponentType(), count);
+		if (dim == getDimensions() - 1) {
+			System.arraycopy(value, from, result, 0, count);
+			return result;
+		}
+		for (int i = 0; i < count; i++) {
+			Object element = Array.get(value, from + i);
+			if (element != null)
+				Array.set(result, i, extract(element, dim + 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Write a new value to the part of a variant value selected by this range,
+	 * e.g. for a Write with an IndexRange. Primitive number arrays are copied 
+	 * without boxing. See {@link #patch(Object, Object)} for the rules.
+	 *
+	 * @param target the current value
+	 * @param value the new value of the range
+	 * @return the patched value, or value as such if the range is empty
+	 * @throws org.opcfoundation.ua.common.ServiceResultException with Bad_IndexRangeNoData, 
+	 *         Bad_IndexRangeInvalid or Bad_TypeMismatch
+	 */
+	public Variant patch(Variant target, Variant value) throws ServiceResultException {
+		if (isEmpty())
+			return value;
+		if (target == null || target.isEmpty())
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeNoData);
+		if (value == null || value.isEmpty())
+			throw new ServiceResultException(StatusCodes.Bad_TypeMismatch);
+		Object flat = target.getPrimitiveArray();
+		Object src = value.getPrimitiveArray();
+		if (flat == null || src == null)
+			return new Variant(patch(target.getValue(), value.getValue()));
+		if (flat.getClass() != src.getClass())
+			throw new ServiceResultException(StatusCodes.Bad_TypeMismatch);
+		int[] dims = target.getArrayDimensions();
+		int[] srcDims = value.getArrayDimensions();
+		checkDimensions(dims.length, false);
+		if (srcDims.length != dims.length)
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeInvalid);
+		int[] from = new int[dims.length];
+		for (int d = 0; d < dims.length; d++) {
+			from[d] = from(d, dims[d]);
+			if (srcDims[d] != count(d, dims[d], true))
+				throw new ServiceResultException(StatusCodes.Bad_IndexRangeInvalid);
+		}
+		int length = Array.getLength(flat);
+		Object result = Array.newInstance(flat.getClass().getComponentType(), length);
+		System.arraycopy(flat, 0, result, 0, length);
+		copyBlock(src, srcDims, new int[dims.length], result, dims, from, srcDims);
+		return Variant.valueOf(result, dims);
+	}
+
+	/**
+	 * Write a new value to the part of a value selected by this range. The
+	 * target and the rules are as in {@link #extract(Object)}, except that 
+	 * the range must be within the target and the new value must be exactly 
+	 * of the size of the range. 
+	 * <p>
+	 * The target is not modified, the arrays on the path to the range are 
+	 * copied.
+	 *
+	 * @param target the current value
+	 * @param value the new value of the range
+	 * @return the patched value, or value as such if the range is empty
+	 * @throws org.opcfoundation.ua.common.ServiceResultException with Bad_IndexRangeNoData if 
+	 *         the range is not within the target, with Bad_IndexRangeInvalid if the size of the 
+	 *         value does not match the range, or with Bad_TypeMismatch if the types do not match
+	 */
+	public Object patch(Object target, Object value) throws ServiceResultException {
+		if (isEmpty())
+			return value;
+		if (target == null)
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeNoData);
+		if (value == null)
+			throw new ServiceResultException(StatusCodes.Bad_TypeMismatch);
+		checkDimensions(dimensionsOf(target), isStringArray(target));
+		return patch(target, value, 0);
+	}
+
+	private Object patch(Object target, Object value, int dim) throws ServiceResultException {
+		if (target instanceof String) {
+			if (!(value instanceof String))
+				throw new ServiceResultException(StatusCodes.Bad_TypeMismatch);
+			String s = (String) target;
+			int from = from(dim, s.length());
+			int count = count(dim, s.length(), true);
+			if (((String) value).length() != count)
+				throw new ServiceResultException(StatusCodes.Bad_IndexRangeInvalid);
+			return s.substring(0, from) + value + s.substring(from + count);
+		}
+		if (target instanceof ByteString) {
+			if (!(value instanceof ByteString))
+				throw new ServiceResultException(StatusCodes.Bad_TypeMismatch);
+			ByteBuffer dst = ((ByteString) target).asByteBuffer();
+			ByteBuffer src = ((ByteString) value).asByteBuffer();
+			int from = from(dim, dst.remaining());
+			if (src.remaining() != count(dim, dst.remaining(), true))
+				throw new ServiceResultException(StatusCodes.Bad_IndexRangeInvalid);
+			byte[] result = new byte[dst.remaining()];
+			dst.get(result);
+			src.get(result, from, src.remaining());
+			return ByteString.wrap(result);
+		}
+		if (!value.getClass().isArray())
+			throw new ServiceResultException(StatusCodes.Bad_TypeMismatch);
+		int length = Array.getLength(target);
+		int from = from(dim, length);
+		int count = count(dim, length, true);
+		if (Array.getLength(value) != count)
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeInvalid);
+		Object result = Array.newInstance(target.getClass().getComponentType(), length);
+		System.arraycopy(target, 0, result, 0, length);
+		if (dim == getDimensions() - 1) {
+			try {
+				System.arraycopy(value, 0, result, from, count);
+			} catch (ArrayStoreException e) {
+				// Primitive and boxed arrays of the same type
+				try {
+					for (int i = 0; i < count; i++)
+						Array.set(result, from + i, Array.get(value, i));
+				} catch (IllegalArgumentException e2) {
+					throw new ServiceResultException(StatusCodes.Bad_TypeMismatch, e2);
+				}
+			}
+			return result;
+		}
+		for (int i = 0; i < count; i++) {
+			Object element = Array.get(target, from + i);
+			if (element == null)
+				throw new ServiceResultException(StatusCodes.Bad_IndexRangeNoData);
+			try {
+				Array.set(result, from + i, patch(element, Array.get(value, i), dim + 1));
+			} catch (IllegalArgumentException e) {
+				throw new ServiceResultException(StatusCodes.Bad_TypeMismatch, e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Copy a block from one flat multi-dimension array to another. The 
+	 * arrays are in row-major order, so each row of the block is copied 
+	 * with one System.arraycopy.
+	 */
+	private static void copyBlock(Object src, int[] srcDims, int[] srcFrom, Object dst, int[] dstDims, int[] dstFrom, int[] count) {
+		int n = count.length;
+		for (int c : count)
+			if (c == 0)
+				return;
+		int[] index = new int[n];
+		while (true) {
+			int s = 0, d = 0;
+			for (int k = 0; k < n; k++) {
+				s = s * srcDims[k] + srcFrom[k] + index[k];
+				d = d * dstDims[k] + dstFrom[k] + index[k];
+			}
+			System.arraycopy(src, s, dst, d, count[n - 1]);
+			int k = n - 2;
+			while (k >= 0 && ++index[k] == count[k]) {
+				index[k] = 0;
+				k--;
+			}
+			if (k < 0)
+				return;
+		}
+	}
+
+	/**
+	 * Check that the range can be applied to a value with the number of 
+	 * array dimensions.
+	 */
+	private void checkDimensions(int valueDimensions, boolean stringArray) throws ServiceResultException {
+		if (getDimensions() < valueDimensions)
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeInvalid);
+		if (getDimensions() > valueDimensions + (stringArray ? 1 : 0))
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeNoData);
+	}
+
+	/**
+	 * Number of dimensions the range can index in a value, strings and 
+	 * ByteStrings count as 1-dim arrays.
+	 */
+	private static int dimensionsOf(Object value) {
+		if (value instanceof String || value instanceof ByteString)
+			return 1;
+		return MultiDimensionArrayUtils.getClassDimensions(value.getClass());
+	}
+
+	private static boolean isStringArray(Object value) {
+		Class<?> composite = MultiDimensionArrayUtils.getComponentType(value.getClass());
+		return value.getClass().isArray() && (composite == String.class || composite == ByteString.class);
+	}
+
+	/**
+	 * First index of the range in a dimension of the given length.
+	 */
+	private int from(int dim, int length) throws ServiceResultException {
+		int from = Math.max(begin[dim], 0);
+		if (from >= length)
+			throw new ServiceResultException(StatusCodes.Bad_IndexRangeNoData);
+		return from;
+	}
+
+	/**
+	 * Number of elements of the range in a dimension of the given length.
+	 * If exact, the range must end within the length, otherwise it is cut 
+	 * to the length.
+	 */
+	private int count(int dim, int length, boolean exact) throws ServiceResultException {
+		if (begin[dim] < 0)
+			return length;
+		int last = getEnd(dim);
+		if (last >= length) {
+			if (exact)
+				throw new ServiceResultException(StatusCodes.Bad_IndexRangeNoData);
+			last = length - 1;
+		}
+		return last - begin[dim] + 1;
+	}
+
 	/**
 	 * <p>toString.</p>
 	 *
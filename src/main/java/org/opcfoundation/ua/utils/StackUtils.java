@@ -38,8 +38,8 @@ import org.opcfoundation.ua.builtintypes.UnsignedInteger;
 import org.opcfoundation.ua.common.ServiceResultException;
 import org.opcfoundation.ua.core.EncodeableSerializer;
 import org.opcfoundation.ua.core.StatusCodes;
-import org.opcfoundation.ua.encoding.binary.EncodeableReflectionSerializer;
 import org.opcfoundation.ua.encoding.binary.IEncodeableSerializer;
+import org.opcfoundation.ua.encoding.binary.SpecializedEncodeableSerializer;
 import org.opcfoundation.ua.encoding.utils.EncodeableDesc;
 import org.opcfoundation.ua.encoding.utils.EncodeableDescTable;
 import org.opcfoundation.ua.encoding.utils.SerializerComposition;
@@ -276,7 +276,7 @@ public class StackUtils {
 			reflectionTable.addStructureInfo( EncodeableDesc.readFromClass(Hello.class, Hello.getFields()) );
 			reflectionTable.addStructureInfo( EncodeableDesc.readFromClass(ErrorMessage.class, ErrorMessage.getFields()) );
 			reflectionTable.addStructureInfo( EncodeableDesc.readFromClass(ReverseHello.class, ReverseHello.getFields()) );
-			EncodeableReflectionSerializer e = new EncodeableReflectionSerializer(reflectionTable);
+			SpecializedEncodeableSerializer e = new SpecializedEncodeableSerializer(reflectionTable);
 
 			serializer.addSerializer(e);
 
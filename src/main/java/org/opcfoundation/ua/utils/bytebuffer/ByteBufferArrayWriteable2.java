@@ -19,17 +19,28 @@ import java.nio.ByteOrder;
 
 
 /**
- * Sends events when chunks are complete
+ * Sends events when chunks are complete.
+ * <p>
+ * While there are reserved ints that have not been patched, completed chunks
+ * are withheld. The events are sent once all reserved ints are patched.
  *
  * @author Toni Kalajainen (toni.kalajainen@vtt.fi)
  */
-public class ByteBufferArrayWriteable2 implements IBinaryWriteable {
+public class ByteBufferArrayWriteable2 implements IBinaryPatchableWriteable {
 
 	ByteBuffer[] bufs;
 	int i = 0;
 	ByteBuffer cur;
 	ByteOrder order;
 	ChunkListener listener;
+	/** Start positions of the buffers */
+	int[] starts;
+	/** Number of bytes written to the buffers preceding the current buffer */
+	int base;
+	/** Number of reserved ints that have not been patched */
+	int pendingPatches;
+	/** Number of chunks whose completion has been notified */
+	int fired;
 
 	public interface ChunkListener {
 		void onChunkComplete(ByteBuffer[] chunks, int index);
@@ -46,6 +57,9 @@ public class ByteBufferArrayWriteable2 implements IBinaryWriteable {
 			throw new IllegalArgumentException("null arg");
 		this.bufs = bufs;
 		this.listener = listener;
+		starts = new int[bufs.length];
+		for (int j=0; j<bufs.length; j++)
+			starts[j] = bufs[j].position();
 		cur = bufs[0];		
 	}
 	
@@ -75,16 +89,24 @@ public class ByteBufferArrayWriteable2 implements IBinaryWriteable {
 
 	private void checkChunk()
 	{
-		if (!cur.hasRemaining())
-			fireChunkComplete(i);
+		if (!cur.hasRemaining() && pendingPatches==0)
+			fireCompleteChunks();
+	}
+
+	private void fireCompleteChunks()
+	{
+		int complete = cur.hasRemaining() ? i : i+1;
+		while (fired<complete)
+			fireChunkComplete(fired++);
 	}
 
 	private void prepareNextChunk()
 	{
 		while (!cur.hasRemaining()) {
-			i++;
-			if (i>=bufs.length)
+			if (i+1>=bufs.length)
 				throw new BufferOverflowException();
+			base += cur.position() - starts[i];
+			i++;
 			cur = bufs[i];
 			cur.order(order); 
 		}
@@ -215,5 +237,39 @@ public class ByteBufferArrayWriteable2 implements IBinaryWriteable {
 	@Override
 	public void flush() {
 	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int reserveInt() throws IOException {
+		int mark = base + cur.position() - starts[i];
+		pendingPatches++;
+		putInt(0);
+		return mark;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getLengthAfter(int mark) {
+		return base + cur.position() - starts[i] - mark - 4;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void patchInt(int mark, int value) throws IOException {
+		// Locate the buffer of the reserved int, it may span several buffers
+		int j = 0;
+		int index = starts[0] + mark;
+		for (int k=0; k<4; k++) {
+			while (index >= bufs[j].limit()) {
+				index -= bufs[j].limit();
+				j++;
+				index += starts[j];
+			}
+			int shift = order == ByteOrder.BIG_ENDIAN ? 24 - 8*k : 8*k;
+			bufs[j].put(index++, (byte) (value >> shift));
+		}
+		if (--pendingPatches==0)
+			fireCompleteChunks();
+	}
 	
 }
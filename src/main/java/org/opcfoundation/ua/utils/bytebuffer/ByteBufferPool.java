@@ -0,0 +1,300 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+package org.opcfoundation.ua.utils.bytebuffer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Size-classed pool of {@link ByteBuffer}s.
+ * <p>
+ * The sizes of the pooled buffers are powers of two from the minimum size up
+ * to the maximum size. A buffer is taken with {@link #take(int)}, which returns
+ * a buffer of the smallest class that fits the requested size, and returned
+ * with {@link #release(ByteBuffer)} once its contents are no longer used. A
+ * buffer that must stay in use, for example because values refer to its
+ * backing array, is given up with {@link #discard(ByteBuffer)}. Requests larger
+ * than the maximum size are allocated without pooling. Each class keeps at
+ * most <code>capacity</code> free buffers, the rest are dropped.
+ * <p>
+ * In leak detection mode the pool keeps track of the buffers that have been
+ * taken, and logs an error with the stack trace of the allocation if a buffer
+ * is garbage collected without being released or discarded. Releasing a
+ * buffer twice is logged as well. Leak detection is enabled by default, if
+ * the logger of this class is at DEBUG level.
+ * <p>
+ * Without leak detection, a buffer that is released again while it is
+ * still in the pool is ignored, so that it is not handed out twice.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ByteBufferPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(ByteBufferPool.class);
+
+	/** Default size of the smallest buffer class */
+	public static final int DEFAULT_MIN_SIZE = 8192;
+	/** Default size of the largest buffer class */
+	public static final int DEFAULT_MAX_SIZE = 1 << 20;
+	/** Default number of free buffers kept for each class */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	private final boolean direct;
+	private final int minShift;
+	private final ByteBuffer[][] free;
+	private final int[] freeCount;
+
+	private volatile boolean leakDetection = logger.isDebugEnabled();
+	/** Tracked buffers by identity hash code */
+	private final Map<Integer, List<Tracker>> outstanding = new HashMap<Integer, List<Tracker>>();
+	private final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<ByteBuffer>();
+
+	/**
+	 * Create a heap buffer pool with the default sizes.
+	 */
+	public ByteBufferPool() {
+		this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param minSize size of the smallest buffer class, rounded up to a power of two
+	 * @param maxSize size of the largest buffer class, rounded up to a power of two
+	 * @param capacity max number of free buffers kept for each class
+	 * @param direct true to allocate direct buffers, false for heap buffers
+	 */
+	public ByteBufferPool(int minSize, int maxSize, int capacity, boolean direct) {
+		if (minSize < 1 || maxSize < minSize || maxSize > (1 << 30))
+			throw new IllegalArgumentException("Invalid sizes: minSize=" + minSize + ", maxSize=" + maxSize);
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity < 0");
+		this.direct = direct;
+		minShift = shiftFor(minSize);
+		int classes = shiftFor(maxSize) - minShift + 1;
+		free = new ByteBuffer[classes][capacity];
+		freeCount = new int[classes];
+	}
+
+	/**
+	 * Take a buffer from the pool. The buffer is cleared, in big endian byte
+	 * order and limited to the requested size. Its capacity may be larger.
+	 *
+	 * @param size number of bytes needed
+	 * @return buffer, to be released with {@link #release(ByteBuffer)}
+	 */
+	public ByteBuffer take(int size) {
+		int index = classIndex(size);
+		ByteBuffer result = null;
+		if (index >= 0) {
+			synchronized (free[index]) {
+				if (freeCount[index] > 0) {
+					result = free[index][--freeCount[index]];
+					free[index][freeCount[index]] = null;
+				}
+			}
+			if (result == null)
+				result = allocate(1 << (index + minShift));
+			result.clear();
+			result.order(ByteOrder.BIG_ENDIAN);
+		} else
+			result = allocate(size);
+		result.limit(size);
+		if (leakDetection)
+			track(result);
+		return result;
+	}
+
+	/**
+	 * Return a buffer to the pool. The buffer must not be used after this.
+	 * Buffers that were not taken from a pool of this size are ignored.
+	 *
+	 * @param buf buffer taken from this pool, may be null
+	 */
+	public void release(ByteBuffer buf) {
+		if (buf == null)
+			return;
+		if (leakDetection && !untrack(buf)) {
+			logger.warn("ByteBuffer released twice or not taken from the pool", new Throwable());
+			return;
+		}
+		if (buf.isDirect() != direct)
+			return;
+		int capacity = buf.capacity();
+		int index = classIndex(capacity);
+		if (index < 0 || capacity != 1 << (index + minShift))
+			return;
+		synchronized (free[index]) {
+			// A buffer released twice must not be handed out twice
+			for (int i = 0; i < freeCount[index]; i++)
+				if (free[index][i] == buf) {
+					logger.warn("ByteBuffer released twice", new Throwable());
+					return;
+				}
+			if (freeCount[index] < free[index].length)
+				free[index][freeCount[index]++] = buf;
+		}
+	}
+
+	/**
+	 * Give up a buffer that is still in use. The buffer is not returned to
+	 * the pool and is not reported as a leak.
+	 *
+	 * @param buf buffer taken from this pool, may be null
+	 */
+	public void discard(ByteBuffer buf) {
+		if (buf != null && leakDetection)
+			untrack(buf);
+	}
+
+	/**
+	 * <p>isDirect.</p>
+	 *
+	 * @return true if the pool allocates direct buffers
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * <p>isLeakDetection.</p>
+	 *
+	 * @return true if leak detection is enabled
+	 */
+	public boolean isLeakDetection() {
+		return leakDetection;
+	}
+
+	/**
+	 * Enable or disable leak detection. Buffers that are taken while leak
+	 * detection is disabled are not tracked.
+	 *
+	 * @param leakDetection true to enable leak detection
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+		if (!leakDetection)
+			synchronized (outstanding) {
+				for (List<Tracker> trackers : outstanding.values())
+					for (Tracker t : trackers)
+						t.clear();
+				outstanding.clear();
+			}
+	}
+
+	/**
+	 * Get the number of tracked buffers that have been taken but not yet
+	 * released or discarded. Always 0 if leak detection is disabled.
+	 *
+	 * @return number of outstanding buffers
+	 */
+	public int getOutstandingCount() {
+		synchronized (outstanding) {
+			pollCollected();
+			int count = 0;
+			for (List<Tracker> trackers : outstanding.values())
+				count += trackers.size();
+			return count;
+		}
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+
+	private int classIndex(int size) {
+		int index = shiftFor(size) - minShift;
+		if (index < 0)
+			return 0;
+		return index < free.length ? index : -1;
+	}
+
+	private static int shiftFor(int size) {
+		return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	private void track(ByteBuffer buf) {
+		Tracker t = new Tracker(buf, collected);
+		synchronized (outstanding) {
+			pollCollected();
+			List<Tracker> trackers = outstanding.get(t.hash);
+			if (trackers == null) {
+				trackers = new ArrayList<Tracker>(1);
+				outstanding.put(t.hash, trackers);
+			}
+			trackers.add(t);
+		}
+	}
+
+	private boolean untrack(ByteBuffer buf) {
+		int hash = System.identityHashCode(buf);
+		synchronized (outstanding) {
+			List<Tracker> trackers = outstanding.get(hash);
+			if (trackers != null)
+				for (Iterator<Tracker> i = trackers.iterator(); i.hasNext();) {
+					Tracker t = i.next();
+					if (t.get() == buf) {
+						i.remove();
+						if (trackers.isEmpty())
+							outstanding.remove(hash);
+						t.clear();
+						return true;
+					}
+				}
+			return false;
+		}
+	}
+
+	/**
+	 * Report the buffers that were garbage collected while tracked.
+	 * Called with the lock of outstanding held.
+	 */
+	private void pollCollected() {
+		Tracker t;
+		while ((t = (Tracker) collected.poll()) != null) {
+			List<Tracker> trackers = outstanding.get(t.hash);
+			if (trackers == null || !trackers.remove(t))
+				continue;
+			if (trackers.isEmpty())
+				outstanding.remove(t.hash);
+			logger.error("ByteBuffer of " + t.capacity + " bytes was not released to the pool", t.trace);
+		}
+	}
+
+	/**
+	 * Weak reference to a tracked buffer, with the stack trace of the
+	 * allocation.
+	 */
+	static class Tracker extends WeakReference<ByteBuffer> {
+		final int hash;
+		final int capacity;
+		final Throwable trace = new Throwable("Allocation");
+
+		Tracker(ByteBuffer buf, ReferenceQueue<ByteBuffer> queue) {
+			super(buf, queue);
+			hash = System.identityHashCode(buf);
+			capacity = buf.capacity();
+		}
+	}
+
+}
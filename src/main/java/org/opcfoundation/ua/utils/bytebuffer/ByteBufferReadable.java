@@ -13,8 +13,10 @@
 package org.opcfoundation.ua.utils.bytebuffer;
 
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 
 
 /**
@@ -48,6 +50,16 @@ public class ByteBufferReadable implements IBinaryReadable {
 		this.buf = ByteBuffer.wrap(buf);		
 	}
 
+	/**
+	 * Get the backend buffer. Bytes read directly from the buffer
+	 * are consumed from the input.
+	 *
+	 * @return the backend buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buf;
+	}
+
 	
 	/** {@inheritDoc} */
 	@Override
@@ -184,5 +196,27 @@ public class ByteBufferReadable implements IBinaryReadable {
 		long newPosition = bytes + position();
 		position( newPosition );
 	}
+
+	/**
+	 * Read a string straight from the backing array of the buffer,
+	 * without copying the bytes to an intermediate array.
+	 *
+	 * @param length number of bytes to read
+	 * @param charset charset of the bytes
+	 * @return the string
+	 */
+	public String getString(int length, Charset charset) {
+		if (length > buf.remaining())
+			throw new BufferUnderflowException();
+		if (!buf.hasArray()) {
+			byte[] bytes = new byte[length];
+			buf.get(bytes);
+			return new String(bytes, charset);
+		}
+		int position = buf.position();
+		String result = new String(buf.array(), buf.arrayOffset() + position, length, charset);
+		buf.position(position + length);
+		return result;
+	}
 	
 }
@@ -13,6 +13,7 @@
 package org.opcfoundation.ua.utils.bytebuffer;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -22,7 +23,7 @@ import java.nio.ByteOrder;
  *
  * @author Toni Kalajainen (toni.kalajainen@vtt.fi)
  */
-public class ByteBufferWriteable implements IBinaryWriteable {
+public class ByteBufferWriteable implements IBinaryPatchableWriteable {
 
 	ByteBuffer buf;
 	
@@ -38,6 +39,16 @@ public class ByteBufferWriteable implements IBinaryWriteable {
 		this.buf = buf;
 	}
 
+	/**
+	 * Get the backend buffer. Bytes written directly to the buffer
+	 * are part of the output.
+	 *
+	 * @return the backend buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buf;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void put(byte b) {
@@ -141,5 +152,27 @@ public class ByteBufferWriteable implements IBinaryWriteable {
 		if (newPosition>=Integer.MAX_VALUE || newPosition<0) throw new IllegalArgumentException("index out of range");
 		buf.position((int) newPosition);		
 	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int reserveInt() {
+		if (buf.remaining() < 4)
+			throw new BufferOverflowException();
+		int mark = buf.position();
+		buf.position(mark + 4);
+		return mark;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getLengthAfter(int mark) {
+		return buf.position() - mark - 4;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void patchInt(int mark, int value) {
+		buf.putInt(mark, value);
+	}
 	
 }
@@ -0,0 +1,266 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+package org.opcfoundation.ua.utils.bytebuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * IBinaryReadable over a sequence of ByteBuffers, e.g. the chunks of a message.
+ * <p>
+ * Primitives that fit in the current buffer are read from it directly, 
+ * only values that span two buffers are stitched together byte by byte.
+ * <p>
+ * The buffers are either given as an array, or taken one by one from an 
+ * {@link IncubationBuffer} as they are hatched. In the latter case reading 
+ * blocks until the next buffer is available.
+ * <p>
+ * The byte order of the readable is set to each buffer as it becomes current.
+ */
+public class CompositeByteBufferReadable implements IBinaryReadable {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	ByteBuffer[] bufs;
+	int count, next;
+	IncubationBuffer source;
+	/** The buffer being read */
+	ByteBuffer cur = EMPTY;
+	/** Bytes consumed before the current buffer, minus the start position of the current buffer */
+	long base;
+	long limit;
+	ByteOrder order = ByteOrder.BIG_ENDIAN;
+	/** Buffer for stitching values that span two buffers */
+	final ByteBuffer scratch = ByteBuffer.allocate(8);
+
+	/**
+	 * <p>Constructor for CompositeByteBufferReadable.</p>
+	 *
+	 * @param bufs an array of {@link java.nio.ByteBuffer} objects.
+	 */
+	public CompositeByteBufferReadable(ByteBuffer[] bufs) {
+		reset(bufs);
+	}
+
+	/**
+	 * Create a readable that reads the buffers hatched in an incubation
+	 * buffer, blocking until they become available.
+	 *
+	 * @param source buffers to read
+	 * @param limit the number of bytes that can be read at most
+	 */
+	public CompositeByteBufferReadable(IncubationBuffer source, long limit) {
+		if (source == null)
+			throw new IllegalArgumentException("null");
+		this.source = source;
+		this.limit = limit;
+	}
+
+	/**
+	 * Start reading a new sequence of buffers. The byte order is retained.
+	 *
+	 * @param bufs an array of {@link java.nio.ByteBuffer} objects.
+	 */
+	public void reset(ByteBuffer[] bufs) {
+		if (bufs == null)
+			throw new IllegalArgumentException("null");
+		this.bufs = bufs;
+		this.source = null;
+		count = bufs.length;
+		next = 0;
+		cur = EMPTY;
+		base = 0;
+		limit = 0;
+		for (ByteBuffer buf : bufs)
+			limit += buf.remaining();
+	}
+
+	/**
+	 * Get the current buffer, if it has at least the given number of bytes
+	 * remaining. Bytes read directly from the buffer are consumed from the input.
+	 *
+	 * @param length number of bytes required
+	 * @return the current buffer in the byte order of the readable, or null 
+	 *         if the bytes span several buffers
+	 * @throws java.io.IOException if any.
+	 */
+	public ByteBuffer currentBuffer(int length) throws IOException {
+		ByteBuffer b = cur;
+		if (!b.hasRemaining() && length > 0)
+			b = nextBuffer();
+		return b.remaining() >= length ? b : null;
+	}
+
+	/**
+	 * Move to the next buffer with remaining bytes.
+	 *
+	 * @return the new current buffer
+	 * @throws EOFException if there are no more buffers
+	 */
+	private ByteBuffer nextBuffer() throws IOException {
+		ByteBuffer b;
+		do {
+			if (source != null) {
+				b = source.takeBuffer();
+				if (b == null)
+					throw new EOFException();
+			} else {
+				if (next >= count)
+					throw new EOFException();
+				b = bufs[next++];
+			}
+		} while (!b.hasRemaining());
+		base += cur.position() - b.position();
+		b.order(order);
+		return cur = b;
+	}
+
+	/**
+	 * Read bytes of a value that spans several buffers.
+	 *
+	 * @param length number of bytes
+	 * @return buffer containing the bytes in the byte order of the readable
+	 * @throws java.io.IOException if any.
+	 */
+	private ByteBuffer stitch(int length) throws IOException {
+		ByteBuffer s = scratch;
+		s.clear();
+		for (int i = 0; i < length; i++)
+			s.put(get());
+		s.flip();
+		return s;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ByteOrder order() {
+		return order;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void order(ByteOrder order) {
+		this.order = order;
+		cur.order(order);
+		scratch.order(order);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte get() throws IOException {
+		ByteBuffer b = cur;
+		if (!b.hasRemaining())
+			b = nextBuffer();
+		return b.get();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void get(byte[] dst, int offset, int length) throws IOException {
+		while (length > 0) {
+			ByteBuffer b = cur;
+			if (!b.hasRemaining())
+				b = nextBuffer();
+			int n = Math.min(b.remaining(), length);
+			b.get(dst, offset, n);
+			offset += n;
+			length -= n;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void get(byte[] dst) throws IOException {
+		get(dst, 0, dst.length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void get(ByteBuffer buf) throws IOException {
+		get(buf, buf.remaining());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void get(ByteBuffer buf, int length) throws IOException {
+		while (length > 0) {
+			ByteBuffer b = cur;
+			if (!b.hasRemaining())
+				b = nextBuffer();
+			int n = Math.min(b.remaining(), length);
+			int origLimit = b.limit();
+			try {
+				b.limit(b.position() + n);
+				buf.put(b);
+			} finally {
+				b.limit(origLimit);
+			}
+			length -= n;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public double getDouble() throws IOException {
+		if (cur.remaining() >= 8)
+			return cur.getDouble();
+		return stitch(8).getDouble();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public float getFloat() throws IOException {
+		if (cur.remaining() >= 4)
+			return cur.getFloat();
+		return stitch(4).getFloat();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getInt() throws IOException {
+		if (cur.remaining() >= 4)
+			return cur.getInt();
+		return stitch(4).getInt();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getLong() throws IOException {
+		if (cur.remaining() >= 8)
+			return cur.getLong();
+		return stitch(8).getLong();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public short getShort() throws IOException {
+		if (cur.remaining() >= 2)
+			return cur.getShort();
+		return stitch(2).getShort();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long limit() {
+		return limit;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long position() {
+		return base + cur.position();
+	}
+
+}
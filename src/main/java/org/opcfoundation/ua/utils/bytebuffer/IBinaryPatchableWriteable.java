@@ -0,0 +1,60 @@
+/* Copyright (c) 1996-2015, OPC Foundation. All rights reserved.
+   The source code in this file is covered under a dual-license scenario:
+     - RCL: for OPC Foundation members in good-standing
+     - GPL V2: everybody else
+   RCL license terms accompanied with this source code. See http://opcfoundation.org/License/RCL/1.00/
+   GNU General Public License as published by the Free Software Foundation;
+   version 2 of the License are accompanied with this source code. See http://opcfoundation.org/License/GPLv2
+   This source code is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+*/
+
+
+package org.opcfoundation.ua.utils.bytebuffer;
+
+import java.io.IOException;
+
+
+/**
+ * Writeable that can reserve an int field and write its value afterwards.
+ * <p>
+ * This allows length prefixed content, such as the body of a Structure,
+ * to be written directly to the writeable, with the length back-patched
+ * once the content is complete.
+ * <p>
+ * Every reserved int must be patched, implementations may withhold
+ * the written bytes from their consumers until then.
+ */
+public interface IBinaryPatchableWriteable extends IBinaryWriteable {
+
+    /**
+     * Reserve 4 bytes at the current position. The value is written
+     * later with {@link #patchInt(int, int)}.
+     *
+     * @return mark of the reserved int
+     * @throws java.io.IOException if any.
+     */
+    int reserveInt()
+    throws IOException;
+
+    /**
+     * Get the number of bytes written after the reserved int.
+     *
+     * @param mark mark returned by {@link #reserveInt()}
+     * @return number of bytes written after the reserved int
+     */
+    int getLengthAfter(int mark);
+
+    /**
+     * Write the value of a reserved int. The byte order
+     * of the writeable is used.
+     *
+     * @param mark mark returned by {@link #reserveInt()}
+     * @param value a int.
+     * @throws java.io.IOException if any.
+     */
+    void patchInt(int mark, int value)
+    throws IOException;
+
+}
@@ -27,6 +27,7 @@ import java.nio.ByteOrder;
  * @see ByteBufferReadable
  * @see InputStreamReadable
  * @see ByteBufferArrayReadable
+ * @see CompositeByteBufferReadable
  * @author Toni Kalajainen (toni.kalajainen@vtt.fi)
  */
 public interface IBinaryReadable {
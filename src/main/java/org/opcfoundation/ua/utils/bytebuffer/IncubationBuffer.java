@@ -137,6 +137,23 @@ public class IncubationBuffer extends InputStream {
 		}
 	}
 	
+	/**
+	 * Take the next buffer with data as a whole. Blocks until a buffer has
+	 * been hatched. The remaining bytes of the buffer are consumed from the
+	 * stream, and are read directly from the returned buffer.
+	 *
+	 * @return byte buffer with data or null if end of stream
+	 * @throws java.io.InterruptedIOException if interrupted while waiting
+	 */
+	public ByteBuffer takeBuffer()
+	throws InterruptedIOException {
+		synchronized(queue) {
+			ByteBuffer b = getByteBuffer();
+			if (b!=null) cur = null;
+			return b;
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public int read() throws IOException {
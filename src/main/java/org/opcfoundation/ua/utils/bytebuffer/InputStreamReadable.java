@@ -196,6 +196,18 @@ public class InputStreamReadable implements IBinaryReadable {
 	{
 		return limit;
 	}
+
+	/**
+	 * Set the number of bytes that can be read from the stream, e.g. once the
+	 * length of a message is known. Decoders check the lengths of arrays and
+	 * strings against it before allocating them.
+	 *
+	 * @param limit a long.
+	 */
+	public void limit(long limit)
+	{
+		this.limit = limit;
+	}
 	
 	/** {@inheritDoc} */
 	@Override
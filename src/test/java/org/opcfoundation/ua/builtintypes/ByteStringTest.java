@@ -72,6 +72,28 @@ public class ByteStringTest {
     
   }
 
+  @Test
+  public void testSlice() throws Exception {
+    byte[] buffer = new byte[]{0,0,1,2,3,4,5,6,7,8,9,0};
+    ByteString slice = ByteString.slice(buffer, 2, 9);
+    ByteString copy = ByteString.valueOf(new byte[]{1,2,3,4,5,6,7,8,9});
+    
+    assertTrue(slice.isSlice());
+    assertEquals(9, slice.getLength());
+    assertEquals(copy, slice);
+    assertEquals(copy.hashCode(), slice.hashCode());
+    assertEquals(copy.toString(), slice.toString());
+    assertArrayEquals(copy.getValue(), slice.getValue());
+    assertEquals(3, slice.asByteBuffer().get(2));
+    
+    ByteString detached = slice.detach();
+    assertFalse(detached.isSlice());
+    assertSame(detached, detached.detach());
+    buffer[2] = 10;
+    assertEquals(copy, detached);
+    assertNotEquals(copy, slice);
+  }
+
   @Test
   public void testToString() throws Exception {
     byte[] b1 = new byte[]{1,2,3,4,5,6,7,8,110};
@@ -0,0 +1,65 @@
+package org.opcfoundation.ua.builtintypes;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
+import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
+
+public class DataValueTest {
+
+	@Test
+	public void primitiveConstructorMatchesWrappers() throws Exception {
+		DateTime source = new DateTime(131000000000000000L);
+		DateTime server = new DateTime(131000000000000123L);
+		DataValue expected = new DataValue(new Variant(1.5), new StatusCode(StatusCodes.Bad_NoCommunication), 
+				source, UnsignedShort.valueOf(7), server, UnsignedShort.valueOf(9));
+		DataValue actual = new DataValue(new Variant(1.5), StatusCodes.Bad_NoCommunication.intValue(), 
+				source.getValue(), 7, server.getValue(), 9);
+		assertEquals(expected, actual);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertEquals(source, actual.getSourceTimestamp());
+		assertEquals(server.getValue(), actual.getServerTimestampTicks());
+		assertEquals(new StatusCode(StatusCodes.Bad_NoCommunication), actual.getStatusCode());
+		assertEquals(UnsignedShort.valueOf(7), actual.getSourcePicoseconds());
+		assertEquals(9, actual.getServerPicos());
+		assertEquals(expected, actual.clone());
+	}
+
+	@Test
+	public void nullValuesAreKept() throws Exception {
+		DataValue v = new DataValue(Variant.NULL, null);
+		assertNull(v.getStatusCode());
+		assertEquals(0, v.getStatusCodeBits());
+		assertNull(v.getSourceTimestamp());
+		assertEquals(0, v.getSourceTimestampTicks());
+		assertEquals(UnsignedShort.ZERO, v.getSourcePicoseconds());
+		v.setServerPicoseconds(null);
+		assertNull(v.getServerPicoseconds());
+		v.setSourceTimestamp(DateTime.MIN_VALUE);
+		assertEquals(DateTime.MIN_VALUE, v.getSourceTimestamp());
+		assertFalse(v.equals(new DataValue(Variant.NULL, null)));
+	}
+
+	@Test
+	public void binaryRoundTrip() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		DataValue[] values = {
+				new DataValue(new Variant("text"), StatusCode.GOOD, new DateTime(131000000000000000L), null),
+				new DataValue(Variant.valueOf(2.5), StatusCodes.Uncertain_LastUsableValue.intValue(), 
+						131000000000000000L, 100, 131000000000000010L, 200),
+				new DataValue(Variant.NULL, new StatusCode(StatusCodes.Bad_NotReadable))};
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+		enc.putDataValueArray(null, values);
+		BinaryDecoder dec = new BinaryDecoder(buf.toByteArray());
+		dec.setEncoderContext(ctx);
+		assertArrayEquals(values, dec.getDataValueArray(null));
+	}
+
+}
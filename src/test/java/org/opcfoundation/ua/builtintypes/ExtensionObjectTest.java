@@ -1,9 +1,18 @@
 package org.opcfoundation.ua.builtintypes;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
 
 import org.junit.Test;
 import org.opcfoundation.ua.core.AddNodesItem;
+import org.opcfoundation.ua.core.BuildInfo;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
+import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
 
 public class ExtensionObjectTest {
 
@@ -15,4 +24,48 @@ public class ExtensionObjectTest {
 		assertEquals(e1, e2);
 	}
 
+	@Test
+	public void decodedObjectCached() throws Exception {
+		BuildInfo value = new BuildInfo("uri", "manufacturer", "product", "1.0", "1", null);
+		ExtensionObject sut = ExtensionObject.binaryEncode(value, EncoderContext.getDefaultInstance());
+		// Not shared by default
+		BuildInfo decoded = sut.decode(EncoderContext.getDefaultInstance());
+		assertNotSame(decoded, sut.decode(EncoderContext.getDefaultInstance()));
+		
+		EncoderContext ctx = EncoderContext.getDefaultInstance().shallowCopy();
+		ctx.setLazyExtensionObjectDecoding(true);
+		decoded = sut.decode(ctx);
+		assertEquals("product", decoded.getProductName());
+		assertSame(decoded, sut.decode(ctx));
+		// Another context decodes again
+		BuildInfo other = sut.decode(ctx.shallowCopy());
+		assertEquals("product", other.getProductName());
+		assertNotSame(decoded, other);
+		other = sut.decode(EncoderContext.getDefaultInstance());
+		assertEquals("product", other.getProductName());
+		assertNotSame(decoded, other);
+	}
+
+	@Test
+	public void lazyDecodingLeavesBodyEncoded() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance().shallowCopy();
+		ctx.setLazyExtensionObjectDecoding(true);
+		BuildInfo value = new BuildInfo("uri", "manufacturer", "product", "1.0", "1", null);
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+		enc.putExtensionObject(null, new ExtensionObject(value));
+		enc.putVariant(null, new Variant(value));
+
+		BinaryDecoder dec = new BinaryDecoder(buf.toByteArray());
+		dec.setEncoderContext(ctx);
+		ExtensionObject sut = dec.getExtensionObject(null);
+		assertTrue(sut.isEncoded());
+		assertTrue(sut.getObject() instanceof ByteString);
+		assertEquals("product", sut.<BuildInfo>decode(ctx).getProductName());
+		Object variant = dec.getVariant(null).getValue();
+		assertTrue(variant instanceof ExtensionObject);
+		assertEquals("product", ((ExtensionObject) variant).<BuildInfo>decode(ctx).getProductName());
+	}
+
 }
@@ -2,10 +2,16 @@ package org.opcfoundation.ua.builtintypes;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
 import java.util.Arrays;
 
 import org.junit.Test;
+import org.opcfoundation.ua.core.BuildInfo;
 import org.opcfoundation.ua.core.ServerState;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
+import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
 
 public class VariantTest {
   
@@ -173,4 +179,153 @@ public class VariantTest {
     assertTrue(Arrays.deepEquals(data, actual));
   }
   
+  @Test
+  public void testBuiltinTypeIdAndShape() throws Exception {
+    assertEquals(0, Variant.NULL.getBuiltinTypeId());
+    assertEquals(0, Variant.NULL.getDimension());
+    
+    Variant scalar = new Variant(1.5);
+    assertEquals(11, scalar.getBuiltinTypeId());
+    assertFalse(scalar.isArray());
+    assertArrayEquals(new int[0], scalar.getArrayDimensions());
+    
+    assertEquals(6, new Variant(ServerState.Running).getBuiltinTypeId());
+    assertEquals(15, new Variant(new byte[] {1, 2}).getBuiltinTypeId());
+    assertEquals(22, new Variant(new BuildInfo()).getBuiltinTypeId());
+    assertEquals(22, new Variant(new BigDecimal("1.5")).getBuiltinTypeId());
+    
+    Variant matrix = new Variant(new UnsignedInteger[3][4]);
+    assertEquals(7, matrix.getBuiltinTypeId());
+    assertTrue(matrix.isArray());
+    assertEquals(2, matrix.getDimension());
+    int[] dims = matrix.getArrayDimensions();
+    assertArrayEquals(new int[] {3, 4}, dims);
+    dims[0] = 5;
+    assertArrayEquals(new int[] {3, 4}, matrix.getArrayDimensions());
+  }
+  
+  @Test
+  public void testPrimitiveVariants() throws Exception {
+    Variant d = Variant.valueOf(2.75);
+    assertTrue(d.isPrimitive());
+    assertFalse(d.isEmpty());
+    assertEquals(11, d.getBuiltinTypeId());
+    assertEquals(2.75, d.doubleValue(), 0);
+    assertEquals(2, d.intValue());
+    assertEquals(Double.class, d.getCompositeClass());
+    assertEquals(Double.valueOf(2.75), d.getValue());
+    assertEquals(new Variant(2.75), d);
+    assertEquals(new Variant(2.75).hashCode(), d.hashCode());
+    
+    assertTrue(Variant.valueOf(true).booleanValue());
+    assertEquals(Boolean.TRUE, Variant.valueOf(true).getValue());
+    assertEquals(-7L, Variant.valueOf(-7L).longValue());
+    assertEquals(1.5f, Variant.valueOf(1.5f).floatValue(), 0);
+    assertEquals(new Variant(Integer.valueOf(42)), Variant.valueOf(42));
+    assertTrue(Variant.valueOf(Double.NaN).equals(new Variant(Double.NaN)));
+    
+    double[] values = {1, 2, 3};
+    Variant a = Variant.valueOf(values);
+    assertTrue(a.isArray());
+    assertSame(values, a.getPrimitiveArray());
+    assertArrayEquals(new int[] {3}, a.getArrayDimensions());
+    assertArrayEquals(new Double[] {1.0, 2.0, 3.0}, (Double[]) a.getValue());
+    assertSame(a.getValue(), a.getValue());
+    assertEquals(new Variant(new Double[] {1.0, 2.0, 3.0}), a);
+    assertSame(Variant.NULL, Variant.valueOf((double[]) null));
+  }
+  
+  @Test
+  public void testMultiDimensionPrimitiveArrayFlat() throws Exception {
+    int[] flat = {1, 2, 3, 4, 5, 6};
+    Variant sut = Variant.valueOf(flat, new int[] {3, 2});
+    assertSame(flat, sut.getPrimitiveArray());
+    assertEquals(2, sut.getDimension());
+    assertTrue(Arrays.deepEquals(new Integer[][] {{1, 2}, {3, 4}, {5, 6}}, (Integer[][]) sut.getValue()));
+    
+    Variant nested = new Variant(new int[][] {{1, 2}, {3, 4}, {5, 6}});
+    assertArrayEquals(flat, (int[]) nested.getPrimitiveArray());
+    assertArrayEquals(new int[] {3, 2}, nested.getArrayDimensions());
+    assertEquals(Integer.class, nested.getCompositeClass());
+    
+    try {
+      Variant.valueOf(flat, new int[] {4, 2});
+      fail("Expected dimensions to be rejected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      new Variant(new int[][] {{1, 2}, {3}});
+      fail("Expected ragged array to be rejected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+  
+  @Test
+  public void testPrimitiveArrayVariantsEqual() throws Exception {
+    Variant constructed = new Variant(new double[] {1, 2});
+    Variant valueOf = Variant.valueOf(new double[] {1, 2});
+    Variant decoded = binaryRoundTrip(constructed);
+    assertTrue(decoded.isPrimitive());
+    assertArrayEquals(new Double[] {1.0, 2.0}, (Double[]) constructed.getValue());
+    assertEquals(valueOf.getValue().getClass(), constructed.getValue().getClass());
+    
+    assertEquals(constructed, valueOf);
+    assertEquals(valueOf, constructed);
+    assertEquals(constructed, decoded);
+    assertEquals(valueOf, decoded);
+    assertEquals(constructed.hashCode(), valueOf.hashCode());
+    assertEquals(constructed.hashCode(), decoded.hashCode());
+    
+    Variant boxed = new Variant(new Double[] {1.0, 2.0});
+    assertEquals(boxed, constructed);
+    assertEquals(constructed, boxed);
+    assertEquals(boxed.hashCode(), constructed.hashCode());
+    
+    assertFalse(constructed.equals(Variant.valueOf(new double[] {1, 3})));
+    assertFalse(constructed.equals(Variant.valueOf(new float[] {1, 2})));
+    assertFalse(constructed.equals(Variant.valueOf(new double[] {1, 2}, new int[] {1, 2})));
+  }
+  
+  @Test
+  public void testPrimitiveMatrixVariantsEqual() throws Exception {
+    Variant constructed = new Variant(new float[][] {{1, 2}, {3, 4}});
+    Variant valueOf = Variant.valueOf(new float[] {1, 2, 3, 4}, new int[] {2, 2});
+    Variant decoded = binaryRoundTrip(constructed);
+    assertTrue(Arrays.deepEquals(new Float[][] {{1f, 2f}, {3f, 4f}}, (Float[][]) constructed.getValue()));
+    
+    assertEquals(constructed, valueOf);
+    assertEquals(constructed, decoded);
+    assertEquals(constructed.hashCode(), valueOf.hashCode());
+    assertEquals(constructed.hashCode(), decoded.hashCode());
+    
+    Variant boxed = new Variant(new Float[][] {{1f, 2f}, {3f, 4f}});
+    assertEquals(boxed, constructed);
+    assertEquals(constructed, boxed);
+    assertEquals(boxed.hashCode(), constructed.hashCode());
+    
+    assertFalse(constructed.equals(Variant.valueOf(new float[] {1, 2, 3, 4}, new int[] {4, 1})));
+  }
+  
+  @Test
+  public void testPartlyFilledJaggedArray() throws Exception {
+    Integer[][] jagged = new Integer[2][];
+    Variant sut = new Variant(jagged);
+    assertEquals(2, sut.getDimension());
+    assertArrayEquals(new int[] {2, 0}, sut.getArrayDimensions());
+    assertSame(jagged, sut.getValue());
+    
+    jagged = new Integer[][] {{1, 2}, null};
+    assertArrayEquals(new int[] {2, 2}, new Variant(jagged).getArrayDimensions());
+  }
+  
+  private static Variant binaryRoundTrip(Variant v) throws Exception {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    BinaryEncoder enc = new BinaryEncoder(buf);
+    enc.setEncoderContext(EncoderContext.getDefaultInstance());
+    enc.putVariant(null, v);
+    BinaryDecoder dec = new BinaryDecoder(buf.toByteArray());
+    dec.setEncoderContext(EncoderContext.getDefaultInstance());
+    return dec.getVariant(null);
+  }
+  
 }
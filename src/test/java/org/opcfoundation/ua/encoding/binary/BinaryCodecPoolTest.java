@@ -0,0 +1,45 @@
+package org.opcfoundation.ua.encoding.binary;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferReadable;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferWriteable;
+
+public class BinaryCodecPoolTest {
+
+	@Test
+	public void codecsAreReused() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		BinaryCodecPool pool = new BinaryCodecPool(1);
+		ByteBuffer buf = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+
+		BinaryEncoder enc = pool.getEncoder(new ByteBufferWriteable(buf), ctx);
+		enc.putString(null, "first");
+		pool.release(enc);
+		assertNull(enc.getWriteable());
+
+		BinaryEncoder reused = pool.getEncoder(new ByteBufferWriteable(buf), ctx);
+		assertSame(enc, reused);
+		reused.putString(null, "second");
+		// Pool is full, the other encoder is dropped
+		BinaryEncoder other = pool.getEncoder(new ByteBufferWriteable(buf), ctx);
+		assertNotSame(enc, other);
+		pool.release(reused);
+		pool.release(other);
+
+		buf.flip();
+		BinaryDecoder dec = pool.getDecoder(new ByteBufferReadable(buf), ctx);
+		assertEquals("first", dec.getString(null));
+		pool.release(dec);
+		BinaryDecoder reusedDec = pool.getDecoder(new ByteBufferReadable(buf), ctx);
+		assertSame(dec, reusedDec);
+		assertEquals("second", reusedDec.getString(null));
+		pool.release(reusedDec);
+	}
+
+}
@@ -11,15 +11,116 @@ import org.junit.Test;
 import org.opcfoundation.ua.builtintypes.ByteString;
 import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
 import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
 import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.StatusCode;
 import org.opcfoundation.ua.builtintypes.Variant;
 import org.opcfoundation.ua.common.NamespaceTable;
 import org.opcfoundation.ua.core.Identifiers;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.DecodingException;
 import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.NameCache;
+import org.opcfoundation.ua.encoding.NodeIdCache;
 import org.opcfoundation.ua.utils.CryptoUtil;
 import org.opcfoundation.ua.utils.MultiDimensionArrayUtils;
 
 public class BinaryDecoderTest {
+
+	@Test
+	public void knownStatusCodesDecodedAsSharedInstances() throws Exception {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.putStatusCode(null, StatusCode.GOOD);
+		enc.putStatusCode(null, new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+		enc.putStatusCode(null, StatusCode.getFromBits(0x00ABCDEF));
+
+		BinaryDecoder sut = new BinaryDecoder(buf.toByteArray());
+		sut.setEncoderContext(EncoderContext.getDefaultInstance());
+		assertSame(StatusCode.GOOD, sut.getStatusCode(null));
+		assertSame(StatusCode.getFromBits(StatusCodes.Bad_NodeIdUnknown.intValue()), sut.getStatusCode(null));
+		assertEquals(0x00ABCDEF, sut.getStatusCode(null).getValueAsIntBits());
+	}
+
+	@Test
+	public void largeByteStringsSlicedFromInput() throws Exception {
+		byte[] large = new byte[100];
+		Arrays.fill(large, (byte) 7);
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.putByteString(null, ByteString.valueOf((byte) 1, (byte) 2));
+		enc.putByteString(null, ByteString.valueOf(large));
+
+		BinaryDecoder sut = new BinaryDecoder(buf.toByteArray());
+		sut.setEncoderContext(EncoderContext.getDefaultInstance());
+		sut.setByteStringSliceThreshold(50);
+		ByteString small = sut.getByteString(null);
+		assertFalse(small.isSlice());
+		assertFalse(sut.hasSlices());
+		ByteString slice = sut.getByteString(null);
+		assertTrue(slice.isSlice());
+		assertTrue(sut.hasSlices());
+		assertEquals(ByteString.valueOf(large), slice);
+		sut.reset(null);
+		assertFalse(sut.hasSlices());
+	}
+
+	@Test
+	public void namesInternedWithCache() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance().shallowCopy();
+		ctx.setNameCache(new NameCache(16));
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+		for (int i = 0; i < 2; i++) {
+			enc.putQualifiedName(null, new QualifiedName(2, "Temperature"));
+			enc.putLocalizedText(null, new LocalizedText("Temperature " + i, "en"));
+		}
+
+		BinaryDecoder sut = new BinaryDecoder(buf.toByteArray());
+		sut.setEncoderContext(ctx);
+		QualifiedName name = sut.getQualifiedName(null);
+		LocalizedText text = sut.getLocalizedText(null);
+		assertEquals(new QualifiedName(2, "Temperature"), name);
+		assertEquals(new LocalizedText("Temperature 0", "en"), text);
+		assertSame(name, sut.getQualifiedName(null));
+		LocalizedText other = sut.getLocalizedText(null);
+		assertEquals("Temperature 1", other.getText());
+		assertSame(text.getLocaleId(), other.getLocaleId());
+	}
+
+	@Test
+	public void nodeIdsCanonicalizedWithCache() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance().shallowCopy();
+		ctx.setNodeIdCache(new NodeIdCache(16));
+		NodeId custom = new NodeId(2, "Device1.Value");
+		ExpandedNodeId expanded = new ExpandedNodeId(null, 3, 70000);
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+		for (int i = 0; i < 2; i++) {
+			enc.putNodeId(null, Identifiers.Server_ServerStatus);
+			enc.putNodeId(null, new NodeId(custom.getNamespaceIndex(), (String) custom.getValue()));
+			enc.putNodeId(null, NodeId.NULL_STRING);
+			enc.putExpandedNodeId(null, expanded);
+		}
+
+		BinaryDecoder sut = new BinaryDecoder(buf.toByteArray());
+		sut.setEncoderContext(ctx);
+		assertSame(Identifiers.Server_ServerStatus, sut.getNodeId(null));
+		NodeId first = sut.getNodeId(null);
+		assertEquals(custom, first);
+		assertSame(NodeId.NULL_STRING.getIdType(), sut.getNodeId(null).getIdType());
+		ExpandedNodeId firstExpanded = sut.getExpandedNodeId(null);
+		assertEquals(expanded, firstExpanded);
+		assertSame(Identifiers.Server_ServerStatus, sut.getNodeId(null));
+		assertSame(first, sut.getNodeId(null));
+		assertSame(NodeId.NULL_STRING.getIdType(), sut.getNodeId(null).getIdType());
+		assertSame(firstExpanded, sut.getExpandedNodeId(null));
+	}
 	
 	@Test
 	public void testExpandedNodeIdTwoByte() throws Exception{
@@ -125,6 +226,83 @@ public class BinaryDecoderTest {
 		assertTrue(Arrays.deepEquals(expected, actual));
 	}
 	
+	@Test
+	public void declaredLengthsCheckedAgainstRemainingBytes() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		assertEquals(0, ctx.getMaxByteStringLength());
+		assertEquals(0, ctx.getMaxArrayLength());
+		byte[] maxLength = {(byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 0, 0, 0, 0};
+		BinaryDecoder sut = new BinaryDecoder(maxLength);
+		sut.setEncoderContext(ctx);
+		try {
+			sut.getByteString(null);
+			fail("Expected decoding to fail");
+		} catch (DecodingException e) {
+			assertEquals(StatusCodes.Bad_EndOfStream, e.getStatusCode().getValue());
+		}
+		sut = new BinaryDecoder(maxLength);
+		sut.setEncoderContext(ctx);
+		try {
+			sut.get(null, Boolean[].class);
+			fail("Expected decoding to fail");
+		} catch (DecodingException e) {
+			assertEquals(StatusCodes.Bad_EndOfStream, e.getStatusCode().getValue());
+		}
+		// Dimensions 65536 x 65536 overflow an int
+		byte[] dimensions = {2, 0, 0, 0, 0, 0, 1, 0, 0, 0, 1, 0};
+		sut = new BinaryDecoder(dimensions);
+		sut.setEncoderContext(ctx);
+		try {
+			sut.get(null, Boolean[][].class);
+			fail("Expected decoding to fail");
+		} catch (DecodingException e) {
+			assertEquals(StatusCodes.Bad_DecodingError, e.getStatusCode().getValue());
+		}
+	}
+	
+	@Test
+	public void primitiveVariantsDecodedWithoutBoxing() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		Variant[] expected = {new Variant(1.25), new Variant(7), new Variant(true), 
+				new Variant(new Integer[] {1, 2, 3}), new Variant(new Float[] {1.5f}), new Variant("text")};
+		BinaryDecoder sut = new BinaryDecoder(binaryEncode(expected));
+		sut.setEncoderContext(ctx);
+		Variant[] actual = sut.getVariantArray(null);
+		assertArrayEquals(expected, actual);
+		assertEquals(1.25, actual[0].doubleValue(), 0);
+		assertTrue(actual[0].isPrimitive());
+		assertTrue(actual[3].getPrimitiveArray() instanceof int[]);
+		assertTrue(actual[4].getPrimitiveArray() instanceof float[]);
+		assertFalse(actual[5].isPrimitive());
+		// Primitive variants encode as their boxed counterparts
+		assertArrayEquals(binaryEncode(expected), binaryEncode(actual));
+	}
+	
+	@Test
+	public void multidimPrimitiveVariantDecodedFlat() throws Exception {
+		double[] flat = {1, 2, 3, 4, 5, 6};
+		Variant expected = Variant.valueOf(flat, new int[] {2, 3});
+		byte[] encoded = binaryEncode(expected);
+		assertArrayEquals(binaryEncode(new Variant(new double[][] {{1, 2, 3}, {4, 5, 6}})), encoded);
+		BinaryDecoder sut = new BinaryDecoder(encoded);
+		sut.setEncoderContext(EncoderContext.getDefaultInstance());
+		Variant actual = sut.getVariant(null);
+		assertArrayEquals(flat, (double[]) actual.getPrimitiveArray(), 0);
+		assertArrayEquals(new int[] {2, 3}, actual.getArrayDimensions());
+		assertEquals(expected, actual);
+		
+		// Dimensions 2 x 2 do not match the length 6
+		encoded[encoded.length - 4] = 2;
+		sut = new BinaryDecoder(encoded);
+		sut.setEncoderContext(EncoderContext.getDefaultInstance());
+		try {
+			sut.getVariant(null);
+			fail("Expected decoding to fail");
+		} catch (DecodingException e) {
+			assertEquals(StatusCodes.Bad_DecodingError, e.getStatusCode().getValue());
+		}
+	}
+	
 	@Test
 	public void testNodeIdFourByte() throws Exception{
 		NodeId data = new NodeId(0, 33000);
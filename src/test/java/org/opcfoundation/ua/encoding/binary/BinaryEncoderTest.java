@@ -6,18 +6,25 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.opcfoundation.ua.builtintypes.DataValue;
 import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
 import org.opcfoundation.ua.builtintypes.StatusCode;
 import org.opcfoundation.ua.builtintypes.UnsignedShort;
 import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.core.BuildInfo;
 import org.opcfoundation.ua.core.NodeAttributes;
 import org.opcfoundation.ua.core.ObjectAttributes;
 import org.opcfoundation.ua.core.ServerState;
@@ -25,6 +32,9 @@ import org.opcfoundation.ua.core.ServerStatusDataType;
 import org.opcfoundation.ua.encoding.EncoderContext;
 import org.opcfoundation.ua.encoding.EncodingException;
 import org.opcfoundation.ua.utils.CryptoUtil;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayReadable;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayWriteable2;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayWriteable2.ChunkListener;
 
 public class BinaryEncoderTest {
 
@@ -230,6 +240,210 @@ public class BinaryEncoderTest {
 		verify(enc).putBoolean("Test", test);
 	}
 	
+	@Test
+	public void structureLengthBackPatchedAcrossChunks() throws Exception {
+		ServerStatusDataType[] test = new ServerStatusDataType[20];
+		for (int i = 0; i < test.length; i++) {
+			test[i] = new ServerStatusDataType();
+			test[i].setStartTime(DateTime.fromMillis(i));
+			test[i].setState(ServerState.Running);
+			test[i].setBuildInfo(new BuildInfo("uri" + i, "manufacturer", "product", "1.0", "" + i, null));
+			test[i].setShutdownReason(new LocalizedText("reason " + i, "en"));
+		}
+		Variant v = new Variant(test);
+		byte[] expected = binaryEncode(v);
+		
+		// Chunks that split the length fields at every possible offset
+		int chunkSize = 7;
+		ByteBuffer[] chunks = new ByteBuffer[(expected.length + chunkSize - 1) / chunkSize];
+		for (int i = 0; i < chunks.length; i++)
+			chunks[i] = ByteBuffer.allocate(Math.min(chunkSize, expected.length - i * chunkSize));
+		final List<Integer> completed = new ArrayList<Integer>();
+		ByteBufferArrayWriteable2 out = new ByteBufferArrayWriteable2(chunks, new ChunkListener() {
+			@Override
+			public void onChunkComplete(ByteBuffer[] bufs, int index) {
+				completed.add(index);
+			}
+		});
+		out.order(ByteOrder.LITTLE_ENDIAN);
+		BinaryEncoder enc = new BinaryEncoder(out);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.put(null, v);
+		
+		assertEquals(chunks.length, completed.size());
+		byte[] actual = new byte[expected.length];
+		for (int i = 0; i < chunks.length; i++) {
+			assertEquals(i, completed.get(i).intValue());
+			chunks[i].flip();
+			chunks[i].get(actual, i * chunkSize, chunks[i].remaining());
+		}
+		assertArrayEquals(expected, actual);
+		
+		// Same with a single buffer
+		ByteBuffer single = ByteBuffer.allocate(expected.length).order(ByteOrder.LITTLE_ENDIAN);
+		enc = new BinaryEncoder(single);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.put(null, v);
+		assertArrayEquals(expected, single.array());
+	}
+	
+	@Test
+	public void stringEncodingMatchesGetBytes() throws Exception {
+		String[] strings = {"", "ascii", "\u00e4\u00f6 latin", "\u20ac euro", "\ud83d\ude00 pair", 
+				"unpaired \ud83d", "\ude00 unpaired", "mixed a\u00e4\u20ac\ud83d\ude00z"};
+		for (String s : strings) {
+			byte[] expected = s.getBytes(BinaryEncoder.UTF8);
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			BinaryEncoder enc = new BinaryEncoder(buf);
+			enc.setEncoderContext(EncoderContext.getDefaultInstance());
+			enc.putString(null, s);
+			byte[] actual = buf.toByteArray();
+			assertEquals(s, expected.length + 4, actual.length);
+			assertEquals(s, expected.length, ByteBuffer.wrap(actual).order(ByteOrder.LITTLE_ENDIAN).getInt());
+			for (int i = 0; i < expected.length; i++)
+				assertEquals(s, expected[i], actual[i + 4]);
+
+			BinaryDecoder dec = new BinaryDecoder(actual);
+			dec.setEncoderContext(EncoderContext.getDefaultInstance());
+			assertEquals(new String(expected, BinaryEncoder.UTF8), dec.getString(null));
+
+			dec = new BinaryDecoder(new ByteArrayInputStream(actual), actual.length);
+			dec.setEncoderContext(EncoderContext.getDefaultInstance());
+			assertEquals(new String(expected, BinaryEncoder.UTF8), dec.getString(null));
+		}
+	}
+	
+	@Test
+	public void longStringEncodedInBlocks() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		// A surrogate pair across the first block boundary
+		for (int i = 0; i < BinaryEncoder.STRING_BLOCK_LENGTH - 1; i++)
+			sb.append('a');
+		sb.append("\ud83d\ude00");
+		for (int i = 0; i < BinaryEncoder.STRING_BLOCK_LENGTH; i++)
+			sb.append('\u20ac');
+		sb.append("unpaired \ud83d");
+		String s = sb.toString();
+		byte[] expected = s.getBytes(BinaryEncoder.UTF8);
+		
+		// Back-patched length
+		ByteBuffer buf = ByteBuffer.allocate(expected.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.putString(null, s);
+		assertEquals(expected.length + 4, buf.position());
+		assertEquals(expected.length, buf.getInt(0));
+		assertArrayEquals(expected, Arrays.copyOfRange(buf.array(), 4, buf.position()));
+		
+		// Length known in advance
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		enc = new BinaryEncoder(out);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.putString(null, s);
+		assertArrayEquals(buf.array(), out.toByteArray());
+		
+		BinaryDecoder dec = new BinaryDecoder(buf.array());
+		dec.setEncoderContext(EncoderContext.getDefaultInstance());
+		assertEquals(new String(expected, BinaryEncoder.UTF8), dec.getString(null));
+	}
+	
+	@Test
+	public void primitiveArraysMatchBoxedEncoding() throws Exception {
+		int n = 3000;
+		double[] doubles = new double[n];
+		Double[] boxedDoubles = new Double[n];
+		short[] shorts = new short[n];
+		Short[] boxedShorts = new Short[n];
+		for (int i = 0; i < n; i++) {
+			doubles[i] = boxedDoubles[i] = i * 0.5 - 100;
+			shorts[i] = boxedShorts[i] = (short) (i * 31);
+		}
+		long[] longs = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+		float[] floats = {Float.NaN, -1.5f, 0, Float.MAX_VALUE};
+		int[] ints = {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE};
+		assertArrayEquals(binaryEncode(new Variant(boxedDoubles)), binaryEncode(new Variant(doubles)));
+		assertArrayEquals(binaryEncode(new Variant(boxedShorts)), binaryEncode(new Variant(shorts)));
+		assertArrayEquals(binaryEncode(new Variant(new Long[] {Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE})), binaryEncode(new Variant(longs)));
+		assertArrayEquals(binaryEncode(new Variant(new Float[] {Float.NaN, -1.5f, 0f, Float.MAX_VALUE})), binaryEncode(new Variant(floats)));
+		assertArrayEquals(binaryEncode(new Variant(new Integer[] {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE})), binaryEncode(new Variant(ints)));
+		assertEquals(new Variant(doubles), new Variant(doubles.clone()));
+		assertEquals(n, new Variant(doubles).getArrayDimensions()[0]);
+
+		// Directly to a single direct buffer
+		byte[] expected = binaryEncode(new Variant(boxedDoubles));
+		ByteBuffer direct = ByteBuffer.allocateDirect(expected.length).order(ByteOrder.LITTLE_ENDIAN);
+		BinaryEncoder enc = new BinaryEncoder(direct);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.put(null, new Variant(doubles));
+		byte[] actual = new byte[expected.length];
+		direct.flip();
+		direct.get(actual);
+		assertArrayEquals(expected, actual);
+
+		// Decode from a single buffer and from chunks that split the elements
+		ByteBuffer src = ByteBuffer.allocate(expected.length + 2 * n + 4).order(ByteOrder.LITTLE_ENDIAN);
+		enc = new BinaryEncoder(src);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.putDoubleArray(null, doubles);
+		enc.putInt16Array(null, shorts);
+		byte[] encoded = Arrays.copyOf(src.array(), src.position());
+		BinaryDecoder dec = new BinaryDecoder(encoded);
+		dec.setEncoderContext(EncoderContext.getDefaultInstance());
+		assertArrayEquals(doubles, dec.getDoubleArray_(null), 0);
+		assertArrayEquals(shorts, dec.getInt16Array_(null));
+
+		int chunkSize = 997;
+		ByteBuffer[] chunks = new ByteBuffer[(encoded.length + chunkSize - 1) / chunkSize];
+		for (int i = 0; i < chunks.length; i++)
+			chunks[i] = ByteBuffer.wrap(encoded, i * chunkSize, Math.min(chunkSize, encoded.length - i * chunkSize)).slice().order(ByteOrder.LITTLE_ENDIAN);
+		ByteBufferArrayReadable r = new ByteBufferArrayReadable(chunks);
+		r.order(ByteOrder.LITTLE_ENDIAN);
+		dec = new BinaryDecoder(r);
+		dec.setEncoderContext(EncoderContext.getDefaultInstance());
+		assertArrayEquals(doubles, dec.getDoubleArray_(null), 0);
+		assertArrayEquals(shorts, dec.getInt16Array_(null));
+	}
+	
+	@Test
+	public void multidimVariantRoundTrip() throws Exception {
+		Integer[][][] test = new Integer[2][3][4];
+		for (int i = 0; i < 2; i++)
+			for (int j = 0; j < 3; j++)
+				for (int k = 0; k < 4; k++)
+					test[i][j][k] = i * 100 + j * 10 + k;
+		byte[] encoded = binaryEncode(new Variant(test));
+		BinaryDecoder dec = new BinaryDecoder(encoded);
+		dec.setEncoderContext(EncoderContext.getDefaultInstance());
+		Variant actual = dec.getVariant(null);
+		assertTrue(Arrays.deepEquals(test, (Object[]) actual.getValue()));
+		
+		// Inner arrays must match the dimensions of the first ones
+		test[1][2] = new Integer[] {1, 2};
+		try {
+			binaryEncode(new Variant(test));
+			fail("Expected EncodingException");
+		} catch (EncodingException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void guidEncoding() throws Exception {
+		// Example of Part 6, 5.1.3
+		UUID guid = UUID.fromString("72962B91-FA75-4AE6-8D28-B404DC7DAF63");
+		byte[] expected = {(byte) 0x91, 0x2B, (byte) 0x96, 0x72, 0x75, (byte) 0xFA, (byte) 0xE6, 0x4A, 
+				(byte) 0x8D, 0x28, (byte) 0xB4, 0x04, (byte) 0xDC, 0x7D, (byte) 0xAF, 0x63};
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		enc.putGuid(null, guid);
+		assertArrayEquals(expected, buf.toByteArray());
+		
+		BinaryDecoder dec = new BinaryDecoder(expected);
+		dec.setEncoderContext(EncoderContext.getDefaultInstance());
+		assertEquals(guid, dec.getGuid(null));
+	}
+	
 	private byte[] binaryEncode(Object o) throws Exception{
 		ByteArrayOutputStream r = new ByteArrayOutputStream();
 		BinaryEncoder enc = new BinaryEncoder(r);
@@ -0,0 +1,96 @@
+package org.opcfoundation.ua.encoding.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.core.Attributes;
+import org.opcfoundation.ua.core.WriteRequest;
+import org.opcfoundation.ua.core.WriteValue;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayReadable;
+import org.opcfoundation.ua.utils.bytebuffer.CompositeByteBufferReadable;
+import org.opcfoundation.ua.utils.bytebuffer.IBinaryReadable;
+
+/**
+ * Compares decoding a message from chunks with {@link ByteBufferArrayReadable}
+ * and {@link CompositeByteBufferReadable}. Prints the time per message.
+ * <p>
+ * Not run as part of the unit tests, run with the main method.
+ */
+public class CompositeReadableBenchmark {
+
+	static final int CHUNK_SIZE = 8192;
+	static final int ROUNDS = 20;
+	static final int ITERATIONS = 500;
+	/** Keeps the decoded messages reachable so that decoding is not optimized away */
+	static volatile Object sink;
+
+	interface ReadableFactory {
+		IBinaryReadable create(ByteBuffer[] chunks);
+	}
+
+	public static void main(String[] args) throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		WriteValue[] values = new WriteValue[2000];
+		for (int i = 0; i < values.length; i++) {
+			Object value = i % 2 == 0 ? (Object) Double.valueOf(i) : (Object) Integer.valueOf(i);
+			values[i] = new WriteValue(new NodeId(2, i), Attributes.Value, null, 
+					new DataValue(new Variant(value), null, new DateTime(), null));
+		}
+		WriteRequest request = new WriteRequest();
+		request.setNodesToWrite(values);
+		ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+		enc.putMessage(request);
+		int length = buf.position();
+		int count = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		ByteBuffer[] chunks = new ByteBuffer[count];
+		for (int i = 0; i < count; i++)
+			chunks[i] = ByteBuffer.wrap(buf.array(), i * CHUNK_SIZE, Math.min(CHUNK_SIZE, length - i * CHUNK_SIZE)).slice().order(ByteOrder.LITTLE_ENDIAN);
+		System.out.println("Message of " + length + " bytes in " + count + " chunks");
+
+		ReadableFactory array = new ReadableFactory() {
+			public IBinaryReadable create(ByteBuffer[] chunks) {
+				return new ByteBufferArrayReadable(chunks);
+			}
+		};
+		ReadableFactory composite = new ReadableFactory() {
+			public IBinaryReadable create(ByteBuffer[] chunks) {
+				return new CompositeByteBufferReadable(chunks);
+			}
+		};
+		for (int i = 0; i < 2; i++) {
+			measure("ByteBufferArrayReadable", array, chunks, ctx);
+			measure("CompositeByteBufferReadable", composite, chunks, ctx);
+		}
+	}
+
+	static void measure(String name, ReadableFactory factory, ByteBuffer[] chunks, EncoderContext ctx) throws Exception {
+		for (int i = 0; i < ITERATIONS; i++)
+			decode(factory, chunks, ctx);
+		long bestTime = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long time = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++)
+				decode(factory, chunks, ctx);
+			bestTime = Math.min(bestTime, System.nanoTime() - time);
+		}
+		System.out.println(String.format("%-32s %10.1f us/message", name, bestTime / 1000.0 / ITERATIONS));
+	}
+
+	static void decode(ReadableFactory factory, ByteBuffer[] chunks, EncoderContext ctx) throws Exception {
+		for (ByteBuffer chunk : chunks)
+			chunk.rewind();
+		IBinaryReadable r = factory.create(chunks);
+		r.order(ByteOrder.LITTLE_ENDIAN);
+		BinaryDecoder dec = new BinaryDecoder(r);
+		dec.setEncoderContext(ctx);
+		sink = dec.getMessage();
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.opcfoundation.ua.encoding.binary;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.core.BuildInfo;
+import org.opcfoundation.ua.core.ServerState;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.IEncodeable;
+import org.opcfoundation.ua.encoding.utils.EncodeableDesc;
+import org.opcfoundation.ua.encoding.utils.EncodeableDescTable;
+import org.opcfoundation.ua.transport.tcp.impl.Hello;
+
+public class SpecializedEncodeableSerializerTest {
+
+	public static class Sample implements IEncodeable {
+		Integer number;
+		String[] names;
+		ServerState state;
+		ServerState[] states;
+		BuildInfo info;
+		BuildInfo[] infos;
+		Variant value;
+		LocalizedText text;
+		ByteString data;
+	}
+
+	private static Field[] sampleFields() {
+		// Skip fields added by coverage tools
+		List<Field> result = new ArrayList<Field>();
+		for (Field f : Sample.class.getDeclaredFields())
+			if (!f.isSynthetic() && !Modifier.isStatic(f.getModifiers()))
+				result.add(f);
+		return result.toArray(new Field[result.size()]);
+	}
+
+	private static EncodeableDescTable table() {
+		EncodeableDescTable table = new EncodeableDescTable();
+		table.addStructureInfo(EncodeableDesc.readFromClass(Hello.class, Hello.getFields()));
+		table.addStructureInfo(EncodeableDesc.readFromClass(Sample.class, sampleFields()));
+		return table;
+	}
+
+	private static Sample sample() {
+		Sample s = new Sample();
+		s.number = 42;
+		s.names = new String[] {"a", null, "c"};
+		s.state = ServerState.Running;
+		s.states = new ServerState[] {ServerState.Failed, ServerState.Shutdown};
+		s.info = new BuildInfo("uri", "manufacturer", "product", "1.0", "1", DateTime.fromMillis(1000000));
+		s.infos = new BuildInfo[] {s.info, new BuildInfo("uri2", "manufacturer2", "product2", "2.0", "2", DateTime.fromMillis(2000000))};
+		s.value = new Variant(new Double[] {1.5, 2.5});
+		s.text = new LocalizedText("text", "en");
+		s.data = ByteString.valueOf(new byte[] {1, 2, 3});
+		return s;
+	}
+
+	private static byte[] encode(IEncodeableSerializer serializer, Class<? extends IEncodeable> clazz, IEncodeable o) throws Exception {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		serializer.putEncodeable(clazz, o, enc);
+		return buf.toByteArray();
+	}
+
+	@Test
+	public void encodesLikeReflectionSerializer() throws Exception {
+		EncodeableDescTable table = table();
+		SpecializedEncodeableSerializer sut = new SpecializedEncodeableSerializer(table);
+		EncodeableReflectionSerializer reflection = new EncodeableReflectionSerializer(table);
+
+		Hello hello = new Hello(UnsignedInteger.ZERO, UnsignedInteger.valueOf(8192), UnsignedInteger.valueOf(8192), 
+				UnsignedInteger.ZERO, UnsignedInteger.ZERO, "opc.tcp://localhost:4840");
+		assertArrayEquals(encode(reflection, Hello.class, hello), encode(sut, Hello.class, hello));
+		assertArrayEquals(encode(reflection, Sample.class, sample()), encode(sut, Sample.class, sample()));
+		assertArrayEquals(encode(reflection, Sample.class, new Sample()), encode(sut, Sample.class, new Sample()));
+	}
+
+	@Test
+	public void decodesEncodedValue() throws Exception {
+		SpecializedEncodeableSerializer sut = new SpecializedEncodeableSerializer(table());
+		Sample expected = sample();
+
+		BinaryDecoder dec = new BinaryDecoder(encode(sut, Sample.class, expected));
+		dec.setEncoderContext(EncoderContext.getDefaultInstance());
+		Sample actual = (Sample) sut.getEncodeable(Sample.class, dec);
+
+		assertEquals(expected.number, actual.number);
+		assertArrayEquals(expected.names, actual.names);
+		assertEquals(expected.state, actual.state);
+		assertArrayEquals(expected.states, actual.states);
+		assertEquals(expected.info, actual.info);
+		assertArrayEquals(expected.infos, actual.infos);
+		assertEquals(expected.value, actual.value);
+		assertEquals(expected.text, actual.text);
+		assertEquals(expected.data, actual.data);
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.opcfoundation.ua.encoding.binary;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayReadable;
+
+/**
+ * Compares string encoding and decoding of {@link BinaryEncoder} and
+ * {@link BinaryDecoder} with encoding through an intermediate byte array.
+ * Prints the time and the number of bytes allocated per string.
+ * <p>
+ * Not run as part of the unit tests, run with the main method.
+ */
+public class StringEncodingBenchmark {
+
+	static final String[] STRINGS = {
+		"ServerStatus", "CurrentTime", "BuildInfo", "Objects", "Temperature", 
+		"ns=2;s=Device1.Sensor42.Value", "Measured value of the sensor", "Temperatur äußen", 
+		"温度", "EngineeringUnits"};
+	static final int ROUNDS = 20;
+	static final int ITERATIONS = 20000;
+	/** Keeps the decoded strings reachable so that decoding is not optimized away */
+	static volatile Object sink;
+
+	interface Task {
+		void run() throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final EncoderContext ctx = EncoderContext.getDefaultInstance();
+		final ByteBuffer buf = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+		final BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+
+		Task encodeArray = new Task() {
+			public void run() throws Exception {
+				buf.clear();
+				for (String s : STRINGS) {
+					byte[] bytes = s.getBytes(BinaryEncoder.UTF8);
+					buf.putInt(bytes.length);
+					buf.put(bytes);
+				}
+			}
+		};
+		Task encode = new Task() {
+			public void run() throws Exception {
+				buf.clear();
+				for (String s : STRINGS)
+					enc.putString(null, s);
+			}
+		};
+
+		encode.run();
+		final int length = buf.position();
+		final ByteBuffer[] chunks = {
+			ByteBuffer.wrap(buf.array(), 0, length / 2).slice().order(ByteOrder.LITTLE_ENDIAN), 
+			ByteBuffer.wrap(buf.array(), length / 2, length - length / 2).slice().order(ByteOrder.LITTLE_ENDIAN)};
+		final ByteBuffer src = ByteBuffer.wrap(buf.array(), 0, length).order(ByteOrder.LITTLE_ENDIAN);
+		final BinaryDecoder dec = new BinaryDecoder(src);
+		dec.setEncoderContext(ctx);
+		Task decodeArray = new Task() {
+			public void run() throws Exception {
+				src.rewind();
+				for (int i = 0; i < STRINGS.length; i++) {
+					byte[] bytes = new byte[src.getInt()];
+					src.get(bytes);
+					sink = new String(bytes, BinaryEncoder.UTF8);
+				}
+			}
+		};
+		Task decode = new Task() {
+			public void run() throws Exception {
+				src.rewind();
+				for (int i = 0; i < STRINGS.length; i++)
+					sink = dec.getString(null);
+			}
+		};
+		Task decodeChunks = new Task() {
+			public void run() throws Exception {
+				chunks[0].rewind();
+				chunks[1].rewind();
+				ByteBufferArrayReadable r = new ByteBufferArrayReadable(chunks);
+				r.order(ByteOrder.LITTLE_ENDIAN);
+				BinaryDecoder d = new BinaryDecoder(r);
+				d.setEncoderContext(ctx);
+				for (int i = 0; i < STRINGS.length; i++)
+					sink = d.getString(null);
+			}
+		};
+
+		measure("encode, intermediate array", encodeArray);
+		measure("encode, putString", encode);
+		measure("decode, intermediate array", decodeArray);
+		measure("decode, getString", decode);
+		measure("decode, getString from chunks", decodeChunks);
+	}
+
+	static void measure(String name, Task task) throws Exception {
+		for (int i = 0; i < ITERATIONS; i++)
+			task.run();
+		long bestTime = Long.MAX_VALUE;
+		long bestAllocated = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long allocated = allocatedBytes();
+			long time = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++)
+				task.run();
+			time = System.nanoTime() - time;
+			allocated = allocatedBytes() - allocated;
+			bestTime = Math.min(bestTime, time);
+			bestAllocated = Math.min(bestAllocated, allocated);
+		}
+		long ops = (long) ITERATIONS * STRINGS.length;
+		System.out.println(String.format("%-32s %8.1f ns/string %8.1f bytes/string", 
+				name, (double) bestTime / ops, bestAllocated < 0 ? Double.NaN : (double) bestAllocated / ops));
+	}
+
+	/**
+	 * Bytes allocated by the current thread, or a negative value if the
+	 * JVM does not provide the information.
+	 */
+	static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			Method m = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+			return (Long) m.invoke(bean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+}
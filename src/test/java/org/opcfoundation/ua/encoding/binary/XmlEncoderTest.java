@@ -0,0 +1,171 @@
+package org.opcfoundation.ua.encoding.binary;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.StatusCode;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.builtintypes.XmlElement;
+import org.opcfoundation.ua.core.BuildInfo;
+import org.opcfoundation.ua.core.ServerState;
+import org.opcfoundation.ua.core.ServerStatusDataType;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.xml.XmlDecoder;
+import org.opcfoundation.ua.encoding.xml.XmlEncoder;
+
+public class XmlEncoderTest {
+
+	interface Fields {
+		void put(XmlEncoder enc) throws Exception;
+	}
+
+	private static XmlDecoder roundTrip(Fields fields) throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		StringWriter out = new StringWriter();
+		XmlEncoder enc = new XmlEncoder(out, ctx);
+		enc.putStartElement("Test");
+		fields.put(enc);
+		enc.close();
+		XmlDecoder dec = new XmlDecoder(new XmlElement(out.toString()), ctx);
+		assertTrue(dec.peek("Test"));
+		dec.getStartElement();
+		return dec;
+	}
+
+	@Test
+	public void builtinTypes() throws Exception {
+		final UUID guid = UUID.randomUUID();
+		final DateTime time = new DateTime(2016, 2, 1, 12, 15, 3, 123456700);
+		final NodeId nodeId = new NodeId(2, "Device1.Temperature");
+		XmlDecoder dec = roundTrip(new Fields() {
+			public void put(XmlEncoder enc) throws Exception {
+				enc.putBoolean("Boolean", true);
+				enc.putInt32("Int32", -5);
+				enc.putUInt32("UInt32", UnsignedInteger.MAX_VALUE);
+				enc.putDouble("Double", Double.POSITIVE_INFINITY);
+				enc.putFloat("Float", Float.NaN);
+				enc.putString("String", "a < b & c");
+				enc.putString("Null", null);
+				enc.putDateTime("DateTime", time);
+				enc.putGuid("Guid", guid);
+				enc.putByteString("ByteString", ByteString.valueOf(new byte[] {1, 2, 3, 4, 5}));
+				enc.putNodeId("NodeId", nodeId);
+				enc.putStatusCode("StatusCode", new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+				enc.putQualifiedName("QualifiedName", new QualifiedName(2, "Temperature"));
+				enc.putLocalizedText("LocalizedText", new LocalizedText("Lämpötila", "fi"));
+				enc.putInt32Array("Int32Array", new int[] {1, 2, 3});
+				enc.putStringArray("StringArray", new String[] {"x", "y"});
+			}
+		});
+		assertEquals(Boolean.TRUE, dec.getBoolean("Boolean"));
+		assertEquals(Integer.valueOf(-5), dec.getInt32("Int32"));
+		assertEquals(UnsignedInteger.MAX_VALUE, dec.getUInt32("UInt32"));
+		assertEquals(Double.valueOf(Double.POSITIVE_INFINITY), dec.getDouble("Double"));
+		assertTrue(dec.getFloat("Float").isNaN());
+		assertEquals("a < b & c", dec.getString("String"));
+		assertNull(dec.getString("Null"));
+		assertEquals(time, dec.getDateTime("DateTime"));
+		assertEquals(guid, dec.getGuid("Guid"));
+		assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, dec.getByteString("ByteString").getValue());
+		assertEquals(nodeId, dec.getNodeId("NodeId"));
+		assertEquals(new StatusCode(StatusCodes.Bad_NodeIdUnknown), dec.getStatusCode("StatusCode"));
+		assertEquals(new QualifiedName(2, "Temperature"), dec.getQualifiedName("QualifiedName"));
+		assertEquals(new LocalizedText("Lämpötila", "fi"), dec.getLocalizedText("LocalizedText"));
+		assertArrayEquals(new Integer[] {1, 2, 3}, dec.getInt32Array("Int32Array"));
+		assertArrayEquals(new String[] {"x", "y"}, dec.getStringArray("StringArray"));
+	}
+
+	@Test
+	public void variantsAndDataValue() throws Exception {
+		final int[][] matrix = {{1, 2, 3}, {4, 5, 6}};
+		final DataValue dataValue = new DataValue(new Variant(42.5), StatusCode.GOOD,
+				new DateTime(2016, 2, 1, 12, 15, 3, 0), new DateTime(2016, 2, 1, 12, 15, 4, 500000000));
+		XmlDecoder dec = roundTrip(new Fields() {
+			public void put(XmlEncoder enc) throws Exception {
+				enc.putVariant("Scalar", new Variant("text"));
+				enc.putVariant("Array", new Variant(new double[] {1.5, -2.5}));
+				enc.putVariant("Matrix", new Variant(matrix));
+				enc.putVariant("Null", null);
+				enc.putDataValue("DataValue", dataValue);
+			}
+		});
+		assertEquals("text", dec.getVariant("Scalar").getValue());
+		Variant array = dec.getVariant("Array");
+		assertArrayEquals(new Double[] {1.5, -2.5}, (Object[]) array.getValue());
+		assertEquals(new Variant(new double[] {1.5, -2.5}), array);
+		assertEquals(new Variant(matrix), dec.getVariant("Matrix"));
+		assertNull(dec.getVariant("Null").getValue());
+		assertEquals(dataValue, dec.getDataValue("DataValue"));
+	}
+
+	@Test
+	public void structures() throws Exception {
+		final BuildInfo buildInfo = new BuildInfo("urn:product", "manufacturer", "product", "1.0", "42",
+				new DateTime(2016, 2, 1, 0, 0, 0, 0));
+		final ServerStatusDataType status = new ServerStatusDataType(new DateTime(2016, 2, 1, 12, 0, 0, 0),
+				new DateTime(2016, 2, 1, 12, 15, 3, 0), ServerState.Running, buildInfo, UnsignedInteger.ZERO, null);
+		XmlDecoder dec = roundTrip(new Fields() {
+			public void put(XmlEncoder enc) throws Exception {
+				enc.putEncodeable("Status", status);
+				enc.putExtensionObject("ExtensionObject", new ExtensionObject(buildInfo));
+			}
+		});
+		ServerStatusDataType decoded = dec.getEncodeable("Status", ServerStatusDataType.class);
+		assertEquals(ServerState.Running, decoded.getState());
+		assertEquals(status.getCurrentTime(), decoded.getCurrentTime());
+		assertEquals("product", decoded.getBuildInfo().getProductName());
+		assertNull(decoded.getShutdownReason().getText());
+		BuildInfo decodedBuildInfo = dec.getExtensionObject("ExtensionObject").decode(EncoderContext.getDefaultInstance());
+		assertEquals(buildInfo.getBuildDate(), decodedBuildInfo.getBuildDate());
+		assertEquals("product", decodedBuildInfo.getProductName());
+
+		ExtensionObject xml = ExtensionObject.xmlEncode(buildInfo);
+		BuildInfo fromXml = xml.decode(EncoderContext.getDefaultInstance());
+		assertEquals("urn:product", fromXml.getProductUri());
+	}
+
+	@Test
+	public void streaming() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		BuildInfo buildInfo = new BuildInfo("urn:product", "manufacturer", "product", "1.0", "42",
+				new DateTime(2016, 2, 1, 0, 0, 0, 0));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlEncoder enc = new XmlEncoder(out, ctx);
+		enc.putStartElement("Test");
+		enc.putExtensionObjectArray("ExtensionObjects", new ExtensionObject[] {
+				new ExtensionObject(buildInfo), new ExtensionObject(buildInfo)});
+		enc.putVariant("Variant", new Variant(new ExtensionObject(buildInfo)));
+		enc.putInt32Array("Int32Array", new int[] {1, 2, 3});
+		enc.putEnumeration("State", ServerState.Suspended);
+		enc.close();
+
+		XmlDecoder dec = new XmlDecoder(new ByteArrayInputStream(out.toByteArray()), ctx);
+		dec.setStreaming(true);
+		assertTrue(dec.peek("Test"));
+		dec.getStartElement();
+		ExtensionObject[] eos = dec.get("ExtensionObjects", ExtensionObject[].class);
+		assertEquals(2, eos.length);
+		assertTrue(eos[1].getObject() instanceof BuildInfo);
+		assertEquals("urn:product", ((BuildInfo) eos[1].getObject()).getProductUri());
+		BuildInfo fromVariant = (BuildInfo) dec.get("Variant", Object.class);
+		assertEquals(buildInfo.getBuildDate(), fromVariant.getBuildDate());
+		assertArrayEquals(new Integer[] {1, 2, 3}, dec.get("Int32Array", Integer[].class));
+		assertEquals(ServerState.Suspended, dec.get("State", ServerState.class));
+		dec.getEndElement();
+	}
+
+}
@@ -0,0 +1,198 @@
+package org.opcfoundation.ua.encoding.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.DateTime;
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.ExtensionObject;
+import org.opcfoundation.ua.builtintypes.LocalizedText;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.QualifiedName;
+import org.opcfoundation.ua.builtintypes.StatusCode;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.builtintypes.UnsignedLong;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.core.BuildInfo;
+import org.opcfoundation.ua.core.ReadRequest;
+import org.opcfoundation.ua.core.ServerState;
+import org.opcfoundation.ua.core.ServerStatusDataType;
+import org.opcfoundation.ua.core.StatusCodes;
+import org.opcfoundation.ua.encoding.DecodingException;
+import org.opcfoundation.ua.encoding.EncoderContext;
+
+public class JsonEncoderTest {
+
+	interface Fields {
+		void put(JsonEncoder enc) throws Exception;
+	}
+
+	private static String encode(boolean reversible, Fields fields) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonEncoder enc = new JsonEncoder(out, EncoderContext.getDefaultInstance());
+		enc.setReversible(reversible);
+		fields.put(enc);
+		enc.close();
+		return out.toString("UTF-8");
+	}
+
+	private static JsonDecoder roundTrip(Fields fields) throws Exception {
+		return new JsonDecoder(encode(true, fields).getBytes("UTF-8"), EncoderContext.getDefaultInstance());
+	}
+
+	@Test
+	public void builtinTypes() throws Exception {
+		final UUID guid = UUID.randomUUID();
+		final DateTime time = new DateTime(2016, 2, 1, 12, 15, 3, 123456700);
+		final NodeId nodeId = new NodeId(2, "Device1.Temperature");
+		final ExpandedNodeId expandedNodeId = new ExpandedNodeId(UnsignedInteger.valueOf(1), "urn:test", guid);
+		JsonDecoder dec = roundTrip(new Fields() {
+			public void put(JsonEncoder enc) throws Exception {
+				enc.putBoolean("Boolean", true);
+				enc.putInt32("Int32", -5);
+				enc.putUInt32("UInt32", UnsignedInteger.MAX_VALUE);
+				enc.putInt64("Int64", Long.MIN_VALUE);
+				enc.putUInt64("UInt64", UnsignedLong.MAX_VALUE);
+				enc.putDouble("Double", Double.POSITIVE_INFINITY);
+				enc.putFloat("Float", Float.NaN);
+				enc.putString("String", "\"Lämpötila\"\n€ 😀");
+				enc.putString("Null", null);
+				enc.putDateTime("DateTime", time);
+				enc.putDateTime("MinDateTime", DateTime.MIN_VALUE);
+				enc.putGuid("Guid", guid);
+				enc.putByteString("ByteString", ByteString.valueOf(new byte[] {1, 2, 3, 4, 5}));
+				enc.putNodeId("NodeId", nodeId);
+				enc.putExpandedNodeId("ExpandedNodeId", expandedNodeId);
+				enc.putStatusCode("StatusCode", new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+				enc.putQualifiedName("QualifiedName", new QualifiedName(2, "Temperature"));
+				enc.putLocalizedText("LocalizedText", new LocalizedText("Lämpötila", "fi"));
+				enc.putInt32Array("Int32Array", new int[] {1, 2, 3});
+				enc.putStringArray("StringArray", new String[] {"x", null, "y"});
+			}
+		});
+		// Read out of order
+		assertArrayEquals(new String[] {"x", null, "y"}, dec.getStringArray("StringArray"));
+		assertEquals(Boolean.TRUE, dec.getBoolean("Boolean"));
+		assertEquals(Integer.valueOf(-5), dec.getInt32("Int32"));
+		assertEquals(UnsignedInteger.MAX_VALUE, dec.getUInt32("UInt32"));
+		assertEquals(Long.valueOf(Long.MIN_VALUE), dec.getInt64("Int64"));
+		assertEquals(UnsignedLong.MAX_VALUE, dec.getUInt64("UInt64"));
+		assertEquals(Double.valueOf(Double.POSITIVE_INFINITY), dec.getDouble("Double"));
+		assertTrue(dec.getFloat("Float").isNaN());
+		assertEquals("\"Lämpötila\"\n€ 😀", dec.getString("String"));
+		assertNull(dec.getString("Null"));
+		assertEquals(time, dec.getDateTime("DateTime"));
+		assertEquals(DateTime.MIN_VALUE, dec.getDateTime("MinDateTime"));
+		assertEquals(guid, dec.getGuid("Guid"));
+		assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, dec.getByteString("ByteString").getValue());
+		assertEquals(nodeId, dec.getNodeId("NodeId"));
+		assertEquals(expandedNodeId, dec.getExpandedNodeId("ExpandedNodeId"));
+		assertEquals(new StatusCode(StatusCodes.Bad_NodeIdUnknown), dec.getStatusCode("StatusCode"));
+		assertEquals(new QualifiedName(2, "Temperature"), dec.getQualifiedName("QualifiedName"));
+		assertEquals(new LocalizedText("Lämpötila", "fi"), dec.getLocalizedText("LocalizedText"));
+		assertArrayEquals(new int[] {1, 2, 3}, dec.getInt32Array_("Int32Array"));
+		assertNull(dec.getInt32("Missing"));
+	}
+
+	@Test
+	public void variantsAndDataValue() throws Exception {
+		final int[][] matrix = {{1, 2, 3}, {4, 5, 6}};
+		final String[][] strings = {{"a", "b"}, {"c", "d"}};
+		final DataValue dataValue = new DataValue(new Variant(42.5), StatusCode.GOOD,
+				new DateTime(2016, 2, 1, 12, 15, 3, 0), new DateTime(2016, 2, 1, 12, 15, 4, 500000000));
+		JsonDecoder dec = roundTrip(new Fields() {
+			public void put(JsonEncoder enc) throws Exception {
+				enc.putVariant("Scalar", new Variant("text"));
+				enc.putVariant("Array", new Variant(new double[] {1.5, -2.5}));
+				enc.putVariant("Matrix", new Variant(matrix));
+				enc.putVariant("Strings", new Variant(strings));
+				enc.putVariant("Decimal", new Variant(new BigDecimal("-12.345")));
+				enc.putVariant("Null", null);
+				enc.putDataValue("DataValue", dataValue);
+			}
+		});
+		assertEquals("text", dec.getVariant("Scalar").getValue());
+		Variant array = dec.getVariant("Array");
+		assertArrayEquals(new double[] {1.5, -2.5}, (double[]) array.getPrimitiveArray(), 0);
+		assertEquals(new Variant(new double[] {1.5, -2.5}), array);
+		assertEquals(new Variant(matrix), dec.getVariant("Matrix"));
+		assertTrue(Arrays.deepEquals(strings, (Object[]) dec.getVariant("Strings").getValue()));
+		assertEquals(new BigDecimal("-12.345"), dec.getVariant("Decimal").getValue());
+		assertNull(dec.getVariant("Null").getValue());
+		assertEquals(dataValue, dec.getDataValue("DataValue"));
+	}
+
+	@Test
+	public void structures() throws Exception {
+		final BuildInfo buildInfo = new BuildInfo("urn:product", "manufacturer", "product", "1.0", "42",
+				new DateTime(2016, 2, 1, 0, 0, 0, 0));
+		final ServerStatusDataType status = new ServerStatusDataType(new DateTime(2016, 2, 1, 12, 0, 0, 0),
+				new DateTime(2016, 2, 1, 12, 15, 3, 0), ServerState.Running, buildInfo, UnsignedInteger.ZERO, null);
+		JsonDecoder dec = roundTrip(new Fields() {
+			public void put(JsonEncoder enc) throws Exception {
+				enc.putEncodeable("Status", status);
+				enc.putExtensionObject("ExtensionObject", new ExtensionObject(buildInfo));
+				enc.putExtensionObject("Binary", ExtensionObject.binaryEncode(buildInfo, EncoderContext.getDefaultInstance()));
+			}
+		});
+		ServerStatusDataType decoded = dec.getEncodeable("Status", ServerStatusDataType.class);
+		assertEquals(ServerState.Running, decoded.getState());
+		assertEquals(status.getCurrentTime(), decoded.getCurrentTime());
+		assertEquals("product", decoded.getBuildInfo().getProductName());
+		assertNull(decoded.getShutdownReason());
+		BuildInfo decodedBuildInfo = dec.getExtensionObject("ExtensionObject").decode(EncoderContext.getDefaultInstance());
+		assertEquals(buildInfo.getBuildDate(), decodedBuildInfo.getBuildDate());
+		assertEquals("urn:product", decodedBuildInfo.getProductUri());
+		BuildInfo fromBinary = dec.getExtensionObject("Binary").decode(EncoderContext.getDefaultInstance());
+		assertEquals("product", fromBinary.getProductName());
+	}
+
+	@Test
+	public void message() throws Exception {
+		ReadRequest request = new ReadRequest();
+		request.setMaxAge(500.0);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonEncoder enc = new JsonEncoder(out, EncoderContext.getDefaultInstance());
+		enc.putMessage(request);
+		enc.close();
+		ReadRequest decoded = new JsonDecoder(out.toByteArray(), EncoderContext.getDefaultInstance()).getMessage();
+		assertEquals(Double.valueOf(500.0), decoded.getMaxAge());
+	}
+
+	@Test
+	public void nonReversible() throws Exception {
+		String json = encode(false, new Fields() {
+			public void put(JsonEncoder enc) throws Exception {
+				enc.putVariant("Value", new Variant(new int[][] {{1, 2}, {3, 4}}));
+				enc.putStatusCode("Status", new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+				enc.putLocalizedText("Text", new LocalizedText("Hello", "en"));
+				enc.putEnumeration("State", ServerState.Running);
+				enc.putDateTime("Time", new DateTime(DateTime.OffsetToGregorianCalendarZero + 1454328903L * 10000000));
+			}
+		});
+		assertEquals("{\"Value\":[[1,2],[3,4]],\"Status\":{\"Code\":2150891520,\"Symbol\":\"Bad_NodeIdUnknown\"},"
+				+ "\"Text\":\"Hello\",\"State\":\"Running_0\",\"Time\":\"2016-02-01T12:15:03Z\"}", json);
+	}
+
+	@Test
+	public void malformedDateTime() throws Exception {
+		String[] malformed = {"2016-02-0xT12:15:03+01:00", "2016-02", "20x6-02-01T12:15:03.5Z"};
+		for (String s : malformed) {
+			JsonDecoder dec = new JsonDecoder(("{\"Time\":\"" + s + "\"}").getBytes("UTF-8"), EncoderContext.getDefaultInstance());
+			try {
+				dec.getDateTime("Time");
+				fail("Expected DecodingException for " + s);
+			} catch (DecodingException e) {
+				assertEquals(StatusCodes.Bad_DecodingError, e.getStatusCode().getValue());
+			}
+		}
+	}
+
+}
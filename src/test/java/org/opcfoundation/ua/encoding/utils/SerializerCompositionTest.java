@@ -0,0 +1,50 @@
+package org.opcfoundation.ua.encoding.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.ExpandedNodeId;
+import org.opcfoundation.ua.builtintypes.NodeId;
+import org.opcfoundation.ua.builtintypes.UnsignedInteger;
+import org.opcfoundation.ua.common.NamespaceTable;
+import org.opcfoundation.ua.core.EncodeableSerializer;
+import org.opcfoundation.ua.core.ReadRequest;
+import org.opcfoundation.ua.core.ServerStatusDataType;
+import org.opcfoundation.ua.encoding.EncodeType;
+
+public class SerializerCompositionTest {
+
+	@Test
+	public void standardNamespaceIdsResolveToClass() {
+		SerializerComposition sut = EncodeableSerializer.getInstance();
+		assertSame(ReadRequest.class, sut.getClass(ns0(ReadRequest.BINARY)));
+		assertSame(ReadRequest.class, sut.getClass(ns0(ReadRequest.XML)));
+		assertSame(ServerStatusDataType.class, sut.getClass(ns0(ServerStatusDataType.ID)));
+
+		// As decoded from a message
+		NodeId typeId = NodeId.get(ReadRequest.BINARY.getIdType(), 0, ReadRequest.BINARY.getValue());
+		ExpandedNodeId decoded = NamespaceTable.getDefaultInstance().toExpandedNodeId(typeId);
+		assertSame(ReadRequest.class, sut.getClass(decoded));
+	}
+
+	@Test
+	public void unknownIdsResolveToNull() {
+		SerializerComposition sut = EncodeableSerializer.getInstance();
+		assertNull(sut.getClass(new ExpandedNodeId(NamespaceTable.OPCUA_NAMESPACE, UnsignedInteger.valueOf(0xfffffff0L))));
+		assertNull(sut.getClass(new ExpandedNodeId("urn:unknown", ReadRequest.BINARY.getValue())));
+		assertNull(sut.getClass(new ExpandedNodeId(NamespaceTable.OPCUA_NAMESPACE, "ReadRequest")));
+	}
+
+	@Test
+	public void classesResolveToNodeIds() {
+		SerializerComposition sut = EncodeableSerializer.getInstance();
+		assertEquals(ns0(ReadRequest.BINARY), sut.getNodeId(ReadRequest.class, EncodeType.Binary));
+		assertEquals(ns0(ReadRequest.XML), sut.getNodeId(ReadRequest.class, EncodeType.Xml));
+		assertEquals(ns0(ServerStatusDataType.BINARY), sut.getNodeId(ServerStatusDataType.class, EncodeType.Binary));
+	}
+
+	private static ExpandedNodeId ns0(ExpandedNodeId id) {
+		return new ExpandedNodeId(NamespaceTable.OPCUA_NAMESPACE, id.getValue());
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.opcfoundation.ua.transport.tcp.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.core.BuildInfo;
+import org.opcfoundation.ua.core.MessageSecurityMode;
+import org.opcfoundation.ua.core.WriteRequest;
+import org.opcfoundation.ua.core.WriteValue;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.EncodingException;
+import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
+import org.opcfoundation.ua.utils.bytebuffer.ByteBufferArrayReadable;
+
+public class ChunkArrayWriteableTest {
+
+	private static ChunkFactory chunkFactory() {
+		return new ChunkFactory(8192, 8, 8, 8, 0, 1, MessageSecurityMode.None, 0);
+	}
+
+	private static WriteRequest request(int count) {
+		WriteValue[] values = new WriteValue[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = new WriteValue();
+			Object value = i % 2 == 0 ? "value " + i : new BuildInfo("uri", "manufacturer", "product " + i, "1.0", "1", null);
+			values[i].setValue(new DataValue(new Variant(value)));
+		}
+		WriteRequest request = new WriteRequest();
+		request.setNodesToWrite(values);
+		return request;
+	}
+
+	@Test
+	public void singlePassMatchesStreamEncoding() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		WriteRequest request = request(2000);
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		BinaryEncoder ref = new BinaryEncoder(expected);
+		ref.setEncoderContext(ctx);
+		ref.putMessage(request);
+
+		ChunkFactory cf = chunkFactory();
+		ChunkArrayWriteable sut = new ChunkArrayWriteable(cf, 0, 0);
+		BinaryEncoder enc = new BinaryEncoder(sut);
+		enc.setEncoderContext(ctx);
+		enc.putMessage(request);
+		ByteBuffer[] plaintexts = sut.finish();
+
+		assertEquals(expected.size(), sut.getLength());
+		assertEquals((expected.size() + cf.maxPlaintextSize - 1) / cf.maxPlaintextSize, plaintexts.length);
+		for (int i = 0; i < plaintexts.length - 1; i++)
+			assertEquals(cf.maxPlaintextSize, plaintexts[i].limit());
+
+		// Chunk size of the trimmed last chunk must match its content
+		ByteBuffer last = cf.expandToCompleteChunk(plaintexts[plaintexts.length - 1]);
+		assertEquals(last.capacity(), last.getInt(4));
+
+		ByteBufferArrayReadable r = new ByteBufferArrayReadable(plaintexts);
+		r.order(ByteOrder.LITTLE_ENDIAN);
+		byte[] actual = new byte[expected.size()];
+		r.get(actual);
+		assertArrayEquals(expected.toByteArray(), actual);
+	}
+
+	@Test
+	public void maxChunkCountEnforcedWhileWriting() throws Exception {
+		ChunkArrayWriteable sut = new ChunkArrayWriteable(chunkFactory(), 2, 0);
+		BinaryEncoder enc = new BinaryEncoder(sut);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		try {
+			enc.putMessage(request(2000));
+			fail("Expected chunk count to be exceeded");
+		} catch (EncodingException e) {
+			assertTrue(sut.isChunkCountExceeded());
+		}
+	}
+
+	@Test
+	public void maxMessageSizeEnforcedWhileWriting() throws Exception {
+		ChunkArrayWriteable sut = new ChunkArrayWriteable(chunkFactory(), 0, 1000);
+		BinaryEncoder enc = new BinaryEncoder(sut);
+		enc.setEncoderContext(EncoderContext.getDefaultInstance());
+		try {
+			enc.putMessage(request(100));
+			fail("Expected message size to be exceeded");
+		} catch (EncodingException e) {
+			assertFalse(sut.isChunkCountExceeded());
+			assertEquals(1000, sut.getLength());
+		}
+	}
+
+}
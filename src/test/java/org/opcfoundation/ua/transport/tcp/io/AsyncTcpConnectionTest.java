@@ -0,0 +1,79 @@
+package org.opcfoundation.ua.transport.tcp.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.opcfoundation.ua.application.Server;
+import org.opcfoundation.ua.core.EndpointConfiguration;
+import org.opcfoundation.ua.core.EndpointDescription;
+import org.opcfoundation.ua.core.GetEndpointsRequest;
+import org.opcfoundation.ua.core.GetEndpointsResponse;
+import org.opcfoundation.ua.core.MessageSecurityMode;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.transport.ChannelService;
+import org.opcfoundation.ua.transport.TransportChannelSettings;
+import org.opcfoundation.ua.transport.security.Cert;
+import org.opcfoundation.ua.transport.security.KeyPair;
+import org.opcfoundation.ua.transport.security.PrivKey;
+import org.opcfoundation.ua.transport.security.SecurityMode;
+import org.opcfoundation.ua.transport.security.SecurityPolicy;
+
+public class AsyncTcpConnectionTest {
+
+	static final String URL = "opc.tcp://127.0.0.1:8668/UAExample";
+
+	/**
+	 * Timeout for all tests in this class.
+	 */
+	@Rule
+	public Timeout timeout = Timeout.seconds(30);
+
+	Server server;
+
+	@Before
+	public void setUp() throws Exception {
+		server = Server.createServerApplication();
+		Cert cert = Cert.load(getClass().getResource("/org/opcfoundation/ua/unittests/ServerCert.der"));
+		PrivKey key = PrivKey.loadFromKeyStore(getClass().getResource("/org/opcfoundation/ua/unittests/UAServerCert.pfx"), "Opc.Sample.Ua.Server");
+		server.getApplication().addApplicationInstanceCertificate(new KeyPair(cert, key));
+		server.bind(URL, URL, SecurityMode.NONE);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.getApplication().close();
+	}
+
+	@Test
+	public void getEndpoints() throws Exception {
+		EndpointDescription endpoint = new EndpointDescription();
+		endpoint.setEndpointUrl(URL);
+		endpoint.setSecurityMode(MessageSecurityMode.None);
+		endpoint.setSecurityPolicyUri(SecurityPolicy.NONE.getPolicyUri());
+		TransportChannelSettings settings = new TransportChannelSettings();
+		settings.setDescription(endpoint);
+		settings.setConfiguration(EndpointConfiguration.defaults());
+		settings.getOpctcpSettings().getFlags().add(OpcTcpSettings.Flag.NonBlocking);
+
+		SecureChannelTcp channel = new SecureChannelTcp();
+		channel.initialize(URL, settings, EncoderContext.getDefaultInstance());
+		assertTrue(channel.getTransportChannel() instanceof AsyncTcpConnection);
+		channel.open();
+		try {
+			ChannelService chan = new ChannelService(channel);
+			for (int i = 0; i < 3; i++) {
+				GetEndpointsResponse res = chan.GetEndpoints(new GetEndpointsRequest(null, URL, new String[0], new String[0]));
+				assertEquals(1, res.getEndpoints().length);
+				assertEquals(SecurityPolicy.NONE.getPolicyUri(), res.getEndpoints()[0].getSecurityPolicyUri());
+			}
+		} finally {
+			channel.close();
+			channel.dispose();
+		}
+	}
+
+}
@@ -80,6 +80,36 @@ public class TestDateTime extends TestCase {
 		}
 	}
 	
+	public static void testEncodeDecodeTicks() throws EncodingException, DecodingException {
+		final String fieldName = null;
+		byte[] buffer = new byte[64];
+		BinaryEncoder encoder = new BinaryEncoder(buffer);
+		BinaryDecoder decoder = new BinaryDecoder(buffer);
+		long now = DateTime.currentTicks();
+		encoder.putDateTime(fieldName, now);
+		encoder.putDateTime(fieldName, -1L);
+		encoder.putDateTime(fieldName, Long.MAX_VALUE);
+		assertEquals(now, decoder.getDateTime_(fieldName));
+		assertSame(DateTime.MIN_VALUE, decoder.getDateTime(fieldName));
+		assertSame(DateTime.MAX_VALUE, decoder.getDateTime(fieldName));
+	}
+
+	public static void testCurrentTimeCached() {
+		DateTime before = DateTime.currentTime();
+		DateTime d = DateTime.currentTimeCached();
+		assertTrue(d.compareTo(before) >= 0);
+		assertTrue(d.getValue() <= DateTime.currentTicks());
+		String s = d.toString();
+		assertSame(s, d.toString());
+		String format = DateTime.getStrFormat();
+		try {
+			DateTime.setStrFormat(DateTime.ISO_8601_STR_FORMAT);
+			assertFalse(s.equals(d.toString()));
+		} finally {
+			DateTime.setStrFormat(format);
+		}
+	}
+	
 	public static void testParse() throws ParseException {
 		DateTime d = new DateTime(2011, Calendar.APRIL, 13, 11, 47, 12, 0);
 		String s = "2011-04-13T11:47:12Z";
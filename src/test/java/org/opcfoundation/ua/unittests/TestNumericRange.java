@@ -31,7 +31,10 @@ package org.opcfoundation.ua.unittests;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.ByteString;
+import org.opcfoundation.ua.builtintypes.Variant;
 import org.opcfoundation.ua.common.ServiceResultException;
+import org.opcfoundation.ua.core.StatusCodes;
 import org.opcfoundation.ua.utils.NumericRange;
 
 public class TestNumericRange {
@@ -186,4 +189,67 @@ public class TestNumericRange {
 		Assert.assertEquals(4, nr.getBegin(2));
 		Assert.assertEquals(6, nr.getEnd(2));
 	}
+	
+	@Test
+	public void testExtract() throws ServiceResultException {
+		Variant flat = Variant.valueOf(new double[] {0, 1, 2, 3, 4, 5}, new int[] {2, 3});
+		Variant actual = NumericRange.parse("1,0:1").extract(flat);
+		Assert.assertArrayEquals(new double[] {3, 4}, (double[]) actual.getPrimitiveArray(), 0);
+		Assert.assertArrayEquals(new int[] {1, 2}, actual.getArrayDimensions());
+		
+		// Ranges past the end are cut
+		Assert.assertArrayEquals(new int[] {1, 2}, (int[]) NumericRange.parse("1:5").extract(testArrayOneDim));
+		int[][] block = (int[][]) NumericRange.parse("0:1,2").extract(testArrayTwoDim);
+		Assert.assertArrayEquals(new int[] {2}, block[0]);
+		Assert.assertArrayEquals(new int[] {5}, block[1]);
+		
+		Assert.assertEquals("ll", NumericRange.parse("2:3").extract("Hello"));
+		Assert.assertEquals(ByteString.valueOf((byte) 2), NumericRange.parse("1").extract(ByteString.valueOf((byte) 1, (byte) 2)));
+		String[] names = (String[]) NumericRange.parse("1:2,0:1").extract(new String[] {"abc", "def", "ghi"});
+		Assert.assertArrayEquals(new String[] {"de", "gh"}, names);
+		
+		try {
+			NumericRange.parse("3").extract(testArrayOneDim);
+			Assert.fail("Expected no data");
+		} catch (ServiceResultException e) {
+			Assert.assertEquals(StatusCodes.Bad_IndexRangeNoData, e.getStatusCode().getValue());
+		}
+		try {
+			NumericRange.parse("0").extract(testArrayTwoDim);
+			Assert.fail("Expected invalid range");
+		} catch (ServiceResultException e) {
+			Assert.assertEquals(StatusCodes.Bad_IndexRangeInvalid, e.getStatusCode().getValue());
+		}
+	}
+	
+	@Test
+	public void testPatch() throws ServiceResultException {
+		Variant target = Variant.valueOf(new int[] {0, 1, 2, 3, 4, 5}, new int[] {2, 3});
+		Variant actual = NumericRange.parse("0:1,1").patch(target, Variant.valueOf(new int[] {7, 8}, new int[] {2, 1}));
+		Assert.assertArrayEquals(new int[] {0, 7, 2, 3, 8, 5}, (int[]) actual.getPrimitiveArray());
+		Assert.assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5}, (int[]) target.getPrimitiveArray());
+		
+		Assert.assertEquals(new Variant(new Integer[] {0, 9, 2}), 
+				NumericRange.parse("1").patch(Variant.valueOf(testArrayOneDim), new Variant(new Integer[] {9})));
+		Assert.assertEquals("Jello", NumericRange.parse("0").patch("Hello", "J"));
+		
+		try {
+			NumericRange.parse("1:3").patch(testArrayOneDim, new int[] {1, 2, 3});
+			Assert.fail("Expected no data");
+		} catch (ServiceResultException e) {
+			Assert.assertEquals(StatusCodes.Bad_IndexRangeNoData, e.getStatusCode().getValue());
+		}
+		try {
+			NumericRange.parse("0:1").patch(testArrayOneDim, new int[] {1});
+			Assert.fail("Expected invalid range");
+		} catch (ServiceResultException e) {
+			Assert.assertEquals(StatusCodes.Bad_IndexRangeInvalid, e.getStatusCode().getValue());
+		}
+		try {
+			NumericRange.parse("0").patch(testArrayOneDim, new String[] {"a"});
+			Assert.fail("Expected type mismatch");
+		} catch (ServiceResultException e) {
+			Assert.assertEquals(StatusCodes.Bad_TypeMismatch, e.getStatusCode().getValue());
+		}
+	}
 }
@@ -0,0 +1,89 @@
+package org.opcfoundation.ua.utils.bytebuffer;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class ByteBufferPoolTest {
+
+	@Test
+	public void sizeClasses() {
+		ByteBufferPool pool = new ByteBufferPool(8192, 65536, 2, false);
+		ByteBuffer buf = pool.take(10000);
+		assertEquals(16384, buf.capacity());
+		assertEquals(10000, buf.limit());
+		assertEquals(0, buf.position());
+		assertEquals(8192, pool.take(100).capacity());
+		assertEquals(65536, pool.take(65536).capacity());
+		// Larger than the largest class, not pooled
+		ByteBuffer large = pool.take(65537);
+		assertEquals(65537, large.capacity());
+		pool.release(large);
+		assertNotSame(large, pool.take(65537));
+	}
+
+	@Test
+	public void reuse() {
+		ByteBufferPool pool = new ByteBufferPool(8192, 65536, 1, false);
+		ByteBuffer a = pool.take(9000);
+		ByteBuffer b = pool.take(9000);
+		a.order(ByteOrder.LITTLE_ENDIAN).putInt(1);
+		pool.release(a);
+		pool.release(b);
+		// Only one buffer is kept per class
+		ByteBuffer c = pool.take(12000);
+		assertSame(a, c);
+		assertEquals(12000, c.limit());
+		assertEquals(0, c.position());
+		assertEquals(ByteOrder.BIG_ENDIAN, c.order());
+		assertNotSame(b, pool.take(12000));
+		// Discarded buffers are not reused
+		ByteBuffer d = pool.take(20000);
+		pool.discard(d);
+		assertNotSame(d, pool.take(20000));
+	}
+
+	@Test
+	public void releasedTwice() {
+		ByteBufferPool pool = new ByteBufferPool(8192, 65536, 4, false);
+		pool.setLeakDetection(false);
+		ByteBuffer a = pool.take(100);
+		pool.release(a);
+		pool.release(a);
+		assertSame(a, pool.take(100));
+		assertNotSame(a, pool.take(100));
+	}
+
+	@Test
+	public void direct() {
+		ByteBufferPool pool = new ByteBufferPool(1024, 4096, 4, true);
+		ByteBuffer buf = pool.take(1000);
+		assertTrue(buf.isDirect());
+		pool.release(buf);
+		assertSame(buf, pool.take(1024));
+	}
+
+	@Test
+	public void leakDetection() {
+		ByteBufferPool pool = new ByteBufferPool(8192, 65536, 4, false);
+		pool.setLeakDetection(true);
+		ByteBuffer a = pool.take(100);
+		ByteBuffer b = pool.take(100);
+		ByteBuffer c = pool.take(100);
+		assertEquals(3, pool.getOutstandingCount());
+		pool.release(a);
+		pool.discard(b);
+		assertEquals(1, pool.getOutstandingCount());
+		// Released twice, must not be pooled again
+		pool.release(a);
+		assertSame(a, pool.take(100));
+		assertNotSame(a, pool.take(100));
+		pool.setLeakDetection(false);
+		assertEquals(0, pool.getOutstandingCount());
+		pool.release(c);
+	}
+
+}
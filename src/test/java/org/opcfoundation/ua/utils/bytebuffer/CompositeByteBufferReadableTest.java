@@ -0,0 +1,101 @@
+package org.opcfoundation.ua.utils.bytebuffer;
+
+import static org.junit.Assert.*;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.opcfoundation.ua.builtintypes.DataValue;
+import org.opcfoundation.ua.builtintypes.Variant;
+import org.opcfoundation.ua.core.WriteRequest;
+import org.opcfoundation.ua.core.WriteValue;
+import org.opcfoundation.ua.encoding.EncoderContext;
+import org.opcfoundation.ua.encoding.binary.BinaryDecoder;
+import org.opcfoundation.ua.encoding.binary.BinaryEncoder;
+
+public class CompositeByteBufferReadableTest {
+
+	private static ByteBuffer[] split(byte[] data, int chunkSize) {
+		int count = (data.length + chunkSize - 1) / chunkSize;
+		ByteBuffer[] chunks = new ByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			int offset = i * chunkSize;
+			chunks[i] = ByteBuffer.wrap(data, offset, Math.min(chunkSize, data.length - offset)).slice();
+		}
+		return chunks;
+	}
+
+	@Test
+	public void primitivesAcrossBoundaries() throws Exception {
+		ByteBuffer buf = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+		buf.put((byte) 1).putShort((short) -2).putInt(3).putLong(-4L).putFloat(5.5f).putDouble(-6.25);
+		byte[] data = new byte[buf.position()];
+		System.arraycopy(buf.array(), 0, data, 0, data.length);
+
+		for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+			CompositeByteBufferReadable r = new CompositeByteBufferReadable(split(data, chunkSize));
+			r.order(ByteOrder.LITTLE_ENDIAN);
+			assertEquals(data.length, r.limit());
+			assertEquals(1, r.get());
+			assertEquals(-2, r.getShort());
+			assertEquals(3, r.getInt());
+			assertEquals(-4L, r.getLong());
+			assertEquals(5.5f, r.getFloat(), 0);
+			assertEquals(19, r.position());
+			assertEquals(-6.25, r.getDouble(), 0);
+			assertEquals(data.length, r.position());
+			try {
+				r.get();
+				fail("Expected end of stream");
+			} catch (EOFException e) {
+			}
+		}
+	}
+
+	@Test
+	public void messageDecodesFromChunks() throws Exception {
+		EncoderContext ctx = EncoderContext.getDefaultInstance();
+		WriteValue[] values = new WriteValue[50];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = new WriteValue();
+			Object value = i % 2 == 0 ? "value " + i : new Double[] {i + 0.0, i + 0.5, i + 0.25};
+			values[i].setValue(new DataValue(new Variant(value)));
+		}
+		WriteRequest request = new WriteRequest();
+		request.setNodesToWrite(values);
+		ByteBuffer buf = ByteBuffer.allocate(65536).order(ByteOrder.LITTLE_ENDIAN);
+		BinaryEncoder enc = new BinaryEncoder(buf);
+		enc.setEncoderContext(ctx);
+		enc.putMessage(request);
+		byte[] data = new byte[buf.position()];
+		System.arraycopy(buf.array(), 0, data, 0, data.length);
+
+		CompositeByteBufferReadable r = new CompositeByteBufferReadable(split(data, 97));
+		r.order(ByteOrder.LITTLE_ENDIAN);
+		BinaryDecoder dec = new BinaryDecoder(r);
+		dec.setEncoderContext(ctx);
+		WriteRequest decoded = (WriteRequest) dec.getMessage();
+		assertEquals(data.length, r.position());
+		assertEquals(values.length, decoded.getNodesToWrite().length);
+		for (int i = 0; i < values.length; i++)
+			assertEquals(values[i].getValue().getValue(), decoded.getNodesToWrite()[i].getValue().getValue());
+
+		// Buffers taken from an incubation buffer as they are hatched
+		IncubationBuffer sink = new IncubationBuffer();
+		for (ByteBuffer chunk : split(data, 97)) {
+			sink.incubate(chunk);
+			sink.hatch(chunk);
+		}
+		sink.close();
+		r = new CompositeByteBufferReadable(sink, Integer.MAX_VALUE);
+		r.order(ByteOrder.LITTLE_ENDIAN);
+		dec = new BinaryDecoder(r);
+		dec.setEncoderContext(ctx);
+		decoded = (WriteRequest) dec.getMessage();
+		assertEquals(data.length, r.position());
+		assertEquals(values[values.length - 1].getValue().getValue(), decoded.getNodesToWrite()[values.length - 1].getValue().getValue());
+	}
+
+}